@@ -0,0 +1,106 @@
+package fi.sakusaisa.tiralabra.bench;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import fi.sakusaisa.tiralabra.datastructures.BitClosedSet;
+import fi.sakusaisa.tiralabra.datastructures.ClosedSet;
+
+/**
+ * The closed sets on the operations of a real search, the same way as
+ * OpenSetBenchmark: every benchmark replays the cells an 8-way A* closed and
+ * the closed set checks it made for their neighbours, and every check is
+ * answered to the blackhole.
+ *
+ * @author Saku Säisä
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClosedSetBenchmark {
+
+	@Param({"128", "512", "1024"})
+	public int size;
+
+	@Param({"0.1", "0.3"})
+	public float density;
+
+	private SearchTrace trace;
+
+	private ClosedSet closedSet;
+	private BitClosedSet bitClosedSet;
+	private BitSet bitSet;
+	private HashSet<Integer> hashSet;
+
+	@Setup(Level.Trial)
+	public void record() {
+		trace = SearchTrace.record(size, density, 1).only(SearchTrace.CLOSE, SearchTrace.CLOSED_CONTAINS);
+		closedSet = new ClosedSet(trace.cellCount);
+		bitClosedSet = new BitClosedSet(trace.cellCount);
+		bitSet = new BitSet(trace.cellCount);
+		hashSet = new HashSet<Integer>();
+	}
+
+	@Benchmark
+	public void closedSet(Blackhole blackhole) {
+		closedSet.clear();
+		for (int i = 0; i < trace.count; i++) {
+			if (trace.operations[i] == SearchTrace.CLOSE)
+				closedSet.insert(trace.cells[i]);
+			else
+				blackhole.consume(closedSet.contains(trace.cells[i]));
+		}
+	}
+
+	@Benchmark
+	public void bitClosedSet(Blackhole blackhole) {
+		bitClosedSet.clear();
+		for (int i = 0; i < trace.count; i++) {
+			if (trace.operations[i] == SearchTrace.CLOSE)
+				bitClosedSet.insert(trace.cells[i]);
+			else
+				blackhole.consume(bitClosedSet.contains(trace.cells[i]));
+		}
+	}
+
+	@Benchmark
+	public void bitSet(Blackhole blackhole) {
+		bitSet.clear();
+		for (int i = 0; i < trace.count; i++) {
+			if (trace.operations[i] == SearchTrace.CLOSE)
+				bitSet.set(trace.cells[i]);
+			else
+				blackhole.consume(bitSet.get(trace.cells[i]));
+		}
+	}
+
+	@Benchmark
+	public void hashSet(Blackhole blackhole) {
+		hashSet.clear();
+		for (int i = 0; i < trace.count; i++) {
+			if (trace.operations[i] == SearchTrace.CLOSE)
+				hashSet.add(trace.cells[i]);
+			else
+				blackhole.consume(hashSet.contains(trace.cells[i]));
+		}
+	}
+
+}
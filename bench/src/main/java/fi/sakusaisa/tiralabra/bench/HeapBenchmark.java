@@ -0,0 +1,149 @@
+package fi.sakusaisa.tiralabra.bench;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import fi.sakusaisa.tiralabra.datastructures.DaryHeap;
+import fi.sakusaisa.tiralabra.datastructures.MinBinaryHeap;
+import fi.sakusaisa.tiralabra.datastructures.OpenSet;
+
+/**
+ * Compares the heaps on the operations of a real search. An 8-way A* on a
+ * random map is recorded once (see SearchTrace), and every benchmark replays
+ * its inserts, decreaseKeys and delMins into one heap: the binary heap, the
+ * packed d-ary heap of each arity and java.util.PriorityQueue. The score is the
+ * time of a whole replay, the same operations for every heap of a map.
+ *
+ * java.util.PriorityQueue has no decreaseKey, so it gets the usual treatment:
+ * a decreased cell is added again and the stale entries are skipped when they
+ * come out.
+ *
+ * @author Saku Säisä
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeapBenchmark {
+
+	@Param({"128", "512", "1024"})
+	public int size;
+
+	@Param({"0.25"})
+	public float density;
+
+	// the open set operations of the recorded search
+	private SearchTrace trace;
+
+	// every heap has keys of its own, so a replay into one doesn't disturb the others
+	private float[] binaryKeys;
+	private MinBinaryHeap binaryHeap;
+	private float[][] daryKeys;
+	private DaryHeap[] daryHeaps;
+	private float[] queueKeys;
+	private PriorityQueue<Long> queue;
+
+	@Setup(Level.Trial)
+	public void record() {
+		trace = SearchTrace.record(size, density, 1).only(SearchTrace.INSERT, SearchTrace.DECREASE, SearchTrace.DEL_MIN);
+		binaryKeys = new float[trace.cellCount];
+		binaryHeap = new MinBinaryHeap(100, binaryKeys);
+		daryKeys = new float[3][trace.cellCount];
+		daryHeaps = new DaryHeap[3];
+		for (int i = 0; i < 3; i++)
+			daryHeaps[i] = new DaryHeap(100, daryKeys[i], 2 << i);
+		queueKeys = new float[trace.cellCount];
+		queue = new PriorityQueue<Long>(100);
+	}
+
+	/**
+	 * Replays the recording into an open set.
+	 */
+	private void replay(OpenSet openSet, float[] keys, Blackhole blackhole) {
+
+		openSet.clear(false);
+
+		for (int i = 0; i < trace.count; i++) {
+			int cell = trace.cells[i];
+			if (trace.operations[i] == SearchTrace.INSERT) {
+				keys[cell] = trace.keys[i];
+				openSet.insert(cell);
+			}
+			else if (trace.operations[i] == SearchTrace.DECREASE) {
+				keys[cell] = trace.keys[i];
+				openSet.decreaseKey(cell);
+			}
+			else
+				blackhole.consume(openSet.delMin());
+		}
+
+	}
+
+	@Benchmark
+	public void minBinaryHeap(Blackhole blackhole) {
+		replay(binaryHeap, binaryKeys, blackhole);
+	}
+
+	@Benchmark
+	public void daryHeap2(Blackhole blackhole) {
+		replay(daryHeaps[0], daryKeys[0], blackhole);
+	}
+
+	@Benchmark
+	public void daryHeap4(Blackhole blackhole) {
+		replay(daryHeaps[1], daryKeys[1], blackhole);
+	}
+
+	@Benchmark
+	public void daryHeap8(Blackhole blackhole) {
+		replay(daryHeaps[2], daryKeys[2], blackhole);
+	}
+
+	/**
+	 * The keys and cells are packed into longs, the bits of a positive float sort
+	 * the same way as the float itself. A cell taken out gets a NaN key, which
+	 * no entry matches.
+	 */
+	@Benchmark
+	public void priorityQueue(Blackhole blackhole) {
+
+		queue.clear();
+
+		for (int i = 0; i < trace.count; i++) {
+			int cell = trace.cells[i];
+			if (trace.operations[i] == SearchTrace.DEL_MIN) {
+				while (!queue.isEmpty()) {
+					long entry = queue.poll();
+					int polled = (int) entry;
+					if (Float.floatToIntBits(queueKeys[polled]) == (int) (entry >>> 32)) {
+						queueKeys[polled] = Float.NaN;
+						blackhole.consume(polled);
+						break;
+					}
+				}
+			}
+			else {
+				queueKeys[cell] = trace.keys[i];
+				queue.add(((long) Float.floatToIntBits(trace.keys[i]) << 32) | cell);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,152 @@
+package fi.sakusaisa.tiralabra.bench;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import fi.sakusaisa.tiralabra.datastructures.AvlTree;
+import fi.sakusaisa.tiralabra.datastructures.MinBinaryHeap;
+import fi.sakusaisa.tiralabra.datastructures.OpenSet;
+
+/**
+ * The open sets on the operations of a real search. An 8-way A* on a random map
+ * of each size and obstacle density is recorded once (see SearchTrace), and every
+ * benchmark replays its inserts, decreaseKeys, delMins and contains checks into
+ * one open set. The score is the time of a whole replay, which is the same
+ * operations for every open set of a map, so the scores of a map compare directly.
+ *
+ * java.util.PriorityQueue has neither decreaseKey nor a fast contains, so it
+ * gets the usual treatment: a decreased cell is added again, the stale entries
+ * are skipped when they come out and membership is kept in an array of its own.
+ *
+ * @author Saku Säisä
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OpenSetBenchmark {
+
+	@Param({"128", "512", "1024"})
+	public int size;
+
+	@Param({"0.1", "0.3"})
+	public float density;
+
+	private SearchTrace trace;
+
+	private float[] heapKeys;
+	private MinBinaryHeap heap;
+	private float[] treeKeys;
+	private AvlTree tree;
+
+	// the PriorityQueue and its membership: a cell is in the queue while its stamp is the generation of the replay
+	private float[] queueKeys;
+	private int[] stamps;
+	private int generation;
+	private PriorityQueue<Long> queue;
+
+	@Setup(Level.Trial)
+	public void record() {
+		trace = SearchTrace.record(size, density, 1).only(SearchTrace.INSERT, SearchTrace.DECREASE, SearchTrace.DEL_MIN, SearchTrace.OPEN_CONTAINS);
+		heapKeys = new float[trace.cellCount];
+		heap = new MinBinaryHeap(100, heapKeys);
+		treeKeys = new float[trace.cellCount];
+		tree = new AvlTree(treeKeys);
+		queueKeys = new float[trace.cellCount];
+		stamps = new int[trace.cellCount];
+		queue = new PriorityQueue<Long>(100);
+	}
+
+	/**
+	 * Replays the recording into an open set.
+	 */
+	private void replay(OpenSet openSet, float[] keys, Blackhole blackhole) {
+
+		openSet.clear(false);
+
+		for (int i = 0; i < trace.count; i++) {
+			int cell = trace.cells[i];
+			switch (trace.operations[i]) {
+			case SearchTrace.INSERT:
+				keys[cell] = trace.keys[i];
+				openSet.insert(cell);
+				break;
+			case SearchTrace.DECREASE:
+				keys[cell] = trace.keys[i];
+				openSet.decreaseKey(cell);
+				break;
+			case SearchTrace.DEL_MIN:
+				blackhole.consume(openSet.delMin());
+				break;
+			default:
+				blackhole.consume(openSet.contains(cell));
+			}
+		}
+
+	}
+
+	@Benchmark
+	public void minBinaryHeap(Blackhole blackhole) {
+		replay(heap, heapKeys, blackhole);
+	}
+
+	@Benchmark
+	public void avlTree(Blackhole blackhole) {
+		replay(tree, treeKeys, blackhole);
+	}
+
+	/**
+	 * The keys and cells are packed into longs, the bits of a positive float sort
+	 * the same way as the float itself.
+	 */
+	@Benchmark
+	public void priorityQueue(Blackhole blackhole) {
+
+		// a generation of 0 would look like a cell in the queue
+		generation = generation == Integer.MAX_VALUE ? 1 : generation + 1;
+		queue.clear();
+
+		for (int i = 0; i < trace.count; i++) {
+			int cell = trace.cells[i];
+			switch (trace.operations[i]) {
+			case SearchTrace.INSERT:
+			case SearchTrace.DECREASE:
+				queueKeys[cell] = trace.keys[i];
+				stamps[cell] = generation;
+				queue.add(((long) Float.floatToIntBits(trace.keys[i]) << 32) | cell);
+				break;
+			case SearchTrace.DEL_MIN:
+				while (!queue.isEmpty()) {
+					long entry = queue.poll();
+					int polled = (int) entry;
+					if (stamps[polled] == generation && Float.floatToIntBits(queueKeys[polled]) == (int) (entry >>> 32)) {
+						stamps[polled] = 0;
+						blackhole.consume(polled);
+						break;
+					}
+				}
+				break;
+			default:
+				blackhole.consume(stamps[cell] == generation);
+			}
+		}
+
+	}
+
+}
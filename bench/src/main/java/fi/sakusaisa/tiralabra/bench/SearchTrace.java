@@ -0,0 +1,202 @@
+package fi.sakusaisa.tiralabra.bench;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import fi.sakusaisa.tiralabra.core.Grid;
+import fi.sakusaisa.tiralabra.core.PathFinder;
+import fi.sakusaisa.tiralabra.datastructures.MinBinaryHeap;
+
+/**
+ * A recording of everything an 8-way A* does to its open and closed sets on a
+ * random map, for the benchmarks to replay into the data structures. Besides the
+ * inserts, decreases and removals of the open set the recording has the
+ * membership checks a search makes: every neighbour is checked against the
+ * closed set, and a neighbour that was reached before against the open set.
+ *
+ * @author Saku Säisä
+ */
+public class SearchTrace {
+
+	public static final int INSERT = 0;
+	public static final int DECREASE = 1;
+	public static final int DEL_MIN = 2;
+	public static final int OPEN_CONTAINS = 3;
+	public static final int CLOSE = 4;
+	public static final int CLOSED_CONTAINS = 5;
+
+	// the recorded operations, the cell each one was for and the key the cell had
+	int[] operations;
+	int[] cells;
+	float[] keys;
+	int count;
+
+	// the amount of cells on the map
+	int cellCount;
+
+	private SearchTrace(int cellCount, int capacity) {
+		this.cellCount = cellCount;
+		this.operations = new int[capacity];
+		this.cells = new int[capacity];
+		this.keys = new float[capacity];
+	}
+
+	/**
+	 * Records a search from the top left corner to the bottom right one.
+	 *
+	 * @param size The width and height of the map.
+	 * @param density The share of the cells that are obstacles.
+	 * @param seed The seed of the random map.
+	 * @return The recording.
+	 */
+	public static SearchTrace record(int size, float density, long seed) {
+
+		Random random = new Random(seed);
+		Grid grid = new Grid(size, size);
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				if (random.nextFloat() < density)
+					grid.setCellData(i, j, 0);
+			}
+		}
+
+		// the corners and their neighbours are kept open so the search can't be walled in at once
+		for (int i = 0; i < 2; i++) {
+			for (int j = 0; j < 2; j++) {
+				grid.setCellData(i, j, 1);
+				grid.setCellData(size - 1 - i, size - 1 - j, 1);
+			}
+		}
+
+		SearchTrace trace = new SearchTrace(grid.getCellCount(), 1024);
+		trace.search(grid, grid.index(0, 0), grid.index(size - 1, size - 1));
+		return trace;
+
+	}
+
+	/**
+	 * A copy with only some kinds of operations, e.g. the open set ones for a heap.
+	 *
+	 * @param kinds The kinds of operations to keep.
+	 * @return The filtered recording.
+	 */
+	public SearchTrace only(int... kinds) {
+
+		boolean[] keep = new boolean[CLOSED_CONTAINS + 1];
+		for (int kind : kinds)
+			keep[kind] = true;
+
+		SearchTrace filtered = new SearchTrace(cellCount, Math.max(count, 1));
+		for (int i = 0; i < count; i++) {
+			if (keep[operations[i]])
+				filtered.add(operations[i], cells[i], keys[i]);
+		}
+		return filtered;
+
+	}
+
+	private void add(int operation, int cell, float key) {
+
+		if (count == operations.length) {
+			operations = Arrays.copyOf(operations, count * 2);
+			cells = Arrays.copyOf(cells, count * 2);
+			keys = Arrays.copyOf(keys, count * 2);
+		}
+
+		operations[count] = operation;
+		cells[count] = cell;
+		keys[count] = key;
+		count++;
+
+	}
+
+	/**
+	 * A plain 8-way A* with the octile heuristic that records what it does to its sets.
+	 */
+	private void search(Grid grid, int start, int goal) {
+
+		float[] distance = new float[cellCount];
+		float[] searchKeys = new float[cellCount];
+		boolean[] reached = new boolean[cellCount];
+		boolean[] closed = new boolean[cellCount];
+		MinBinaryHeap openSet = new MinBinaryHeap(100, searchKeys);
+
+		int goalX = grid.getX(goal);
+		int goalY = grid.getY(goal);
+
+		reached[start] = true;
+		searchKeys[start] = octile(grid.getX(start) - goalX, grid.getY(start) - goalY);
+		openSet.insert(start);
+		add(INSERT, start, searchKeys[start]);
+
+		while (!openSet.isEmpty()) {
+
+			int current = openSet.delMin();
+			add(DEL_MIN, current, 0);
+			if (current == goal)
+				return;
+			closed[current] = true;
+			add(CLOSE, current, 0);
+
+			for (int dx = -1; dx <= 1; dx++) {
+				for (int dy = -1; dy <= 1; dy++) {
+
+					int x = grid.getX(current) + dx;
+					int y = grid.getY(current) + dy;
+					if ((dx == 0 && dy == 0) || !grid.cellIsOkay(x, y))
+						continue;
+
+					int cell = grid.index(x, y);
+					if (!grid.isPassable(cell))
+						continue;
+
+					add(CLOSED_CONTAINS, cell, 0);
+					if (closed[cell])
+						continue;
+
+					float newDistance = distance[current] + (dx != 0 && dy != 0 ? PathFinder.DIAGONAL_COST : 1);
+					if (reached[cell]) {
+						add(OPEN_CONTAINS, cell, 0);
+						if (newDistance >= distance[cell])
+							continue;
+					}
+
+					distance[cell] = newDistance;
+					searchKeys[cell] = newDistance + octile(x - goalX, y - goalY);
+					if (reached[cell]) {
+						openSet.decreaseKey(cell);
+						add(DECREASE, cell, searchKeys[cell]);
+					}
+					else {
+						reached[cell] = true;
+						openSet.insert(cell);
+						add(INSERT, cell, searchKeys[cell]);
+					}
+
+				}
+			}
+
+		}
+
+	}
+
+	private static float octile(int dx, int dy) {
+		dx = Math.abs(dx);
+		dy = Math.abs(dy);
+		return Math.max(dx, dy) + (PathFinder.DIAGONAL_COST - 1) * Math.min(dx, dy);
+	}
+
+	/**
+	 * The amount of recorded operations.
+	 *
+	 * @return the operation count
+	 */
+	public int getCount() {
+		return this.count;
+	}
+
+	public int getCellCount() {
+		return this.cellCount;
+	}
+
+}
@@ -0,0 +1,164 @@
+package fi.sakusaisa.tiralabra.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs batches of queries in parallel on a fixed pool of worker threads. Every
+ * worker has its own PathFinder as its search context: the open and closed sets,
+ * distances and parents of a PathFinder are only ever touched by one worker and
+ * are reused from query to query. Everything else is shared: the workers read
+ * the same grid and the same tables derived from it, the neighbour table and the
+ * connected components, which the grid builds once for all of them.
+ *
+ * The grid must not be changed while a batch is running. The workers take the
+ * queries in small blocks from a shared counter, so a few long searches don't
+ * leave the other workers idle.
+ *
+ * @author Saku Säisä
+ */
+public class BatchPathFinder {
+
+    // how many queries a worker takes at a time
+    private static final int BLOCK_SIZE = 16;
+
+    // the grid shared by all the workers
+    private Grid grid;
+
+    private ExecutorService executor;
+
+    // the search context of each worker
+    private PathFinder[] contexts;
+
+    /**
+     * Constructor, uses one worker per available processor.
+     *
+     * @param grid the grid to run the searches on
+     */
+    public BatchPathFinder(Grid grid) {
+        this(grid, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param grid the grid to run the searches on
+     * @param threadCount the amount of worker threads
+     */
+    public BatchPathFinder(Grid grid, int threadCount) {
+
+        if (threadCount < 1)
+            throw new IllegalArgumentException("at least one worker thread is needed");
+
+        this.grid = grid;
+        this.contexts = new PathFinder[threadCount];
+        for (int i = 0; i < threadCount; i++)
+            contexts[i] = new PathFinder(grid);
+
+        // daemon threads, so a forgotten shutdown doesn't keep the program running
+        this.executor = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "path-finder-worker");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+    }
+
+    /**
+     * Runs all the queries and waits for them to finish.
+     *
+     * @param queries the queries to run
+     * @return the results, in the same order as the queries
+     * @throws IllegalArgumentException if the start or goal of a query is outside the grid
+     */
+    public PathResult[] findPaths(final PathQuery[] queries) {
+
+        final PathResult[] results = new PathResult[queries.length];
+        final AtomicInteger nextQuery = new AtomicInteger(0);
+
+        List<Future<Void>> workers = new ArrayList<Future<Void>>();
+        for (int i = 0; i < contexts.length; i++) {
+
+            final PathFinder context = contexts[i];
+
+            workers.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+
+                    while (true) {
+
+                        int first = nextQuery.getAndAdd(BLOCK_SIZE);
+                        if (first >= queries.length)
+                            return null;
+
+                        int last = Math.min(first + BLOCK_SIZE, queries.length);
+                        for (int q = first; q < last; q++)
+                            results[q] = context.findPath(queries[q]);
+
+                    }
+
+                }
+            }));
+
+        }
+
+        // waiting for every worker also makes their results visible to this thread
+        RuntimeException failure = null;
+        for (Future<Void> worker : workers) {
+            try {
+                worker.get();
+            }
+            catch (ExecutionException e) {
+                if (failure == null)
+                    failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while waiting for the batch", e);
+            }
+        }
+
+        if (failure != null)
+            throw failure;
+
+        return results;
+
+    }
+
+    /**
+     * Stops the worker threads, the batch finder can't be used after this.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Attaches a listener to the search context of every worker. The workers call
+     * it at the same time, so it must be thread safe, SearchStatistics is.
+     *
+     * @param listener the listener, null to detach the current one
+     */
+    public void setSearchListener(SearchListener listener) {
+        for (PathFinder context : contexts)
+            context.setSearchListener(listener);
+    }
+
+    public int getThreadCount() {
+        return this.contexts.length;
+    }
+
+    public Grid getGrid() {
+        return this.grid;
+    }
+
+}
@@ -0,0 +1,45 @@
+package fi.sakusaisa.tiralabra.core;
+
+/**
+ * A growing list of cell indices, for the engines to remember which cells a
+ * search touched. The array only grows as far as the searches reach, so a
+ * search of a small region of a big map keeps the list small, and clearing it
+ * takes constant time.
+ *
+ * @author Saku Säisä
+ */
+class CellList {
+
+    private int[] cells = new int[64];
+    private int size;
+
+    /**
+     * Adds a cell to the end of the list.
+     *
+     * @param cell the index of the cell
+     */
+    void add(int cell) {
+        if (size == cells.length) {
+            int[] bigger = new int[cells.length * 2];
+            System.arraycopy(cells, 0, bigger, 0, size);
+            cells = bigger;
+        }
+        cells[size++] = cell;
+    }
+
+    /**
+     * Empties the list, keeping its array for the next search.
+     */
+    void clear() {
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(int i) {
+        return cells[i];
+    }
+
+}
@@ -0,0 +1,426 @@
+package fi.sakusaisa.tiralabra.core;
+
+/**
+ * Labels the connected components of the passable cells of a grid, for either
+ * 4-connectivity (orthogonal moves only) or 8-connectivity (diagonal moves too),
+ * so a query whose start and goal are in different components can be told to
+ * have no path without searching.
+ *
+ * Every passable cell has a label, and the labels form a union-find forest: the
+ * component of a cell is the root of its label. The labels follow the grid
+ * through its change log one changed cell at a time:
+ *
+ * - a cell turning passable joins the components of its neighbours, merging
+ *   them if there are several, which is a union of their labels
+ * - a cell turning into an obstacle may split its component. Its neighbours are
+ *   flooded from in lockstep, one cell each at a time, and floods that meet are
+ *   joined. Once only one flood (or joined group of them) can still go on there
+ *   is no split. A flood that runs out before that has covered a whole piece of
+ *   its own, and only the cells of that piece are given a new label, so the work
+ *   is bounded by the sizes of the smaller pieces instead of the whole component
+ *
+ * If the change log has forgotten some of the changes, every cell is labelled again.
+ *
+ * One instance per grid is enough, see Grid.getComponents: the methods are
+ * synchronized, so the engines of several threads can share it as long as the
+ * grid isn't changed while they search.
+ *
+ * @author Saku Säisä
+ */
+public class ConnectedComponents {
+
+    // the orthogonal neighbours first, then the diagonal ones
+    private static final int[] DX = { 0, -1, 1, 0, -1, 1, -1, 1 };
+    private static final int[] DY = { -1, 0, 0, 1, -1, -1, 1, 1 };
+
+    private Grid grid;
+    private int width;
+    private int height;
+    private boolean diagonal;
+    private int directionCount;
+
+    // the label of every cell, -1 for the obstacles
+    private int[] labels;
+
+    // the union-find forest of the labels, a root is its own parent
+    private int[] parents;
+    private int labelCount;
+
+    private int componentCount;
+
+    // the change count of the grid the labels were last brought up to date with
+    private int changeCount;
+
+    // the cells flooded by the split checks so far
+    private long cellsVisited;
+
+    // the split checks: the generation each cell was last flooded in and the flood that got there,
+    // created on the first check
+    private int[] visitStamps;
+    private byte[] visitOwners;
+    private int visitGeneration;
+
+    // the cells each flood has reached in order, the next one to expand, and the floods joined together
+    private int[][] floods = new int[8][];
+    private int[] floodSizes = new int[8];
+    private int[] floodHeads = new int[8];
+    private int[] floodGroups = new int[8];
+    private boolean[] groupsDone = new boolean[8];
+
+    /**
+     * The bytes the components of a grid allocate for its cells: the labels, and
+     * the visit stamps and owners created on the first split check.
+     *
+     * @param cellCount the amount of cells in the grid
+     * @return the bytes allocated for the cells
+     */
+    static long bytesFor(int cellCount) {
+        return 9L * cellCount;
+    }
+
+    /**
+     * Constructor, labels every cell of the grid.
+     *
+     * @param grid the grid to follow
+     * @param diagonal true for 8-connectivity, false for 4-connectivity
+     */
+    public ConnectedComponents(Grid grid, boolean diagonal) {
+        this.grid = grid;
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        this.diagonal = diagonal;
+        this.directionCount = diagonal ? 8 : 4;
+        this.labels = new int[grid.getCellCount()];
+        this.parents = new int[64];
+        for (int i = 0; i < floods.length; i++)
+            floods[i] = new int[64];
+        rebuild();
+    }
+
+    /**
+     * Labels every cell from scratch with a flood fill per component.
+     */
+    private void rebuild() {
+
+        int cellCount = labels.length;
+        for (int i = 0; i < cellCount; i++)
+            labels[i] = -1;
+        labelCount = 0;
+        componentCount = 0;
+        changeCount = grid.getChangeCount();
+
+        int[] queue = new int[64];
+        for (int cell = 0; cell < cellCount; cell++) {
+
+            if (labels[cell] != -1 || !grid.isPassable(cell))
+                continue;
+
+            int label = newLabel();
+            componentCount++;
+            labels[cell] = label;
+            queue[0] = cell;
+            int head = 0;
+            int size = 1;
+
+            while (head < size) {
+                int current = queue[head++];
+                int x = current % width;
+                int y = current / width;
+                for (int d = 0; d < directionCount; d++) {
+                    int nx = x + DX[d];
+                    int ny = y + DY[d];
+                    if (nx < 0 || ny < 0 || nx >= width || ny >= height)
+                        continue;
+                    int neighbour = ny * width + nx;
+                    if (labels[neighbour] != -1 || !grid.isPassable(neighbour))
+                        continue;
+                    labels[neighbour] = label;
+                    if (size == queue.length)
+                        queue = grow(queue);
+                    queue[size++] = neighbour;
+                }
+            }
+
+        }
+
+    }
+
+    private static int[] grow(int[] array) {
+        int[] grown = new int[array.length * 2];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    private int newLabel() {
+        if (labelCount == parents.length)
+            parents = grow(parents);
+        parents[labelCount] = labelCount;
+        return labelCount++;
+    }
+
+    /**
+     * The root of a label, halving the path to it on the way.
+     */
+    private int find(int label) {
+        while (parents[label] != label) {
+            parents[label] = parents[parents[label]];
+            label = parents[label];
+        }
+        return label;
+    }
+
+    /**
+     * Applies the changes made to the grid since the last update. Labelling every
+     * cell again is left for when the change log has forgotten some of them, or
+     * when the labels given out have piled up to twice the amount of cells.
+     */
+    public synchronized void update() {
+
+        int latest = grid.getChangeCount();
+        if (latest == changeCount)
+            return;
+
+        if (latest - changeCount > Grid.CHANGE_LOG_SIZE || labelCount > 2 * labels.length) {
+            rebuild();
+            return;
+        }
+
+        // the labels are compared to the grid as it is now, so a cell changed many times is only handled once
+        for (int change = changeCount; change < latest; change++) {
+            int cell = grid.getChangedCell(change);
+            boolean passable = grid.isPassable(cell);
+            if (passable && labels[cell] == -1)
+                addCell(cell);
+            else if (!passable && labels[cell] != -1)
+                removeCell(cell);
+        }
+
+        changeCount = latest;
+
+    }
+
+    /**
+     * Labels a cell that has turned passable, merging the components around it.
+     */
+    private void addCell(int cell) {
+
+        int x = cell % width;
+        int y = cell / width;
+        int root = -1;
+
+        for (int d = 0; d < directionCount; d++) {
+
+            int nx = x + DX[d];
+            int ny = y + DY[d];
+            if (nx < 0 || ny < 0 || nx >= width || ny >= height)
+                continue;
+
+            int neighbour = ny * width + nx;
+            if (labels[neighbour] == -1)
+                continue;
+
+            int neighbourRoot = find(labels[neighbour]);
+            if (root == -1)
+                root = neighbourRoot;
+            else if (neighbourRoot != root) {
+                parents[neighbourRoot] = root;
+                componentCount--;
+            }
+
+        }
+
+        if (root == -1) {
+            root = newLabel();
+            componentCount++;
+        }
+
+        labels[cell] = root;
+
+    }
+
+    /**
+     * Removes the label of a cell that has turned into an obstacle, and gives
+     * new labels to the pieces its component may have split into.
+     */
+    private void removeCell(int cell) {
+
+        labels[cell] = -1;
+
+        int x = cell % width;
+        int y = cell / width;
+        int floodCount = 0;
+
+        if (visitStamps == null) {
+            visitStamps = new int[labels.length];
+            visitOwners = new byte[labels.length];
+        }
+        visitGeneration++;
+        if (visitGeneration == Integer.MAX_VALUE) {
+            for (int i = 0; i < visitStamps.length; i++)
+                visitStamps[i] = 0;
+            visitGeneration = 1;
+        }
+
+        // a flood from every neighbour that is left
+        for (int d = 0; d < directionCount; d++) {
+            int nx = x + DX[d];
+            int ny = y + DY[d];
+            if (nx < 0 || ny < 0 || nx >= width || ny >= height)
+                continue;
+            int neighbour = ny * width + nx;
+            if (labels[neighbour] == -1)
+                continue;
+            visitStamps[neighbour] = visitGeneration;
+            visitOwners[neighbour] = (byte) floodCount;
+            floods[floodCount][0] = neighbour;
+            floodSizes[floodCount] = 1;
+            floodHeads[floodCount] = 0;
+            floodGroups[floodCount] = floodCount;
+            groupsDone[floodCount] = false;
+            floodCount++;
+        }
+
+        // the cell was a component of its own
+        if (floodCount == 0) {
+            componentCount--;
+            return;
+        }
+
+        int groupCount = floodCount;
+        while (groupCount > 1) {
+
+            // every flood expands one cell, joining the floods it runs into
+            for (int f = 0; f < floodCount && groupCount > 1; f++) {
+
+                if (floodHeads[f] == floodSizes[f])
+                    continue;
+
+                int current = floods[f][floodHeads[f]++];
+                cellsVisited++;
+                int cx = current % width;
+                int cy = current / width;
+
+                for (int d = 0; d < directionCount; d++) {
+
+                    int nx = cx + DX[d];
+                    int ny = cy + DY[d];
+                    if (nx < 0 || ny < 0 || nx >= width || ny >= height)
+                        continue;
+
+                    int neighbour = ny * width + nx;
+                    if (labels[neighbour] == -1)
+                        continue;
+
+                    if (visitStamps[neighbour] != visitGeneration) {
+                        visitStamps[neighbour] = visitGeneration;
+                        visitOwners[neighbour] = (byte) f;
+                        if (floodSizes[f] == floods[f].length)
+                            floods[f] = grow(floods[f]);
+                        floods[f][floodSizes[f]++] = neighbour;
+                    }
+                    else {
+                        int group = findGroup(f);
+                        int other = findGroup(visitOwners[neighbour]);
+                        if (group != other) {
+                            floodGroups[other] = group;
+                            groupCount--;
+                            if (groupCount == 1)
+                                break;
+                        }
+                    }
+
+                }
+
+            }
+
+            // a group whose floods have all run out has covered a piece of its own
+            for (int f = 0; f < floodCount && groupCount > 1; f++) {
+                int group = findGroup(f);
+                if (groupsDone[group] || !isGroupFinished(group, floodCount))
+                    continue;
+                relabelGroup(group, floodCount);
+                groupsDone[group] = true;
+                componentCount++;
+                groupCount--;
+            }
+
+        }
+
+    }
+
+    private int findGroup(int flood) {
+        while (floodGroups[flood] != flood)
+            flood = floodGroups[flood];
+        return flood;
+    }
+
+    private boolean isGroupFinished(int group, int floodCount) {
+        for (int f = 0; f < floodCount; f++) {
+            if (findGroup(f) == group && floodHeads[f] < floodSizes[f])
+                return false;
+        }
+        return true;
+    }
+
+    private void relabelGroup(int group, int floodCount) {
+        int label = newLabel();
+        for (int f = 0; f < floodCount; f++) {
+            if (findGroup(f) != group)
+                continue;
+            for (int i = 0; i < floodSizes[f]; i++)
+                labels[floods[f][i]] = label;
+        }
+    }
+
+    /**
+     * The component of a cell as of the last update. The numbers are only
+     * comparable with each other until the grid is changed again.
+     *
+     * @param cell the index of the cell
+     * @return the component, -1 for an obstacle
+     */
+    public synchronized int getComponent(int cell) {
+        int label = labels[cell];
+        return label == -1 ? -1 : find(label);
+    }
+
+    /**
+     * Checks whether a path can exist between two cells, as of the last update.
+     *
+     * @param cell the index of the first cell
+     * @param other the index of the second cell
+     * @return true if both cells are passable and in the same component
+     */
+    public synchronized boolean areConnected(int cell, int other) {
+        int label = labels[cell];
+        int otherLabel = labels[other];
+        if (label == -1 || otherLabel == -1)
+            return false;
+        return label == otherLabel || find(label) == find(otherLabel);
+    }
+
+    /**
+     * @return the amount of components as of the last update
+     */
+    public synchronized int getComponentCount() {
+        return this.componentCount;
+    }
+
+    /**
+     * The cells flooded by the split checks of the updates so far, to see how
+     * local the updates stay.
+     *
+     * @return the amount of cells flooded
+     */
+    public synchronized long getCellsVisited() {
+        return this.cellsVisited;
+    }
+
+    /**
+     * @return true for 8-connectivity, false for 4-connectivity
+     */
+    public boolean isDiagonal() {
+        return this.diagonal;
+    }
+
+}
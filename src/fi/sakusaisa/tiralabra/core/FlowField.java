@@ -0,0 +1,310 @@
+package fi.sakusaisa.tiralabra.core;
+
+import fi.sakusaisa.tiralabra.datastructures.DaryHeap;
+
+/**
+ * The distance from every cell of the grid to one goal cell, along with the
+ * direction of the next step towards it. It is built with a single search that
+ * starts from the goal and runs until it has reached every cell it can: a
+ * breadth first search when only orthogonal moves are allowed, as every step
+ * then costs the same, and Dijkstra's algorithm otherwise. The moves are the
+ * same both ways, so the distance from the goal is also the distance to it.
+ *
+ * After that a path from any start cell is found by following the directions,
+ * in time proportional to the length of the path and with no search at all,
+ * which pays off when many units are headed to the same goal.
+ *
+ * A field describes the grid as it was when the field was built, see isUpToDate.
+ *
+ * @author Saku Säisä
+ */
+public class FlowField {
+
+    // the step of every direction, the order goes around the cell
+    private static final int[] DIRECTION_X = { 1, 1, 0, -1, -1, -1, 0, 1 };
+    private static final int[] DIRECTION_Y = { 0, 1, 1, 1, 0, -1, -1, -1 };
+
+    // the direction of a cell with no next step, the goal and the cells that can't reach it
+    public static final int NO_DIRECTION = -1;
+
+    private Grid grid;
+    private int goalCell;
+    private boolean diagonalMoveAllowed;
+
+    // the grid's change count the field was built at
+    private int builtAtChange;
+
+    // the distance of every cell to the goal, -1 if the goal can't be reached from it
+    private float[] distance;
+
+    // the direction of the next step of every cell towards the goal
+    private byte[] directions;
+
+    // how many cells the search expanded and the time it took
+    private int nodesExpanded;
+    private long buildNanos;
+
+    /**
+     * Constructor, builds the field.
+     *
+     * @param grid the grid to build the field on
+     * @param goalX the x of the goal cell
+     * @param goalY the y of the goal cell
+     * @param diagonalMoveAllowed whether the diagonal moves are allowed
+     * @throws IllegalArgumentException if the goal is outside the grid, or the field doesn't fit in the heap
+     */
+    public FlowField(Grid grid, int goalX, int goalY, boolean diagonalMoveAllowed) {
+
+        if (!grid.cellIsOkay(goalX, goalY))
+            throw new IllegalArgumentException("the goal must be within the grid");
+
+        SearchMemory.require(grid, bytesFor(grid), "FlowField");
+
+        long startTime = System.nanoTime();
+
+        this.grid = grid;
+        this.goalCell = grid.index(goalX, goalY);
+        this.diagonalMoveAllowed = diagonalMoveAllowed;
+        this.builtAtChange = grid.getChangeCount();
+        this.distance = new float[grid.getCellCount()];
+        this.directions = new byte[grid.getCellCount()];
+
+        for (int i = 0; i < distance.length; i++) {
+            distance[i] = -1;
+            directions[i] = NO_DIRECTION;
+        }
+
+        // an obstacle can never be reached, so nothing can reach it either
+        if (grid.isPassable(goalCell)) {
+            if (diagonalMoveAllowed)
+                buildDijkstra();
+            else
+                buildBreadthFirst();
+        }
+
+        this.buildNanos = System.nanoTime() - startTime;
+
+    }
+
+    /**
+     * The bytes a field allocates for a grid: the distances and directions, and
+     * the queue or the open set positions of the build.
+     *
+     * @param grid the grid to build the field on
+     * @return the bytes allocated while building
+     */
+    static long bytesFor(Grid grid) {
+        return 9L * grid.getCellCount();
+    }
+
+    /**
+     * Every step costs 1, so the cells come out of a plain queue in the order of their distance.
+     */
+    private void buildBreadthFirst() {
+
+        int[] queue = new int[grid.getCellCount()];
+        int head = 0, tail = 0;
+
+        distance[goalCell] = 0;
+        queue[tail++] = goalCell;
+
+        while (head < tail) {
+
+            int current = queue[head++];
+            nodesExpanded++;
+
+            for (int direction = 0; direction < 8; direction += 2) {
+                int neighbour = neighbour(current, direction);
+                if (neighbour == -1 || distance[neighbour] >= 0)
+                    continue;
+                distance[neighbour] = distance[current] + 1;
+                directions[neighbour] = (byte) opposite(direction);
+                queue[tail++] = neighbour;
+            }
+
+        }
+
+    }
+
+    /**
+     * The distances themselves are the keys of the open set. The steps cost
+     * nothing negative, so a cell taken out of the open set never gets shorter
+     * and no closed set is needed: a neighbour at least as close is just skipped.
+     */
+    private void buildDijkstra() {
+
+        DaryHeap openSet = new DaryHeap(256, distance, 4);
+
+        distance[goalCell] = 0;
+        openSet.insert(goalCell);
+
+        while (!openSet.isEmpty()) {
+
+            int current = openSet.delMin();
+            nodesExpanded++;
+
+            for (int direction = 0; direction < 8; direction++) {
+
+                int neighbour = neighbour(current, direction);
+                if (neighbour == -1)
+                    continue;
+
+                float newDistance = distance[current] + ((direction & 1) == 0 ? 1 : PathFinder.DIAGONAL_COST);
+                if (distance[neighbour] >= 0 && newDistance >= distance[neighbour])
+                    continue;
+
+                boolean reached = distance[neighbour] >= 0;
+                distance[neighbour] = newDistance;
+                directions[neighbour] = (byte) opposite(direction);
+                if (reached)
+                    openSet.decreaseKey(neighbour);
+                else
+                    openSet.insert(neighbour);
+
+            }
+
+        }
+
+    }
+
+    /**
+     * @return the index of the passable cell one step from the cell in the direction, -1 if there is none
+     */
+    private int neighbour(int cell, int direction) {
+        int x = grid.getX(cell) + DIRECTION_X[direction];
+        int y = grid.getY(cell) + DIRECTION_Y[direction];
+        if (!grid.cellIsOkay(x, y))
+            return -1;
+        int neighbour = grid.index(x, y);
+        return grid.isPassable(neighbour) ? neighbour : -1;
+    }
+
+    private static int opposite(int direction) {
+        return (direction + 4) & 7;
+    }
+
+    /**
+     * Follows the directions from a start cell to the goal. A start cell that is
+     * an obstacle, or can't reach the goal, has no path.
+     *
+     * @param startX the x of the start cell
+     * @param startY the y of the start cell
+     * @return the path along with the time it took to follow, no nodes are expanded
+     * @throws IllegalArgumentException if the start is outside the grid
+     */
+    public PathResult followPath(int startX, int startY) {
+        return followPath(startX, startY, 0, System.nanoTime());
+    }
+
+    /**
+     * Follows the directions, reporting the given statistics in the result.
+     *
+     * @param startX the x of the start cell
+     * @param startY the y of the start cell
+     * @param nodesExpanded the amount of expanded nodes to report
+     * @param startTime the System.nanoTime() to report the elapsed time from
+     * @return the path
+     */
+    PathResult followPath(int startX, int startY, int nodesExpanded, long startTime) {
+
+        if (!grid.cellIsOkay(startX, startY))
+            throw new IllegalArgumentException("the start must be within the grid");
+
+        int startCell = grid.index(startX, startY);
+        if (distance[startCell] < 0)
+            return new PathResult(null, null, -1, nodesExpanded, System.nanoTime() - startTime);
+
+        int length = 1;
+        for (int cell = startCell; cell != goalCell; cell = next(cell))
+            length++;
+
+        int[] pathX = new int[length];
+        int[] pathY = new int[length];
+        int cell = startCell;
+        for (int i = 0; i < length; i++) {
+            pathX[i] = grid.getX(cell);
+            pathY[i] = grid.getY(cell);
+            if (cell != goalCell)
+                cell = next(cell);
+        }
+
+        return new PathResult(pathX, pathY, distance[startCell], nodesExpanded, System.nanoTime() - startTime);
+
+    }
+
+    private int next(int cell) {
+        int direction = directions[cell];
+        return grid.index(grid.getX(cell) + DIRECTION_X[direction], grid.getY(cell) + DIRECTION_Y[direction]);
+    }
+
+    /**
+     * Whether the field still describes the grid, it doesn't after any cell has
+     * turned into an obstacle or back since the field was built.
+     *
+     * @return true if no passability has changed since the field was built
+     */
+    public boolean isUpToDate() {
+        return grid.getChangeCount() == builtAtChange;
+    }
+
+    /**
+     * The cost of the shortest path from a cell to the goal.
+     *
+     * @param x the x of the cell
+     * @param y the y of the cell
+     * @return the cost, -1 if the goal can't be reached from the cell
+     */
+    public float getDistance(int x, int y) {
+        return this.distance[grid.index(x, y)];
+    }
+
+    /**
+     * The distances of every cell by index, shared with the field so not to be changed.
+     *
+     * @return the distance array
+     */
+    float[] getDistances() {
+        return this.distance;
+    }
+
+    /**
+     * The direction of the next step from a cell towards the goal, 0 being
+     * towards +x and every next one turning 45 degrees towards +y.
+     *
+     * @param x the x of the cell
+     * @param y the y of the cell
+     * @return the direction from 0 to 7, NO_DIRECTION for the goal and the cells that can't reach it
+     */
+    public int getDirection(int x, int y) {
+        return this.directions[grid.index(x, y)];
+    }
+
+    public static int getDirectionX(int direction) {
+        return DIRECTION_X[direction];
+    }
+
+    public static int getDirectionY(int direction) {
+        return DIRECTION_Y[direction];
+    }
+
+    public int getGoalX() {
+        return grid.getX(this.goalCell);
+    }
+
+    public int getGoalY() {
+        return grid.getY(this.goalCell);
+    }
+
+    public boolean isDiagonalMoveAllowed() {
+        return this.diagonalMoveAllowed;
+    }
+
+    public int getNodesExpanded() {
+        return this.nodesExpanded;
+    }
+
+    public long getBuildNanos() {
+        return this.buildNanos;
+    }
+
+}
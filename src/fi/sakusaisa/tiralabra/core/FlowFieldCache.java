@@ -0,0 +1,140 @@
+package fi.sakusaisa.tiralabra.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the flow fields of the latest goals, so that the units headed to the
+ * same goal share a single search. A query whose goal already has a field is
+ * answered by following it, any other query builds the field for its goal first.
+ *
+ * Any cell turning into an obstacle or back can change the distances of the
+ * whole field, so the fields are kept only as long as the grid's change count
+ * stays the same: the first lookup after a change drops them all. At most the
+ * given amount of fields are kept, the least recently used one is dropped to
+ * make room for a new one.
+ *
+ * @author Saku Säisä
+ */
+public class FlowFieldCache {
+
+    private Grid grid;
+
+    // the fields by goal cell and diagonal setting, in least recently used order
+    private LinkedHashMap<Integer, FlowField> fields;
+    private int maxFields;
+
+    // the grid's change count the fields were built at
+    private int seenChanges;
+
+    private int hits;
+    private int misses;
+
+    /**
+     * Constructor.
+     *
+     * @param grid the grid to build the fields on
+     * @param maxFields the most fields to keep at a time, each takes 5 bytes per cell of the grid
+     */
+    public FlowFieldCache(Grid grid, final int maxFields) {
+
+        if (maxFields < 1)
+            throw new IllegalArgumentException("at least one field must fit in the cache");
+
+        this.grid = grid;
+        this.maxFields = maxFields;
+        this.seenChanges = grid.getChangeCount();
+        this.fields = new LinkedHashMap<Integer, FlowField>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, FlowField> eldest) {
+                return size() > maxFields;
+            }
+        };
+
+    }
+
+    /**
+     * Gives the field of a goal, building it if there isn't an up to date one.
+     *
+     * @param goalX the x of the goal cell
+     * @param goalY the y of the goal cell
+     * @param diagonalMoveAllowed whether the diagonal moves are allowed
+     * @return the field
+     * @throws IllegalArgumentException if the goal is outside the grid
+     */
+    public FlowField getFlowField(int goalX, int goalY, boolean diagonalMoveAllowed) {
+
+        if (!grid.cellIsOkay(goalX, goalY))
+            throw new IllegalArgumentException("the goal must be within the grid");
+
+        if (grid.getChangeCount() != seenChanges) {
+            fields.clear();
+            seenChanges = grid.getChangeCount();
+        }
+
+        Integer key = grid.index(goalX, goalY) * 2 + (diagonalMoveAllowed ? 1 : 0);
+        FlowField field = fields.get(key);
+
+        if (field != null) {
+            hits++;
+            return field;
+        }
+
+        misses++;
+        field = new FlowField(grid, goalX, goalY, diagonalMoveAllowed);
+        fields.put(key, field);
+        return field;
+
+    }
+
+    /**
+     * Answers a query by following the field of its goal. Only the start, goal
+     * and diagonal setting of the query matter, the path is always a shortest one.
+     * If the field had to be built, its search is included in the statistics.
+     *
+     * @param query the query to answer
+     * @return the found path
+     * @throws IllegalArgumentException if the start or goal is outside the grid
+     */
+    public PathResult findPath(PathQuery query) {
+
+        long startTime = System.nanoTime();
+
+        int builtBefore = misses;
+        FlowField field = getFlowField(query.getGoalX(), query.getGoalY(), query.isDiagonalMoveAllowed());
+        int nodesExpanded = misses == builtBefore ? 0 : field.getNodesExpanded();
+
+        return field.followPath(query.getStartX(), query.getStartY(), nodesExpanded, startTime);
+
+    }
+
+    /**
+     * Drops every field, the hit and miss counters are kept.
+     */
+    public void clear() {
+        fields.clear();
+    }
+
+    public int getHits() {
+        return this.hits;
+    }
+
+    public int getMisses() {
+        return this.misses;
+    }
+
+    public int getFieldCount() {
+        return this.fields.size();
+    }
+
+    public int getMaxFields() {
+        return this.maxFields;
+    }
+
+    public Grid getGrid() {
+        return this.grid;
+    }
+
+}
@@ -0,0 +1,378 @@
+package fi.sakusaisa.tiralabra.core;
+
+/**
+ * The grid as a flat primitive array. Each cell is identified by a single int
+ * index and its data is stored as one byte, using the same values as GridCell:
+ *
+ * 0 = un-passable obstacle
+ * 1 = passable
+ * 2 = final path
+ * 3 = was considered but not used for pathing
+ * 4 = start
+ * 5 = goal
+ *
+ * Every change between an obstacle and something passable is recorded, so the
+ * engines that keep data about the grid between searches can find out which
+ * cells they need to update.
+ *
+ * Besides that the grid has a version that goes up with every change to any
+ * cell's data, and the grid is split into tiles of TILE_SIZE*TILE_SIZE cells
+ * that each remember the version they were last changed at. Anything that
+ * draws or caches the grid can remember the version it last saw and later redo
+ * only the tiles changed since, e.g. the renderer repaints just those and the
+ * path markings are cleared from just those.
+ *
+ * The cell data is read and written through readCell and writeCell only, so a
+ * subclass can keep it somewhere else than in the array, see MappedGrid.
+ *
+ * @author Saku Säisä
+ */
+public class Grid {
+
+    private int width;
+    private int height;
+
+    // how many of the latest passability changes are remembered
+    public static final int CHANGE_LOG_SIZE = 4096;
+
+    // the data of every cell, row by row, null if a subclass keeps the data itself
+    private byte[] cellData;
+
+    // the cells whose passability changed, the latest CHANGE_LOG_SIZE of them in a ring buffer
+    private int[] changeLog = new int[CHANGE_LOG_SIZE];
+    private int changeCount = 0;
+
+    // the width and height of a tile in cells
+    public static final int TILE_SIZE = 16;
+
+    // the amount of tiles in x and y axis, the ones on the right and bottom edges may be partial
+    private int tilesX;
+    private int tilesY;
+
+    // goes up with every change to the data of a cell
+    private int version = 0;
+
+    // the version each tile was last changed at, row by row
+    private int[] tileVersions;
+
+    // the tables derived from the cells that are shared by every engine searching the grid, created when first asked for:
+    // the neighbour table and the connected components without and with diagonal moves
+    private NeighbourTable neighbourTable;
+    private ConnectedComponents[] components = new ConnectedComponents[2];
+
+    /**
+     * Constructor. All cells start out as passable.
+     *
+     * @param width the size of the grid in x axis
+     * @param height the size of the grid in y axis
+     */
+    public Grid(int width, int height) {
+        this(width, height, true);
+        for (int i = 0; i < cellData.length; i++)
+            cellData[i] = 1;
+    }
+
+    /**
+     * Constructor for the subclasses that keep the cell data themselves, and
+     * override readCell and writeCell.
+     *
+     * @param width the size of the grid in x axis
+     * @param height the size of the grid in y axis
+     * @param inMemory whether the data is kept in the array of this class
+     */
+    protected Grid(int width, int height, boolean inMemory) {
+        if (width < 1 || height < 1 || (long) width * height > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("the cells of the grid must be indexable with an int");
+        this.width = width;
+        this.height = height;
+        if (inMemory)
+            this.cellData = new byte[width * height];
+        this.tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+        this.tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+        this.tileVersions = new int[tilesX * tilesY];
+    }
+
+    /**
+     * Sets every cell back to passable. This counts as a single new version.
+     */
+    public void clear() {
+        boolean changed = false;
+        int cellCount = getCellCount();
+        for (int i = 0; i < cellCount; i++) {
+            int data = readCell(i);
+            if (data == 1)
+                continue;
+            if (!changed) {
+                version++;
+                changed = true;
+            }
+            if (data == 0)
+                logChange(i);
+            writeCell(i, (byte) 1);
+            tileVersions[tileOf(i)] = version;
+        }
+    }
+
+    /**
+     * Reads the data of a cell from where it is kept.
+     *
+     * @param index the index of the cell
+     * @return the data of the cell
+     */
+    protected int readCell(int index) {
+        return this.cellData[index];
+    }
+
+    /**
+     * Writes the data of a cell to where it is kept. The version and the change
+     * log are taken care of by the caller.
+     *
+     * @param index the index of the cell
+     * @param data the new data of the cell
+     */
+    protected void writeCell(int index, byte data) {
+        this.cellData[index] = data;
+    }
+
+    /**
+     * Whether the cell data is kept in the array of this class, i.e. reading
+     * every cell is cheap.
+     *
+     * @return false for the subclasses that keep the data themselves
+     */
+    boolean isInMemory() {
+        return this.cellData != null;
+    }
+
+    /**
+     * The neighbour table of the grid, built the first time it is asked for and
+     * from then on shared by every engine searching the grid.
+     *
+     * @return the table, null if the cell data isn't kept in memory or the padded grid can't be indexed with an int
+     */
+    synchronized NeighbourTable getNeighbourTable() {
+        // a mapped grid would have to be read whole for the table, the engines keep to the coordinates there
+        if (!isInMemory() || !canIndexPadded())
+            return null;
+        if (neighbourTable == null)
+            neighbourTable = new NeighbourTable(this);
+        return neighbourTable;
+    }
+
+    /**
+     * The connected components of the grid, labelled the first time they are
+     * asked for and from then on shared by every engine searching the grid. The
+     * labels follow the grid through its change log, so a user calls update on
+     * them before relying on them.
+     *
+     * @param diagonal true for 8-connectivity, false for 4-connectivity
+     * @return the components, null if the cell data isn't kept in memory
+     */
+    public synchronized ConnectedComponents getComponents(boolean diagonal) {
+        if (!isInMemory())
+            return null;
+        int index = diagonal ? 1 : 0;
+        if (components[index] == null)
+            components[index] = new ConnectedComponents(this, diagonal);
+        return components[index];
+    }
+
+    /**
+     * The bytes getNeighbourTable and getComponents would still allocate, so an
+     * engine can count them before it is built.
+     *
+     * @return the bytes of the tables not built yet
+     */
+    synchronized long getUnbuiltTableBytes() {
+        if (!isInMemory())
+            return 0;
+        long bytes = 0;
+        if (neighbourTable == null && canIndexPadded())
+            bytes += NeighbourTable.bytesFor(width, height);
+        for (int i = 0; i < components.length; i++) {
+            if (components[i] == null)
+                bytes += ConnectedComponents.bytesFor(getCellCount());
+        }
+        return bytes;
+    }
+
+    private boolean canIndexPadded() {
+        return (long) (width + 2) * (height + 2) <= Integer.MAX_VALUE;
+    }
+
+    private int tileOf(int index) {
+        return (getY(index) / TILE_SIZE) * tilesX + getX(index) / TILE_SIZE;
+    }
+
+    private void logChange(int index) {
+        changeLog[changeCount % CHANGE_LOG_SIZE] = index;
+        changeCount++;
+    }
+
+    /**
+     * The amount of times a cell has changed between an obstacle and something
+     * passable since the grid was created. A user of the change log remembers
+     * this and later reads the changes made after it with getChangedCell.
+     *
+     * @return the amount of changes so far
+     */
+    public int getChangeCount() {
+        return this.changeCount;
+    }
+
+    /**
+     * Finds out which cell a change was made to.
+     *
+     * @param change the number of the change, from 0 to getChangeCount() - 1
+     * @return the index of the cell, -1 if the change is too old to be remembered
+     */
+    public int getChangedCell(int change) {
+        if (change < 0 || change >= changeCount || change < changeCount - CHANGE_LOG_SIZE)
+            return -1;
+        return changeLog[change % CHANGE_LOG_SIZE];
+    }
+
+    /**
+     * The version of the grid, it starts at 0 and goes up by at least one with
+     * every change to any cell's data.
+     *
+     * @return the current version
+     */
+    public int getVersion() {
+        return this.version;
+    }
+
+    /**
+     * The version a tile was last changed at, 0 if it never has been.
+     *
+     * @param tileX the x of the tile, from 0 to getTilesX() - 1
+     * @param tileY the y of the tile, from 0 to getTilesY() - 1
+     * @return the version of the latest change to a cell in the tile
+     */
+    public int getTileVersion(int tileX, int tileY) {
+        return this.tileVersions[tileY * tilesX + tileX];
+    }
+
+    /**
+     * Checks whether any cell in a tile has changed after a given version.
+     *
+     * @param tileX the x of the tile
+     * @param tileY the y of the tile
+     * @param sinceVersion the version to compare to, e.g. one from an earlier getVersion()
+     * @return true if the tile has changed after sinceVersion
+     */
+    public boolean isTileChanged(int tileX, int tileY, int sinceVersion) {
+        return this.tileVersions[tileY * tilesX + tileX] > sinceVersion;
+    }
+
+    /**
+     * Finds the tiles changed after a given version. This goes through the tile
+     * versions, one per TILE_SIZE*TILE_SIZE cells, not through the cells.
+     *
+     * @param sinceVersion the version to compare to
+     * @param tiles gets the indices (tileY * getTilesX() + tileX) of the changed tiles, at least getTilesX() * getTilesY() long
+     * @return the amount of changed tiles written into tiles
+     */
+    public int getChangedTiles(int sinceVersion, int[] tiles) {
+        int count = 0;
+        if (sinceVersion >= version)
+            return 0;
+        for (int tile = 0; tile < tileVersions.length; tile++) {
+            if (tileVersions[tile] > sinceVersion)
+                tiles[count++] = tile;
+        }
+        return count;
+    }
+
+    public int getTilesX() {
+        return this.tilesX;
+    }
+
+    public int getTilesY() {
+        return this.tilesY;
+    }
+
+    /**
+     * Checks whether or not a cell is within the grid
+     * @param x the x to check
+     * @param y the y to check
+     * @return true if the cell is OK, false otherwise
+     */
+    public boolean cellIsOkay(int x, int y) {
+        return (x > -1 && x < width && y > -1 && y < height);
+    }
+
+    /**
+     * Converts a cell's coordinates to its index.
+     *
+     * @param x the x of the cell
+     * @param y the y of the cell
+     * @return the index of the cell
+     */
+    public int index(int x, int y) {
+        return y * width + x;
+    }
+
+    public int getX(int index) {
+        return index % width;
+    }
+
+    public int getY(int index) {
+        return index / width;
+    }
+
+    /**
+     * The amount of cell indices, every per-cell array used with this grid should be this long.
+     *
+     * @return the amount of cells
+     */
+    public int getCellCount() {
+        return this.width * this.height;
+    }
+
+    public int getCellData(int x, int y) {
+        return readCell(index(x, y));
+    }
+
+    /**
+     * Changes the data of a cell. Setting the data a cell already has is not a change.
+     *
+     * @param x the x of the cell
+     * @param y the y of the cell
+     * @param newData the new data of the cell
+     */
+    public void setCellData(int x, int y, int newData) {
+        int index = index(x, y);
+        int oldData = readCell(index);
+        if (oldData == newData)
+            return;
+        if ((oldData == 0) != (newData == 0))
+            logChange(index);
+        writeCell(index, (byte) newData);
+        version++;
+        tileVersions[(y / TILE_SIZE) * tilesX + x / TILE_SIZE] = version;
+    }
+
+    public int getCellData(int index) {
+        return readCell(index);
+    }
+
+    /**
+     * Anything but an obstacle can be walked through.
+     *
+     * @param index the index of the cell
+     * @return true if the cell is passable
+     */
+    public boolean isPassable(int index) {
+        return readCell(index) != 0;
+    }
+
+    public int getWidth() {
+        return this.width;
+    }
+
+    public int getHeight() {
+        return this.height;
+    }
+
+}
@@ -0,0 +1,880 @@
+package fi.sakusaisa.tiralabra.core;
+
+/**
+ * Hierarchical pathfinding (HPA*). The grid is split into square clusters, and
+ * every border between two neighbouring clusters is scanned for entrances: runs
+ * of cells that are passable on both sides. Each entrance gets one transition
+ * across the border in its middle, or one at each end if it's wide. The cells of
+ * the transitions are the nodes of an abstract graph, connected across the borders
+ * by the transitions and inside each cluster by the precomputed distances between
+ * the nodes of that cluster. With diagonal movement the single diagonal steps
+ * that cross a border outside of the entrances get transitions of their own.
+ *
+ * A query first connects the start and the goal to the nodes of their clusters,
+ * then searches the small abstract graph and finally refines only the abstract
+ * edges on the found path back into cells, each with a search that never leaves
+ * its cluster. The paths are near optimal, not optimal.
+ *
+ * The abstraction is built on the first query. After that every query first goes
+ * through the cells the grid reports as changed, and only recomputes the clusters
+ * each of them can affect.
+ *
+ * @author Saku Säisä
+ */
+public class HierarchicalPathFinder {
+
+    public static final int DEFAULT_CLUSTER_SIZE = 16;
+
+    // entrances at least this wide get a transition at both ends instead of one in the middle
+    private static final int WIDE_ENTRANCE = 6;
+
+    // the sides of a cluster, the transition slots of a cluster are grouped by these
+    private static final int TOP = 0;
+    private static final int BOTTOM = 1;
+    private static final int LEFT = 2;
+    private static final int RIGHT = 3;
+
+    // the grid being searched
+    private Grid grid;
+
+    private int clusterSize;
+    private int clustersX;
+    private int clustersY;
+
+    // every cluster has a fixed slot for a transition at each position of each side:
+    // slot = cluster * slotsPerCluster + side * clusterSize + position
+    private int slotsPerCluster;
+    private boolean[] slotActive;
+
+    // which positions of the border being built have a passable cell on both sides
+    private boolean[] borderOpen;
+
+    // the position of each active slot in the list of its cluster
+    private int[] slotIndex;
+
+    // per cluster: the active slots, and the distances between them row by row (infinity = no route inside the cluster)
+    private int[][] clusterSlots;
+    private float[][] clusterDistances;
+
+    // the movement mode the abstraction was built for
+    private boolean diagonalMoveAllowed;
+    private boolean built = false;
+
+    // the amount of grid changes already applied to the abstraction
+    private int seenChanges;
+
+    // the low-level searches restricted to one cluster
+    private SearchFrontier local;
+
+    // the search over the abstract graph, the two extra ids are the start and the goal
+    private SearchFrontier abstractSearch;
+    private int startNode;
+    private int goalNode;
+
+    // the distances from the start to the slots of its cluster and from the slots of the goal cluster to the goal
+    private float[] startDistances;
+    private float[] goalDistances;
+    private float directDistance;
+
+    // the cells reached by the low-level searches of the last query, and the same cells in a list
+    private int[] reachedStamps;
+    private int reachedGeneration;
+    private CellList reachedCells = new CellList();
+
+    // used when the abstract graph can't connect the start and the goal with diagonal movement,
+    // and for the starts the abstract graph can't leave, see findPath
+    private PathFinder fallback;
+    private boolean usedFallback;
+
+    private int nodesExpanded;
+    private int clustersBuilt;
+
+    /**
+     * Constructor, uses the default cluster size.
+     *
+     * @param grid the grid to run the searches on
+     */
+    public HierarchicalPathFinder(Grid grid) {
+        this(grid, DEFAULT_CLUSTER_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param grid the grid to run the searches on
+     * @param clusterSize the width and height of a cluster in cells
+     * @throws IllegalArgumentException if the search data of the grid doesn't fit in the heap
+     */
+    public HierarchicalPathFinder(Grid grid, int clusterSize) {
+        this(grid, clusterSize, null);
+    }
+
+    /**
+     * Constructor that falls back on an existing PathFinder instead of a new one.
+     *
+     * @param grid the grid to run the searches on
+     * @param clusterSize the width and height of a cluster in cells
+     * @param fallback a PathFinder of the same grid, null to create one
+     * @throws IllegalArgumentException if the fallback searches another grid, or the search data doesn't fit in the heap
+     */
+    public HierarchicalPathFinder(Grid grid, int clusterSize, PathFinder fallback) {
+
+        if (clusterSize < 2)
+            throw new IllegalArgumentException("cluster size must be at least 2");
+        if (fallback != null && fallback.getGrid() != grid)
+            throw new IllegalArgumentException("the fallback must search the same grid");
+
+        this.grid = grid;
+        this.clusterSize = clusterSize;
+        this.clustersX = (grid.getWidth() + clusterSize - 1) / clusterSize;
+        this.clustersY = (grid.getHeight() + clusterSize - 1) / clusterSize;
+        this.slotsPerCluster = 4 * clusterSize;
+
+        int slotCount = clustersX * clustersY * slotsPerCluster;
+
+        // the local searches and their reached stamps, the slots and their search, and the fallback PathFinder if none was given
+        SearchMemory.require(grid, SearchFrontier.bytesFor(grid.getCellCount()) + 4L * grid.getCellCount()
+                + 5L * slotCount + SearchFrontier.bytesFor(slotCount + 2) + (fallback == null ? PathFinder.bytesFor(grid) : 0),
+                "HierarchicalPathFinder");
+        this.slotActive = new boolean[slotCount];
+        this.borderOpen = new boolean[clusterSize];
+        this.slotIndex = new int[slotCount];
+        this.clusterSlots = new int[clustersX * clustersY][];
+        this.clusterDistances = new float[clustersX * clustersY][];
+
+        this.local = new SearchFrontier(grid.getCellCount());
+        this.abstractSearch = new SearchFrontier(slotCount + 2);
+        this.startNode = slotCount;
+        this.goalNode = slotCount + 1;
+        this.startDistances = new float[slotsPerCluster];
+        this.goalDistances = new float[slotsPerCluster];
+
+        this.reachedStamps = new int[grid.getCellCount()];
+        this.reachedGeneration = 1;
+        this.fallback = fallback != null ? fallback : new PathFinder(grid);
+
+    }
+
+    /**
+     * Brings the abstraction up to date with the changes made to the grid since
+     * it was last updated. If there are more of them than the grid remembers,
+     * everything is built again.
+     */
+    private void applyChanges() {
+
+        int changeCount = grid.getChangeCount();
+
+        if (changeCount - seenChanges > Grid.CHANGE_LOG_SIZE) {
+            buildAll();
+            return;
+        }
+
+        for (int change = seenChanges; change < changeCount; change++) {
+            int cell = grid.getChangedCell(change);
+            cellChanged(grid.getX(cell), grid.getY(cell));
+        }
+
+        seenChanges = changeCount;
+
+    }
+
+    /**
+     * Updates the abstraction after a cell turned into an obstacle or back. A cell
+     * inside a cluster only affects the distances within that cluster, a cell on a
+     * border also affects the transitions on it and so the cluster on the other side.
+     *
+     * @param x the x of the changed cell
+     * @param y the y of the changed cell
+     */
+    private void cellChanged(int x, int y) {
+
+        int clusterX = x / clusterSize;
+        int clusterY = y / clusterSize;
+        int cluster = clusterY * clustersX + clusterX;
+
+        // the transitions on a border are shared by the clusters on both sides of it
+        int right = -1, left = -1, below = -1, above = -1;
+        if (x == clusterLastX(clusterX) && clusterX < clustersX - 1) {
+            right = cluster + 1;
+            buildBorder(cluster, RIGHT);
+        }
+        if (x == clusterX * clusterSize && clusterX > 0) {
+            left = cluster - 1;
+            buildBorder(left, RIGHT);
+        }
+        if (y == clusterLastY(clusterY) && clusterY < clustersY - 1) {
+            below = cluster + clustersX;
+            buildBorder(cluster, BOTTOM);
+        }
+        if (y == clusterY * clusterSize && clusterY > 0) {
+            above = cluster - clustersX;
+            buildBorder(above, BOTTOM);
+        }
+
+        buildCluster(cluster);
+        if (right != -1)
+            buildCluster(right);
+        if (left != -1)
+            buildCluster(left);
+        if (below != -1)
+            buildCluster(below);
+        if (above != -1)
+            buildCluster(above);
+
+    }
+
+    /**
+     * Builds the whole abstraction: first the transitions on every border, then
+     * the distances within every cluster.
+     */
+    private void buildAll() {
+
+        seenChanges = grid.getChangeCount();
+
+        for (int cluster = 0; cluster < clustersX * clustersY; cluster++) {
+            buildBorder(cluster, RIGHT);
+            buildBorder(cluster, BOTTOM);
+        }
+
+        for (int cluster = 0; cluster < clustersX * clustersY; cluster++)
+            buildCluster(cluster);
+
+        built = true;
+
+    }
+
+    /**
+     * Finds the entrances on the right or bottom border of a cluster and activates
+     * the transition slots for them on both sides of the border.
+     *
+     * @param cluster the cluster on the left or top side of the border
+     * @param side RIGHT or BOTTOM
+     */
+    private void buildBorder(int cluster, int side) {
+
+        int clusterX = cluster % clustersX;
+        int clusterY = cluster / clustersX;
+
+        if ((side == RIGHT && clusterX == clustersX - 1) || (side == BOTTOM && clusterY == clustersY - 1))
+            return;
+
+        int neighbour = side == RIGHT ? cluster + 1 : cluster + clustersX;
+        int neighbourSide = side == RIGHT ? LEFT : TOP;
+        int length = side == RIGHT ? clusterLastY(clusterY) - clusterY * clusterSize + 1 : clusterLastX(clusterX) - clusterX * clusterSize + 1;
+
+        for (int position = 0; position < clusterSize; position++) {
+            slotActive[slot(cluster, side, position)] = false;
+            slotActive[slot(neighbour, neighbourSide, position)] = false;
+        }
+
+        for (int position = 0; position < length; position++)
+            borderOpen[position] = grid.isPassable(slotCell(slot(cluster, side, position))) && grid.isPassable(slotCell(slot(neighbour, neighbourSide, position)));
+
+        int runStart = -1;
+        for (int position = 0; position <= length; position++) {
+
+            boolean open = position < length && borderOpen[position];
+
+            if (open && runStart == -1)
+                runStart = position;
+
+            // a run of passable pairs just ended, place its transitions
+            else if (!open && runStart != -1) {
+
+                int runEnd = position - 1;
+                if (runEnd - runStart + 1 < WIDE_ENTRANCE) {
+                    int middle = (runStart + runEnd) / 2;
+                    slotActive[slot(cluster, side, middle)] = true;
+                    slotActive[slot(neighbour, neighbourSide, middle)] = true;
+                }
+                else {
+                    slotActive[slot(cluster, side, runStart)] = true;
+                    slotActive[slot(neighbour, neighbourSide, runStart)] = true;
+                    slotActive[slot(cluster, side, runEnd)] = true;
+                    slotActive[slot(neighbour, neighbourSide, runEnd)] = true;
+                }
+
+                runStart = -1;
+
+            }
+
+        }
+
+        // a diagonal step can cross the border where no straight one can, those crossings get transitions too
+        if (diagonalMoveAllowed) {
+            for (int position = 0; position + 1 < length; position++) {
+                addDiagonalCrossing(slot(cluster, side, position), slot(neighbour, neighbourSide, position + 1), position, position + 1);
+                addDiagonalCrossing(slot(cluster, side, position + 1), slot(neighbour, neighbourSide, position), position + 1, position);
+            }
+        }
+
+    }
+
+    /**
+     * Activates the slots on both ends of a diagonal step across a border, unless
+     * both cells already belong to an entrance. Two neighbouring positions can only
+     * both be open if they're in the same entrance, which the straight transitions
+     * already connect.
+     *
+     * @param from the slot on the near side
+     * @param to the slot on the far side
+     * @param fromPosition the position of the near slot along the border
+     * @param toPosition the position of the far slot along the border
+     */
+    private void addDiagonalCrossing(int from, int to, int fromPosition, int toPosition) {
+
+        if (borderOpen[fromPosition] && borderOpen[toPosition])
+            return;
+
+        if (grid.isPassable(slotCell(from)) && grid.isPassable(slotCell(to))) {
+            slotActive[from] = true;
+            slotActive[to] = true;
+        }
+
+    }
+
+    /**
+     * Collects the active slots of a cluster and computes the distances between
+     * them with one search per slot that stays inside the cluster.
+     *
+     * @param cluster the cluster to build
+     */
+    private void buildCluster(int cluster) {
+
+        int count = 0;
+        for (int i = 0; i < slotsPerCluster; i++)
+            if (slotActive[cluster * slotsPerCluster + i])
+                count++;
+
+        int[] slots = new int[count];
+        count = 0;
+        for (int i = 0; i < slotsPerCluster; i++) {
+            int slot = cluster * slotsPerCluster + i;
+            if (slotActive[slot]) {
+                slotIndex[slot] = count;
+                slots[count++] = slot;
+            }
+        }
+
+        float[] distances = new float[count * count];
+        for (int i = 0; i < count; i++) {
+
+            searchCluster(cluster, slotCell(slots[i]), -1, false);
+
+            for (int j = 0; j < count; j++) {
+                int cell = slotCell(slots[j]);
+                distances[i * count + j] = local.isReached(cell) ? local.distance[cell] : Float.POSITIVE_INFINITY;
+            }
+
+        }
+
+        clusterSlots[cluster] = slots;
+        clusterDistances[cluster] = distances;
+        clustersBuilt++;
+
+    }
+
+    /**
+     * Finds a path with the hierarchy. The abstraction never steps diagonally
+     * over the corner where four clusters meet, so with diagonal movement a path
+     * that has to cut such a corner can be missed. If the abstract search finds
+     * nothing in that case, a normal search over the whole grid makes sure there
+     * really is no path.
+     *
+     * Like the PathFinder, a search may start from an obstacle and step off it
+     * to any passable neighbour. That neighbour can be across a cluster border,
+     * where the search of the start's cluster can't go, so such queries are
+     * left to the normal search too.
+     *
+     * @param query the start, goal and search options, the algorithm is ignored
+     * @return the found path along with the search statistics
+     */
+    public PathResult findPath(PathQuery query) {
+
+        // record the starting time for performance benchmarking
+        long startTime = System.nanoTime();
+
+        if (!grid.cellIsOkay(query.getStartX(), query.getStartY()) || !grid.cellIsOkay(query.getGoalX(), query.getGoalY()))
+            throw new IllegalArgumentException("start and goal must be within the grid");
+
+        // the distances within the clusters depend on the movement mode
+        if (!built || query.isDiagonalMoveAllowed() != diagonalMoveAllowed) {
+            diagonalMoveAllowed = query.isDiagonalMoveAllowed();
+            buildAll();
+        }
+        else
+            applyChanges();
+
+        nodesExpanded = 0;
+        usedFallback = false;
+        reachedCells.clear();
+        reachedGeneration++;
+        if (reachedGeneration == Integer.MAX_VALUE) {
+            for (int i = 0; i < reachedStamps.length; i++)
+                reachedStamps[i] = 0;
+            reachedGeneration = 1;
+        }
+
+        int startCell = grid.index(query.getStartX(), query.getStartY());
+        int goalCell = grid.index(query.getGoalX(), query.getGoalY());
+
+        // an obstacle can never be reached, no need to search
+        if (!grid.isPassable(goalCell))
+            return new PathResult(null, null, -1, 0, System.nanoTime() - startTime);
+
+        if (!grid.isPassable(startCell))
+            return findFallbackPath(query);
+
+        int startCluster = clusterOf(startCell);
+        int goalCluster = clusterOf(goalCell);
+
+        // connect the start and the goal to the nodes of their clusters
+        searchCluster(startCluster, startCell, -1, true);
+        int[] slots = clusterSlots[startCluster];
+        for (int i = 0; i < slots.length; i++)
+            startDistances[i] = local.isReached(slotCell(slots[i])) ? local.distance[slotCell(slots[i])] : Float.POSITIVE_INFINITY;
+        directDistance = startCluster == goalCluster && local.isReached(goalCell) ? local.distance[goalCell] : Float.POSITIVE_INFINITY;
+
+        searchCluster(goalCluster, goalCell, -1, true);
+        slots = clusterSlots[goalCluster];
+        for (int i = 0; i < slots.length; i++)
+            goalDistances[i] = local.isReached(slotCell(slots[i])) ? local.distance[slotCell(slots[i])] : Float.POSITIVE_INFINITY;
+
+        if (!searchAbstract(startCluster, goalCluster, goalCell)) {
+
+            if (!diagonalMoveAllowed)
+                return new PathResult(null, null, -1, nodesExpanded, System.nanoTime() - startTime);
+
+            return findFallbackPath(query);
+
+        }
+
+        return refinePath(startCell, goalCell, startCluster, goalCluster, startTime);
+
+    }
+
+    /**
+     * Runs the query as an A* search over the whole grid.
+     *
+     * @param query the start, goal and movement mode
+     * @return the result of the fallback PathFinder
+     */
+    private PathResult findFallbackPath(PathQuery query) {
+        usedFallback = true;
+        PathQuery fallbackQuery = new PathQuery(query.getStartX(), query.getStartY(), query.getGoalX(), query.getGoalY());
+        fallbackQuery.setDiagonalMoveAllowed(query.isDiagonalMoveAllowed());
+        fallbackQuery.setAlgorithm(SearchAlgorithm.A_STAR);
+        return fallback.findPath(fallbackQuery);
+    }
+
+    /**
+     * A* over the abstract graph from the start node to the goal node.
+     *
+     * @param startCluster the cluster of the start cell
+     * @param goalCluster the cluster of the goal cell
+     * @param goalCell the index of the goal cell
+     * @return true if the goal node was reached
+     */
+    private boolean searchAbstract(int startCluster, int goalCluster, int goalCell) {
+
+        abstractSearch.reset(grid.getX(goalCell), grid.getY(goalCell));
+        abstractSearch.reach(startNode, 0, 0, -1);
+        abstractSearch.openSet.insert(startNode);
+
+        while (!abstractSearch.openSet.isEmpty()) {
+
+            int current = abstractSearch.openSet.delMin();
+            if (current == goalNode)
+                return true;
+
+            abstractSearch.closedSet.insert(current);
+            nodesExpanded++;
+            float distance = abstractSearch.distance[current];
+
+            if (current == startNode) {
+                int[] slots = clusterSlots[startCluster];
+                for (int i = 0; i < slots.length; i++)
+                    relaxAbstract(slots[i], current, distance + startDistances[i]);
+                relaxAbstract(goalNode, current, distance + directDistance);
+                continue;
+            }
+
+            int cluster = current / slotsPerCluster;
+            int[] slots = clusterSlots[cluster];
+            float[] distances = clusterDistances[cluster];
+            int index = slotIndex[current];
+
+            // across the border, straight or with diagonal movement also diagonally
+            int partner = partnerSlot(current);
+            if (partner != -1) {
+                if (slotActive[partner])
+                    relaxAbstract(partner, current, distance + 1);
+                if (diagonalMoveAllowed && partner % clusterSize > 0 && slotActive[partner - 1])
+                    relaxAbstract(partner - 1, current, distance + PathFinder.DIAGONAL_COST);
+                if (diagonalMoveAllowed && partner % clusterSize < clusterSize - 1 && slotActive[partner + 1])
+                    relaxAbstract(partner + 1, current, distance + PathFinder.DIAGONAL_COST);
+            }
+
+            // within the cluster
+            for (int i = 0; i < slots.length; i++)
+                if (i != index)
+                    relaxAbstract(slots[i], current, distance + distances[index * slots.length + i]);
+
+            if (cluster == goalCluster)
+                relaxAbstract(goalNode, current, distance + goalDistances[index]);
+
+        }
+
+        return false;
+
+    }
+
+    /**
+     * Offers a new route to a node of the abstract graph.
+     *
+     * @param node the node
+     * @param parent the node the route comes from
+     * @param newDistance the distance from start to the node along the route, may be infinite
+     */
+    private void relaxAbstract(int node, int parent, float newDistance) {
+
+        if (newDistance == Float.POSITIVE_INFINITY || abstractSearch.closedSet.contains(node))
+            return;
+
+        if (!abstractSearch.isReached(node)) {
+            abstractSearch.reach(node, newDistance, heuristic(nodeCell(node)), parent);
+            abstractSearch.openSet.insert(node);
+        }
+        else if (newDistance < abstractSearch.distance[node]) {
+            abstractSearch.movementCost[node] -= abstractSearch.distance[node] - newDistance;
+            abstractSearch.arrivedFrom[node] = parent;
+            abstractSearch.distance[node] = newDistance;
+            abstractSearch.openSet.decreaseKey(node);
+        }
+
+    }
+
+    /**
+     * Turns the abstract path into cells. Steps across a border are single moves,
+     * every other abstract edge is searched again inside its cluster.
+     *
+     * @param startCell the index of the start cell
+     * @param goalCell the index of the goal cell
+     * @param startCluster the cluster of the start cell
+     * @param goalCluster the cluster of the goal cell
+     * @param startTime the System.nanoTime() the search was started at
+     * @return the result with the full path
+     */
+    private PathResult refinePath(int startCell, int goalCell, int startCluster, int goalCluster, long startTime) {
+
+        // the abstract path from start to goal
+        int nodeCount = 0;
+        for (int node = goalNode; node != -1; node = abstractSearch.arrivedFrom[node])
+            nodeCount++;
+        int[] nodes = new int[nodeCount];
+        int n = nodeCount;
+        for (int node = goalNode; node != -1; node = abstractSearch.arrivedFrom[node])
+            nodes[--n] = node;
+
+        int[] cells = new int[64];
+        int cellCount = 1;
+        cells[0] = startCell;
+
+        for (int i = 1; i < nodeCount; i++) {
+
+            int from = nodes[i - 1];
+            int to = nodes[i];
+            int fromCell = from == startNode ? startCell : slotCell(from);
+            int toCell = to == goalNode ? goalCell : slotCell(to);
+
+            if (fromCell == toCell)
+                continue;
+
+            // a step across a border
+            if (from != startNode && to != goalNode && from / slotsPerCluster != to / slotsPerCluster) {
+                if (cellCount == cells.length)
+                    cells = grow(cells);
+                cells[cellCount++] = toCell;
+                continue;
+            }
+
+            int cluster = from == startNode ? startCluster : (to == goalNode ? goalCluster : from / slotsPerCluster);
+            searchCluster(cluster, fromCell, toCell, true);
+
+            // walk the segment back from its end, then append it in the right order
+            int segmentLength = 0;
+            for (int cell = toCell; cell != fromCell; cell = local.arrivedFrom[cell])
+                segmentLength++;
+            while (cellCount + segmentLength > cells.length)
+                cells = grow(cells);
+            int j = cellCount + segmentLength;
+            for (int cell = toCell; cell != fromCell; cell = local.arrivedFrom[cell])
+                cells[--j] = cell;
+            cellCount += segmentLength;
+
+        }
+
+        int[] pathX = new int[cellCount];
+        int[] pathY = new int[cellCount];
+        float cost = 0;
+        for (int i = 0; i < cellCount; i++) {
+            pathX[i] = grid.getX(cells[i]);
+            pathY[i] = grid.getY(cells[i]);
+            if (i > 0)
+                cost += pathX[i] != pathX[i - 1] && pathY[i] != pathY[i - 1] ? PathFinder.DIAGONAL_COST : 1;
+        }
+
+        return new PathResult(pathX, pathY, cost, nodesExpanded, System.nanoTime() - startTime);
+
+    }
+
+    private int[] grow(int[] array) {
+        int[] bigger = new int[array.length * 2];
+        System.arraycopy(array, 0, bigger, 0, array.length);
+        return bigger;
+    }
+
+    /**
+     * A search that never leaves the given cluster. Without a target it's Dijkstra
+     * and runs until the whole reachable part of the cluster has been visited,
+     * with a target it's A* and stops there.
+     *
+     * @param cluster the cluster to search in
+     * @param fromCell the index of the cell to start from
+     * @param targetCell the index of the cell to stop at, -1 for none
+     * @param markReached whether to mark the cells as reached by the current query
+     */
+    private void searchCluster(int cluster, int fromCell, int targetCell, boolean markReached) {
+
+        int clusterX = cluster % clustersX;
+        int clusterY = cluster / clustersX;
+        int minX = clusterX * clusterSize;
+        int minY = clusterY * clusterSize;
+        int maxX = clusterLastX(clusterX);
+        int maxY = clusterLastY(clusterY);
+
+        if (targetCell == -1)
+            local.reset(grid.getX(fromCell), grid.getY(fromCell));
+        else
+            local.reset(grid.getX(targetCell), grid.getY(targetCell));
+
+        local.reach(fromCell, 0, 0, -1);
+        local.openSet.insert(fromCell);
+        if (markReached)
+            markReached(fromCell);
+
+        while (!local.openSet.isEmpty()) {
+
+            int currentCell = local.openSet.delMin();
+            if (currentCell == targetCell)
+                return;
+
+            local.closedSet.insert(currentCell);
+            if (markReached)
+                nodesExpanded++;
+
+            int currentX = grid.getX(currentCell);
+            int currentY = grid.getY(currentCell);
+
+            for (int y = Math.max(currentY - 1, minY); y <= Math.min(currentY + 1, maxY); y++) {
+                for (int x = Math.max(currentX - 1, minX); x <= Math.min(currentX + 1, maxX); x++) {
+
+                    if (x == currentX && y == currentY)
+                        continue;
+
+                    float stepCost;
+                    if (x == currentX || y == currentY)
+                        stepCost = 1;
+                    else if (diagonalMoveAllowed)
+                        stepCost = PathFinder.DIAGONAL_COST;
+                    else
+                        continue;
+
+                    int processCell = grid.index(x, y);
+                    if (!grid.isPassable(processCell) || local.closedSet.contains(processCell))
+                        continue;
+
+                    float newDistance = local.distance[currentCell] + stepCost;
+
+                    if (!local.isReached(processCell)) {
+                        local.reach(processCell, newDistance, targetCell == -1 ? 0 : heuristic(processCell, targetCell), currentCell);
+                        local.openSet.insert(processCell);
+                        if (markReached)
+                            markReached(processCell);
+                    }
+                    else if (newDistance < local.distance[processCell]) {
+                        local.movementCost[processCell] -= local.distance[processCell] - newDistance;
+                        local.arrivedFrom[processCell] = currentCell;
+                        local.distance[processCell] = newDistance;
+                        local.openSet.decreaseKey(processCell);
+                    }
+
+                }
+            }
+
+        }
+
+    }
+
+    private void markReached(int cell) {
+        if (reachedStamps[cell] != reachedGeneration) {
+            reachedStamps[cell] = reachedGeneration;
+            reachedCells.add(cell);
+        }
+    }
+
+    /**
+     * The amount of cells the low-level searches of the last query reached.
+     *
+     * @return the amount of cells getReachedCell can give
+     */
+    public int getReachedCellCount() {
+        if (usedFallback)
+            return fallback.getReachedCellCount();
+        return reachedCells.size();
+    }
+
+    /**
+     * One of the cells the low-level searches of the last query reached, in the
+     * order they were reached.
+     *
+     * @param i from 0 to getReachedCellCount() - 1
+     * @return the index of the cell
+     */
+    public int getReachedCell(int i) {
+        if (usedFallback)
+            return fallback.getReachedCell(i);
+        return reachedCells.get(i);
+    }
+
+    /**
+     * Checks whether the low-level searches of the last query reached a specific cell.
+     *
+     * @param x the x of the cell
+     * @param y the y of the cell
+     * @return true if the cell was reached
+     */
+    public boolean wasCellReached(int x, int y) {
+        if (usedFallback)
+            return fallback.wasCellReached(x, y);
+        return reachedStamps[grid.index(x, y)] == reachedGeneration;
+    }
+
+    /**
+     * The distance from a cell to the target of the abstract search.
+     */
+    private float heuristic(int cell) {
+        return heuristic(cell, grid.index(abstractSearch.targetX, abstractSearch.targetY));
+    }
+
+    /**
+     * The shortest distance between two cells on an empty grid: manhattan
+     * distance without diagonal movement, octile distance with it.
+     */
+    private float heuristic(int cell, int targetCell) {
+
+        int dx = Math.abs(grid.getX(cell) - grid.getX(targetCell));
+        int dy = Math.abs(grid.getY(cell) - grid.getY(targetCell));
+
+        if (!diagonalMoveAllowed)
+            return dx + dy;
+        else
+            return Math.max(dx, dy) + (PathFinder.DIAGONAL_COST - 1) * Math.min(dx, dy);
+
+    }
+
+    private int slot(int cluster, int side, int position) {
+        return cluster * slotsPerCluster + side * clusterSize + position;
+    }
+
+    /**
+     * The cell of a node of the abstract graph, the start and goal nodes are
+     * placed at the target of the abstract search so they only matter for the heuristic.
+     */
+    private int nodeCell(int node) {
+        if (node >= startNode)
+            return grid.index(abstractSearch.targetX, abstractSearch.targetY);
+        return slotCell(node);
+    }
+
+    /**
+     * The cell a transition slot sits on.
+     *
+     * @param slot the slot
+     * @return the index of the cell
+     */
+    private int slotCell(int slot) {
+
+        int cluster = slot / slotsPerCluster;
+        int side = (slot % slotsPerCluster) / clusterSize;
+        int position = slot % clusterSize;
+        int clusterX = cluster % clustersX;
+        int clusterY = cluster / clustersX;
+
+        if (side == TOP)
+            return grid.index(clusterX * clusterSize + position, clusterY * clusterSize);
+        else if (side == BOTTOM)
+            return grid.index(clusterX * clusterSize + position, clusterLastY(clusterY));
+        else if (side == LEFT)
+            return grid.index(clusterX * clusterSize, clusterY * clusterSize + position);
+        else
+            return grid.index(clusterLastX(clusterX), clusterY * clusterSize + position);
+
+    }
+
+    /**
+     * The slot on the other side of the border from a slot.
+     *
+     * @param slot the slot
+     * @return the slot across the border, -1 if the slot is on the edge of the grid
+     */
+    private int partnerSlot(int slot) {
+
+        int cluster = slot / slotsPerCluster;
+        int side = (slot % slotsPerCluster) / clusterSize;
+        int position = slot % clusterSize;
+        int clusterX = cluster % clustersX;
+        int clusterY = cluster / clustersX;
+
+        if (side == TOP)
+            return clusterY > 0 ? slot(cluster - clustersX, BOTTOM, position) : -1;
+        else if (side == BOTTOM)
+            return clusterY < clustersY - 1 ? slot(cluster + clustersX, TOP, position) : -1;
+        else if (side == LEFT)
+            return clusterX > 0 ? slot(cluster - 1, RIGHT, position) : -1;
+        else
+            return clusterX < clustersX - 1 ? slot(cluster + 1, LEFT, position) : -1;
+
+    }
+
+    private int clusterOf(int cell) {
+        return (grid.getY(cell) / clusterSize) * clustersX + grid.getX(cell) / clusterSize;
+    }
+
+    private int clusterLastX(int clusterX) {
+        return Math.min((clusterX + 1) * clusterSize, grid.getWidth()) - 1;
+    }
+
+    private int clusterLastY(int clusterY) {
+        return Math.min((clusterY + 1) * clusterSize, grid.getHeight()) - 1;
+    }
+
+    /**
+     * How many times the distances within a cluster have been computed, the
+     * initial build counts every cluster once.
+     *
+     * @return the amount of cluster builds so far
+     */
+    public int getClustersBuilt() {
+        return this.clustersBuilt;
+    }
+
+    public int getClusterSize() {
+        return this.clusterSize;
+    }
+
+    public Grid getGrid() {
+        return this.grid;
+    }
+
+}
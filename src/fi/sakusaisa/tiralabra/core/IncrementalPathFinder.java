@@ -0,0 +1,500 @@
+package fi.sakusaisa.tiralabra.core;
+
+import fi.sakusaisa.tiralabra.datastructures.MinBinaryHeap;
+
+/**
+ * Incremental replanning with D* Lite. The search runs backwards from the goal and
+ * its data is kept between queries: when cells change, only the cells whose
+ * distance to the goal the change can affect are put back into the open set,
+ * and the next query repairs the old search instead of starting over. The start
+ * may move between queries, changing the goal or the movement mode starts a new search.
+ *
+ * Every cell has two values, its distance to the goal as of its last expansion
+ * (g in D* Lite) and the best distance its neighbours currently offer (rhs). A
+ * cell whose values differ is inconsistent and sits in the open set, ordered by
+ * a key and a tie-breaker. The changed cells are read from the change log of the grid.
+ *
+ * @author Saku Säisä
+ */
+public class IncrementalPathFinder {
+
+    // the neighbours of a cell, the first four are the orthogonal ones
+    private static final int[] NEIGHBOUR_X = {1, -1, 0, 0, 1, 1, -1, -1};
+    private static final int[] NEIGHBOUR_Y = {0, 0, 1, -1, 1, -1, 1, -1};
+
+    private static final float INFINITY = Float.POSITIVE_INFINITY;
+
+    // the relative difference up to which two keys count as equal
+    private static final float KEY_TOLERANCE = 1e-4f;
+
+    // the grid being searched
+    private Grid grid;
+
+    // the distance of each cell to the goal as of its last expansion
+    private float[] distance;
+
+    // the best distance to the goal through the neighbours of each cell
+    private float[] lookahead;
+
+    // the two parts of the key of each cell in the open set
+    private float[] keys;
+    private float[] tieBreakers;
+
+    private MinBinaryHeap openSet;
+
+    // the search generation in which the data of each cell was last set, 0 = never
+    private int[] searchStamps;
+    private int searchGeneration;
+
+    // the cells expanded by the last query, and the same cells in a list
+    private int[] expandedStamps;
+    private int queryGeneration;
+    private CellList expandedCells = new CellList();
+
+    // what the current search data was computed for
+    private boolean searchStarted = false;
+    private int goalCell;
+    private int startCell;
+    private boolean diagonalMoveAllowed;
+
+    // the amount the heuristic has shrunk by as the start has moved, added to every new key
+    private float keyModifier;
+
+    // the amount of grid changes already applied to the search
+    private int seenChanges;
+
+    private int nodesExpanded;
+
+    /**
+     * Constructor.
+     *
+     * @param grid the grid to run the searches on
+     * @throws IllegalArgumentException if the search data of the grid doesn't fit in the heap
+     */
+    public IncrementalPathFinder(Grid grid) {
+        // four float and two int arrays, and the positions of the open set
+        SearchMemory.require(grid, 28L * grid.getCellCount(), "IncrementalPathFinder");
+        this.grid = grid;
+        this.distance = new float[grid.getCellCount()];
+        this.lookahead = new float[grid.getCellCount()];
+        this.keys = new float[grid.getCellCount()];
+        this.tieBreakers = new float[grid.getCellCount()];
+        this.openSet = new MinBinaryHeap(100, keys, tieBreakers);
+        this.searchStamps = new int[grid.getCellCount()];
+        this.searchGeneration = 1;
+        this.expandedStamps = new int[grid.getCellCount()];
+        this.queryGeneration = 1;
+    }
+
+    /**
+     * Finds a path, reusing as much of the previous search as possible.
+     *
+     * @param query the start, goal and search options, the algorithm is ignored
+     * @return the found path along with the search statistics
+     */
+    public PathResult findPath(PathQuery query) {
+
+        // record the starting time for performance benchmarking
+        long startTime = System.nanoTime();
+
+        if (!grid.cellIsOkay(query.getStartX(), query.getStartY()) || !grid.cellIsOkay(query.getGoalX(), query.getGoalY()))
+            throw new IllegalArgumentException("start and goal must be within the grid");
+
+        int newStart = grid.index(query.getStartX(), query.getStartY());
+        int newGoal = grid.index(query.getGoalX(), query.getGoalY());
+
+        if (!searchStarted || newGoal != goalCell || query.isDiagonalMoveAllowed() != diagonalMoveAllowed
+                || grid.getChangeCount() - seenChanges > Grid.CHANGE_LOG_SIZE) {
+            startSearch(newStart, newGoal, query.isDiagonalMoveAllowed());
+        }
+
+        else {
+
+            // the keys already in the open set were computed for the old start
+            if (newStart != startCell) {
+                keyModifier += heuristic(startCell, newStart);
+                startCell = newStart;
+            }
+
+            for (int change = seenChanges; change < grid.getChangeCount(); change++)
+                cellChanged(grid.getChangedCell(change));
+
+        }
+
+        seenChanges = grid.getChangeCount();
+        nodesExpanded = 0;
+        expandedCells.clear();
+        queryGeneration++;
+        if (queryGeneration == Integer.MAX_VALUE) {
+            for (int i = 0; i < expandedStamps.length; i++)
+                expandedStamps[i] = 0;
+            queryGeneration = 1;
+        }
+
+        // an obstacle can never be reached, no need to search
+        if (!grid.isPassable(goalCell))
+            return new PathResult(null, null, -1, 0, System.nanoTime() - startTime);
+
+        computeShortestPath();
+
+        if (getDistance(startCell) == INFINITY)
+            return new PathResult(null, null, -1, nodesExpanded, System.nanoTime() - startTime);
+
+        return buildResult(startTime);
+
+    }
+
+    /**
+     * Throws the old search data away and starts a new search from the goal.
+     */
+    private void startSearch(int start, int goal, boolean diagonal) {
+
+        searchStarted = true;
+        startCell = start;
+        goalCell = goal;
+        diagonalMoveAllowed = diagonal;
+        keyModifier = 0;
+
+        searchGeneration++;
+        if (searchGeneration == Integer.MAX_VALUE) {
+            for (int i = 0; i < searchStamps.length; i++)
+                searchStamps[i] = 0;
+            searchGeneration = 1;
+        }
+        openSet.clear(false);
+
+        touch(goalCell);
+        lookahead[goalCell] = 0;
+        updateKey(goalCell);
+        openSet.insert(goalCell);
+
+    }
+
+    /**
+     * A cell turned into an obstacle or back, so the cost of moving into it from
+     * each of its neighbours changed. The cost of moving out of it stays the same.
+     *
+     * @param cell the index of the changed cell
+     */
+    private void cellChanged(int cell) {
+
+        int x = grid.getX(cell);
+        int y = grid.getY(cell);
+
+        for (int i = 0; i < neighbourCount(); i++) {
+            int nx = x + NEIGHBOUR_X[i];
+            int ny = y + NEIGHBOUR_Y[i];
+            if (grid.cellIsOkay(nx, ny))
+                updateLookahead(grid.index(nx, ny));
+        }
+
+    }
+
+    /**
+     * Expands the inconsistent cells in key order until the start is consistent
+     * and no cell in the open set could still change its distance.
+     */
+    private void computeShortestPath() {
+
+        while (!openSet.isEmpty()) {
+
+            int top = openSet.findMin();
+            float topKey = keys[top];
+            float topTieBreaker = tieBreakers[top];
+
+            // keys that should be equal can differ by a rounding error, and stopping too
+            // early would leave a cell on the path with a stale distance
+            touch(startCell);
+            float startDistance = Math.min(distance[startCell], lookahead[startCell]);
+            float startKey = startDistance + keyModifier;
+            float tolerance = KEY_TOLERANCE * Math.max(1, startKey);
+            boolean topBeforeStart = topKey < startKey - tolerance || (topKey <= startKey + tolerance && topTieBreaker < startDistance);
+            if (!topBeforeStart && distance[startCell] == lookahead[startCell])
+                break;
+
+            // a key computed before the start moved may be too small, put the cell back with a fresh one
+            float oldKey = topKey;
+            float oldTieBreaker = topTieBreaker;
+            openSet.delMin();
+            updateKey(top);
+            if (oldKey < keys[top] || (oldKey == keys[top] && oldTieBreaker < tieBreakers[top])) {
+                openSet.insert(top);
+                continue;
+            }
+
+            nodesExpanded++;
+            if (expandedStamps[top] != queryGeneration) {
+                expandedStamps[top] = queryGeneration;
+                expandedCells.add(top);
+            }
+
+            // the cell got closer to the goal: let its neighbours know
+            if (distance[top] > lookahead[top]) {
+                distance[top] = lookahead[top];
+                if (grid.isPassable(top))
+                    offerToNeighbours(top);
+            }
+
+            // the cell got further away: forget its distance and let both it and its neighbours look again
+            else {
+                distance[top] = INFINITY;
+                updateLookahead(top);
+                updateNeighbours(top);
+            }
+
+        }
+
+    }
+
+    /**
+     * Offers the distance of a cell to each neighbour, which can move into it.
+     *
+     * @param cell the index of the cell whose distance got smaller
+     */
+    private void offerToNeighbours(int cell) {
+
+        int x = grid.getX(cell);
+        int y = grid.getY(cell);
+
+        for (int i = 0; i < neighbourCount(); i++) {
+
+            int nx = x + NEIGHBOUR_X[i];
+            int ny = y + NEIGHBOUR_Y[i];
+            if (!grid.cellIsOkay(nx, ny))
+                continue;
+
+            int neighbour = grid.index(nx, ny);
+            if (neighbour == goalCell)
+                continue;
+
+            touch(neighbour);
+            float offered = distance[cell] + stepCost(i);
+            if (offered < lookahead[neighbour]) {
+                lookahead[neighbour] = offered;
+                updateOpenSet(neighbour);
+            }
+
+        }
+
+    }
+
+    private void updateNeighbours(int cell) {
+
+        int x = grid.getX(cell);
+        int y = grid.getY(cell);
+
+        for (int i = 0; i < neighbourCount(); i++) {
+            int nx = x + NEIGHBOUR_X[i];
+            int ny = y + NEIGHBOUR_Y[i];
+            if (grid.cellIsOkay(nx, ny))
+                updateLookahead(grid.index(nx, ny));
+        }
+
+    }
+
+    /**
+     * Recomputes the lookahead of a cell from the passable neighbours it can move
+     * into and moves the cell in or out of the open set as needed.
+     *
+     * @param cell the index of the cell
+     */
+    private void updateLookahead(int cell) {
+
+        if (cell == goalCell)
+            return;
+
+        touch(cell);
+        int x = grid.getX(cell);
+        int y = grid.getY(cell);
+        float best = INFINITY;
+
+        for (int i = 0; i < neighbourCount(); i++) {
+
+            int nx = x + NEIGHBOUR_X[i];
+            int ny = y + NEIGHBOUR_Y[i];
+            if (!grid.cellIsOkay(nx, ny))
+                continue;
+
+            int neighbour = grid.index(nx, ny);
+            if (grid.isPassable(neighbour))
+                best = Math.min(best, getDistance(neighbour) + stepCost(i));
+
+        }
+
+        lookahead[cell] = best;
+        updateOpenSet(cell);
+
+    }
+
+    /**
+     * Puts an inconsistent cell into the open set with a fresh key and takes a
+     * consistent one out of it.
+     *
+     * @param cell the index of the cell
+     */
+    private void updateOpenSet(int cell) {
+
+        int index = openSet.contains(cell);
+        if (index != -1)
+            openSet.removeAtIndex(index);
+
+        if (distance[cell] != lookahead[cell]) {
+            updateKey(cell);
+            openSet.insert(cell);
+        }
+
+    }
+
+    private void updateKey(int cell) {
+        float best = Math.min(distance[cell], lookahead[cell]);
+        keys[cell] = best + heuristic(startCell, cell) + keyModifier;
+        tieBreakers[cell] = best;
+    }
+
+    /**
+     * Walks from the start to the goal, always into the neighbour that is
+     * closest to the goal counting the step there.
+     *
+     * @param startTime the System.nanoTime() the search was started at
+     * @return the result with the full path
+     */
+    private PathResult buildResult(long startTime) {
+
+        int[] cells = new int[64];
+        int cellCount = 1;
+        cells[0] = startCell;
+        float cost = 0;
+
+        int cell = startCell;
+        while (cell != goalCell && cellCount <= grid.getCellCount()) {
+
+            int x = grid.getX(cell);
+            int y = grid.getY(cell);
+            int next = -1;
+            float nextStep = 0;
+            float best = INFINITY;
+
+            for (int i = 0; i < neighbourCount(); i++) {
+
+                int nx = x + NEIGHBOUR_X[i];
+                int ny = y + NEIGHBOUR_Y[i];
+                if (!grid.cellIsOkay(nx, ny))
+                    continue;
+
+                int neighbour = grid.index(nx, ny);
+                if (grid.isPassable(neighbour) && getDistance(neighbour) + stepCost(i) < best) {
+                    best = getDistance(neighbour) + stepCost(i);
+                    next = neighbour;
+                    nextStep = stepCost(i);
+                }
+
+            }
+
+            if (next == -1)
+                return new PathResult(null, null, -1, nodesExpanded, System.nanoTime() - startTime);
+
+            if (cellCount == cells.length) {
+                int[] bigger = new int[cells.length * 2];
+                System.arraycopy(cells, 0, bigger, 0, cells.length);
+                cells = bigger;
+            }
+            cells[cellCount++] = next;
+            cost += nextStep;
+            cell = next;
+
+        }
+
+        if (cell != goalCell)
+            return new PathResult(null, null, -1, nodesExpanded, System.nanoTime() - startTime);
+
+        int[] pathX = new int[cellCount];
+        int[] pathY = new int[cellCount];
+        for (int i = 0; i < cellCount; i++) {
+            pathX[i] = grid.getX(cells[i]);
+            pathY[i] = grid.getY(cells[i]);
+        }
+
+        return new PathResult(pathX, pathY, cost, nodesExpanded, System.nanoTime() - startTime);
+
+    }
+
+    /**
+     * Gives a cell its initial values if it hasn't been touched by the current search yet.
+     *
+     * @param cell the index of the cell
+     */
+    private void touch(int cell) {
+        if (searchStamps[cell] != searchGeneration) {
+            searchStamps[cell] = searchGeneration;
+            distance[cell] = INFINITY;
+            lookahead[cell] = INFINITY;
+        }
+    }
+
+    private float getDistance(int cell) {
+        if (searchStamps[cell] != searchGeneration)
+            return INFINITY;
+        return distance[cell];
+    }
+
+    private int neighbourCount() {
+        return diagonalMoveAllowed ? 8 : 4;
+    }
+
+    private float stepCost(int neighbour) {
+        return neighbour < 4 ? 1 : PathFinder.DIAGONAL_COST;
+    }
+
+    /**
+     * The shortest distance between two cells on an empty grid: manhattan
+     * distance without diagonal movement, octile distance with it.
+     */
+    private float heuristic(int cell, int other) {
+
+        int dx = Math.abs(grid.getX(cell) - grid.getX(other));
+        int dy = Math.abs(grid.getY(cell) - grid.getY(other));
+
+        if (!diagonalMoveAllowed)
+            return dx + dy;
+        else
+            return Math.max(dx, dy) + (PathFinder.DIAGONAL_COST - 1) * Math.min(dx, dy);
+
+    }
+
+    /**
+     * The amount of cells the last query expanded.
+     *
+     * @return the amount of cells getReachedCell can give
+     */
+    public int getReachedCellCount() {
+        return expandedCells.size();
+    }
+
+    /**
+     * One of the cells the last query expanded, in the order they were first
+     * expanded. The cells the repair didn't need to touch are not there.
+     *
+     * @param i from 0 to getReachedCellCount() - 1
+     * @return the index of the cell
+     */
+    public int getReachedCell(int i) {
+        return expandedCells.get(i);
+    }
+
+    /**
+     * Checks whether the last query expanded a specific cell, the cells the
+     * repair didn't need to touch are not counted.
+     *
+     * @param x the x of the cell
+     * @param y the y of the cell
+     * @return true if the cell was expanded
+     */
+    public boolean wasCellReached(int x, int y) {
+        return expandedStamps[grid.index(x, y)] == queryGeneration;
+    }
+
+    public Grid getGrid() {
+        return this.grid;
+    }
+
+}
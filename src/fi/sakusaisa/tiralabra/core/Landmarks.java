@@ -0,0 +1,284 @@
+package fi.sakusaisa.tiralabra.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The exact distances from a few landmark cells to every cell of the grid, for
+ * the ALT heuristic (A*, landmarks and the triangle inequality). The distance
+ * between two cells can't be shorter than the difference of their distances to
+ * any landmark, so the largest such difference is a lower bound that sees the
+ * walls, unlike the manhattan and octile distances. On maze-like maps it is
+ * usually much closer to the real distance.
+ *
+ * The landmarks are spread evenly around the edges of the grid, as a cell far
+ * behind the goal gives the best bounds, each one moved inwards to the nearest
+ * passable cell. Every landmark's table is a flow field built from it, and the
+ * tables are built in parallel, one landmark per worker thread.
+ *
+ * The tables are kept in a single array with the distances of a cell to every
+ * landmark next to each other, so the bound for a cell is read from one small
+ * block of memory. They describe the grid as it was when they were built and
+ * the moves they were built with, see isUsableFor.
+ *
+ * @author Saku Säisä
+ */
+public class Landmarks {
+
+    private Grid grid;
+    private boolean diagonalMoveAllowed;
+
+    // the grid's change count the tables were built at
+    private int builtAtChange;
+
+    // the cell of every landmark
+    private int[] landmarkCells;
+
+    // the distance of cell c to landmark l at c * getCount() + l, -1 if they can't reach each other
+    private float[] distances;
+
+    /**
+     * Constructor, builds the tables using one worker per available processor.
+     *
+     * @param grid the grid to build the tables on
+     * @param count the amount of landmarks wanted
+     * @param diagonalMoveAllowed whether the diagonal moves are allowed
+     */
+    public Landmarks(Grid grid, int count, boolean diagonalMoveAllowed) {
+        this(grid, count, diagonalMoveAllowed, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor, builds the tables. Fewer landmarks than wanted are used if the
+     * edges don't have room for them or there aren't enough passable cells.
+     *
+     * @param grid the grid to build the tables on
+     * @param count the amount of landmarks wanted
+     * @param diagonalMoveAllowed whether the diagonal moves are allowed
+     * @param threadCount the most worker threads to build the tables with
+     * @throws IllegalArgumentException if the tables don't fit in the heap
+     */
+    public Landmarks(Grid grid, int count, boolean diagonalMoveAllowed, int threadCount) {
+
+        if (count < 1)
+            throw new IllegalArgumentException("at least one landmark is needed");
+        if (threadCount < 1)
+            throw new IllegalArgumentException("at least one worker thread is needed");
+
+        this.grid = grid;
+        this.diagonalMoveAllowed = diagonalMoveAllowed;
+        this.builtAtChange = grid.getChangeCount();
+        this.landmarkCells = selectLandmarks(count);
+        // the tables, and the flow fields the workers build at the same time
+        SearchMemory.require(grid, 4L * landmarkCells.length * grid.getCellCount()
+                + Math.min(threadCount, landmarkCells.length) * FlowField.bytesFor(grid), "Landmarks");
+        this.distances = new float[grid.getCellCount() * landmarkCells.length];
+
+        buildTables(threadCount);
+
+    }
+
+    /**
+     * Picks points evenly spaced along the edges of the grid, going around it,
+     * and moves each one towards the center until it hits a passable cell.
+     */
+    private int[] selectLandmarks(int count) {
+
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        int perimeter = Math.max(1, 2 * (width + height) - 4);
+
+        int[] cells = new int[count];
+        int found = 0;
+
+        for (int i = 0; i < count; i++) {
+
+            // walk the edges clockwise from the top left corner
+            int position = (int) ((long) i * perimeter / count);
+            int x, y;
+            if (position < width) {
+                x = position;
+                y = 0;
+            }
+            else if (position < width + height - 1) {
+                x = width - 1;
+                y = position - width + 1;
+            }
+            else if (position < 2 * width + height - 2) {
+                x = width - 1 - (position - width - height + 2);
+                y = height - 1;
+            }
+            else {
+                x = 0;
+                y = height - 1 - (position - 2 * width - height + 3);
+            }
+
+            int cell = towardsCenter(x, y);
+            if (cell == -1)
+                continue;
+
+            boolean duplicate = false;
+            for (int j = 0; j < found; j++)
+                duplicate |= cells[j] == cell;
+            if (!duplicate)
+                cells[found++] = cell;
+
+        }
+
+        int[] landmarks = new int[found];
+        System.arraycopy(cells, 0, landmarks, 0, found);
+        return landmarks;
+
+    }
+
+    /**
+     * @return the first passable cell on the line from the given cell to the center of the grid, -1 if there is none
+     */
+    private int towardsCenter(int x, int y) {
+
+        int centerX = grid.getWidth() / 2;
+        int centerY = grid.getHeight() / 2;
+        int steps = Math.max(Math.abs(centerX - x), Math.abs(centerY - y));
+
+        for (int step = 0; step <= steps; step++) {
+            int cellX = x + (steps == 0 ? 0 : Math.round((float) (centerX - x) * step / steps));
+            int cellY = y + (steps == 0 ? 0 : Math.round((float) (centerY - y) * step / steps));
+            int cell = grid.index(cellX, cellY);
+            if (grid.isPassable(cell))
+                return cell;
+        }
+
+        return -1;
+
+    }
+
+    /**
+     * Builds a flow field from every landmark and copies its distances into the
+     * tables. Every worker writes to its own landmark's slots only, and waiting
+     * for the workers makes their writes visible to this thread.
+     */
+    private void buildTables(int threadCount) {
+
+        final int count = landmarkCells.length;
+        if (count == 0)
+            return;
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threadCount, count), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "landmark-worker");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        List<Future<Void>> workers = new ArrayList<Future<Void>>();
+        for (int i = 0; i < count; i++) {
+
+            final int landmark = i;
+
+            workers.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+
+                    int cell = landmarkCells[landmark];
+                    FlowField field = new FlowField(grid, grid.getX(cell), grid.getY(cell), diagonalMoveAllowed);
+                    float[] fieldDistances = field.getDistances();
+
+                    for (int c = 0; c < fieldDistances.length; c++)
+                        distances[c * count + landmark] = fieldDistances[c];
+
+                    return null;
+
+                }
+            }));
+
+        }
+
+        try {
+            for (Future<Void> worker : workers)
+                worker.get();
+        }
+        catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while building the landmark tables", e);
+        }
+        finally {
+            executor.shutdown();
+        }
+
+    }
+
+    /**
+     * The largest lower bound the landmarks give for the distance between two
+     * cells. Landmarks that can't reach both of the cells are skipped.
+     *
+     * @param cell the index of one cell
+     * @param target the index of the other cell
+     * @return the lower bound, 0 if no landmark gives one
+     */
+    public float lowerBound(int cell, int target) {
+
+        int count = landmarkCells.length;
+        int cellBase = cell * count;
+        int targetBase = target * count;
+        float bound = 0;
+
+        for (int l = 0; l < count; l++) {
+            float toCell = distances[cellBase + l];
+            float toTarget = distances[targetBase + l];
+            if (toCell < 0 || toTarget < 0)
+                continue;
+            bound = Math.max(bound, Math.abs(toTarget - toCell));
+        }
+
+        return bound;
+
+    }
+
+    /**
+     * Whether the tables can be used for a search: they must have been built with
+     * the same moves, and no cell may have turned into an obstacle or back since.
+     *
+     * @param diagonalMoveAllowed whether the search allows diagonal moves
+     * @return true if the bounds hold for the search
+     */
+    public boolean isUsableFor(boolean diagonalMoveAllowed) {
+        return this.diagonalMoveAllowed == diagonalMoveAllowed && grid.getChangeCount() == builtAtChange;
+    }
+
+    /**
+     * The amount of landmarks actually used.
+     *
+     * @return the landmark count
+     */
+    public int getCount() {
+        return this.landmarkCells.length;
+    }
+
+    public int getLandmarkX(int landmark) {
+        return grid.getX(this.landmarkCells[landmark]);
+    }
+
+    public int getLandmarkY(int landmark) {
+        return grid.getY(this.landmarkCells[landmark]);
+    }
+
+    public boolean isDiagonalMoveAllowed() {
+        return this.diagonalMoveAllowed;
+    }
+
+    public Grid getGrid() {
+        return this.grid;
+    }
+
+}
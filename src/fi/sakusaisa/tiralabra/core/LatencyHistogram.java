@@ -0,0 +1,156 @@
+package fi.sakusaisa.tiralabra.core;
+
+/**
+ * A histogram of latencies in nanoseconds with a fixed relative precision.
+ * Every power of two range of values is split into 16 equally wide buckets, so
+ * a value is placed in a bucket at most 1/16 (6.25%) wider than the value
+ * itself, and values below 16 get a bucket of their own. That makes 960 buckets
+ * for every value a long can hold, recording is a few shifts and an increment,
+ * and a percentile is found by walking the buckets.
+ *
+ * Not thread safe, SearchStatistics takes care of that for its own histograms.
+ *
+ * @author Saku Säisä
+ */
+public class LatencyHistogram {
+
+    // the bits below the leading one that pick the bucket within a power of two range
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private long[] counts;
+    private long count;
+    private long sum;
+    private long min;
+    private long max;
+
+    /**
+     * Constructor for an empty histogram.
+     */
+    public LatencyHistogram() {
+        this.counts = new long[(64 - SUB_BUCKET_BITS) * SUB_BUCKETS];
+        clear();
+    }
+
+    /**
+     * Constructor for a copy of another histogram.
+     *
+     * @param other the histogram to copy
+     */
+    public LatencyHistogram(LatencyHistogram other) {
+        this.counts = other.counts.clone();
+        this.count = other.count;
+        this.sum = other.sum;
+        this.min = other.min;
+        this.max = other.max;
+    }
+
+    /**
+     * The bucket of a value, not negative.
+     */
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * The largest value that goes into a bucket.
+     */
+    private static long highestValue(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos the latency in nanoseconds, a negative one is counted as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts[bucket(value)]++;
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds every latency recorded into another histogram to this one.
+     *
+     * @param other the histogram to add
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++)
+            counts[i] += other.counts[i];
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Forgets every recorded latency.
+     */
+    public void clear() {
+        for (int i = 0; i < counts.length; i++)
+            counts[i] = 0;
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    /**
+     * The nearest rank percentile of the recorded latencies, as the largest value
+     * of the bucket it fell in but never more than the largest latency recorded.
+     *
+     * @param percent the percentile, from 0 to 100
+     * @return the latency in nanoseconds, 0 if nothing has been recorded
+     */
+    public long getPercentile(double percent) {
+
+        if (percent < 0 || percent > 100)
+            throw new IllegalArgumentException("the percentile must be from 0 to 100");
+        if (count == 0)
+            return 0;
+
+        long rank = Math.max((long) Math.ceil(percent / 100 * count), 1);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank)
+                return Math.min(highestValue(i), max);
+        }
+        return max;
+
+    }
+
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * @return the smallest recorded latency, 0 if nothing has been recorded
+     */
+    public long getMin() {
+        return count == 0 ? 0 : this.min;
+    }
+
+    public long getMax() {
+        return this.max;
+    }
+
+    /**
+     * @return the mean of the recorded latencies, 0 if nothing has been recorded
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+}
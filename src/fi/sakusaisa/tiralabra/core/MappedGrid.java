@@ -0,0 +1,246 @@
+package fi.sakusaisa.tiralabra.core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A grid kept in a map file instead of the heap, for maps too large to build in
+ * memory. The file is memory mapped, so opening it reads nothing but the header
+ * and the operating system pages in only the parts of the map that are actually
+ * looked at.
+ *
+ * The file format, all numbers being big-endian ints:
+ *
+ * 0  magic, the bytes "TLMP"
+ * 4  the format version, 1
+ * 8  the width of the grid in cells
+ * 12 the height of the grid in cells
+ * 16 the tile size, a power of two from 1 to 256
+ * 32 the tiles, one byte per cell (0 = obstacle, 1 = passable)
+ *
+ * The cells are stored in square tiles of tile size * tile size cells, each tile
+ * row by row. The tiles come in rows of tiles from top to bottom, each row of
+ * tiles from left to right, and the tiles on the right and bottom edges are
+ * padded to full size with obstacles. With the default tile size of 64 a tile is
+ * a typical 4 KB memory page, so reading or editing one region of the map only
+ * ever pages in the tiles of that region.
+ *
+ * The file is only read. A change to a cell copies the row of tiles it is in to
+ * the heap, where the changes of that row are kept from then on; save writes the
+ * grid with its changes into a file.
+ *
+ * Only the map is kept out of the heap, the search engines are not. They keep
+ * their data in arrays of the full size of the grid, about 40 bytes per cell
+ * for a PathFinder and more for the others, so a mapped grid can only be
+ * searched if it is some 40 times smaller than the heap. Larger maps can be
+ * opened, edited and saved, but not searched: the engines check their arrays
+ * against the heap when they are built and refuse such a grid with an
+ * IllegalArgumentException.
+ *
+ * @author Saku Säisä
+ */
+public class MappedGrid extends Grid implements Closeable {
+
+    public static final int MAGIC = 0x544C4D50;
+    public static final int FORMAT_VERSION = 1;
+    public static final int HEADER_SIZE = 32;
+    public static final int DEFAULT_TILE_SIZE = 64;
+
+    private RandomAccessFile file;
+
+    // the tile size as a shift and a mask, and the bytes in one row of tiles
+    private int tileShift;
+    private int tileMask;
+    private int tileRowBytes;
+
+    // every row of tiles, memory mapped from the file until a cell in it is changed
+    private ByteBuffer[] tileRows;
+    private boolean[] copied;
+
+    private MappedGrid(RandomAccessFile file, int width, int height, int tileSize) throws IOException {
+
+        super(width, height, false);
+
+        this.file = file;
+        this.tileShift = Integer.numberOfTrailingZeros(tileSize);
+        this.tileMask = tileSize - 1;
+
+        int tileRowCount = (height + tileMask) >> tileShift;
+        long rowBytes = (long) ((width + tileMask) >> tileShift) * tileSize * tileSize;
+        if (rowBytes > Integer.MAX_VALUE)
+            throw new IOException("a row of tiles is too large to be mapped");
+        this.tileRowBytes = (int) rowBytes;
+
+        if (file.length() < HEADER_SIZE + (long) tileRowCount * tileRowBytes)
+            throw new IOException("the map file is shorter than its header says");
+
+        // mapping only reserves the address space, nothing is read until a cell is
+        this.tileRows = new ByteBuffer[tileRowCount];
+        this.copied = new boolean[tileRowCount];
+        FileChannel channel = file.getChannel();
+        for (int row = 0; row < tileRowCount; row++)
+            tileRows[row] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + (long) row * tileRowBytes, tileRowBytes);
+
+    }
+
+    /**
+     * Opens a map file.
+     *
+     * @param mapFile the file to open
+     * @return the grid, close it when done
+     * @throws IOException if the file can't be read or isn't a valid map file
+     */
+    public static MappedGrid open(File mapFile) throws IOException {
+
+        RandomAccessFile file = new RandomAccessFile(mapFile, "r");
+        try {
+
+            if (file.length() < HEADER_SIZE)
+                throw new IOException("the file is too short to be a map file");
+
+            int magic = file.readInt();
+            int formatVersion = file.readInt();
+            int width = file.readInt();
+            int height = file.readInt();
+            int tileSize = file.readInt();
+
+            if (magic != MAGIC)
+                throw new IOException("not a map file");
+            if (formatVersion != FORMAT_VERSION)
+                throw new IOException("unsupported map file version " + formatVersion);
+            if (width < 1 || height < 1 || (long) width * height > Integer.MAX_VALUE)
+                throw new IOException("unsupported map size " + width + "*" + height);
+            if (tileSize < 1 || tileSize > 256 || Integer.bitCount(tileSize) != 1)
+                throw new IOException("unsupported tile size " + tileSize);
+
+            return new MappedGrid(file, width, height, tileSize);
+
+        }
+        catch (IOException e) {
+            file.close();
+            throw e;
+        }
+
+    }
+
+    /**
+     * Writes any grid into a map file, every cell as an obstacle or passable.
+     *
+     * @param grid the grid to write
+     * @param mapFile the file to write, replaced if it exists
+     * @param tileSize the tile size, a power of two from 1 to 256
+     * @throws IOException if the file can't be written
+     */
+    public static void save(Grid grid, File mapFile, int tileSize) throws IOException {
+
+        if (tileSize < 1 || tileSize > 256 || Integer.bitCount(tileSize) != 1)
+            throw new IllegalArgumentException("the tile size must be a power of two from 1 to 256");
+
+        int tilesX = (grid.getWidth() + tileSize - 1) / tileSize;
+        int tileRowCount = (grid.getHeight() + tileSize - 1) / tileSize;
+        ByteBuffer tileRow = ByteBuffer.allocate(tilesX * tileSize * tileSize);
+
+        RandomAccessFile file = new RandomAccessFile(mapFile, "rw");
+        try {
+
+            FileChannel channel = file.getChannel();
+            file.setLength(0);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(grid.getWidth()).putInt(grid.getHeight()).putInt(tileSize);
+            header.clear();
+            channel.write(header);
+
+            // one row of tiles at a time, the padding outside the grid is left as obstacles
+            for (int row = 0; row < tileRowCount; row++) {
+
+                tileRow.clear();
+                for (int i = 0; i < tileRow.capacity(); i++)
+                    tileRow.put(i, (byte) 0);
+
+                for (int y = row * tileSize; y < Math.min((row + 1) * tileSize, grid.getHeight()); y++) {
+                    for (int x = 0; x < grid.getWidth(); x++) {
+                        if (grid.isPassable(grid.index(x, y)))
+                            tileRow.put((x / tileSize) * tileSize * tileSize + (y % tileSize) * tileSize + x % tileSize, (byte) 1);
+                    }
+                }
+
+                while (tileRow.hasRemaining())
+                    channel.write(tileRow);
+
+            }
+
+        }
+        finally {
+            file.close();
+        }
+
+    }
+
+    @Override
+    protected int readCell(int index) {
+        int x = getX(index);
+        int y = getY(index);
+        return tileRows[y >> tileShift].get(offset(x, y));
+    }
+
+    @Override
+    protected void writeCell(int index, byte data) {
+
+        int x = getX(index);
+        int y = getY(index);
+        int row = y >> tileShift;
+
+        // the mapping is read only, the row gets a copy of its own on its first change
+        if (!copied[row]) {
+            ByteBuffer mapped = tileRows[row].duplicate();
+            mapped.clear();
+            ByteBuffer copy = ByteBuffer.allocate(tileRowBytes);
+            copy.put(mapped);
+            tileRows[row] = copy;
+            copied[row] = true;
+        }
+
+        tileRows[row].put(offset(x, y), data);
+
+    }
+
+    /**
+     * The place of a cell within its row of tiles.
+     */
+    private int offset(int x, int y) {
+        return ((x >> tileShift) << (tileShift << 1)) + ((y & tileMask) << tileShift) + (x & tileMask);
+    }
+
+    /**
+     * The amount of rows of tiles copied to the heap because of changes.
+     *
+     * @return the amount of copied rows
+     */
+    public int getCopiedTileRowCount() {
+        int count = 0;
+        for (int row = 0; row < copied.length; row++) {
+            if (copied[row])
+                count++;
+        }
+        return count;
+    }
+
+    public int getTileSize() {
+        return this.tileMask + 1;
+    }
+
+    /**
+     * Closes the file. The rows of tiles stay readable, as a mapping outlives
+     * the file it was made from.
+     */
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+}
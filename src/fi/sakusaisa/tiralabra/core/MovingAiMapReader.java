@@ -0,0 +1,106 @@
+package fi.sakusaisa.tiralabra.core;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the .map files of the Moving AI grid benchmarks into a grid:
+ *
+ * type octile
+ * height 512
+ * width 512
+ * map
+ * @@@@..T..
+ *
+ * followed by a row of width characters for every line of the map. The
+ * passable characters are '.' and 'G' (ground) and 'S' (swamp), everything
+ * else ('@', 'O', 'T', 'W') is an obstacle. The rows are read a byte at a time
+ * straight into the grid, no text is made of them.
+ *
+ * @author Saku Säisä
+ */
+public class MovingAiMapReader {
+
+    private MovingAiMapReader() {
+    }
+
+    /**
+     * Reads a map file.
+     *
+     * @param mapFile the file to read
+     * @return the map as a grid
+     * @throws IOException if the file can't be read or isn't a valid map
+     */
+    public static Grid read(File mapFile) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(mapFile));
+        try {
+            return read(in);
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads a map from a stream, leaving the stream open.
+     *
+     * @param in the stream to read
+     * @return the map as a grid
+     * @throws IOException if the stream can't be read or doesn't hold a valid map
+     */
+    public static Grid read(InputStream in) throws IOException {
+
+        TokenReader reader = new TokenReader(in);
+        int width = -1;
+        int height = -1;
+
+        // the header is keywords and their values up to "map"
+        while (true) {
+            String keyword = reader.nextToken();
+            if (keyword == null)
+                throw reader.error("the map ended before its header did");
+            if (keyword.equals("map"))
+                break;
+            if (keyword.equals("width"))
+                width = reader.nextInt();
+            else if (keyword.equals("height"))
+                height = reader.nextInt();
+            else if (keyword.equals("type"))
+                reader.nextToken();
+            else
+                throw reader.error("unknown keyword " + keyword);
+        }
+
+        if (width < 1 || height < 1 || (long) width * height > Integer.MAX_VALUE)
+            throw reader.error("unsupported map size " + width + "*" + height);
+
+        Grid grid = new Grid(width, height);
+        reader.skipLine();
+
+        for (int y = 0; y < height; y++) {
+
+            for (int x = 0; x < width; x++) {
+                int b = reader.read();
+                if (b == -1 || b == '\n' || b == '\r')
+                    throw reader.error("row " + y + " is shorter than the width of the map");
+                if (b != '.' && b != 'G' && b != 'S')
+                    grid.setCellData(x, y, 0);
+            }
+
+            // the line break of the row, the last one may be missing
+            int b = reader.read();
+            if (b == '\r')
+                b = reader.read();
+            if (b != '\n' && b != -1)
+                throw reader.error("row " + y + " is longer than the width of the map");
+
+        }
+
+        return grid;
+
+    }
+
+}
@@ -0,0 +1,113 @@
+package fi.sakusaisa.tiralabra.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads the .scen files of the Moving AI grid benchmarks a batch at a time, so
+ * a scenario file of any size can be run without holding all of it in memory.
+ * After an optional "version 1" line every line is one query:
+ *
+ * bucket map width height startX startY goalX goalY optimalLength
+ *
+ * separated by tabs. The optimal lengths are octile distances, so the queries
+ * are made with diagonal moves allowed. Note that the benchmarks don't let a
+ * diagonal move cut the corner of an obstacle, which the PathFinder does, so a
+ * found path can be shorter than the given optimal length but never longer.
+ *
+ * @author Saku Säisä
+ */
+public class MovingAiScenarioReader {
+
+    private TokenReader reader;
+
+    // the first token of the next query, when it had to be read to check for the version line
+    private String pendingBucket;
+
+    /**
+     * Constructor, reads the version line if there is one. The stream is read
+     * as the batches are asked for, and closing it is up to the caller.
+     *
+     * @param in the stream to read
+     * @throws IOException if the stream can't be read
+     */
+    public MovingAiScenarioReader(InputStream in) throws IOException {
+
+        this.reader = new TokenReader(in);
+
+        String first = reader.nextToken();
+        if (first != null && first.equals("version")) {
+            double version = reader.nextDouble();
+            if (version != 1)
+                throw reader.error("unsupported scenario version " + version);
+        }
+        else
+            pendingBucket = first;
+
+    }
+
+    /**
+     * Reads the next queries.
+     *
+     * @param maxQueries the most queries to read
+     * @return the queries, null if there are none left
+     * @throws IOException if the stream can't be read or a line isn't a valid query
+     */
+    public ScenarioBatch nextBatch(int maxQueries) throws IOException {
+
+        if (maxQueries < 1)
+            throw new IllegalArgumentException("a batch must have room for a query");
+
+        PathQuery[] queries = new PathQuery[maxQueries];
+        double[] optimalLengths = new double[maxQueries];
+        int[] buckets = new int[maxQueries];
+        String[] mapNames = new String[maxQueries];
+        int count = 0;
+
+        while (count < maxQueries) {
+
+            if (pendingBucket != null) {
+                try {
+                    buckets[count] = Integer.parseInt(pendingBucket);
+                }
+                catch (NumberFormatException e) {
+                    throw reader.error("a bucket number was expected, found " + pendingBucket);
+                }
+                pendingBucket = null;
+            }
+            else if (!reader.skipWhitespace())
+                break;
+            else
+                buckets[count] = reader.nextInt();
+
+            mapNames[count] = reader.nextToken();
+            int width = reader.nextInt();
+            int height = reader.nextInt();
+            int startX = reader.nextInt();
+            int startY = reader.nextInt();
+            int goalX = reader.nextInt();
+            int goalY = reader.nextInt();
+            optimalLengths[count] = reader.nextDouble();
+
+            if (startX < 0 || startY < 0 || goalX < 0 || goalY < 0 || startX >= width || goalX >= width || startY >= height || goalY >= height)
+                throw reader.error("the start or goal is outside the map");
+
+            queries[count] = new PathQuery(startX, startY, goalX, goalY);
+            queries[count].setDiagonalMoveAllowed(true);
+            count++;
+
+        }
+
+        if (count == 0)
+            return null;
+
+        if (count < maxQueries)
+            return new ScenarioBatch(Arrays.copyOf(queries, count), Arrays.copyOf(optimalLengths, count),
+                    Arrays.copyOf(buckets, count), Arrays.copyOf(mapNames, count));
+
+        return new ScenarioBatch(queries, optimalLengths, buckets, mapNames);
+
+    }
+
+}
@@ -0,0 +1,179 @@
+package fi.sakusaisa.tiralabra.core;
+
+/**
+ * The passability of a grid with a border of obstacles around it, one bit per
+ * cell, along with the index offsets and step costs of the neighbours of a cell.
+ * With the border every cell of the grid has all its eight neighbours in the
+ * table, so expanding a cell needs no coordinates and no bounds checks: the
+ * neighbours are at fixed offsets from it, and the ones outside the grid are
+ * simply obstacles.
+ *
+ * The cell (x, y) of the grid is at (y + 1) * (width + 2) + x + 1 in the table.
+ * The table follows the grid through its change log, so after the grid has
+ * been edited update brings it up to date one changed cell at a time.
+ *
+ * One table per grid is enough, see Grid.getNeighbourTable. Update is
+ * synchronized, so the engines of several threads can all call it before
+ * their searches, and the reads after it see the changes. The grid must not
+ * be changed while they search.
+ *
+ * @author Saku Säisä
+ */
+class NeighbourTable {
+
+    // the orthogonal neighbours in the order the searches have always looked at them:
+    // up, left, right, down
+    private static final int[] DX_4 = { 0, -1, 1, 0 };
+    private static final int[] DY_4 = { -1, 0, 0, 1 };
+
+    // all eight neighbours the same way, row by row from the top left
+    private static final int[] DX_8 = { -1, 0, 1, -1, 1, -1, 0, 1 };
+    private static final int[] DY_8 = { -1, -1, -1, 0, 0, 1, 1, 1 };
+
+    private Grid grid;
+    private int width;
+    private int paddedWidth;
+
+    // one bit per cell of the padded grid, set for the passable cells
+    private long[] passable;
+
+    // the change count of the grid the table was last brought up to date with
+    private int changeCount;
+
+    // the offsets of the neighbours in the table and in the grid, and the cost of moving to each
+    final int[] tableOffsets4;
+    final int[] cellOffsets4;
+    final float[] stepCosts4;
+    final int[] tableOffsets8;
+    final int[] cellOffsets8;
+    final float[] stepCosts8;
+
+    /**
+     * The bytes a table for a grid of the given size allocates.
+     *
+     * @param width the width of the grid
+     * @param height the height of the grid
+     * @return the bytes of the passability bits
+     */
+    static long bytesFor(int width, int height) {
+        return 8L * (((long) (width + 2) * (height + 2) + 63) >>> 6);
+    }
+
+    /**
+     * Constructor, reads the passability of every cell of the grid.
+     *
+     * @param grid the grid to follow
+     */
+    NeighbourTable(Grid grid) {
+
+        this.grid = grid;
+        this.width = grid.getWidth();
+        this.paddedWidth = width + 2;
+
+        long paddedCount = (long) paddedWidth * (grid.getHeight() + 2);
+        this.passable = new long[(int) ((paddedCount + 63) >>> 6)];
+
+        this.tableOffsets4 = new int[4];
+        this.cellOffsets4 = new int[4];
+        this.stepCosts4 = new float[4];
+        for (int d = 0; d < 4; d++) {
+            tableOffsets4[d] = DY_4[d] * paddedWidth + DX_4[d];
+            cellOffsets4[d] = DY_4[d] * width + DX_4[d];
+            stepCosts4[d] = 1;
+        }
+
+        this.tableOffsets8 = new int[8];
+        this.cellOffsets8 = new int[8];
+        this.stepCosts8 = new float[8];
+        for (int d = 0; d < 8; d++) {
+            tableOffsets8[d] = DY_8[d] * paddedWidth + DX_8[d];
+            cellOffsets8[d] = DY_8[d] * width + DX_8[d];
+            stepCosts8[d] = DX_8[d] != 0 && DY_8[d] != 0 ? PathFinder.DIAGONAL_COST : 1;
+        }
+
+        rebuild();
+
+    }
+
+    /**
+     * Reads the passability of every cell again.
+     */
+    private void rebuild() {
+
+        for (int i = 0; i < passable.length; i++)
+            passable[i] = 0;
+
+        for (int y = 0; y < grid.getHeight(); y++) {
+            int cell = y * width;
+            int entry = toEntry(cell);
+            for (int x = 0; x < width; x++, cell++, entry++) {
+                if (grid.isPassable(cell))
+                    passable[entry >>> 6] |= 1L << entry;
+            }
+        }
+
+        changeCount = grid.getChangeCount();
+
+    }
+
+    /**
+     * Applies the changes made to the grid since the last update, or reads the
+     * whole grid again if there are more of them than its change log remembers.
+     */
+    synchronized void update() {
+
+        int latest = grid.getChangeCount();
+        if (latest == changeCount)
+            return;
+
+        if (latest - changeCount > Grid.CHANGE_LOG_SIZE) {
+            rebuild();
+            return;
+        }
+
+        for (int change = changeCount; change < latest; change++) {
+            int cell = grid.getChangedCell(change);
+            int entry = toEntry(cell);
+            if (grid.isPassable(cell))
+                passable[entry >>> 6] |= 1L << entry;
+            else
+                passable[entry >>> 6] &= ~(1L << entry);
+        }
+
+        changeCount = latest;
+
+    }
+
+    /**
+     * The place of a grid cell in the table.
+     *
+     * @param cell the index of the cell in the grid
+     * @return the index of the cell in the table
+     */
+    int toEntry(int cell) {
+        return cell + 2 * (cell / width) + paddedWidth + 1;
+    }
+
+    /**
+     * Checks a cell by its place in the table.
+     *
+     * @param entry the index of the cell in the table
+     * @return true if the cell is passable, false for obstacles and the border
+     */
+    boolean isPassable(int entry) {
+        return (passable[entry >>> 6] & (1L << entry)) != 0;
+    }
+
+    /**
+     * Checks a cell by its coordinates, which may be at most one step outside the grid.
+     *
+     * @param x the x of the cell, from -1 to the width of the grid
+     * @param y the y of the cell, from -1 to the height of the grid
+     * @return true if the cell is within the grid and passable
+     */
+    boolean isWalkable(int x, int y) {
+        int entry = (y + 1) * paddedWidth + x + 1;
+        return (passable[entry >>> 6] & (1L << entry)) != 0;
+    }
+
+}
@@ -0,0 +1,31 @@
+package fi.sakusaisa.tiralabra.core;
+
+/**
+ * The open set implementations the PathFinder engine can run its searches on.
+ * 
+ * @author Saku Säisä
+ */
+public enum OpenSetType {
+
+    // the bucket queue when every key of the search is a whole number, otherwise the binary heap
+    AUTOMATIC,
+
+    // the binary heap
+    BINARY_HEAP,
+
+    // a heap with four children per node, shallower than the binary one
+    QUATERNARY_HEAP,
+
+    // a heap with four children per node that keeps the keys next to the cells
+    PACKED_HEAP,
+
+    // a pairing heap, constant time inserts and decreases
+    PAIRING_HEAP,
+
+    // the AVL tree
+    AVL_TREE,
+
+    // the bucket queue, only used when every key is a whole number, the binary heap is used otherwise
+    BUCKET_QUEUE
+
+}
@@ -0,0 +1,297 @@
+package fi.sakusaisa.tiralabra.core;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the results of earlier queries so that asking for the same path
+ * again doesn't run a new search. Sits in front of a PathFinder and answers
+ * with a cached result whenever one exists for an identical query (start, goal
+ * and every search setting) and the grid hasn't changed in a way that could
+ * change the answer.
+ *
+ * The grid's change count works as its version: every entry remembers the
+ * version it was found at, and when it is looked up again the cells changed
+ * since then are checked from the grid's change log. A cell that became an
+ * obstacle only matters if the cached path goes through it. A cell that is
+ * passable now may have been opened, which can make a shorter path possible
+ * anywhere, so it drops the entry, as does a change log that no longer reaches
+ * back far enough.
+ *
+ * The entries are kept in least recently used order, and the oldest ones are
+ * dropped whenever the estimated memory use of the cache goes over its cap.
+ *
+ * @author Saku Säisä
+ */
+public class PathCache {
+
+    // a rough estimate of the memory an entry takes besides its path
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+
+    private PathFinder pathFinder;
+    private Grid grid;
+
+    // the entries in least recently used order, the eldest first
+    private LinkedHashMap<Key, Entry> entries;
+
+    private long memoryCap;
+    private long memoryUsed;
+
+    private int hits;
+    private int misses;
+    private boolean lastQueryHit;
+
+    /**
+     * Constructor.
+     *
+     * @param pathFinder the engine to run the queries that aren't cached
+     * @param memoryCap the most memory the cached entries may take, in bytes (estimated)
+     */
+    public PathCache(PathFinder pathFinder, long memoryCap) {
+
+        if (memoryCap < 1)
+            throw new IllegalArgumentException("the memory cap must be positive");
+
+        this.pathFinder = pathFinder;
+        this.grid = pathFinder.getGrid();
+        this.memoryCap = memoryCap;
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+
+    }
+
+    /**
+     * Gives the cached result of the query if there is a valid one, otherwise
+     * runs the search and caches its result. A cached result has no nodes
+     * expanded and the time it took to look it up.
+     *
+     * @param query the query to answer
+     * @return the found path along with the search statistics
+     * @throws IllegalArgumentException if the start or goal is outside the grid
+     */
+    public PathResult findPath(PathQuery query) {
+
+        long startTime = System.nanoTime();
+
+        Key key = new Key(query);
+        Entry entry = entries.get(key);
+
+        if (entry != null && isStillValid(entry)) {
+            hits++;
+            lastQueryHit = true;
+            return new PathResult(entry.pathX, entry.pathY, entry.cost, 0, System.nanoTime() - startTime);
+        }
+
+        if (entry != null)
+            remove(key, entry);
+
+        misses++;
+        lastQueryHit = false;
+
+        PathResult result = pathFinder.findPath(query);
+        add(key, new Entry(result, grid.getChangeCount()));
+
+        return result;
+
+    }
+
+    /**
+     * Goes through the grid changes made after the entry was found.
+     *
+     * @param entry the entry to check
+     * @return true if the cached result is still the answer, the entry is then brought up to date
+     */
+    private boolean isStillValid(Entry entry) {
+
+        int changeCount = grid.getChangeCount();
+
+        for (int change = entry.version; change < changeCount; change++) {
+
+            int cell = grid.getChangedCell(change);
+
+            // forgotten by the change log, or maybe opened up a shortcut
+            if (cell == -1 || grid.isPassable(cell))
+                return false;
+
+            if (entry.goesThrough(grid.getX(cell), grid.getY(cell)))
+                return false;
+
+        }
+
+        entry.version = changeCount;
+        return true;
+
+    }
+
+    private void add(Key key, Entry entry) {
+
+        // a result too large for the whole cache isn't kept at all
+        if (entry.bytes > memoryCap)
+            return;
+
+        entries.put(key, entry);
+        memoryUsed += entry.bytes;
+
+        // drop the least recently used entries until the cache fits its cap
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while (memoryUsed > memoryCap && eldest.hasNext()) {
+            memoryUsed -= eldest.next().getValue().bytes;
+            eldest.remove();
+        }
+
+    }
+
+    private void remove(Key key, Entry entry) {
+        entries.remove(key);
+        memoryUsed -= entry.bytes;
+    }
+
+    /**
+     * Drops every entry, the hit and miss counters are kept.
+     */
+    public void clear() {
+        entries.clear();
+        memoryUsed = 0;
+    }
+
+    public int getHits() {
+        return this.hits;
+    }
+
+    public int getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * Whether the last query was answered from the cache.
+     *
+     * @return true if the last findPath didn't run a search
+     */
+    public boolean wasLastQueryHit() {
+        return this.lastQueryHit;
+    }
+
+    public int getEntryCount() {
+        return this.entries.size();
+    }
+
+    /**
+     * The estimated memory the entries take.
+     *
+     * @return the estimate in bytes
+     */
+    public long getMemoryUsed() {
+        return this.memoryUsed;
+    }
+
+    public long getMemoryCap() {
+        return this.memoryCap;
+    }
+
+    public PathFinder getPathFinder() {
+        return this.pathFinder;
+    }
+
+    /**
+     * Everything about a query that can change its result.
+     */
+    private static final class Key {
+
+        private final int startX, startY, goalX, goalY;
+        private final boolean diagonalMoveAllowed, useTieBreaker, bidirectional;
+        private final SearchAlgorithm algorithm;
+        private final OpenSetType openSetType;
+
+        Key(PathQuery query) {
+            this.startX = query.getStartX();
+            this.startY = query.getStartY();
+            this.goalX = query.getGoalX();
+            this.goalY = query.getGoalY();
+            this.diagonalMoveAllowed = query.isDiagonalMoveAllowed();
+            this.useTieBreaker = query.isUseTieBreaker();
+            this.bidirectional = query.isBidirectional();
+            this.algorithm = query.getAlgorithm();
+            this.openSetType = query.getOpenSetType();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key))
+                return false;
+            Key key = (Key) other;
+            return startX == key.startX && startY == key.startY && goalX == key.goalX && goalY == key.goalY
+                    && diagonalMoveAllowed == key.diagonalMoveAllowed && useTieBreaker == key.useTieBreaker
+                    && bidirectional == key.bidirectional && algorithm == key.algorithm && openSetType == key.openSetType;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = startX;
+            hash = 31 * hash + startY;
+            hash = 31 * hash + goalX;
+            hash = 31 * hash + goalY;
+            hash = 31 * hash + (diagonalMoveAllowed ? 1 : 0);
+            hash = 31 * hash + (useTieBreaker ? 1 : 0);
+            hash = 31 * hash + (bidirectional ? 1 : 0);
+            hash = 31 * hash + algorithm.ordinal();
+            hash = 31 * hash + openSetType.ordinal();
+            return hash;
+        }
+
+    }
+
+    /**
+     * A cached result, the grid version it is valid at and the bounding box of its path.
+     */
+    private static final class Entry {
+
+        private final int[] pathX;
+        private final int[] pathY;
+        private final float cost;
+        private final long bytes;
+        private int version;
+        private int minX, minY, maxX, maxY;
+
+        Entry(PathResult result, int version) {
+
+            this.cost = result.getCost();
+            this.version = version;
+
+            int length = result.getPathLength();
+            this.pathX = length == 0 ? null : new int[length];
+            this.pathY = length == 0 ? null : new int[length];
+            this.bytes = ENTRY_OVERHEAD_BYTES + 8L * length;
+
+            minX = minY = Integer.MAX_VALUE;
+            maxX = maxY = Integer.MIN_VALUE;
+            for (int i = 0; i < length; i++) {
+                pathX[i] = result.getPathX(i);
+                pathY[i] = result.getPathY(i);
+                minX = Math.min(minX, pathX[i]);
+                minY = Math.min(minY, pathY[i]);
+                maxX = Math.max(maxX, pathX[i]);
+                maxY = Math.max(maxY, pathY[i]);
+            }
+
+        }
+
+        /**
+         * Checks whether the path goes through a cell, the bounding box first.
+         */
+        boolean goesThrough(int x, int y) {
+
+            if (x < minX || x > maxX || y < minY || y > maxY)
+                return false;
+
+            for (int i = 0; i < pathX.length; i++) {
+                if (pathX[i] == x && pathY[i] == y)
+                    return true;
+            }
+
+            return false;
+
+        }
+
+    }
+
+}
@@ -0,0 +1,954 @@
+package fi.sakusaisa.tiralabra.core;
+
+/**
+ * The headless pathfinding engine. Runs A*, Dijkstra or Jump Point Search on a
+ * Grid and hands the outcome back as a PathResult. The engine never touches the cell data
+ * used for visualization, so it doesn't need a UI to run.
+ *
+ * All the per-cell search data is kept in flat arrays indexed by the cell index
+ * of the grid instead of in GridCell objects, one SearchFrontier per search direction.
+ * A* and Dijkstra can also be run bidirectionally, searching from the start and
+ * the goal at the same time until the two searches can no longer improve on
+ * the best path found where they meet.
+ *
+ * A PathFinder only reads the grid, but its search data is reused from query to
+ * query, so one instance must not run two searches at once. BatchPathFinder gives
+ * every worker thread its own.
+ *
+ * @author Saku Säisä
+ */
+public class PathFinder {
+
+    // the movement cost of a diagonal step, orthogonal steps cost 1
+    public static final float DIAGONAL_COST = (float) Math.sqrt(2);
+
+    // how much shorter a new route to a closed cell has to be to count as a reopening in the metrics,
+    // routes of the same length summed in a different order differ by rounding
+    private static final float REOPEN_TOLERANCE = 1e-3f;
+
+    // the grid being searched
+    private Grid grid;
+
+    // the passability of the grid with a border of obstacles, shared with the other engines
+    // searching the same grid, null for the grids not kept in memory
+    private NeighbourTable neighbours;
+
+    // the connected components of the grid without and with diagonal moves, shared with the other
+    // engines searching the same grid, null for the grids not kept in memory
+    private ConnectedComponents[] components;
+
+    // the search from the start towards the goal
+    private SearchFrontier forward;
+
+    // the search from the goal towards the start, only used by bidirectional searches
+    private SearchFrontier backward;
+
+    // the query currently being processed
+    private PathQuery query;
+
+    private int nodesExpanded;
+
+    // the most cells the open sets have held at once during the current search
+    private int peakOpenSetSize;
+
+    // the cells put into and taken out of the open sets, and the keys decreased, during the current search
+    private int nodesGenerated;
+    private int nodesRemoved;
+    private int decreaseKeys;
+
+    // told about every search with its metrics, null for none
+    private SearchListener listener;
+
+    // the statistics only kept while there is a listener: the metrics handed to it,
+    // the routes that would have reopened a closed cell and when each phase ended
+    private SearchMetrics metrics = new SearchMetrics();
+    private int reopenedNodes;
+    private long siftStepsBefore;
+    private long resetEndTime;
+    private long searchEndTime;
+
+    // the goal of the current query as an index, used by the jump point search
+    private int goalCell;
+
+    // the cheapest known path through a cell reached by both searches, and that cell
+    private float bestMeetingCost;
+    private int meetingCell;
+
+    // the landmark distance tables for ALT searches, and whether the current query uses them
+    private Landmarks landmarks;
+    private boolean useLandmarks;
+
+    // the directions to jump to from the cell being expanded by the jump point search
+    private int[] jumpDirectionsX = new int[8];
+    private int[] jumpDirectionsY = new int[8];
+    private int jumpDirectionCount;
+
+    /**
+     * Constructor.
+     *
+     * @param grid the grid to run the searches on
+     * @throws IllegalArgumentException if the search data of the grid doesn't fit in the heap
+     */
+    public PathFinder(Grid grid) {
+        SearchMemory.require(grid, bytesFor(grid), "PathFinder");
+        this.grid = grid;
+        this.forward = new SearchFrontier(grid.getCellCount());
+        this.backward = new SearchFrontier(grid.getCellCount());
+
+        // the tables derived from the grid are built here rather than on the first query,
+        // and only once per grid no matter how many engines search it
+        this.neighbours = grid.getNeighbourTable();
+        this.components = new ConnectedComponents[] { grid.getComponents(false), grid.getComponents(true) };
+    }
+
+    /**
+     * The bytes a PathFinder allocates for a grid: its two frontiers, and the
+     * neighbour table and the connected components if the grid doesn't have them yet.
+     *
+     * @param grid the grid to run the searches on
+     * @return the bytes allocated by the constructor
+     */
+    static long bytesFor(Grid grid) {
+        return 2 * SearchFrontier.bytesFor(grid.getCellCount()) + grid.getUnbuiltTableBytes();
+    }
+
+    /**
+     * Checks whether the last search reached (added to the open set) a specific cell
+     * from either direction.
+     *
+     * @param x the x of the cell
+     * @param y the y of the cell
+     * @return true if the cell was reached
+     */
+    public boolean wasCellReached(int x, int y) {
+        int cell = grid.index(x, y);
+        return forward.isReached(cell) || backward.isReached(cell);
+    }
+
+    /**
+     * The amount of cells the last search reached, from both directions.
+     *
+     * @return the amount of cells getReachedCell can give
+     */
+    public int getReachedCellCount() {
+        return forward.reachedCells.size() + backward.reachedCells.size();
+    }
+
+    /**
+     * One of the cells the last search reached, in the order the forward search
+     * reached them and then the backward one. A cell reached from both
+     * directions is there twice.
+     *
+     * @param i from 0 to getReachedCellCount() - 1
+     * @return the index of the cell
+     */
+    public int getReachedCell(int i) {
+        int forwardCount = forward.reachedCells.size();
+        return i < forwardCount ? forward.reachedCells.get(i) : backward.reachedCells.get(i - forwardCount);
+    }
+
+    /**
+     * This is where the A* magic happens.
+     *
+     * @param query the start, goal and search options
+     * @return the found path along with the search statistics
+     */
+    public PathResult findPath(PathQuery query) {
+
+        // record the starting time for performance benchmarking
+        long startTime = System.nanoTime();
+
+        if (!grid.cellIsOkay(query.getStartX(), query.getStartY()) || !grid.cellIsOkay(query.getGoalX(), query.getGoalY()))
+            throw new IllegalArgumentException("start and goal must be within the grid");
+
+        PathResult result = search(query, startTime);
+        if (listener != null)
+            reportMetrics(result, startTime);
+        return result;
+
+    }
+
+    /**
+     * Runs a query that has been checked to be within the grid.
+     *
+     * @param query the start, goal and search options
+     * @param startTime the System.nanoTime() the search was started at
+     * @return the found path along with the search statistics
+     */
+    private PathResult search(PathQuery query, long startTime) {
+
+        this.query = query;
+        this.nodesExpanded = 0;
+        this.peakOpenSetSize = 0;
+        this.nodesGenerated = 0;
+        this.nodesRemoved = 0;
+        this.decreaseKeys = 0;
+        this.reopenedNodes = 0;
+        this.useLandmarks = query.getAlgorithm() == SearchAlgorithm.ALT && landmarks != null
+                && landmarks.isUsableFor(query.isDiagonalMoveAllowed());
+
+        // catch up with the obstacles drawn or erased since the previous search
+        if (neighbours != null)
+            neighbours.update();
+
+        // clear the sets and the data left behind by the previous search, both directions
+        // are reset so that a cell reached by an earlier search never shows up as reached
+        OpenSetType openSetType = openSetType(query);
+        forward.reset(query.getGoalX(), query.getGoalY(), openSetType);
+        backward.reset(query.getStartX(), query.getStartY(), openSetType);
+
+        if (listener != null) {
+            siftStepsBefore = forward.openSet.getSiftSteps() + backward.openSet.getSiftSteps();
+            resetEndTime = System.nanoTime();
+        }
+
+        int startCell = grid.index(query.getStartX(), query.getStartY());
+        goalCell = grid.index(query.getGoalX(), query.getGoalY());
+
+        // an obstacle can never be reached, no need to search
+        if (!grid.isPassable(goalCell))
+            return new PathResult(null, null, -1, 0, System.nanoTime() - startTime);
+
+        // nor can a goal cut off from the start, there's no need to expand everything reachable to find that out
+        ConnectedComponents queryComponents = componentsFor(query.isDiagonalMoveAllowed());
+        if (queryComponents != null && grid.isPassable(startCell) && !queryComponents.areConnected(startCell, goalCell))
+            return new PathResult(null, null, -1, 0, System.nanoTime() - startTime);
+
+        if (query.isBidirectional() && query.getAlgorithm() != SearchAlgorithm.JUMP_POINT)
+            return findPathBidirectional(startCell, startTime);
+
+        // grab the starting cell first
+        forward.reach(startCell, 0, heuristic(forward, startCell), -1);
+        forward.openSet.insert(startCell);
+        nodesGenerated = 1;
+        peakOpenSetSize = 1;
+
+        // loop until we arrive at the target or the open set becomes empty
+        int currentCell = -1;
+        while (!forward.openSet.isEmpty()) {
+
+            // take the cell with the smallest movementCost and move it over to closedSet
+            currentCell = forward.openSet.delMin();
+            nodesRemoved++;
+            if (currentCell == goalCell)
+                break;
+
+            forward.closedSet.insert(currentCell);
+            nodesExpanded++;
+
+            // check adjacent cells, or the jump points reachable from this one
+            if (query.getAlgorithm() == SearchAlgorithm.JUMP_POINT)
+                processJumpPoints(currentCell);
+            else
+                processAdjacentCells(forward, null, currentCell);
+
+            // cells only get added while expanding, so the peak can only be right after it
+            peakOpenSetSize = Math.max(peakOpenSetSize, forward.openSet.getSize());
+
+        }
+
+        if (currentCell != goalCell)
+            return new PathResult(null, null, -1, nodesExpanded, System.nanoTime() - startTime, peakOpenSetSize);
+
+        return buildResult(goalCell, forward.distance[goalCell], false, startTime);
+
+    }
+
+    /**
+     * The connected components for the moves a query allows, brought up to date with the grid.
+     *
+     * @param diagonal true for 8-connectivity, false for 4-connectivity
+     * @return the components, null if the grid isn't kept in memory
+     */
+    private ConnectedComponents componentsFor(boolean diagonal) {
+        ConnectedComponents queryComponents = components[diagonal ? 1 : 0];
+        if (queryComponents != null)
+            queryComponents.update();
+        return queryComponents;
+    }
+
+    /**
+     * Decides which open set a query runs on. The bucket queue only works when
+     * every key is a whole number: without diagonal moves every step costs 1, and
+     * so does every heuristic distance unless the tie breaker scales it.
+     *
+     * @param query the query about to be run
+     * @return the open set type to use, never AUTOMATIC
+     */
+    private OpenSetType openSetType(PathQuery query) {
+
+        boolean wholeNumberKeys = !query.isDiagonalMoveAllowed() && (!query.isUseTieBreaker() || query.getAlgorithm() == SearchAlgorithm.DIJKSTRA);
+
+        if (query.getOpenSetType() == OpenSetType.AUTOMATIC || query.getOpenSetType() == OpenSetType.BUCKET_QUEUE)
+            return wholeNumberKeys ? OpenSetType.BUCKET_QUEUE : OpenSetType.BINARY_HEAP;
+
+        return query.getOpenSetType();
+
+    }
+
+    /**
+     * Searches from the start and the goal at the same time, always expanding the
+     * direction with the smaller open set. Whenever a cell gets reached by both
+     * searches the path through it is a candidate, and the search stops once the
+     * open sets show that no unexplored path can beat the best candidate: for Dijkstra
+     * when the smallest distances of both directions add up to at least its cost, for
+     * A* when the smallest movementCost of either direction does.
+     *
+     * @param startCell the index of the start cell
+     * @param startTime the System.nanoTime() the search was started at
+     * @return the found path along with the search statistics
+     */
+    private PathResult findPathBidirectional(int startCell, long startTime) {
+
+        bestMeetingCost = Float.POSITIVE_INFINITY;
+        meetingCell = -1;
+
+        forward.reach(startCell, 0, heuristic(forward, startCell), -1);
+        forward.openSet.insert(startCell);
+        backward.reach(goalCell, 0, heuristic(backward, goalCell), -1);
+        backward.openSet.insert(goalCell);
+        nodesGenerated = 2;
+        peakOpenSetSize = 2;
+
+        if (startCell == goalCell) {
+            bestMeetingCost = 0;
+            meetingCell = startCell;
+        }
+
+        boolean dijkstra = query.getAlgorithm() == SearchAlgorithm.DIJKSTRA;
+
+        while (!forward.openSet.isEmpty() && !backward.openSet.isEmpty()) {
+
+            float forwardTop = forward.getTopCost();
+            float backwardTop = backward.getTopCost();
+
+            if (dijkstra ? forwardTop + backwardTop >= bestMeetingCost : Math.max(forwardTop, backwardTop) >= bestMeetingCost)
+                break;
+
+            SearchFrontier frontier;
+            SearchFrontier opposite;
+            if (forward.openSet.getSize() <= backward.openSet.getSize()) {
+                frontier = forward;
+                opposite = backward;
+            }
+            else {
+                frontier = backward;
+                opposite = forward;
+            }
+
+            int currentCell = frontier.openSet.delMin();
+            nodesRemoved++;
+            frontier.closedSet.insert(currentCell);
+            nodesExpanded++;
+
+            processAdjacentCells(frontier, opposite, currentCell);
+            peakOpenSetSize = Math.max(peakOpenSetSize, forward.openSet.getSize() + backward.openSet.getSize());
+
+        }
+
+        if (meetingCell == -1)
+            return new PathResult(null, null, -1, nodesExpanded, System.nanoTime() - startTime, peakOpenSetSize);
+
+        return buildResult(meetingCell, bestMeetingCost, true, startTime);
+
+    }
+
+    /**
+     * Turns the arrivedFrom links into a PathResult. The path runs from the start to
+     * the given cell along the forward links and, for a bidirectional search, on from
+     * there to the goal along the backward links. Consecutive cells linked by a jump
+     * are always on the same straight or diagonal line, so the cells in between are
+     * filled in by walking along that line.
+     *
+     * @param lastForwardCell the last cell of the forward half, the goal unless bidirectional
+     * @param cost the cost of the whole path
+     * @param bidirectional whether the backward half should be joined to the forward one
+     * @param startTime the System.nanoTime() the search was started at
+     * @return the result with the full path
+     */
+    private PathResult buildResult(int lastForwardCell, float cost, boolean bidirectional, long startTime) {
+
+        if (listener != null)
+            searchEndTime = System.nanoTime();
+
+        // collect the linked cells from start to goal
+        int linkCount = 0;
+        for (int cell = lastForwardCell; cell != -1; cell = forward.arrivedFrom[cell])
+            linkCount++;
+        if (bidirectional)
+            for (int cell = backward.arrivedFrom[lastForwardCell]; cell != -1; cell = backward.arrivedFrom[cell])
+                linkCount++;
+
+        int[] links = new int[linkCount];
+        int i = 0;
+        for (int cell = lastForwardCell; cell != -1; cell = forward.arrivedFrom[cell])
+            links[i++] = cell;
+        for (int a = 0, b = i - 1; a < b; a++, b--) {
+            int temp = links[a];
+            links[a] = links[b];
+            links[b] = temp;
+        }
+        if (bidirectional)
+            for (int cell = backward.arrivedFrom[lastForwardCell]; cell != -1; cell = backward.arrivedFrom[cell])
+                links[i++] = cell;
+
+        int pathLength = 1;
+        for (i = 1; i < linkCount; i++)
+            pathLength += Math.max(Math.abs(grid.getX(links[i]) - grid.getX(links[i - 1])), Math.abs(grid.getY(links[i]) - grid.getY(links[i - 1])));
+
+        int[] pathX = new int[pathLength];
+        int[] pathY = new int[pathLength];
+        int p = 0;
+        pathX[0] = grid.getX(links[0]);
+        pathY[0] = grid.getY(links[0]);
+
+        for (i = 1; i < linkCount; i++) {
+
+            int nextX = grid.getX(links[i]);
+            int nextY = grid.getY(links[i]);
+            int stepX = Integer.signum(nextX - pathX[p]);
+            int stepY = Integer.signum(nextY - pathY[p]);
+
+            // walk towards the next linked cell one cell at a time
+            while (pathX[p] != nextX || pathY[p] != nextY) {
+                pathX[p + 1] = pathX[p] + stepX;
+                pathY[p + 1] = pathY[p] + stepY;
+                p++;
+            }
+
+        }
+
+        return new PathResult(pathX, pathY, cost, nodesExpanded, System.nanoTime() - startTime, peakOpenSetSize);
+
+    }
+
+    /**
+     * Process the adjacent cells of the current cell. The neighbours are at fixed
+     * offsets from the cell in the neighbour table, and the border of the table
+     * keeps every one of them within it, so they are only checked for being
+     * passable. The step costs come from the table too.
+     *
+     * @param frontier the search direction the current cell belongs to
+     * @param opposite the other direction of a bidirectional search, null otherwise
+     * @param currentCell the index of the cell being expanded
+     */
+    private void processAdjacentCells(SearchFrontier frontier, SearchFrontier opposite, int currentCell) {
+
+        if (neighbours == null) {
+            processAdjacentCoordinates(frontier, opposite, currentCell);
+            return;
+        }
+
+        boolean diagonalMoveAllowed = query.isDiagonalMoveAllowed();
+        int[] tableOffsets = diagonalMoveAllowed ? neighbours.tableOffsets8 : neighbours.tableOffsets4;
+        int[] cellOffsets = diagonalMoveAllowed ? neighbours.cellOffsets8 : neighbours.cellOffsets4;
+        float[] stepCosts = diagonalMoveAllowed ? neighbours.stepCosts8 : neighbours.stepCosts4;
+
+        int entry = neighbours.toEntry(currentCell);
+        float currentDistance = frontier.distance[currentCell];
+
+        for (int d = 0; d < tableOffsets.length; d++) {
+            if (neighbours.isPassable(entry + tableOffsets[d]))
+                processNeighbour(frontier, opposite, currentCell + cellOffsets[d], currentCell, currentDistance + stepCosts[d]);
+        }
+
+    }
+
+    /**
+     * Process the adjacent cells of the current cell by their coordinates, for
+     * the grids without a neighbour table.
+     *
+     * @param frontier the search direction the current cell belongs to
+     * @param opposite the other direction of a bidirectional search, null otherwise
+     * @param currentCell the index of the cell being expanded
+     */
+    private void processAdjacentCoordinates(SearchFrontier frontier, SearchFrontier opposite, int currentCell) {
+
+        // update the helper variables
+        int currentX = grid.getX(currentCell);
+        int currentY = grid.getY(currentCell);
+        boolean diagonalMoveAllowed = query.isDiagonalMoveAllowed();
+
+        // process the adjacent cells (don't touch the current cell itself)
+        for (int y = currentY - 1; y <= currentY + 1; y++) {
+            for (int x = currentX - 1; x <= currentX + 1; x++) {
+
+                if (x == currentX && y == currentY)
+                    continue;
+
+                // orthogonal neighbours are always checked, the diagonal ones only if allowed
+                if (x == currentX || y == currentY)
+                    processCell(frontier, opposite, x, y, currentCell, 1);
+                else if (diagonalMoveAllowed)
+                    processCell(frontier, opposite, x, y, currentCell, DIAGONAL_COST);
+
+            }
+        }
+
+    }
+
+    /**
+     * processes a cell as a part of the A* algorithm as long as the cell:
+     * - actually exists on the grid,
+     * - isn't marked as an obstacle and
+     * - isn't already in the closed set
+     *
+     * In a bidirectional search a cell that the opposite direction has reached
+     * too is a meeting point, and the path through it is kept if it's the best so far.
+     *
+     * @param frontier the search direction the current cell belongs to
+     * @param opposite the other direction of a bidirectional search, null otherwise
+     * @param processX the X of the cell to be processed
+     * @param processY the Y of the cell to be processed
+     * @param currentCell the index of the "current cell" of which this one is adjacent to
+     * @param stepCost the cost of moving from the current cell into this one
+     */
+    private void processCell(SearchFrontier frontier, SearchFrontier opposite, int processX, int processY, int currentCell, float stepCost) {
+
+        // first check if the cell even exists - if not, don't do anything else
+        if (!grid.cellIsOkay(processX, processY))
+            return;
+
+        int processCell = grid.index(processX, processY);
+
+        if (grid.isPassable(processCell))
+            processNeighbour(frontier, opposite, processCell, currentCell, frontier.distance[currentCell] + stepCost);
+
+    }
+
+    /**
+     * Processes a passable neighbour of the current cell unless it's already in
+     * the closed set, and checks whether a bidirectional search met itself there.
+     *
+     * @param frontier the search direction the current cell belongs to
+     * @param opposite the other direction of a bidirectional search, null otherwise
+     * @param processCell the index of the neighbour
+     * @param currentCell the index of the cell being expanded
+     * @param newDistance the distance from the origin to the neighbour through the current cell
+     */
+    private void processNeighbour(SearchFrontier frontier, SearchFrontier opposite, int processCell, int currentCell, float newDistance) {
+
+        if (frontier.closedSet.contains(processCell)) {
+            countReopening(frontier, processCell, newDistance);
+            return;
+        }
+
+        relaxCell(frontier, processCell, currentCell, newDistance);
+
+        if (opposite != null && opposite.isReached(processCell)) {
+
+            float meetingCost = frontier.distance[processCell] + opposite.distance[processCell];
+            if (meetingCost < bestMeetingCost) {
+                bestMeetingCost = meetingCost;
+                meetingCell = processCell;
+            }
+
+        }
+
+    }
+
+    /**
+     * Offers a new route to a cell that isn't in the closed set: the cell is either
+     * added to the open set or, if the new route is shorter than the old one, updated.
+     *
+     * @param frontier the search direction the route belongs to
+     * @param processCell the index of the cell
+     * @param currentCell the index of the cell the route comes from
+     * @param newDistance the distance from the origin to the cell along the route
+     */
+    private void relaxCell(SearchFrontier frontier, int processCell, int currentCell, float newDistance) {
+
+        // if the cell hasn't been reached yet in this search it isn't in the open set either..
+        if (!frontier.isReached(processCell)) {
+
+            // set the parent, path length so far and the combined value of path lenght + approx. length to goal
+            frontier.reach(processCell, newDistance, heuristic(frontier, processCell), currentCell);
+
+            // add the cell to openSet, which keeps the best option on top
+            frontier.openSet.insert(processCell);
+            nodesGenerated++;
+
+        }
+
+        // if the cell is in the open set already, check if this way to the cell is shorter than the previously found one
+        else if (newDistance < frontier.distance[processCell]) {
+
+            // if so, update the information and let the cell move up in the heap
+            frontier.movementCost[processCell] -= frontier.distance[processCell] - newDistance;
+            frontier.arrivedFrom[processCell] = currentCell;
+            frontier.distance[processCell] = newDistance;
+            frontier.openSet.decreaseKey(processCell);
+            decreaseKeys++;
+
+        }
+
+    }
+
+    /**
+     * Counts a shorter route to a closed cell for the metrics. The cell stays
+     * closed, the search never reopens one. Differences within REOPEN_TOLERANCE
+     * are rounding, not shorter routes.
+     *
+     * @param frontier the search direction the route belongs to
+     * @param closedCell the index of the closed cell
+     * @param newDistance the distance from the origin to the cell along the route
+     */
+    private void countReopening(SearchFrontier frontier, int closedCell, float newDistance) {
+        if (listener != null && newDistance < frontier.distance[closedCell] - REOPEN_TOLERANCE)
+            reopenedNodes++;
+    }
+
+    /**
+     * Fills in the metrics of the search just run and hands them to the listener.
+     *
+     * @param result the result of the search
+     * @param startTime the System.nanoTime() the search was started at
+     */
+    private void reportMetrics(PathResult result, long startTime) {
+
+        long endTime = System.nanoTime();
+        if (!result.isPathFound())
+            searchEndTime = endTime;
+
+        metrics.clear();
+        metrics.expandedNodes = nodesExpanded;
+        metrics.generatedNodes = nodesGenerated;
+        metrics.reopenedNodes = reopenedNodes;
+        metrics.decreaseKeys = decreaseKeys;
+        metrics.peakOpenSetSize = peakOpenSetSize;
+
+        // every expanded cell goes into a closed set and nothing ever leaves one
+        metrics.peakClosedSetSize = nodesExpanded;
+
+        metrics.siftSteps = forward.openSet.getSiftSteps() + backward.openSet.getSiftSteps() - siftStepsBefore;
+        metrics.openSetOperations = nodesGenerated + decreaseKeys + nodesRemoved;
+
+        metrics.resetNanos = resetEndTime - startTime;
+        metrics.searchNanos = searchEndTime - resetEndTime;
+        metrics.reconstructionNanos = endTime - searchEndTime;
+
+        listener.searchFinished(query, result, metrics);
+
+    }
+
+    /**
+     * Expands a cell in jump point search. The neighbours that an optimal path
+     * through this cell could continue to are picked based on the direction the
+     * cell was arrived from, and from each of them the search jumps ahead in the
+     * same direction until it finds the next cell worth putting in the open set.
+     *
+     * @param currentCell the index of the cell to expand
+     */
+    private void processJumpPoints(int currentCell) {
+
+        int x = grid.getX(currentCell);
+        int y = grid.getY(currentCell);
+
+        findJumpDirections(x, y, forward.arrivedFrom[currentCell]);
+
+        for (int i = 0; i < jumpDirectionCount; i++) {
+
+            int dx = jumpDirectionsX[i];
+            int dy = jumpDirectionsY[i];
+            int jumpPoint;
+
+            if (dx != 0 && dy != 0)
+                jumpPoint = jumpDiagonal(x + dx, y + dy, dx, dy);
+            else
+                jumpPoint = jumpStraight(x + dx, y + dy, dx, dy);
+
+            if (jumpPoint == -1)
+                continue;
+
+            float jumpCost = distance(Math.abs(grid.getX(jumpPoint) - x), Math.abs(grid.getY(jumpPoint) - y));
+            if (forward.closedSet.contains(jumpPoint)) {
+                countReopening(forward, jumpPoint, forward.distance[currentCell] + jumpCost);
+                continue;
+            }
+
+            relaxCell(forward, jumpPoint, currentCell, forward.distance[currentCell] + jumpCost);
+
+        }
+
+    }
+
+    /**
+     * Collects the directions worth jumping to from a cell into jumpDirectionsX/Y.
+     * The start cell has no parent, so every direction is tried. Otherwise only the
+     * natural neighbours (straight ahead, and for a diagonal move its two straight
+     * components) and the forced neighbours (ones that can't be reached optimally
+     * without going through this cell because of an obstacle next to it) are kept.
+     *
+     * @param x the x of the cell
+     * @param y the y of the cell
+     * @param parent the index of the cell it was arrived from, -1 for none
+     */
+    private void findJumpDirections(int x, int y, int parent) {
+
+        jumpDirectionCount = 0;
+        boolean diagonalMoveAllowed = query.isDiagonalMoveAllowed();
+
+        if (parent == -1) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    if ((dx != 0 || dy != 0) && (diagonalMoveAllowed || dx == 0 || dy == 0))
+                        addJumpDirection(x, y, dx, dy);
+                }
+            }
+            return;
+        }
+
+        int dx = Integer.signum(x - grid.getX(parent));
+        int dy = Integer.signum(y - grid.getY(parent));
+
+        if (!diagonalMoveAllowed) {
+
+            // horizontal moves may turn up or down anywhere, vertical ones only sideways
+            if (dx != 0) {
+                addJumpDirection(x, y, 0, -1);
+                addJumpDirection(x, y, 0, 1);
+                addJumpDirection(x, y, dx, 0);
+            }
+            else {
+                addJumpDirection(x, y, -1, 0);
+                addJumpDirection(x, y, 1, 0);
+                addJumpDirection(x, y, 0, dy);
+            }
+
+        }
+
+        else if (dx != 0 && dy != 0) {
+
+            addJumpDirection(x, y, 0, dy);
+            addJumpDirection(x, y, dx, 0);
+            addJumpDirection(x, y, dx, dy);
+            if (!isWalkable(x - dx, y))
+                addJumpDirection(x, y, -dx, dy);
+            if (!isWalkable(x, y - dy))
+                addJumpDirection(x, y, dx, -dy);
+
+        }
+
+        else if (dx != 0) {
+
+            addJumpDirection(x, y, dx, 0);
+            if (!isWalkable(x, y + 1))
+                addJumpDirection(x, y, dx, 1);
+            if (!isWalkable(x, y - 1))
+                addJumpDirection(x, y, dx, -1);
+
+        }
+
+        else {
+
+            addJumpDirection(x, y, 0, dy);
+            if (!isWalkable(x + 1, y))
+                addJumpDirection(x, y, 1, dy);
+            if (!isWalkable(x - 1, y))
+                addJumpDirection(x, y, -1, dy);
+
+        }
+
+    }
+
+    private void addJumpDirection(int x, int y, int dx, int dy) {
+        if (isWalkable(x + dx, y + dy)) {
+            jumpDirectionsX[jumpDirectionCount] = dx;
+            jumpDirectionsY[jumpDirectionCount] = dy;
+            jumpDirectionCount++;
+        }
+    }
+
+    /**
+     * Moves in a straight line starting from (x, y) until hitting an obstacle or
+     * finding a jump point: the goal or a cell with a forced neighbour. Without
+     * diagonal movement a vertical jump also stops at cells from which a horizontal
+     * jump finds something, since the path has to turn there.
+     *
+     * @param x the x of the first cell to check
+     * @param y the y of the first cell to check
+     * @param dx the x direction, 0 if moving vertically
+     * @param dy the y direction, 0 if moving horizontally
+     * @return the index of the jump point, -1 if there is none
+     */
+    private int jumpStraight(int x, int y, int dx, int dy) {
+
+        boolean diagonalMoveAllowed = query.isDiagonalMoveAllowed();
+
+        while (isWalkable(x, y)) {
+
+            int cell = grid.index(x, y);
+            if (cell == goalCell)
+                return cell;
+
+            if (diagonalMoveAllowed) {
+                if (dx != 0) {
+                    if ((isWalkable(x + dx, y + 1) && !isWalkable(x, y + 1)) || (isWalkable(x + dx, y - 1) && !isWalkable(x, y - 1)))
+                        return cell;
+                }
+                else {
+                    if ((isWalkable(x + 1, y + dy) && !isWalkable(x + 1, y)) || (isWalkable(x - 1, y + dy) && !isWalkable(x - 1, y)))
+                        return cell;
+                }
+            }
+
+            else {
+                if (dx != 0) {
+                    if ((isWalkable(x, y - 1) && !isWalkable(x - dx, y - 1)) || (isWalkable(x, y + 1) && !isWalkable(x - dx, y + 1)))
+                        return cell;
+                }
+                else {
+                    if ((isWalkable(x - 1, y) && !isWalkable(x - 1, y - dy)) || (isWalkable(x + 1, y) && !isWalkable(x + 1, y - dy)))
+                        return cell;
+                    if (jumpStraight(x + 1, y, 1, 0) != -1 || jumpStraight(x - 1, y, -1, 0) != -1)
+                        return cell;
+                }
+            }
+
+            x += dx;
+            y += dy;
+
+        }
+
+        return -1;
+
+    }
+
+    /**
+     * Moves diagonally starting from (x, y) until hitting an obstacle or finding a
+     * jump point: the goal, a cell with a forced neighbour or a cell from which a
+     * straight jump along either component of the direction finds something.
+     *
+     * @param x the x of the first cell to check
+     * @param y the y of the first cell to check
+     * @param dx the x direction
+     * @param dy the y direction
+     * @return the index of the jump point, -1 if there is none
+     */
+    private int jumpDiagonal(int x, int y, int dx, int dy) {
+
+        while (isWalkable(x, y)) {
+
+            int cell = grid.index(x, y);
+            if (cell == goalCell)
+                return cell;
+
+            if ((isWalkable(x - dx, y + dy) && !isWalkable(x - dx, y)) || (isWalkable(x + dx, y - dy) && !isWalkable(x, y - dy)))
+                return cell;
+
+            if (jumpStraight(x + dx, y, dx, 0) != -1 || jumpStraight(x, y + dy, 0, dy) != -1)
+                return cell;
+
+            x += dx;
+            y += dy;
+
+        }
+
+        return -1;
+
+    }
+
+    /**
+     * Checks that a cell exists on the grid and isn't an obstacle. With the
+     * neighbour table the cell may be at most one step outside the grid, which
+     * the jumps never go beyond as they stop at the first cell that isn't walkable.
+     *
+     * @param x the x of the cell
+     * @param y the y of the cell
+     * @return true if the cell can be moved into
+     */
+    private boolean isWalkable(int x, int y) {
+        if (neighbours != null)
+            return neighbours.isWalkable(x, y);
+        return grid.cellIsOkay(x, y) && grid.isPassable(grid.index(x, y));
+    }
+
+    /**
+     * The shortest distance between two cells on an empty grid: manhattan
+     * distance without diagonal movement, octile distance with it.
+     *
+     * @param dx the difference of the x coordinates, not negative
+     * @param dy the difference of the y coordinates, not negative
+     * @return the distance
+     */
+    private float distance(int dx, int dy) {
+
+        if (!query.isDiagonalMoveAllowed())
+            return dx + dy;
+        else
+            return Math.max(dx, dy) + (DIAGONAL_COST - 1) * Math.min(dx, dy);
+
+    }
+
+    /**
+     * The heuristics function for A*. Always 0 for Dijkstra.
+     *
+     * @param processCell the index of the cell we're processing
+     * @return the distance to the goal as determined by the heuristic function
+     */
+    public float heuristic(int processCell) {
+        return heuristic(forward, processCell);
+    }
+
+    /**
+     * The heuristics function for one direction of the search, estimating
+     * the distance to the target of that direction.
+     *
+     * @param frontier the search direction
+     * @param processCell the index of the cell we're processing
+     * @return the distance to the target as determined by the heuristic function
+     */
+    private float heuristic(SearchFrontier frontier, int processCell) {
+
+        if (query.getAlgorithm() == SearchAlgorithm.DIJKSTRA)
+            return 0;
+
+        int dx = Math.abs(grid.getX(processCell) - frontier.targetX);
+        int dy = Math.abs(grid.getY(processCell) - frontier.targetY);
+
+        // manhattan distance when diagonal move disabled, octile distance when enabled
+        float estimate = distance(dx, dy);
+        if (useLandmarks)
+            estimate = Math.max(estimate, landmarks.lowerBound(processCell, grid.index(frontier.targetX, frontier.targetY)));
+
+        if (query.isUseTieBreaker())
+            return estimate * 1.001f;
+        else
+            return estimate;
+
+    }
+
+    /**
+     * Gives the landmark tables for the ALT searches to use. They are only used
+     * while they fit the query, see Landmarks.isUsableFor, otherwise ALT runs as
+     * plain A*.
+     *
+     * @param landmarks the tables, null to run ALT as plain A*
+     */
+    public void setLandmarks(Landmarks landmarks) {
+        this.landmarks = landmarks;
+    }
+
+    public Landmarks getLandmarks() {
+        return this.landmarks;
+    }
+
+    /**
+     * Attaches a listener to be told about every search along with its metrics.
+     * Without one the metrics aren't collected at all.
+     *
+     * @param listener the listener, null to detach the current one
+     */
+    public void setSearchListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    public SearchListener getSearchListener() {
+        return this.listener;
+    }
+
+    public Grid getGrid() {
+        return this.grid;
+    }
+
+}
@@ -0,0 +1,103 @@
+package fi.sakusaisa.tiralabra.core;
+
+/**
+ * A single pathfinding query: where to start, where to go and how to search.
+ * 
+ * @author Saku Säisä
+ */
+public class PathQuery {
+
+    private int startX;
+    private int startY;
+    private int goalX;
+    private int goalY;
+    private boolean diagonalMoveAllowed = false;
+    private boolean useTieBreaker = false;
+    private SearchAlgorithm algorithm = SearchAlgorithm.DIJKSTRA;
+    private boolean bidirectional = false;
+    private OpenSetType openSetType = OpenSetType.AUTOMATIC;
+
+    /**
+     * Constructor. The query defaults to Dijkstra without diagonal movement or tie-breaking.
+     * 
+     * @param startX the x of the start cell
+     * @param startY the y of the start cell
+     * @param goalX the x of the goal cell
+     * @param goalY the y of the goal cell
+     */
+    public PathQuery(int startX, int startY, int goalX, int goalY) {
+        this.startX = startX;
+        this.startY = startY;
+        this.goalX = goalX;
+        this.goalY = goalY;
+    }
+
+    public int getStartX() {
+        return this.startX;
+    }
+
+    public int getStartY() {
+        return this.startY;
+    }
+
+    public int getGoalX() {
+        return this.goalX;
+    }
+
+    public int getGoalY() {
+        return this.goalY;
+    }
+
+    public boolean isDiagonalMoveAllowed() {
+        return this.diagonalMoveAllowed;
+    }
+
+    public void setDiagonalMoveAllowed(boolean diagonalMoveAllowed) {
+        this.diagonalMoveAllowed = diagonalMoveAllowed;
+    }
+
+    public boolean isUseTieBreaker() {
+        return this.useTieBreaker;
+    }
+
+    public void setUseTieBreaker(boolean useTieBreaker) {
+        this.useTieBreaker = useTieBreaker;
+    }
+
+    public SearchAlgorithm getAlgorithm() {
+        return this.algorithm;
+    }
+
+    public void setAlgorithm(SearchAlgorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    public boolean isBidirectional() {
+        return this.bidirectional;
+    }
+
+    /**
+     * Search from the start and the goal at the same time. Applies to A* and
+     * Dijkstra, jump point search always runs from the start only.
+     *
+     * @param bidirectional whether to search in both directions
+     */
+    public void setBidirectional(boolean bidirectional) {
+        this.bidirectional = bidirectional;
+    }
+
+    public OpenSetType getOpenSetType() {
+        return this.openSetType;
+    }
+
+    /**
+     * Picks the data structure the open set of the search is kept in. Doesn't
+     * change the cost of the path found, only how fast it is found.
+     *
+     * @param openSetType the open set implementation to use
+     */
+    public void setOpenSetType(OpenSetType openSetType) {
+        this.openSetType = openSetType;
+    }
+
+}
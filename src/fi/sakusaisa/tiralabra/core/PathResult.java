@@ -0,0 +1,103 @@
+package fi.sakusaisa.tiralabra.core;
+
+/**
+ * The outcome of a single PathQuery. Holds the found path (if any) from start
+ * to goal, both ends included, along with some statistics about the search.
+ * 
+ * @author Saku Säisä
+ */
+public class PathResult {
+
+    // the x and y of each cell along the path, index 0 being the start
+    private int[] pathX;
+    private int[] pathY;
+
+    // the total movement cost of the path, -1 if no path was found
+    private float cost;
+
+    // how many cells were taken out of the open set during the search
+    private int nodesExpanded;
+
+    // the wall clock time the search took
+    private long elapsedNanos;
+
+    // the most cells the open set held at once, 0 if the engine doesn't keep count
+    private int peakOpenSetSize;
+
+    /**
+     * Constructor.
+     * 
+     * @param pathX the x coordinates along the path, null if no path was found
+     * @param pathY the y coordinates along the path, null if no path was found
+     * @param cost the total movement cost of the path
+     * @param nodesExpanded the amount of cells expanded during the search
+     * @param elapsedNanos the time the search took in nanoseconds
+     */
+    public PathResult(int[] pathX, int[] pathY, float cost, int nodesExpanded, long elapsedNanos) {
+        this.pathX = pathX;
+        this.pathY = pathY;
+        this.cost = cost;
+        this.nodesExpanded = nodesExpanded;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Constructor with the peak size of the open set.
+     * 
+     * @param pathX the x coordinates along the path, null if no path was found
+     * @param pathY the y coordinates along the path, null if no path was found
+     * @param cost the total movement cost of the path
+     * @param nodesExpanded the amount of cells expanded during the search
+     * @param elapsedNanos the time the search took in nanoseconds
+     * @param peakOpenSetSize the most cells the open set held at once, both directions together
+     */
+    public PathResult(int[] pathX, int[] pathY, float cost, int nodesExpanded, long elapsedNanos, int peakOpenSetSize) {
+        this(pathX, pathY, cost, nodesExpanded, elapsedNanos);
+        this.peakOpenSetSize = peakOpenSetSize;
+    }
+
+    /**
+     * Was a path found or not.
+     * 
+     * @return true if a path from start to goal exists
+     */
+    public boolean isPathFound() {
+        return this.pathX != null;
+    }
+
+    /**
+     * The amount of cells on the path, start and goal included.
+     * 
+     * @return the cell count, 0 if no path was found
+     */
+    public int getPathLength() {
+        if (this.pathX == null)
+            return 0;
+        return this.pathX.length;
+    }
+
+    public int getPathX(int index) {
+        return this.pathX[index];
+    }
+
+    public int getPathY(int index) {
+        return this.pathY[index];
+    }
+
+    public float getCost() {
+        return this.cost;
+    }
+
+    public int getNodesExpanded() {
+        return this.nodesExpanded;
+    }
+
+    public long getElapsedNanos() {
+        return this.elapsedNanos;
+    }
+
+    public int getPeakOpenSetSize() {
+        return this.peakOpenSetSize;
+    }
+
+}
@@ -0,0 +1,56 @@
+package fi.sakusaisa.tiralabra.core;
+
+/**
+ * A batch of benchmark queries read from a scenario file, along with the
+ * optimal path length the scenario file gives for each of them. The queries can
+ * be run as they are, e.g. with BatchPathFinder.findPaths(getQueries()).
+ *
+ * @author Saku Säisä
+ */
+public class ScenarioBatch {
+
+    private PathQuery[] queries;
+    private double[] optimalLengths;
+    private int[] buckets;
+    private String[] mapNames;
+
+    /**
+     * Constructor.
+     *
+     * @param queries the queries
+     * @param optimalLengths the optimal path length of each query
+     * @param buckets the bucket of each query, the scenario files group the queries by their length
+     * @param mapNames the map file each query was made for
+     */
+    public ScenarioBatch(PathQuery[] queries, double[] optimalLengths, int[] buckets, String[] mapNames) {
+        this.queries = queries;
+        this.optimalLengths = optimalLengths;
+        this.buckets = buckets;
+        this.mapNames = mapNames;
+    }
+
+    public int getSize() {
+        return this.queries.length;
+    }
+
+    public PathQuery[] getQueries() {
+        return this.queries;
+    }
+
+    public PathQuery getQuery(int index) {
+        return this.queries[index];
+    }
+
+    public double getOptimalLength(int index) {
+        return this.optimalLengths[index];
+    }
+
+    public int getBucket(int index) {
+        return this.buckets[index];
+    }
+
+    public String getMapName(int index) {
+        return this.mapNames[index];
+    }
+
+}
@@ -0,0 +1,22 @@
+package fi.sakusaisa.tiralabra.core;
+
+/**
+ * The search algorithms the PathFinder engine knows how to run.
+ * 
+ * @author Saku Säisä
+ */
+public enum SearchAlgorithm {
+
+    // plain Dijkstra, the heuristic is always 0
+    DIJKSTRA,
+
+    // A* using manhattan (4-way) or octile (8-way) distance as the heuristic
+    A_STAR,
+
+    // A* using the larger of the above and the landmark bound, when the PathFinder has landmarks that fit the query
+    ALT,
+
+    // A* that only puts jump points into the open set, skipping over the symmetric paths between them
+    JUMP_POINT
+
+}
@@ -0,0 +1,235 @@
+package fi.sakusaisa.tiralabra.core;
+
+import fi.sakusaisa.tiralabra.datastructures.AvlTree;
+import fi.sakusaisa.tiralabra.datastructures.BitClosedSet;
+import fi.sakusaisa.tiralabra.datastructures.BucketQueue;
+import fi.sakusaisa.tiralabra.datastructures.DaryHeap;
+import fi.sakusaisa.tiralabra.datastructures.MinBinaryHeap;
+import fi.sakusaisa.tiralabra.datastructures.MinQuaternaryHeap;
+import fi.sakusaisa.tiralabra.datastructures.OpenSet;
+import fi.sakusaisa.tiralabra.datastructures.PairingHeap;
+
+/**
+ * The search data of one search direction: the per-cell distances, movement costs
+ * and parents along with the open and closed sets they belong to. A normal search
+ * uses one of these, a bidirectional search one from the start and one from the goal.
+ *
+ * The data of a cell is only valid if the cell has been stamped with the current
+ * generation, so a reset takes constant time no matter how large the grid is.
+ *
+ * @author Saku Säisä
+ */
+class SearchFrontier {
+
+    // the distance from the origin of this direction (start or goal) to each cell
+    protected float[] distance;
+
+    // distance + the heuristic distance to the target of this direction, the key of the open set
+    protected float[] movementCost;
+
+    // the cell each cell was discovered from, -1 = none
+    protected int[] arrivedFrom;
+
+    // the search generation in which the data of each cell was last set, 0 = never
+    protected int[] searchStamps;
+    protected int searchGeneration;
+
+    // the cells stamped with the current generation, in the order they were reached
+    protected CellList reachedCells = new CellList();
+
+    // closed set as one bit per cell
+    protected BitClosedSet closedSet;
+
+    // the open set of the current search
+    protected OpenSet openSet;
+
+    // the binary heap the searches use by default, and the last other open set used, if any.
+    // only one other open set is kept, it is let go when a search asks for a different one
+    protected OpenSet binaryHeap;
+    protected OpenSet otherSet;
+    protected OpenSetType otherSetType;
+
+    // the cell this direction is heading to, the heuristic measures the distance to it
+    protected int targetX;
+    protected int targetY;
+
+    /**
+     * Constructor.
+     *
+     * @param cellCount the amount of cells in the grid being searched
+     */
+    SearchFrontier(int cellCount) {
+        this.distance = new float[cellCount];
+        this.movementCost = new float[cellCount];
+        this.arrivedFrom = new int[cellCount];
+        this.searchStamps = new int[cellCount];
+        this.searchGeneration = 1;
+        this.binaryHeap = new MinBinaryHeap(100, movementCost);
+        this.openSet = binaryHeap;
+        this.closedSet = new BitClosedSet(cellCount);
+    }
+
+    /**
+     * The bytes a frontier allocates for a grid: the four arrays, the closed set
+     * and the binary heap it starts with.
+     *
+     * @param cellCount the amount of cells in the grid being searched
+     * @return the bytes allocated by the constructor
+     */
+    static long bytesFor(int cellCount) {
+        return 16L * cellCount + 8L * ((cellCount + 63L) >>> 6) + openSetBytes(OpenSetType.BINARY_HEAP, cellCount);
+    }
+
+    /**
+     * The bytes the open set of a type allocates for its cells when it is
+     * created. The heap and tree arrays holding the open cells themselves start
+     * small and grow with the open set.
+     *
+     * @param openSetType the type of the open set, must not be AUTOMATIC
+     * @param cellCount the amount of cells in the grid being searched
+     * @return the bytes allocated for the cells
+     */
+    static long openSetBytes(OpenSetType openSetType, int cellCount) {
+        switch (openSetType) {
+            case PAIRING_HEAP:
+                // the child, sibling and previous links, the stamps and the removed flags
+                return 17L * cellCount;
+            case AVL_TREE:
+                // the node handles and their stamps
+                return 8L * cellCount;
+            case BUCKET_QUEUE:
+                // the next and previous links, the buckets and the stamps
+                return 16L * cellCount;
+            default:
+                // the heaps keep the position of each cell
+                return 4L * cellCount;
+        }
+    }
+
+    /**
+     * Invalidates the data of every cell by starting a new generation and
+     * empties both sets. The stamps are only actually wiped if the counter runs out.
+     *
+     * @param targetX the x of the cell this direction is heading to
+     * @param targetY the y of the cell this direction is heading to
+     */
+    void reset(int targetX, int targetY) {
+        reset(targetX, targetY, OpenSetType.BINARY_HEAP);
+    }
+
+    /**
+     * Like reset(targetX, targetY), but also picks the open set for the search.
+     *
+     * @param targetX the x of the cell this direction is heading to
+     * @param targetY the y of the cell this direction is heading to
+     * @param openSetType the open set to use, must not be AUTOMATIC
+     * @throws IllegalArgumentException if the open set is new and doesn't fit in the heap
+     */
+    void reset(int targetX, int targetY, OpenSetType openSetType) {
+
+        this.targetX = targetX;
+        this.targetY = targetY;
+
+        searchGeneration++;
+
+        if (searchGeneration == Integer.MAX_VALUE) {
+            for (int i = 0; i < searchStamps.length; i++)
+                searchStamps[i] = 0;
+            searchGeneration = 1;
+        }
+
+        reachedCells.clear();
+        closedSet.clear();
+        openSet.clear(false);
+
+        openSet = binaryHeap;
+        if (openSetType == OpenSetType.BINARY_HEAP)
+            return;
+
+        if (openSetType != otherSetType) {
+            // the previous one can be collected before the next one is made
+            otherSet = null;
+            otherSetType = null;
+            otherSet = newOpenSet(openSetType);
+            otherSetType = openSetType;
+        }
+        openSet = otherSet;
+
+    }
+
+    /**
+     * Creates an open set of the given type.
+     *
+     * @param openSetType the type of the open set, neither AUTOMATIC nor BINARY_HEAP
+     * @return the open set, sharing movementCost as its keys
+     * @throws IllegalArgumentException if the open set doesn't fit in the heap
+     */
+    private OpenSet newOpenSet(OpenSetType openSetType) {
+
+        SearchMemory.require(openSetBytes(openSetType, movementCost.length), "SearchFrontier",
+                "a " + openSetType + " open set of " + movementCost.length + " cells");
+
+        OpenSet set;
+        switch (openSetType) {
+            case QUATERNARY_HEAP:
+                set = new MinQuaternaryHeap(100, movementCost);
+                break;
+            case PACKED_HEAP:
+                set = new DaryHeap(100, movementCost, 4);
+                break;
+            case PAIRING_HEAP:
+                set = new PairingHeap(movementCost);
+                break;
+            case AVL_TREE:
+                set = new AvlTree(movementCost);
+                break;
+            case BUCKET_QUEUE:
+                set = new BucketQueue(256, movementCost);
+                break;
+            default:
+                throw new IllegalArgumentException("no open set for " + openSetType);
+        }
+
+        return set;
+
+    }
+
+    /**
+     * Checks whether a cell has been reached (added to the open set) since the last reset.
+     *
+     * @param cell the index of the cell
+     * @return true if the cell was reached
+     */
+    boolean isReached(int cell) {
+        return searchStamps[cell] == searchGeneration;
+    }
+
+    /**
+     * Marks a cell as reached and sets its data.
+     *
+     * @param cell the index of the cell
+     * @param newDistance the distance from the origin to the cell
+     * @param heuristic the estimated distance from the cell to the target
+     * @param parent the cell it was reached from, -1 for none
+     */
+    void reach(int cell, float newDistance, float heuristic, int parent) {
+        if (searchStamps[cell] != searchGeneration)
+            reachedCells.add(cell);
+        searchStamps[cell] = searchGeneration;
+        distance[cell] = newDistance;
+        movementCost[cell] = newDistance + heuristic;
+        arrivedFrom[cell] = parent;
+    }
+
+    /**
+     * The smallest movementCost in the open set.
+     *
+     * @return the key on top of the open set, infinity if the open set is empty
+     */
+    float getTopCost() {
+        if (openSet.isEmpty())
+            return Float.POSITIVE_INFINITY;
+        return movementCost[openSet.findMin()];
+    }
+
+}
@@ -0,0 +1,21 @@
+package fi.sakusaisa.tiralabra.core;
+
+/**
+ * Gets told about every search a PathFinder runs, along with its statistics.
+ * The listener is called on the thread that ran the search, so a listener
+ * shared by the workers of a BatchPathFinder must be thread safe.
+ *
+ * @author Saku Säisä
+ */
+public interface SearchListener {
+
+    /**
+     * Called when a search is done, right before its result is returned.
+     *
+     * @param query the query that was run
+     * @param result the result about to be returned
+     * @param metrics the statistics of the search, only valid until the next search starts
+     */
+    void searchFinished(PathQuery query, PathResult result, SearchMetrics metrics);
+
+}
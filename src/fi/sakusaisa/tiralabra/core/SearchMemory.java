@@ -0,0 +1,59 @@
+package fi.sakusaisa.tiralabra.core;
+
+import java.util.Locale;
+
+/**
+ * Checks that the per-cell arrays of an engine fit in the heap before they are
+ * allocated. The grid itself can be far larger than the heap, a MappedGrid only
+ * pages in what is read, but the engines keep their search data in full arrays.
+ * Rather than running out of memory halfway through building one, the engine is
+ * refused with an error telling how much it would have needed.
+ *
+ * The heap isn't collected for the check, so garbage not collected yet counts
+ * as used and a nearly full heap may refuse an engine that would have fit.
+ *
+ * @author Saku Säisä
+ */
+final class SearchMemory {
+
+    private SearchMemory() {
+    }
+
+    /**
+     * Makes sure an engine's arrays for a grid fit in what is left of the heap.
+     *
+     * @param grid the grid the engine is built for
+     * @param bytes the bytes the engine allocates for the grid
+     * @param engine the name of the engine for the error
+     * @throws IllegalArgumentException if the arrays don't fit
+     */
+    static void require(Grid grid, long bytes, String engine) {
+        require(bytes, engine, String.format(Locale.ROOT, "the search data of the %dx%d grid", grid.getWidth(), grid.getHeight()));
+    }
+
+    /**
+     * Makes sure some arrays fit in what is left of the heap.
+     *
+     * @param bytes the bytes about to be allocated
+     * @param owner the name of what allocates them for the error
+     * @param purpose what they are for, for the error
+     * @throws IllegalArgumentException if the arrays don't fit
+     */
+    static void require(long bytes, String owner, String purpose) {
+
+        long available = available();
+        if (bytes <= available)
+            return;
+
+        throw new IllegalArgumentException(String.format(Locale.ROOT,
+                "%s needs %d MB for %s, but only %d MB of the heap is left (see -Xmx)",
+                owner, bytes >> 20, purpose, available >> 20));
+
+    }
+
+    private static long available() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+    }
+
+}
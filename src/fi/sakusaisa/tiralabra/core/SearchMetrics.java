@@ -0,0 +1,145 @@
+package fi.sakusaisa.tiralabra.core;
+
+/**
+ * The statistics of a single search, handed to a SearchListener when the search
+ * is done. A PathFinder only collects them while it has a listener, and reuses
+ * the same object for every search it runs, so a listener should copy what it
+ * wants to keep instead of keeping the object.
+ *
+ * @author Saku Säisä
+ */
+public class SearchMetrics {
+
+    // cells taken out of the open set and expanded
+    int expandedNodes;
+
+    // cells put into the open set, the start (and goal) included
+    int generatedNodes;
+
+    // shorter routes found to cells already in the closed set, see getReopenedNodes
+    int reopenedNodes;
+
+    // routes that lowered the key of a cell in the open set
+    int decreaseKeys;
+
+    // the most cells the open and closed sets held at once, both directions together
+    int peakOpenSetSize;
+    int peakClosedSetSize;
+
+    // the levels cells moved up or down the open set during the search
+    long siftSteps;
+
+    // the heap operations the sift steps were spread over: inserts, decreaseKeys and delMins
+    int openSetOperations;
+
+    // the time taken by each phase of the search
+    long resetNanos;
+    long searchNanos;
+    long reconstructionNanos;
+
+    /**
+     * Zeroes everything for the next search.
+     */
+    void clear() {
+        expandedNodes = 0;
+        generatedNodes = 0;
+        reopenedNodes = 0;
+        decreaseKeys = 0;
+        peakOpenSetSize = 0;
+        peakClosedSetSize = 0;
+        siftSteps = 0;
+        openSetOperations = 0;
+        resetNanos = 0;
+        searchNanos = 0;
+        reconstructionNanos = 0;
+    }
+
+    public int getExpandedNodes() {
+        return this.expandedNodes;
+    }
+
+    public int getGeneratedNodes() {
+        return this.generatedNodes;
+    }
+
+    /**
+     * The cells that would have been reopened: a closed cell is never put back
+     * into the open set, but with an inconsistent heuristic (such as the tie
+     * breaker's) a shorter route to one can still turn up, and this counts those.
+     * Routes differing from the known one by mere float rounding aren't counted.
+     *
+     * @return the amount of shorter routes found to closed cells
+     */
+    public int getReopenedNodes() {
+        return this.reopenedNodes;
+    }
+
+    public int getDecreaseKeys() {
+        return this.decreaseKeys;
+    }
+
+    public int getPeakOpenSetSize() {
+        return this.peakOpenSetSize;
+    }
+
+    public int getPeakClosedSetSize() {
+        return this.peakClosedSetSize;
+    }
+
+    /**
+     * The total amount of levels cells moved up or down the open set, 0 for the
+     * open sets that aren't heaps.
+     *
+     * @return the amount of sift steps
+     */
+    public long getSiftSteps() {
+        return this.siftSteps;
+    }
+
+    /**
+     * The average amount of levels a cell moved per insert, decreaseKey and delMin.
+     *
+     * @return the mean sift depth, 0 if the open set wasn't used
+     */
+    public double getMeanSiftDepth() {
+        if (openSetOperations == 0)
+            return 0;
+        return (double) siftSteps / openSetOperations;
+    }
+
+    /**
+     * The time taken to clear the data of the previous search.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getResetNanos() {
+        return this.resetNanos;
+    }
+
+    /**
+     * The time taken by the search itself, from putting the start into the open
+     * set until the goal was reached or the open set ran out.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getSearchNanos() {
+        return this.searchNanos;
+    }
+
+    /**
+     * The time taken to build the path from the parent links, 0 if no path was found.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getReconstructionNanos() {
+        return this.reconstructionNanos;
+    }
+
+    /**
+     * @return the time taken by all the phases together, in nanoseconds
+     */
+    public long getTotalNanos() {
+        return resetNanos + searchNanos + reconstructionNanos;
+    }
+
+}
@@ -0,0 +1,177 @@
+package fi.sakusaisa.tiralabra.core;
+
+import java.util.Locale;
+
+/**
+ * A SearchListener that adds up the statistics of every search it hears of:
+ * the totals of the counters, the largest open and closed sets, and histograms
+ * of the latencies of the whole searches and of each of their phases. One
+ * instance can listen to any amount of PathFinders at once, the workers of a
+ * BatchPathFinder included.
+ *
+ * @author Saku Säisä
+ */
+public class SearchStatistics implements SearchListener {
+
+    private long searches;
+    private long pathsFound;
+
+    private long expandedNodes;
+    private long generatedNodes;
+    private long reopenedNodes;
+    private long decreaseKeys;
+    private long siftSteps;
+    private long openSetOperations;
+
+    private int peakOpenSetSize;
+    private int peakClosedSetSize;
+
+    private LatencyHistogram latencies = new LatencyHistogram();
+    private LatencyHistogram resetLatencies = new LatencyHistogram();
+    private LatencyHistogram searchLatencies = new LatencyHistogram();
+    private LatencyHistogram reconstructionLatencies = new LatencyHistogram();
+
+    @Override
+    public synchronized void searchFinished(PathQuery query, PathResult result, SearchMetrics metrics) {
+
+        searches++;
+        if (result.isPathFound())
+            pathsFound++;
+
+        expandedNodes += metrics.getExpandedNodes();
+        generatedNodes += metrics.getGeneratedNodes();
+        reopenedNodes += metrics.getReopenedNodes();
+        decreaseKeys += metrics.getDecreaseKeys();
+        siftSteps += metrics.getSiftSteps();
+        openSetOperations += metrics.openSetOperations;
+
+        peakOpenSetSize = Math.max(peakOpenSetSize, metrics.getPeakOpenSetSize());
+        peakClosedSetSize = Math.max(peakClosedSetSize, metrics.getPeakClosedSetSize());
+
+        latencies.record(metrics.getTotalNanos());
+        resetLatencies.record(metrics.getResetNanos());
+        searchLatencies.record(metrics.getSearchNanos());
+        if (result.isPathFound())
+            reconstructionLatencies.record(metrics.getReconstructionNanos());
+
+    }
+
+    /**
+     * Forgets every search heard of so far.
+     */
+    public synchronized void clear() {
+        searches = 0;
+        pathsFound = 0;
+        expandedNodes = 0;
+        generatedNodes = 0;
+        reopenedNodes = 0;
+        decreaseKeys = 0;
+        siftSteps = 0;
+        openSetOperations = 0;
+        peakOpenSetSize = 0;
+        peakClosedSetSize = 0;
+        latencies.clear();
+        resetLatencies.clear();
+        searchLatencies.clear();
+        reconstructionLatencies.clear();
+    }
+
+    public synchronized long getSearches() {
+        return this.searches;
+    }
+
+    public synchronized long getPathsFound() {
+        return this.pathsFound;
+    }
+
+    public synchronized long getExpandedNodes() {
+        return this.expandedNodes;
+    }
+
+    public synchronized long getGeneratedNodes() {
+        return this.generatedNodes;
+    }
+
+    public synchronized long getReopenedNodes() {
+        return this.reopenedNodes;
+    }
+
+    public synchronized long getDecreaseKeys() {
+        return this.decreaseKeys;
+    }
+
+    public synchronized long getSiftSteps() {
+        return this.siftSteps;
+    }
+
+    /**
+     * The average amount of levels a cell moved per open set operation, over every search.
+     *
+     * @return the mean sift depth, 0 if nothing was sifted
+     */
+    public synchronized double getMeanSiftDepth() {
+        if (openSetOperations == 0)
+            return 0;
+        return (double) siftSteps / openSetOperations;
+    }
+
+    /**
+     * @return the largest open set of any search
+     */
+    public synchronized int getPeakOpenSetSize() {
+        return this.peakOpenSetSize;
+    }
+
+    /**
+     * @return the largest closed set of any search
+     */
+    public synchronized int getPeakClosedSetSize() {
+        return this.peakClosedSetSize;
+    }
+
+    /**
+     * The latencies of the whole searches, all the phases together.
+     *
+     * @return a copy of the histogram
+     */
+    public synchronized LatencyHistogram getLatencies() {
+        return new LatencyHistogram(latencies);
+    }
+
+    /**
+     * @return a copy of the histogram of the reset phases
+     */
+    public synchronized LatencyHistogram getResetLatencies() {
+        return new LatencyHistogram(resetLatencies);
+    }
+
+    /**
+     * @return a copy of the histogram of the search phases
+     */
+    public synchronized LatencyHistogram getSearchLatencies() {
+        return new LatencyHistogram(searchLatencies);
+    }
+
+    /**
+     * The latencies of building the paths, only the searches that found one are counted.
+     *
+     * @return a copy of the histogram
+     */
+    public synchronized LatencyHistogram getReconstructionLatencies() {
+        return new LatencyHistogram(reconstructionLatencies);
+    }
+
+    /**
+     * A summary on one line, the latencies in microseconds.
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.ROOT,
+                "searches: %d (%d found), expanded: %d, generated: %d, decreased: %d, reopened: %d, "
+                + "peak open/closed: %d/%d, sift depth: %.2f, latency p50/p99/max: %.1f/%.1f/%.1f us",
+                searches, pathsFound, expandedNodes, generatedNodes, decreaseKeys, reopenedNodes,
+                peakOpenSetSize, peakClosedSetSize, getMeanSiftDepth(),
+                latencies.getPercentile(50) / 1000.0, latencies.getPercentile(99) / 1000.0, latencies.getMax() / 1000.0);
+    }
+
+}
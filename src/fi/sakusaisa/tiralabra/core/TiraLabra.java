@@ -1,12 +1,12 @@
 package fi.sakusaisa.tiralabra.core;
 
+import java.io.File;
+import java.io.IOException;
+
 import javax.swing.JFrame;
 import javax.swing.JPanel;
 import javax.swing.SwingUtilities;
 
-import fi.sakusaisa.tiralabra.datastructures.AvlTree;
-import fi.sakusaisa.tiralabra.datastructures.ClosedSet;
-import fi.sakusaisa.tiralabra.datastructures.MinBinaryHeap;
 import fi.sakusaisa.tiralabra.ui.GridRenderer;
 import fi.sakusaisa.tiralabra.ui.UiPanel;
 
@@ -19,17 +19,29 @@ import fi.sakusaisa.tiralabra.ui.UiPanel;
 public class TiraLabra extends JFrame {
 
 
-     // The data for all cells in the grid is held in this 2d-array.
-    private GridCell[][] gridCells;
-        
-    // closed set as a simple boolean matrix
-    private ClosedSet closedSet;
+     // The data for all cells in the grid is held in this flat primitive grid.
+    private Grid grid;
+
+    // the headless engine doing the actual pathfinding
+    private PathFinder pathFinder;
+
+    // answers repeated queries for the pathFinder until the grid changes
+    private PathCache pathCache;
+    private static final long PATH_CACHE_MEMORY_CAP = 16 * 1024 * 1024;
+
+    // the metrics of every search the pathFinder has run, see getSearchStatistics
+    private SearchStatistics searchStatistics = new SearchStatistics();
+
+    // how many landmarks the ALT heuristic gets, the pathFinder's tables are rebuilt whenever they no longer fit
+    private static final int LANDMARK_COUNT = 8;
+
+    // the hierarchical engine, keeps its abstraction of the grid between searches. built the first
+    // time it is used, and falls back on the pathFinder rather than a PathFinder of its own
+    private HierarchicalPathFinder hierarchicalPathFinder;
+
+    // the incremental engine, repairs its previous search when the grid changes. built the first time it is used
+    private IncrementalPathFinder incrementalPathFinder;
 
-    // open set as a custom binary heap implementation
-    private MinBinaryHeap openSet;
-    
-    //private AvlTree openSet;
-    
     // random variables..
     private GridRenderer gridRenderer;
     private int wantedWindowWidth;
@@ -44,59 +56,69 @@ public class TiraLabra extends JFrame {
     private boolean useTieBreaker = false;
     protected String statusMessage1, statusMessage2, statusMessage3;
     private boolean useAStar = false;
+    private boolean useJumpPoint = false;
+    private boolean useLandmarks = false;
+    private boolean useBidirectional = false;
+    private boolean useHierarchical = false;
+    private boolean useIncremental = false;
+    private OpenSetType openSetType = OpenSetType.AUTOMATIC;
     protected int nodesChecked = 0;
 
-    /**
-     * Checks whether or not a cell is within the grid
-     * @param x the x to check
-     * @param y the y to check
-     * @return true if the cell is OK, false otherwise
-     */
-    public boolean cellIsOkay(int x, int y) {
-        return (x > -1 && x < gridCells.length && y > -1 && y < gridCells[0].length);
-    }    
-    
+    // the grid version right after the path markings were last cleared, only tiles changed since can have any
+    private int markingsVersion = 0;
+    private int[] changedTiles;
+
     /**
      * Initializes the grid
      */
     public void resetGrid() {
         
         // initialize the grid
-        for (int i = 0; i < gridCells.length; i++) {
-            for (int j = 0; j < gridCells[0].length; j++)
-                gridCells[i][j] = new GridCell(i, j);
-        }
+        grid.clear();
+        markingsVersion = grid.getVersion();
         
+        resetStartAndGoal();
+        
+    }
+
+    /**
+     * Puts the start and goal cells to their default places, keeping the obstacles.
+     */
+    private void resetStartAndGoal() {
+
         // throw in default start and goal cells
-        setStartCellX(1); setStartCellY(1); setGoalCellX(gridCells.length - 2); setGoalCellY(gridCells[0].length - 2);
-        gridCells[getStartCellX()][getStartCellY()].setCellData(4);
-        gridCells[getGoalCellX()][getGoalCellY()].setCellData(5);
+        setStartCellX(1); setStartCellY(1); setGoalCellX(grid.getWidth() - 2); setGoalCellY(grid.getHeight() - 2);
+        grid.setCellData(getStartCellX(), getStartCellY(), 4);
+        grid.setCellData(getGoalCellX(), getGoalCellY(), 5);
         
         resetStats();
-        
+
     }
 
     /**
      * Resets the found path preserving the obstacles and current start/goal positions
      */
     public void resetPath() {
-    
-        for (int i = 0; i < gridCells.length; i++) {
-            for (int j = 0; j < gridCells[0].length; j++) {
 
-                // replace the consider path visualization with empty space
-                if (gridCells[i][j].getCellData() == 3 || gridCells[i][j].getCellData() == 2)
-                    gridCells[i][j].setCellData(1);
-                
-                // reset all the pathfinding data back to unset values
-                gridCells[i][j].setArrivedFrom(null);
-                gridCells[i][j].setDistanceFromStart(-1);
-                gridCells[i][j].setDistanceToGoal(-1);
-                gridCells[i][j].setMovementCost(-1);
-                                
+        // the markings were all made after markingsVersion, so only the tiles changed since need a look
+        int tileCount = grid.getChangedTiles(markingsVersion, changedTiles);
+        for (int t = 0; t < tileCount; t++) {
+
+            int firstX = (changedTiles[t] % grid.getTilesX()) * Grid.TILE_SIZE;
+            int firstY = (changedTiles[t] / grid.getTilesX()) * Grid.TILE_SIZE;
+
+            for (int i = firstX; i < Math.min(firstX + Grid.TILE_SIZE, grid.getWidth()); i++) {
+                for (int j = firstY; j < Math.min(firstY + Grid.TILE_SIZE, grid.getHeight()); j++) {
+
+                    // replace the consider path visualization with empty space
+                    if (grid.getCellData(i, j) == 3 || grid.getCellData(i, j) == 2)
+                        grid.setCellData(i, j, 1);
+
+                }
             }
-                    
+
         }
+        markingsVersion = grid.getVersion();
         
         resetStats();
         
@@ -111,234 +133,133 @@ public class TiraLabra extends JFrame {
     }
     
     /**
-     * This is where the A* magic happens.
+     * Runs the pathfinding engine with the current settings and visualizes the result.
      */
     public void findPath() {
-        
-        // record the starting time for performance benchmarking
-        long startTime = System.currentTimeMillis();
 
         // reset the path if needed
         if (isPathFindingRan())
-            resetPath();        
+            resetPath();
         setPathFindingRan(true);
 
-        // clear the sets
-        closedSet.clear();
-        openSet.clear(true);
-        
-        // grab the starting cell first
-        GridCell currentCell = gridCells[getStartCellX()][getStartCellY()];
-        currentCell.setDistanceFromStart(0);
-        openSet.insert(currentCell);
- 
-        // loop until we arrive at the target or the open set becomes empty
-        while (currentCell != gridCells[getGoalCellX()][getGoalCellY()] && !openSet.isEmpty()) {
-        	
-            // take the cell with the smallest movementCost and move it over to closedSet
-        	currentCell = openSet.delMin();
-            closedSet.insert(currentCell);
-            
-            // check adjacent cells
-            findPathProcessAdjacentCells(currentCell);
-            
-        }
-                
-        // visualize the path following hte arrivedFrom flags starting from the goal 
-        if (currentCell == gridCells[getGoalCellX()][getGoalCellY()]) {
-        	visualizePath(currentCell);
-        }
+        PathQuery query = new PathQuery(getStartCellX(), getStartCellY(), getGoalCellX(), getGoalCellY());
+        query.setDiagonalMoveAllowed(isDiagonalMoveAllowed());
+        query.setUseTieBreaker(isUseTieBreaker());
+
+        // jump point search is A* too, so it overrides the A*/Dijkstra setting
+        if (isUseJumpPoint())
+            query.setAlgorithm(SearchAlgorithm.JUMP_POINT);
+        else if (isUseAStar() && isUseLandmarks())
+            query.setAlgorithm(SearchAlgorithm.ALT);
+        else if (isUseAStar())
+            query.setAlgorithm(SearchAlgorithm.A_STAR);
+        else
+            query.setAlgorithm(SearchAlgorithm.DIJKSTRA);
+        query.setBidirectional(isUseBidirectional());
+        query.setOpenSetType(getOpenSetType());
+
+        if (query.getAlgorithm() == SearchAlgorithm.ALT && !isUseIncremental() && !isUseHierarchical()
+                && (pathFinder.getLandmarks() == null || !pathFinder.getLandmarks().isUsableFor(isDiagonalMoveAllowed())))
+            pathFinder.setLandmarks(new Landmarks(grid, LANDMARK_COUNT, isDiagonalMoveAllowed()));
+
+        PathResult result;
+        if (isUseIncremental())
+            result = getIncrementalPathFinder().findPath(query);
+        else if (isUseHierarchical())
+            result = getHierarchicalPathFinder().findPath(query);
+        else
+            result = pathCache.findPath(query);
+        visualizePath(result);
 
         // is this statusmessage hasn't been set, we know there was no path found
         if (statusMessage2 == null) statusMessage2 = "no path!";
-        
-        // check the time it took to find the path and visualize it
-        long endTime = System.currentTimeMillis();
-        statusMessage1 = "\nTime taken: " + (endTime - startTime) + "ms";
-        statusMessage3 = "Nodes checked: " + nodesChecked;
+
+        statusMessage1 = "\nTime taken: " + (result.getElapsedNanos() / 1000000) + "ms";
+        if (!isUseIncremental() && !isUseHierarchical() && pathCache.wasLastQueryHit())
+            statusMessage1 += " (cached)";
+        statusMessage3 = "Nodes checked: " + nodesChecked + ", expanded: " + result.getNodesExpanded();
         System.out.println(statusMessage1);
         System.out.println(statusMessage2);
         System.out.println(statusMessage3);
 
-    } 
-
-    /**
-     * Visualizes the found path by setting the correct content data on each cell along the path
-     */
-    public void visualizePath(GridCell currentCell) {
-    	
-        int pathLength = 0;
-        
-        while (currentCell.getArrivedFrom() != gridCells[getStartCellX()][getStartCellY()]) {
-            currentCell.getArrivedFrom().setCellData(2);
-            currentCell = currentCell.getArrivedFrom();
-            pathLength++;
-        }
-        
-        statusMessage2 = "Path length: " + pathLength;
-    	
     }
-    
-    /**
-     * Process the adjacent cells of the current cell
-     */
-    public void findPathProcessAdjacentCells(GridCell currentCell) {
-    	
-        // update the helper variables
-        int currentX = currentCell.getCellX();
-        int currentY = currentCell.getCellY();
-
-        // process the adjacent cells (don't touch the current cell itself)
-        for (int y = currentY -1; y <= currentY + 1; y++) {
-            for (int x = currentX - 1; x <= currentX + 1; x++) {
-                
-            	/* if diagonal move is allowed, check cells -1 to +1 in x/y
-            	 * that either have a different x or a different y than the processed cell..
-            	 * this results in 8 cells being processed
-            	 */
-                if (isDiagonalMoveAllowed()) {
-                    if (x != currentX || y != currentY) {
-                        findPathProcessCell(x, y, currentCell);
-                    }
-                }
-                
-                /* if diagonal move is disabled, then only check the x and y where either
-                 * X or Y (but not both) is the same as the processed cell.. this checks
-                 * 4 of the adjacent cells: directly above, below, left and right
-                 */
-                else if (!isDiagonalMoveAllowed()) {
-                    if (x == currentX || y == currentY && !(x == currentX && y == currentY)) {
-                        findPathProcessCell(x, y, currentCell);
-                    }
-                }
-                
-            }
-        }
 
-    }
-    
     /**
-     * processes a cell as a part of the A* algorithm as long as the cell:
-     * - actually exists on the grid,
-     * - isn't marked as an obstacle and
-     * - isn't already in the closed set
+     * Visualizes the search by setting the correct content data on each cell the
+     * search reached and on each cell along the found path.
      * 
-     * @param processX the X of the cell to be processed
-     * @param processY the Y of the cell to be processed
-     * @param currentCell a reference to the "current cell" of which this one is adjacent to
+     * @param result the result of the search to visualize
      */
-    public void findPathProcessCell(int processX, int processY, GridCell currentCell) {
+    public void visualizePath(PathResult result) {
+
+        // mark the cells the search reached as checked, from both ends of a bidirectional search
+        int reachedCount = getReachedCellCount();
+        for (int i = 0; i < reachedCount; i++) {
+            int cell = getReachedCell(i);
+            int x = grid.getX(cell);
+            int y = grid.getY(cell);
+            if (grid.getCellData(x, y) == 1) {
+                grid.setCellData(x, y, 3);
+                nodesChecked++;
+            }
+        }
 
-    	int foundAtIndex = -1;
-    	
-        // first check if the cell even exists - if not, don't do anything else
-        if (!cellIsOkay(processX, processY))
+        if (!result.isPathFound())
             return;
-        
-        // grab a reference to the considered cell
-        GridCell processCell = gridCells[processX][processY];
-
-        if (processCell.getCellData() != 0 && !closedSet.contains(processCell)) {
-        	
-            // if the cell isn't in the open set..
-        	foundAtIndex = openSet.contains(processCell);
-        	
-        	//if (openSet.contains(processCell) == null)
-        		//foundAtIndex = -1;
-        	
-        	if (foundAtIndex == -1) {
-        		
-                // mark the cell as checked, for visualization
-                if (processCell.getCellData() == 1) {
-                    processCell.setCellData(3);
-                    nodesChecked++;
-                }
 
-                // set the parent and path length so far
-                processCell.setArrivedFrom(currentCell);
-                processCell.setDistanceFromStart(currentCell.getDistanceFromStart() + 1);
-                
-                // heuristics if A*
-                if (isUseAStar())
-                	processCell.setDistanceToGoal(aStarHeuristic(processCell));
-                else
-                	processCell.setDistanceToGoal(0);
-                
-                // the combined value of path lenght + approx. length to goal used for evaluating the next step
-                processCell.setMovementCost(processCell.getDistanceFromStart() + processCell.getDistanceToGoal());
+        // the start and goal cells keep their own looks
+        for (int i = 1; i < result.getPathLength() - 1; i++)
+            grid.setCellData(result.getPathX(i), result.getPathY(i), 2);
 
-                // add the cell to openSet; as it is a binaby min heap, the best option will be on top
-                openSet.insert(processCell);
-                
-            }
+        statusMessage2 = "Path length: " + (result.getPathLength() - 2) + ", cost: " + result.getCost();
 
-            // if the cell is in the open set already..
-            else {
-                
-                // check if this way to the cell is shorter than the previously found one
-                if ((currentCell.getDistanceFromStart() + 1) < processCell.getDistanceFromStart()) {
-                
-                	// if so, update the information - need to remove from openSet first, then re-add.. SLOW!
-                	openSet.removeAtIndex(foundAtIndex);
-                	//openSet.remove(processCell);
-                	
-                	processCell.setArrivedFrom(currentCell);
-                	processCell.setDistanceFromStart(currentCell.getDistanceFromStart() + 1);
-                
-                	// heuristics if A*
-                	if (isUseAStar())
-                		processCell.setDistanceToGoal(aStarHeuristic(processCell));
-                	else
-                		processCell.setDistanceToGoal(0);
-                
-                	processCell.setMovementCost(processCell.getDistanceFromStart() + processCell.getDistanceToGoal());
-                	openSet.insert(processCell);
+    }
 
-                }
+    private int getReachedCellCount() {
+        if (isUseIncremental())
+            return getIncrementalPathFinder().getReachedCellCount();
+        if (isUseHierarchical())
+            return getHierarchicalPathFinder().getReachedCellCount();
+        // a cached path wasn't searched for, the pathFinder holds some other search
+        if (pathCache.wasLastQueryHit())
+            return 0;
+        return pathFinder.getReachedCellCount();
+    }
 
-            }
+    private int getReachedCell(int i) {
+        if (isUseIncremental())
+            return getIncrementalPathFinder().getReachedCell(i);
+        if (isUseHierarchical())
+            return getHierarchicalPathFinder().getReachedCell(i);
+        return pathFinder.getReachedCell(i);
+    }
 
-        }
+    private HierarchicalPathFinder getHierarchicalPathFinder() {
+        if (hierarchicalPathFinder == null)
+            hierarchicalPathFinder = new HierarchicalPathFinder(grid, HierarchicalPathFinder.DEFAULT_CLUSTER_SIZE, pathFinder);
+        return hierarchicalPathFinder;
+    }
+
+    private IncrementalPathFinder getIncrementalPathFinder() {
+        if (incrementalPathFinder == null)
+            incrementalPathFinder = new IncrementalPathFinder(grid);
+        return incrementalPathFinder;
+    }
 
+    public Grid getGrid() {
+        return this.grid;
     }
     
     /**
-     * The heuristics function for A*.
-     * 
-     * @param processCell the cell we're processing
-     * @return the distance to the goal as determined by the heuristic function
+     * The metrics of every search the pathFinder has run so far, including the
+     * fallback searches of the hierarchical engine. The cached paths weren't searched for.
+     *
+     * @return the statistics, updated as the searches run
      */
-    public float aStarHeuristic(GridCell processCell) {    	
-
-    	int dx = Math.abs(processCell.getCellX() - getGoalCellX());
-    	int dy = Math.abs(processCell.getCellY() - getGoalCellY());
-    	
-    	float tieBreaker;
-    	
-    	if (isUseTieBreaker()) {
-    		tieBreaker = 1.001f;
-    	}
-    	
-    	else {
-    		tieBreaker = 1f;
-    	}
-    		
-    	// manhattan distance when diagonal move disabled
-    	if (!isDiagonalMoveAllowed())
-    		return (1 * (dx + dy)) * tieBreaker;
-    	
-    	// Chebyshev distance when diagonal move enabled
-    	else {
-    		//return (1 * Math.max(dx, dy)) * tieBreaker;
-    		return (float) ((1 * (dx + dy) + (Math.sqrt(2)*1 - 2*1) * Math.min(dx, dy)) * tieBreaker);
-    	}
-    		    
+    public SearchStatistics getSearchStatistics() {
+        return this.searchStatistics;
     }
-    
-    public GridCell[][] getGridCells() {
-        return this.gridCells;
-    }
-    
+
     public int getCellSize() {
         return this.cellSize;
     }
@@ -350,13 +271,27 @@ public class TiraLabra extends JFrame {
      * @param gridYSize The size of the grid in y axis.
      */
     public TiraLabra(int gridXSize, int gridYSize) {
+        this(new Grid(gridXSize, gridYSize));
+    }
+
+    /**
+     * Constructor for an existing grid, e.g. one opened from a map file. Its
+     * obstacles are kept.
+     * 
+     * @param existingGrid The grid to use.
+     */
+    public TiraLabra(Grid existingGrid) {
         
-    	// create the grid
-    	 gridCells = new GridCell[gridXSize][gridYSize];
+    	// create the engines working on the grid
+    	 grid = existingGrid;
+    	 changedTiles = new int[grid.getTilesX() * grid.getTilesY()];
+    	 pathFinder = new PathFinder(grid);
+    	 pathFinder.setSearchListener(searchStatistics);
+    	 pathCache = new PathCache(pathFinder, PATH_CACHE_MEMORY_CAP);
     	 
         // define dimensions for the program window taking into account some padding + window decorations
-        setWantedWindowWidth(gridCells.length * cellSize + 70 + getInsets().left + getInsets().right);
-        setWantedWindowHeight(gridCells[0].length * cellSize + 20 + getInsets().top + getInsets().bottom);
+        setWantedWindowWidth(grid.getWidth() * cellSize + 70 + getInsets().left + getInsets().right);
+        setWantedWindowHeight(grid.getHeight() * cellSize + 20 + getInsets().top + getInsets().bottom);
         
         // program window properties
         setTitle("TiRaLabra");
@@ -366,11 +301,7 @@ public class TiraLabra extends JFrame {
         setResizable(false);
         
         // initialize data
-        resetGrid();
-        openSet = new MinBinaryHeap(100);
-        //openSet = new AvlTree();
-        
-        closedSet = new ClosedSet(gridCells.length, gridCells[0].length);
+        resetStartAndGoal();
                 
         // set the JPanel for the grid renderer
         setGridRenderer(new GridRenderer(this));
@@ -387,12 +318,26 @@ public class TiraLabra extends JFrame {
     }
     
     /**
-     * @param args the command line arguments
+     * @param args the command line arguments, either the width and height of an empty grid or a
+     *             map file to open: a Moving AI .map file or a MappedGrid file
      */
     public static void main(String[] args) {
         
-    	final int x = Integer.parseInt(args[0]);
-    	final int y = Integer.parseInt(args[1]);
+    	final Grid grid;
+    	if (args.length == 1) {
+    		try {
+    			if (args[0].endsWith(".map"))
+    				grid = MovingAiMapReader.read(new File(args[0]));
+    			else
+    				grid = MappedGrid.open(new File(args[0]));
+    		}
+    		catch (IOException e) {
+    			System.err.println("Could not open the map file " + args[0] + ": " + e.getMessage());
+    			return;
+    		}
+    	}
+    	else
+    		grid = new Grid(Integer.parseInt(args[0]), Integer.parseInt(args[1]));
 
     	//final int x = 80;
     	//final int y = 60;
@@ -400,8 +345,14 @@ public class TiraLabra extends JFrame {
         SwingUtilities.invokeLater(new Runnable() {
             @Override
             public void run() {
-                TiraLabra tiraLabra = new TiraLabra(x, y);
-                tiraLabra.setVisible(true);
+                // the engines refuse a map whose search data wouldn't fit in the heap
+                try {
+                    TiraLabra tiraLabra = new TiraLabra(grid);
+                    tiraLabra.setVisible(true);
+                }
+                catch (IllegalArgumentException e) {
+                    System.err.println("Could not set up the searches: " + e.getMessage());
+                }
             }
         });
     }
@@ -454,6 +405,54 @@ public class TiraLabra extends JFrame {
 		this.useAStar = useAStar;
 	}
 
+	public boolean isUseJumpPoint() {
+		return useJumpPoint;
+	}
+
+	public void setUseJumpPoint(boolean useJumpPoint) {
+		this.useJumpPoint = useJumpPoint;
+	}
+
+	public boolean isUseLandmarks() {
+		return useLandmarks;
+	}
+
+	public void setUseLandmarks(boolean useLandmarks) {
+		this.useLandmarks = useLandmarks;
+	}
+
+	public boolean isUseBidirectional() {
+		return useBidirectional;
+	}
+
+	public void setUseBidirectional(boolean useBidirectional) {
+		this.useBidirectional = useBidirectional;
+	}
+
+	public boolean isUseHierarchical() {
+		return useHierarchical;
+	}
+
+	public void setUseHierarchical(boolean useHierarchical) {
+		this.useHierarchical = useHierarchical;
+	}
+
+	public boolean isUseIncremental() {
+		return useIncremental;
+	}
+
+	public void setUseIncremental(boolean useIncremental) {
+		this.useIncremental = useIncremental;
+	}
+
+	public OpenSetType getOpenSetType() {
+		return openSetType;
+	}
+
+	public void setOpenSetType(OpenSetType openSetType) {
+		this.openSetType = openSetType;
+	}
+
 	public boolean isPathFindingRan() {
 		return pathFindingRan;
 	}
@@ -0,0 +1,149 @@
+package fi.sakusaisa.tiralabra.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads whitespace separated tokens and raw bytes from a stream through a
+ * buffer of its own, for the map and scenario readers. Numbers are parsed
+ * straight from the bytes, only the tokens asked for as text become strings.
+ *
+ * @author Saku Säisä
+ */
+class TokenReader {
+
+    private InputStream in;
+    private byte[] buffer = new byte[65536];
+    private int position;
+    private int length;
+
+    // the line the reader is at, for the error messages
+    private int line = 1;
+
+    TokenReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * @return the next byte, -1 at the end of the stream
+     */
+    int read() throws IOException {
+        if (position == length) {
+            length = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (length <= 0) {
+                length = 0;
+                return -1;
+            }
+        }
+        int b = buffer[position++];
+        if (b == '\n')
+            line++;
+        return b;
+    }
+
+    private int peek() throws IOException {
+        int b = read();
+        if (b != -1) {
+            position--;
+            if (b == '\n')
+                line--;
+        }
+        return b;
+    }
+
+    private static boolean isWhitespace(int b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    /**
+     * Skips any whitespace.
+     *
+     * @return true if there is anything left after it
+     */
+    boolean skipWhitespace() throws IOException {
+        int b = peek();
+        while (b != -1 && isWhitespace(b)) {
+            read();
+            b = peek();
+        }
+        return b != -1;
+    }
+
+    /**
+     * Skips the rest of the current line, the line break included.
+     */
+    void skipLine() throws IOException {
+        int b = read();
+        while (b != -1 && b != '\n')
+            b = read();
+    }
+
+    /**
+     * @return the next token as text, null at the end of the stream
+     */
+    String nextToken() throws IOException {
+        if (!skipWhitespace())
+            return null;
+        StringBuilder token = new StringBuilder();
+        while (peek() != -1 && !isWhitespace(peek()))
+            token.append((char) read());
+        return token.toString();
+    }
+
+    /**
+     * @return the next token as an int
+     * @throws IOException if the token is missing or not a number
+     */
+    int nextInt() throws IOException {
+
+        if (!skipWhitespace())
+            throw error("a number was expected");
+
+        boolean negative = peek() == '-';
+        if (negative)
+            read();
+
+        long value = 0;
+        int digits = 0;
+        while (peek() >= '0' && peek() <= '9') {
+            value = value * 10 + read() - '0';
+            if (value > Integer.MAX_VALUE)
+                throw error("the number is too large");
+            digits++;
+        }
+
+        if (digits == 0 || (peek() != -1 && !isWhitespace(peek())))
+            throw error("a number was expected");
+
+        return (int) (negative ? -value : value);
+
+    }
+
+    /**
+     * @return the next token as a double
+     * @throws IOException if the token is missing or not a number
+     */
+    double nextDouble() throws IOException {
+        String token = nextToken();
+        if (token == null)
+            throw error("a number was expected");
+        try {
+            return Double.parseDouble(token);
+        }
+        catch (NumberFormatException e) {
+            throw error("a number was expected, found " + token);
+        }
+    }
+
+    /**
+     * An exception telling the line the reader is at.
+     *
+     * @param message what went wrong
+     * @return the exception to throw
+     */
+    IOException error(String message) {
+        return new IOException("line " + line + ": " + message);
+    }
+
+}
@@ -1,536 +1,503 @@
 package fi.sakusaisa.tiralabra.datastructures;
 
-import fi.sakusaisa.tiralabra.core.GridCell;
-
 /**
- * An AVL tree implementation.
- * 
+ * An AVL tree implementation, used as an open set of cell indices.
+ *
+ * The nodes live in parallel arrays and are taken from a pool, which is
+ * only grown when a search needs more nodes than any search before it, so a
+ * warmed up tree doesn't allocate anything. A node keeps the key its cell had
+ * when it was inserted, so changing a key outside of the tree can't break its
+ * order, and nodes with equal keys are ordered by their cell index.
+ *
+ * Every cell in the tree has a node handle (contains returns it), through
+ * which the node can be removed or re-keyed in O(log n) without searching
+ * the tree for it.
+ *
  * @author Saku Säisä
  *
  */
-public class AvlTree {
+public class AvlTree implements OpenSet {
+
+	// no node
+	private static final int NONE = -1;
+
+	// the links of each node
+	private int[] left;
+	private int[] right;
+	private int[] parent;
+
+	// the height of the subtree of each node, a leaf is 0
+	private int[] height;
+
+	// the cell of each node and its key at the time it was inserted
+	private int[] nodeCells;
+	private float[] nodeKeys;
+
+	// the first free node, freed nodes are chained through right
+	private int freeNodes;
+
+	// the amount of nodes ever taken from the pool since the last clear
+	private int usedNodes;
+
+	private int root;
+	private int size;
+
+	// the keys of the cells, indexed by cell
+	private float[] keys;
+
+	// the node of each cell, only valid if the cell is stamped with the current generation
+	private int[] handles;
+	private int[] stamps;
+	private int generation;
 
-	private AvlTreeNode root;
-	
 	/**
 	 * Constructor.
+	 *
+	 * @param keys The key of every cell, indexed by cell. Cells from 0 to keys.length - 1 can be added.
 	 */
-	public AvlTree() {
-		
-		root = null;
+	public AvlTree(float[] keys) {
+
+		this.keys = keys;
+		this.handles = new int[keys.length];
+		this.stamps = new int[keys.length];
+		this.generation = 1;
+
+		int poolSize = 64;
+		this.left = new int[poolSize];
+		this.right = new int[poolSize];
+		this.parent = new int[poolSize];
+		this.height = new int[poolSize];
+		this.nodeCells = new int[poolSize];
+		this.nodeKeys = new float[poolSize];
+
+		this.root = NONE;
+		this.freeNodes = NONE;
+		this.usedNodes = 0;
+		this.size = 0;
+
 	}
 
 	/**
-	 * Do a "rotate right" on a subtree to maintain balance.
-	 * 
-	 * @param node1 The root node on the subtree to rotate.
-	 * @return The new root of this subtree after rotating.
+	 * Takes a node from the pool, doubling the pool if it has run out.
+	 *
+	 * @return The node.
+	 */
+	private int allocateNode() {
+
+		if (freeNodes != NONE) {
+			int node = freeNodes;
+			freeNodes = right[node];
+			return node;
+		}
+
+		if (usedNodes == nodeCells.length) {
+			int poolSize = nodeCells.length * 2;
+			left = grow(left, poolSize);
+			right = grow(right, poolSize);
+			parent = grow(parent, poolSize);
+			height = grow(height, poolSize);
+			nodeCells = grow(nodeCells, poolSize);
+			float[] newNodeKeys = new float[poolSize];
+			for (int i = 0; i < usedNodes; i++)
+				newNodeKeys[i] = nodeKeys[i];
+			nodeKeys = newNodeKeys;
+		}
+
+		return usedNodes++;
+
+	}
+
+	private int[] grow(int[] array, int newSize) {
+		int[] newArray = new int[newSize];
+		for (int i = 0; i < array.length; i++)
+			newArray[i] = array[i];
+		return newArray;
+	}
+
+	private int height(int node) {
+		return node == NONE ? -1 : height[node];
+	}
+
+	private void updateHeight(int node) {
+		height[node] = Math.max(height(left[node]), height(right[node])) + 1;
+	}
+
+	/**
+	 * Compares two nodes by their keys, and by their cells if the keys are equal.
+	 *
+	 * @param node The first node.
+	 * @param other The second node.
+	 * @return True if the first node comes before the other one.
 	 */
-	public AvlTreeNode rightRotate(AvlTreeNode node1) {
-		
-		AvlTreeNode node2;
-		
-		node2 = node1.left;
-		node2.parent = node1.parent;
-		node1.parent = node2;
-		node1.left = node2.right;
-		node2.right = node1;
-		
-		if (node1.left != null)
-			node1.left.parent = node1;
-
-		int vasKork1, oikKork1, vasKork2, oikKork2;
-		
-		if (node1.left == null) vasKork1 = -1;
-		else vasKork1 = node1.left.height;
-		if (node1.right == null) oikKork1 = -1;
-		else oikKork1 = node1.right.height;
-
-		if (node2.left == null) vasKork2 = -1;
-		else vasKork2 = node2.left.height;
-		if (node2.right == null) oikKork2 = -1;
-		else oikKork2 = node2.right.height;
-		
-		node1.height = Math.max(vasKork1, oikKork1) + 1;
-		node2.height = Math.max(vasKork2, oikKork2) + 1;
-		
-		return node2;
-		
+	private boolean isSmaller(int node, int other) {
+		if (nodeKeys[node] != nodeKeys[other])
+			return nodeKeys[node] < nodeKeys[other];
+		return nodeCells[node] < nodeCells[other];
 	}
 
 	/**
-	 * Clears the tree.
-	 * 
-	 * @param compatibility true or false, this is only for compatibility..
+	 * Puts a new node in the place of an old one in the old one's parent.
+	 *
+	 * @param parentNode The parent of the old node, NONE if the old node is the root.
+	 * @param oldNode The node being replaced.
+	 * @param newNode The node taking its place, may be NONE.
 	 */
-	public void clear(boolean compatibility) {
-		this.root = null;
+	private void replaceChild(int parentNode, int oldNode, int newNode) {
+		if (parentNode == NONE)
+			root = newNode;
+		else if (left[parentNode] == oldNode)
+			left[parentNode] = newNode;
+		else
+			right[parentNode] = newNode;
 	}
-	
+
 	/**
-	 * Do a "rotate left" on a subtree to maintain balance.
-	 * 
-	 * @param node1 The root node on the subtree to rotate.
+	 * Do a "rotate right" on a subtree to maintain balance.
+	 *
+	 * @param node The root node on the subtree to rotate.
 	 * @return The new root of this subtree after rotating.
-	 */	
-	public AvlTreeNode leftRotate(AvlTreeNode node1) {
-	
-		AvlTreeNode node2;
-		
-		node2 = node1.right;
-		node2.parent = node1.parent;
-		node1.parent = node2;
-		node1.right = node2.left;
-		node2.left = node1;
-		
-		if (node1.right != null)
-			node1.right.parent = node1;
-		
-		int vasKork1, oikKork1, vasKork2, oikKork2;
-		
-		if (node1.left == null) vasKork1 = -1;
-		else vasKork1 = node1.left.height;
-		if (node1.right == null) oikKork1 = -1;
-		else oikKork1 = node1.right.height;
-
-		if (node2.left == null) vasKork2 = -1;
-		else vasKork2 = node2.left.height;
-		if (node2.right == null) oikKork2 = -1;
-		else oikKork2 = node2.right.height;
-		
-		node1.height = Math.max(vasKork1, oikKork1) + 1;
-		node2.height = Math.max(vasKork2, oikKork2) + 1;
-		
-		return node2;
-		
+	 */
+	private int rightRotate(int node) {
+
+		int pivot = left[node];
+
+		left[node] = right[pivot];
+		if (right[pivot] != NONE)
+			parent[right[pivot]] = node;
+
+		parent[pivot] = parent[node];
+		replaceChild(parent[node], node, pivot);
+
+		right[pivot] = node;
+		parent[node] = pivot;
+
+		updateHeight(node);
+		updateHeight(pivot);
+
+		return pivot;
+
 	}
-	
+
 	/**
-	 * Do a "rotate rightleft" on a subtree to maintain balance.
-	 * 
-	 * @param node1 The root of the subtree to rotate.
-	 * @return The root node of the rotated subtree.
+	 * Do a "rotate left" on a subtree to maintain balance.
+	 *
+	 * @param node The root node on the subtree to rotate.
+	 * @return The new root of this subtree after rotating.
 	 */
-	public AvlTreeNode rightLeftRotate(AvlTreeNode node1) {
-		
-		AvlTreeNode node2 = node1.right;
-		node1.right = rightRotate(node2);
-		return leftRotate(node1);
-		
+	private int leftRotate(int node) {
+
+		int pivot = right[node];
+
+		right[node] = left[pivot];
+		if (left[pivot] != NONE)
+			parent[left[pivot]] = node;
+
+		parent[pivot] = parent[node];
+		replaceChild(parent[node], node, pivot);
+
+		left[pivot] = node;
+		parent[node] = pivot;
+
+		updateHeight(node);
+		updateHeight(pivot);
+
+		return pivot;
+
 	}
 
 	/**
-	 * Do a "rotate leftright" on a subtree to maintain balance.
-	 * 
-	 * @param node1 The root of the subtree to rotate.
-	 * @return The root node of the rotated subtree.
-	 */	
-	public AvlTreeNode leftRightRotate(AvlTreeNode node1) {
-	
-		AvlTreeNode node2 = node1.left;
-		node1.left = leftRotate(node2);
-		return rightRotate(node1);
-		
+	 * Updates the height of a node and rotates its subtree if the heights
+	 * of its children differ by more than one.
+	 *
+	 * @param node The node.
+	 * @return The root of the subtree after balancing.
+	 */
+	private int rebalance(int node) {
+
+		updateHeight(node);
+		int balance = height(left[node]) - height(right[node]);
+
+		if (balance > 1) {
+			if (height(left[left[node]]) < height(right[left[node]]))
+				leftRotate(left[node]);
+			return rightRotate(node);
+		}
+
+		if (balance < -1) {
+			if (height(right[right[node]]) < height(left[right[node]]))
+				rightRotate(right[node]);
+			return leftRotate(node);
+		}
+
+		return node;
+
 	}
-	
-	private AvlTreeNode internalInsert(AvlTreeNode newNode) {
-		
-		if (this.root == null) {
-			this.root = newNode;
-			return newNode;
+
+	/**
+	 * Rebalances the nodes from the given one upwards. Once a subtree is
+	 * as high as it was before the change, nothing above it can be affected.
+	 *
+	 * @param node The lowest node whose subtree changed, may be NONE.
+	 */
+	private void retrace(int node) {
+		while (node != NONE) {
+			int oldHeight = height[node];
+			int subtree = rebalance(node);
+			if (height[subtree] == oldHeight)
+				return;
+			node = parent[subtree];
 		}
-		
-		AvlTreeNode x = this.root, p = null;
+	}
+
+	/**
+	 * Places an unlinked node into the tree by its key.
+	 *
+	 * @param node The node.
+	 */
+	private void attach(int node) {
 
-		while (x != null) {
-			
+		left[node] = NONE;
+		right[node] = NONE;
+		height[node] = 0;
+
+		int p = NONE;
+		int x = root;
+		while (x != NONE) {
 			p = x;
-			
-			if (newNode.keyValue < x.keyValue) x = x.left;
-			else x = x.right;
-			
+			x = isSmaller(node, x) ? left[x] : right[x];
 		}
-		
-		newNode.parent = p;
-		if (newNode.keyValue < p.keyValue) p.left = newNode;
-		else p.right = newNode;
-			
-		return newNode;
-		
+
+		parent[node] = p;
+		if (p == NONE)
+			root = node;
+		else if (isSmaller(node, p))
+			left[p] = node;
+		else
+			right[p] = node;
+
+		retrace(p);
+
 	}
-	
+
 	/**
-	 * Adds a new GridCell into the tree.
-	 * 
-	 * @param nodeToAdd A GridCell to add into the tree.
+	 * Takes a node out of the tree, the node itself is left untouched.
+	 *
+	 * @param node The node.
 	 */
-	public void insert(GridCell nodeToAdd) {
-		
-		AvlTreeNode newNode = new AvlTreeNode(nodeToAdd);
-		internalInsert(newNode);
-		
-		AvlTreeNode p = newNode.parent;
-		
-		int vanhKorkVas = -1, vanhKorkOik = -1;
-		
-		while (p != null) {
-			
-			int vasKork, oikKork;
-			int vasVasKork = -1, vasOikKork = -1, oikOikKork = -1, oikVasKork = -1;
-			
-			if (p.left == null)
-				vasKork = -1;
-			else {
-				vasKork = p.left.height;
-				if (p.left.left == null)
-					vasVasKork = -1;
-				else
-					vasVasKork = p.left.left.height;
-				
-				if (p.left.right == null)
-					vasOikKork = -1;
-				else
-					vasOikKork = p.left.right.height;				
-			}
-			
-			if (p.right == null)
-				oikKork = -1;
+	private void detach(int node) {
+
+		int lowestChanged;
+
+		if (left[node] != NONE && right[node] != NONE) {
+
+			// the next node in order takes the place of the node, it has no left child
+			int successor = right[node];
+			while (left[successor] != NONE)
+				successor = left[successor];
+
+			if (parent[successor] == node)
+				lowestChanged = successor;
 			else {
-				oikKork = p.right.height;
-				if (p.right.left == null)
-					oikVasKork = -1;
-				else
-					oikVasKork = p.right.left.height;
-				
-				if (p.right.right == null)
-					oikOikKork = -1;
-				else
-					oikOikKork = p.right.right.height;								
-			}
-						
-			if (vasKork == (oikKork + 2)) {
-				
-				AvlTreeNode vanhempi = p.parent;
-				AvlTreeNode alipuu;
-				
-				if (vanhempi != null) {
-					if (vanhempi.left != null)
-						vanhKorkVas = vanhempi.left.height;
-					if (vanhempi.right != null)
-						vanhKorkOik = vanhempi.right.height;
-				}
-
-				if (vasVasKork > vasOikKork)
-					alipuu = rightRotate(p);
-				else
-					alipuu = leftRightRotate(p);
-				
-				if (vanhempi == null)
-					this.root = alipuu;
-				else if (vanhempi.left == p)
-					vanhempi.left = alipuu;
-				else
-					vanhempi.right = alipuu;
-				
-				if (vanhempi != null)
-					vanhempi.height = Math.max(vanhKorkVas, vanhKorkOik) + 1;
-				
-				return;
-			
-			}
-			
-			if (oikKork == (vasKork + 2)) {
-
-				AvlTreeNode vanhempi = p.parent;
-				AvlTreeNode alipuu;
-
-				if (vanhempi != null) {
-					if (vanhempi.left != null)
-						vanhKorkVas = vanhempi.left.height;
-					if (vanhempi.right != null)
-						vanhKorkOik = vanhempi.right.height;
-				}
-				
-				if (oikOikKork > oikVasKork)
-					alipuu = leftRotate(p);
-				else
-					alipuu = rightLeftRotate(p);
-				
-				if (vanhempi == null)
-					this.root = alipuu;
-				else if (vanhempi.left == p)
-					vanhempi.left = alipuu;
-				else
-					vanhempi.right = alipuu;
-				
-				if (vanhempi != null)
-					vanhempi.height = Math.max(vanhKorkVas, vanhKorkOik) + 1;
-				
-				return;
-				
+				lowestChanged = parent[successor];
+				replaceChild(parent[successor], successor, right[successor]);
+				if (right[successor] != NONE)
+					parent[right[successor]] = parent[successor];
+				right[successor] = right[node];
+				parent[right[node]] = successor;
 			}
-			
-			p.height = Math.max(vasKork, oikKork) + 1;
-			p = p.parent;
-			
+
+			// the successor inherits the height too, so the retrace sees what changed below it
+			left[successor] = left[node];
+			parent[left[node]] = successor;
+			height[successor] = height[node];
+			replaceChild(parent[node], node, successor);
+			parent[successor] = parent[node];
+
 		}
-		
+
+		else {
+
+			int child = left[node] != NONE ? left[node] : right[node];
+			if (child != NONE)
+				parent[child] = parent[node];
+			replaceChild(parent[node], node, child);
+			lowestChanged = parent[node];
+
+		}
+
+		retrace(lowestChanged);
+
 	}
-	
-	private AvlTreeNode findMin(AvlTreeNode node) {	
-	
-		if (node == null)
-			return null;
-		
-		while (node.left != null)
-			node = node.left;
-		
-		return node;
-		
+
+	/**
+	 * Clears the tree and returns every node to the pool. A deep clear also
+	 * wipes the stamps, otherwise they are only wiped if the counter runs out.
+	 *
+	 * @param deep Whether to perform a "deep clear" or not.
+	 */
+	public void clear(boolean deep) {
+
+		root = NONE;
+		freeNodes = NONE;
+		usedNodes = 0;
+		size = 0;
+		generation++;
+
+		if (deep || generation == Integer.MAX_VALUE) {
+			for (int i = 0; i < stamps.length; i++)
+				stamps[i] = 0;
+			generation = 1;
+		}
+
 	}
-	
+
 	/**
-	 * Finds the minimum vlaue in the tree without deleting it.
-	 * 
-	 * @return The GridCell found.
+	 * Adds a new cell into the tree, keyed by its current key.
+	 *
+	 * @param cell The index of the cell to add into the tree.
 	 */
-	public GridCell getMin() {
-		
-		AvlTreeNode min = findMin(this.root);
+	public void insert(int cell) {
+
+		int node = allocateNode();
+		nodeCells[node] = cell;
+		nodeKeys[node] = keys[cell];
+		handles[cell] = node;
+		stamps[cell] = generation;
+
+		attach(node);
+		size++;
 
-		if (min != null)
-			return min.key;
-		else
-			return null;
-		
 	}
-	
+
 	/**
-	 * Removes the minimum value key form the tree.
-	 * 
-	 * @return The deleted GridCell.
+	 * Moves a cell to the place of its lowered key.
+	 *
+	 * @param cell The cell whose key was decreased.
 	 */
-	public GridCell delMin() {
-		
-		AvlTreeNode nodeToDelete = findMin(this.root);
-		
-		if (nodeToDelete.parent == null)
-			this.root = null;
-		else
-			nodeToDelete.parent.left = null;
-		
-		return nodeToDelete.key;
-		
+	public void decreaseKey(int cell) {
+		int node = contains(cell);
+		if (node != NONE)
+			updateKey(node);
 	}
 
 	/**
-	 * Searches the tree for a specific GriDcell starting from the root.
-	 * 
-	 * @param cellToFind The GridCell of which existance in the tree to check.
-	 * @return Returns the AvlTreeNode instance of the GridCell if found, null if not foun.
+	 * Re-keys a node with the current key of its cell. The key may have
+	 * gone either up or down, and the handle stays the same.
+	 *
+	 * @param node The handle of the node.
 	 */
-	public AvlTreeNode contains(GridCell cellToFind) {
-	
-		// starting from the root, keep going until the node to be checked is null
-		AvlTreeNode node = this.root;
-		while (node != null) {
-			
-			// move on to the left or the right child based on if the value is smaller or bigger
-			if (cellToFind.getMovementCost() < node.keyValue)
-				node = node.left;
-			else if (cellToFind.getMovementCost() > node.keyValue)
-				node = node.right;
-			
-			// if the value matches, take a better look if it's actually the object we're looking for
-			else {
-				
-				if (node.key == cellToFind)
-					return node;
-				else
-					return null;
-				
-			}
-			
-		}
-		
-		return null;
-		
+	public void updateKey(int node) {
+		detach(node);
+		nodeKeys[node] = keys[nodeCells[node]];
+		attach(node);
+	}
+
+	/**
+	 * Removes a node from the tree.
+	 *
+	 * @param node The handle of the node.
+	 */
+	public void removeNode(int node) {
+
+		detach(node);
+		stamps[nodeCells[node]] = 0;
+		size--;
+
+		right[node] = freeNodes;
+		freeNodes = node;
+
+	}
+
+	/**
+	 * Removes a specific cell from the tree if it is there.
+	 *
+	 * @param cell The cell to remove.
+	 */
+	public void remove(int cell) {
+		int node = contains(cell);
+		if (node != NONE)
+			removeNode(node);
+	}
+
+	/**
+	 * Finds the cell with the minimum value in the tree without deleting it.
+	 *
+	 * @return The cell found, -1 if the tree is empty.
+	 */
+	public int findMin() {
+
+		if (root == NONE)
+			return -1;
+
+		int node = root;
+		while (left[node] != NONE)
+			node = left[node];
+
+		return nodeCells[node];
+
+	}
+
+	/**
+	 * Removes the cell with the minimum value from the tree.
+	 *
+	 * @return The deleted cell, -1 if the tree is empty.
+	 */
+	public int delMin() {
+
+		int cell = findMin();
+		if (cell != -1)
+			removeNode(handles[cell]);
+
+		return cell;
+
+	}
+
+	/**
+	 * Checks whether a cell is in the tree.
+	 *
+	 * @param cell The cell of which existance in the tree to check.
+	 * @return The handle of the node of the cell, -1 if the cell isn't in the tree.
+	 */
+	public int contains(int cell) {
+		if (stamps[cell] == generation)
+			return handles[cell];
+		return NONE;
 	}
 
 	/**
 	 * Checks whether or not the tree is empty.
-	 * 
+	 *
 	 * @return True if the tree is empty, false if it's not.
 	 */
 	public boolean isEmpty() {
-		return (this.root == null);
+		return this.root == NONE;
 	}
 
-	private AvlTreeNode internalRemove(AvlTreeNode pois) {
-		
-		AvlTreeNode vanh, lapsi, seur;
-		
-		if (pois.left == null && pois.right == null) {
-			
-			vanh = pois.parent;
-			
-			if (vanh == null) {
-				this.root = null;
-				return pois;
-			}
-			
-			if (pois == vanh.left) {
-				vanh.left = null;
-			}
-			
-			else
-				vanh.right = null;
-		
-			return pois;
-			
-		}
-		
-		else if (pois.left == null || pois.right == null) {
-			
-			if (pois.left != null)
-				lapsi = pois.left;
-			else 
-				lapsi = pois.right;
-			
-			vanh = pois.parent;
-			lapsi.parent = vanh;
-			
-			if (vanh == null) {
-				this.root = lapsi;
-				return pois;
-			}
-			
-			if (pois == vanh.left)
-				vanh.left = lapsi;
-			else
-				vanh.right = lapsi;
-			
-			return pois;
-			
-		}
-		
-		else if (pois.left != null && pois.right != null) {
-			
-			seur = findMin(pois);
-			pois.key = seur.key;
-			lapsi = seur.right;
-			vanh = seur.parent;
-			
-			if (vanh.left == seur)
-				vanh.left = lapsi;
-			else
-				vanh.right = lapsi;
-			
-			if (lapsi != null)
-				lapsi.parent = vanh;
-			
-			return seur;
-			
-		}
-		
-		else return null;
-		
+	/**
+	 * Get the amount of cells in the tree.
+	 *
+	 * @return The amount of cells.
+	 */
+	public int getSize() {
+		return this.size;
 	}
-	
+
 	/**
-	 * Removes a specifid GridCell from the tree if it exists.
-	 * 
-	 * @param deleteNode the GridCell to delete.
+	 * Get the height of the tree, -1 for an empty tree.
+	 *
+	 * @return The height of the root.
 	 */
-	public void remove(GridCell deleteNode) {
-		
-		AvlTreeNode foundNode = contains(deleteNode);
-		
-		if (foundNode == null)
-			return;
-		
-		AvlTreeNode pois = internalRemove(foundNode);
-		AvlTreeNode p = pois.parent;
-		
-		AvlTreeNode vanhempi = p.parent;
-		AvlTreeNode alipuu = null;
-
-		int vasKork, oikKork;
-		int vasVasKork = -1, vasOikKork = -1, oikOikKork = -1, oikVasKork = -1;
-		
-		if (p.left == null)
-			vasKork = -1;
-		else {
-			vasKork = p.left.height;
-			if (p.left.left == null)
-				vasVasKork = -1;
-			else
-				vasVasKork = p.left.left.height;
-			
-			if (p.left.right == null)
-				vasOikKork = -1;
-			else
-				vasOikKork = p.left.right.height;				
-		}
-		
-		if (p.right == null)
-			oikKork = -1;
-		else {
-			oikKork = p.right.height;
-			if (p.right.left == null)
-				oikVasKork = -1;
-			else
-				oikVasKork = p.right.left.height;
-			
-			if (p.right.right == null)
-				oikOikKork = -1;
-			else
-				oikOikKork = p.right.right.height;								
-		}
+	public int getHeight() {
+		return height(root);
+	}
 
-		while (p != null) {
-			
-			if (p.height <= -2 || p.height >= 2) {
-				
-				if (p.height <= -2) {
-									
-					if (vasVasKork > vasOikKork)
-						alipuu = rightRotate(p);
-					else
-						alipuu = leftRightRotate(p);
-					
-				}
-				
-				else if (p.height >= 2) {
-					
-					if (oikOikKork > oikVasKork)
-						alipuu = leftRotate(p);
-					else
-						alipuu = rightLeftRotate(p);
-					
-				}
-				
-				if (p == this.root) {
-					this.root = alipuu;
-					return;
-				}
-				
-				if (alipuu.keyValue < vanhempi.keyValue)
-					alipuu = vanhempi.left;
-				else
-					alipuu = vanhempi.right;
-				
-				p = vanhempi;
-			
-			}
-			
-			else {
-				p.height = Math.max(vasKork, oikKork) + 1;
-				p = p.parent;
-			}
-			
-		}
-		
+	/**
+	 * A tree rebalances with rotations instead of sifting, so there are no sift steps.
+	 *
+	 * @return 0
+	 */
+	public long getSiftSteps() {
+		return 0;
 	}
-	
+
 }
@@ -0,0 +1,139 @@
+package fi.sakusaisa.tiralabra.datastructures;
+
+/**
+ * The closed set as one bit per cell, packed into longs in the order of the
+ * cell indices (row-major, like the grid). A 4000*4000 map fits in 2 MB, a
+ * 32nd of the 64 MB the int generation stamps of ClosedSet take.
+ *
+ * Clearing zeroes whole words, but only the range of words written to since
+ * the last clear, so a search that stays in a small part of a big map is
+ * cleared just as quickly as it was filled. The words can also be read 64 cells
+ * at a time, for scans that want to skip over closed or open cells in bulk.
+ *
+ * @author Saku Säisä
+ *
+ */
+public class BitClosedSet {
+
+	private long[] words;
+
+	// the amount of cells the set can hold
+	private int size;
+
+	// the range of words written to since the last clear, empty if lowestWord > highestWord
+	private int lowestWord;
+	private int highestWord;
+
+	/**
+	 * Constructor. The size should match the amount of cells in the grid being used,
+	 * as a bit in this set matches the same cell index in the actual grid 1:1.
+	 * @param size The amount of cells in the grid.
+	 */
+	public BitClosedSet(int size) {
+		this.size = size;
+		this.words = new long[(size + 63) >>> 6];
+		this.lowestWord = words.length;
+		this.highestWord = -1;
+	}
+
+	/**
+	 * Clears the set by zeroing the words written to since the last clear.
+	 */
+	public void clear() {
+
+		for (int i = lowestWord; i <= highestWord; i++)
+			words[i] = 0;
+
+		lowestWord = words.length;
+		highestWord = -1;
+
+	}
+
+	/**
+	 * Inserts a cell into the set by setting its bit.
+	 *
+	 * @param cellIndex The index of the cell to add.
+	 */
+	public void insert(int cellIndex) {
+
+		int word = cellIndex >>> 6;
+		words[word] |= 1L << cellIndex;
+
+		if (word < lowestWord)
+			lowestWord = word;
+		if (word > highestWord)
+			highestWord = word;
+
+	}
+
+	/**
+	 * Checks whether or not a cell exists in the set.
+	 *
+	 * @param cellIndex the index of the cell to check
+	 * @return True if found, false otherwise
+	 */
+	public boolean contains(int cellIndex) {
+
+		if (cellIndex > -1 && cellIndex < size)
+			return (words[cellIndex >>> 6] & (1L << cellIndex)) != 0;
+		else
+			return false;
+	}
+
+	/**
+	 * Reads the bits of 64 consecutive cells at once. The lowest bit of the result is
+	 * the first cell, bits for cells beyond the end of the set are 0.
+	 *
+	 * @param firstCell the index of the first cell to read, from 0 to getSize() - 1
+	 * @return the bits of the cells firstCell .. firstCell + 63
+	 */
+	public long getBits(int firstCell) {
+
+		int word = firstCell >>> 6;
+		int offset = firstCell & 63;
+
+		long bits = words[word] >>> offset;
+		if (offset != 0 && word + 1 < words.length)
+			bits |= words[word + 1] << (64 - offset);
+
+		return bits;
+
+	}
+
+	/**
+	 * Finds the first cell in the set starting from a given cell, a word at a time.
+	 *
+	 * @param fromCell the index of the cell to start from
+	 * @return the index of the first cell in the set at or after fromCell, -1 if there is none
+	 */
+	public int nextCell(int fromCell) {
+
+		if (fromCell < 0)
+			fromCell = 0;
+		if (fromCell >= size)
+			return -1;
+
+		int word = fromCell >>> 6;
+		long bits = words[word] & (-1L << fromCell);
+
+		while (bits == 0) {
+			word++;
+			if (word > highestWord)
+				return -1;
+			bits = words[word];
+		}
+
+		return (word << 6) + Long.numberOfTrailingZeros(bits);
+
+	}
+
+	/**
+	 * The amount of cells this set can hold.
+	 *
+	 * @return the size given to the constructor
+	 */
+	public int getSize() {
+		return this.size;
+	}
+
+}
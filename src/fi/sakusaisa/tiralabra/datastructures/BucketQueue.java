@@ -0,0 +1,263 @@
+package fi.sakusaisa.tiralabra.datastructures;
+
+/**
+ * A bucket queue (Dial's algorithm) for searches where every key is a whole
+ * number, like searches without diagonal moves where every step costs 1.
+ * Every key value has a bucket of its own, a doubly linked list threaded through
+ * per cell arrays, so inserting, decreasing a key and removing a cell are O(1).
+ * Finding the minimum scans the buckets upwards from the last minimum, which in
+ * a search only ever moves a few buckets at a time because the keys come out of
+ * the queue in nondecreasing order.
+ *
+ * Keys are rounded down to whole numbers, so cells whose keys have a fraction
+ * part come out in no particular order within their bucket. Cells sharing a key
+ * come out last in, first out, which in A* favours the cells found deepest.
+ *
+ * @author Saku Säisä
+ *
+ */
+public class BucketQueue implements OpenSet {
+
+	// the keys the queue is ordered by, indexed by cell
+	private float[] keys;
+
+	// the first cell of each bucket, -1 = empty bucket
+	private int[] bucketHeads;
+
+	// the neighbours of each cell in its bucket, -1 = none
+	private int[] next;
+	private int[] previous;
+
+	// the bucket each cell is in, -1 = not in the queue
+	private int[] buckets;
+
+	// the generation in which each cell was last inserted, a cell is only in the queue if stamped with the current one
+	private int[] stamps;
+	private int generation;
+
+	private int size;
+
+	// no bucket below this one holds cells
+	private int minBucket;
+
+	// no bucket above this one has been used since the last clear
+	private int maxBucket;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param initialBuckets The amount of buckets to start with. Will be increased as needed.
+	 * @param keys The key of every cell, indexed by cell. Cells from 0 to keys.length - 1 can be added.
+	 */
+	public BucketQueue(int initialBuckets, float[] keys) {
+		this.keys = keys;
+		this.bucketHeads = new int[Math.max(initialBuckets, 1)];
+		for (int i = 0; i < bucketHeads.length; i++)
+			bucketHeads[i] = -1;
+		this.next = new int[keys.length];
+		this.previous = new int[keys.length];
+		this.buckets = new int[keys.length];
+		this.stamps = new int[keys.length];
+		this.generation = 1;
+		this.size = 0;
+		this.minBucket = bucketHeads.length;
+		this.maxBucket = 0;
+	}
+
+	/**
+	 * The bucket a cell belongs to by its current key.
+	 * @param cell The cell.
+	 * @return The index of the bucket.
+	 */
+	private int bucketOf(int cell) {
+
+		int bucket = (int) keys[cell];
+
+		if (bucket < 0)
+			throw new IllegalArgumentException("a bucket queue can't hold negative keys");
+
+		// double the amount of buckets until the key fits
+		if (bucket >= bucketHeads.length) {
+			int length = bucketHeads.length;
+			while (length <= bucket)
+				length *= 2;
+			int[] newBucketHeads = new int[length];
+			for (int i = 0; i < length; i++)
+				newBucketHeads[i] = i < bucketHeads.length ? bucketHeads[i] : -1;
+			bucketHeads = newBucketHeads;
+		}
+
+		return bucket;
+
+	}
+
+	/**
+	 * Adds a cell to the front of the bucket matching its key.
+	 * @param cell The cell.
+	 */
+	private void link(int cell) {
+
+		int bucket = bucketOf(cell);
+		int head = bucketHeads[bucket];
+
+		next[cell] = head;
+		previous[cell] = -1;
+		if (head != -1)
+			previous[head] = cell;
+		bucketHeads[bucket] = cell;
+		buckets[cell] = bucket;
+
+		if (bucket < minBucket)
+			minBucket = bucket;
+		if (bucket > maxBucket)
+			maxBucket = bucket;
+
+	}
+
+	/**
+	 * Takes a cell out of its bucket.
+	 * @param cell The cell, must be in the queue.
+	 */
+	private void unlink(int cell) {
+
+		if (previous[cell] != -1)
+			next[previous[cell]] = next[cell];
+		else
+			bucketHeads[buckets[cell]] = next[cell];
+
+		if (next[cell] != -1)
+			previous[next[cell]] = previous[cell];
+
+		buckets[cell] = -1;
+
+	}
+
+	/**
+	 * Moves minBucket up to the first bucket holding cells.
+	 * @return The first cell of that bucket, -1 if the queue is empty.
+	 */
+	private int scanToMin() {
+
+		if (size == 0)
+			return -1;
+
+		while (bucketHeads[minBucket] == -1)
+			minBucket++;
+
+		return bucketHeads[minBucket];
+
+	}
+
+	/**
+	 * Empties the queue by starting a new generation and emptying the buckets
+	 * used since the last clear, so the time taken depends on the range of keys
+	 * the last search went through rather than on the size of the grid. A deep
+	 * clear also wipes the stamps and every bucket.
+	 *
+	 * @param deep Whether to perform a "deep clear" or not.
+	 */
+	public void clear(boolean deep) {
+
+		int last = deep ? bucketHeads.length - 1 : Math.min(maxBucket, bucketHeads.length - 1);
+		for (int i = deep ? 0 : minBucket; i <= last; i++)
+			bucketHeads[i] = -1;
+
+		generation++;
+
+		if (deep || generation == Integer.MAX_VALUE) {
+			for (int i = 0; i < stamps.length; i++)
+				stamps[i] = 0;
+			generation = 1;
+		}
+
+		size = 0;
+		minBucket = bucketHeads.length;
+		maxBucket = 0;
+
+	}
+
+	/**
+	 * Inserts a new cell into the queue.
+	 * @param cell the index of the cell to be added
+	 */
+	public void insert(int cell) {
+		stamps[cell] = generation;
+		link(cell);
+		size++;
+	}
+
+	/**
+	 * Moves a cell already in the queue to the bucket of its lowered key.
+	 * @param cell The cell whose key was decreased.
+	 */
+	public void decreaseKey(int cell) {
+		if (contains(cell) != -1) {
+			unlink(cell);
+			link(cell);
+		}
+	}
+
+	/**
+	 * Removes a cell with the smallest key from the queue and returns it.
+	 * @return the deleted cell, -1 if the queue is empty
+	 */
+	public int delMin() {
+
+		int min = scanToMin();
+
+		if (min != -1) {
+			unlink(min);
+			size--;
+		}
+
+		return min;
+
+	}
+
+	/**
+	 * Finds a cell with the smallest key without removing it from the queue.
+	 * @return The cell delMin would return, -1 if the queue is empty.
+	 */
+	public int findMin() {
+		return scanToMin();
+	}
+
+	/**
+	 * Checks whether the queue contains a certain cell
+	 *
+	 * @param cell the cell we're looking for
+	 * @return the bucket the cell was found in, -1 if not found
+	 */
+	public int contains(int cell) {
+		if (stamps[cell] == generation)
+			return buckets[cell];
+		return -1;
+	}
+
+	/**
+	 * Get the amount of cells in the queue.
+	 * @return The amount of cells.
+	 */
+	public int getSize() {
+		return this.size;
+	}
+
+	/**
+	 * Is the queue empty or not.
+	 *
+	 * @return true is the queue is empty, false otherwise
+	 */
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Cells are put straight into their buckets, so there are no sift steps.
+	 *
+	 * @return 0
+	 */
+	public long getSiftSteps() {
+		return 0;
+	}
+
+}
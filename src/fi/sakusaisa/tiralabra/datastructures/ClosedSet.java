@@ -1,73 +1,81 @@
 package fi.sakusaisa.tiralabra.datastructures;
 
-import fi.sakusaisa.tiralabra.core.GridCell;
-
 /**
  * A simple class to represent the closed set in a*
- * 
+ *
+ * Instead of a flag per cell, every cell holds the generation it was last
+ * inserted in, and only cells stamped with the current generation count as
+ * being in the set. Clearing the set is then just a matter of starting a new
+ * generation, which takes constant time no matter how large the grid is.
+ *
  * @author Saku Säisä
  *
  */
 public class ClosedSet {
 
-	private boolean[][] dataMatrix;
-	
+	private int[] stamps;
+
+	// the stamp of cells currently in the set, 0 is never used so a fresh array is empty
+	private int generation;
+
 	/**
-	 * Constructor that creates a new 2d-array to hold the data.
-	 * The size should match the actual grid being used, as an index in this array matches
-	 * the same index in the actual data grid 1:1.
-	 * @param x The "x size" of the grid.
-	 * @param y The "y size" of the grid.
+	 * Constructor that creates a new array to hold the data.
+	 * The size should match the amount of cells in the grid being used, as an index
+	 * in this array matches the same cell index in the actual grid 1:1.
+	 * @param size The amount of cells in the grid.
 	 */
-	public ClosedSet(int x, int y) {
-		dataMatrix = new boolean[x][y];
+	public ClosedSet(int size) {
+		stamps = new int[size];
+		generation = 1;
 	}
 
 	/**
-	 * Clears the data structure.
+	 * Clears the data structure by starting a new generation. The stamps are
+	 * only actually wiped if the generation counter runs out.
 	 */
 	public void clear() {
-		for (int i = 0; i < dataMatrix.length; i++) {
-        	for (int j = 0; j < dataMatrix[0].length; j++) {
-        		dataMatrix[i][j] = false;
-        	}
-        }
+
+		generation++;
+
+		if (generation == Integer.MAX_VALUE) {
+			for (int i = 0; i < stamps.length; i++)
+				stamps[i] = 0;
+			generation = 1;
+		}
+
 	}
-	
+
 	/**
-	 * Inserts a GridCell into the data structure by marking
-	 * the index of the said GridCell as true.
-	 * 
-	 * @param gridCell The GridCell to add.
+	 * Inserts a cell into the data structure by stamping
+	 * the index of the said cell with the current generation.
+	 *
+	 * @param cellIndex The index of the cell to add.
 	 */
-	public void insert(GridCell gridCell) {
-		dataMatrix[gridCell.getCellX()][gridCell.getCellY()] = true;
+	public void insert(int cellIndex) {
+		stamps[cellIndex] = generation;
 	}
-	
+
 	/**
-	 * Checks whether or not a GridCell exists in the data structure.
-	 * 
-	 * @param gridCell the GridCell to check
+	 * Checks whether or not a cell exists in the data structure.
+	 *
+	 * @param cellIndex the index of the cell to check
 	 * @return True if gound, false otherwise
 	 */
-	public boolean contains(GridCell gridCell) {
+	public boolean contains(int cellIndex) {
 
-		int x = gridCell.getCellX();
-		int y = gridCell.getCellY();
-		
-		if (x > -1 && y > -1 && x < dataMatrix.length && y < dataMatrix[0].length)
-			return (dataMatrix[x][y] == true);
+		if (cellIndex > -1 && cellIndex < stamps.length)
+			return stamps[cellIndex] == generation;
 		else
 			return false;
 	}
 
 	/**
-	 * Provides a direct access to the underlying data array.
-	 * 
-	 * @return A reference to this instances data array.
+	 * The amount of cells this set can hold.
+	 *
+	 * @return the size given to the constructor
 	 */
-	public boolean[][] getDataMatrix() {
-		return this.dataMatrix;
+	public int getSize() {
+		return this.stamps.length;
 	}
-	
+
 }
@@ -0,0 +1,259 @@
+package fi.sakusaisa.tiralabra.datastructures;
+
+/**
+ * A min heap with 2, 4 or 8 children per node that keeps a copy of every key
+ * next to its cell. Comparisons read the keys straight from the heap's own array
+ * instead of looking each cell up in the shared key array, and the children of a
+ * node sit next to each other at a slot divisible by the arity, so a whole
+ * sift step reads one small block of memory. Both sifts are loops.
+ *
+ * The keys are copied from the shared key array when a cell is inserted or its
+ * key is decreased, so a key changed in any other way is not seen by the heap.
+ *
+ * @author Saku Säisä
+ *
+ */
+public class DaryHeap implements OpenSet {
+
+	// the amount of children of every node, and its base 2 logarithm
+	private int arity;
+	private int shift;
+
+	// the slots before the root that are left empty so the child groups line up
+	private int offset;
+
+	// the heap in parallel arrays, the children of the node in slot i are in arity * (i - offset + 1) onwards
+	private float[] heapKeys;
+	private int[] heapCells;
+	private int heapSize;
+
+	// the keys of the cells, indexed by cell
+	private float[] keys;
+
+	// the slot each cell currently occupies, may be stale for cells not in the heap
+	private int[] positions;
+
+	// the levels cells have moved up or down the heap, for the search statistics
+	private long siftSteps;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param initialSize The amount of cells the heap can hold before it has to grow.
+	 * @param keys The key of every cell, indexed by cell. Cells from 0 to keys.length - 1 can be added.
+	 * @param arity The amount of children of every node, 2, 4 or 8.
+	 */
+	public DaryHeap(int initialSize, float[] keys, int arity) {
+
+		if (arity != 2 && arity != 4 && arity != 8)
+			throw new IllegalArgumentException("arity must be 2, 4 or 8");
+
+		this.arity = arity;
+		this.shift = Integer.numberOfTrailingZeros(arity);
+		this.offset = arity - 1;
+		this.heapKeys = new float[offset + Math.max(initialSize, arity)];
+		this.heapCells = new int[heapKeys.length];
+		this.heapSize = 0;
+		this.keys = keys;
+		this.positions = new int[keys.length];
+
+	}
+
+	/**
+	 * Moves a cell "upwards" from the given slot until its parent is no
+	 * larger than it, then stores it there.
+	 *
+	 * @param slot The slot to start from.
+	 * @param cell The cell to position.
+	 * @param key The key of the cell.
+	 */
+	private void siftUp(int slot, int cell, float key) {
+
+		while (slot > offset) {
+			int parent = ((slot >> shift) - 1) + offset;
+			if (heapKeys[parent] <= key)
+				break;
+			heapKeys[slot] = heapKeys[parent];
+			heapCells[slot] = heapCells[parent];
+			positions[heapCells[slot]] = slot;
+			slot = parent;
+			siftSteps++;
+		}
+
+		heapKeys[slot] = key;
+		heapCells[slot] = cell;
+		positions[cell] = slot;
+
+	}
+
+	/**
+	 * Moves a cell "downwards" from the given slot until none of its
+	 * children is smaller than it, then stores it there.
+	 *
+	 * @param slot The slot to start from.
+	 * @param cell The cell to position.
+	 * @param key The key of the cell.
+	 */
+	private void siftDown(int slot, int cell, float key) {
+
+		int end = offset + heapSize;
+
+		while (true) {
+
+			int first = (slot - offset + 1) << shift;
+			if (first >= end)
+				break;
+
+			int last = Math.min(first + arity, end);
+			int smallest = first;
+			float smallestKey = heapKeys[first];
+			for (int child = first + 1; child < last; child++) {
+				if (heapKeys[child] < smallestKey) {
+					smallest = child;
+					smallestKey = heapKeys[child];
+				}
+			}
+
+			if (smallestKey >= key)
+				break;
+
+			heapKeys[slot] = smallestKey;
+			heapCells[slot] = heapCells[smallest];
+			positions[heapCells[slot]] = slot;
+			slot = smallest;
+			siftSteps++;
+
+		}
+
+		heapKeys[slot] = key;
+		heapCells[slot] = cell;
+		positions[cell] = slot;
+
+	}
+
+	/**
+	 * Clears the heap of all data making it empty, a deep clear also wipes the slot of every cell.
+	 *
+	 * @param deep Whether to perform a "deep clear" or not.
+	 */
+	public void clear(boolean deep) {
+		heapSize = 0;
+		if (deep) {
+			for (int i = 0; i < positions.length; i++)
+				positions[i] = 0;
+		}
+	}
+
+	/**
+	 * Inserts a new cell into the heap.
+	 * @param cell the index of the cell to be added
+	 */
+	public void insert(int cell) {
+
+		// double the size of the arrays if they're full
+		if (offset + heapSize == heapKeys.length) {
+			float[] newHeapKeys = new float[heapKeys.length * 2];
+			int[] newHeapCells = new int[heapKeys.length * 2];
+			for (int i = offset; i < offset + heapSize; i++) {
+				newHeapKeys[i] = heapKeys[i];
+				newHeapCells[i] = heapCells[i];
+			}
+			heapKeys = newHeapKeys;
+			heapCells = newHeapCells;
+		}
+
+		heapSize++;
+		siftUp(offset + heapSize - 1, cell, keys[cell]);
+
+	}
+
+	/**
+	 * Copies the lowered key of a cell into the heap and restores the heap order.
+	 *
+	 * @param cell The cell whose key was decreased.
+	 */
+	public void decreaseKey(int cell) {
+		int slot = contains(cell);
+		if (slot != -1)
+			siftUp(slot, cell, keys[cell]);
+	}
+
+	/**
+	 * Removes the cell from the top of the heap and returns it.
+	 * @return the deleted cell, -1 if the heap is empty
+	 */
+	public int delMin() {
+
+		if (heapSize == 0)
+			return -1;
+
+		int min = heapCells[offset];
+		heapSize--;
+		if (heapSize > 0) {
+			int last = offset + heapSize;
+			siftDown(offset, heapCells[last], heapKeys[last]);
+		}
+
+		return min;
+
+	}
+
+	/**
+	 * Finds the current minimum without removing it from the heap.
+	 * @return The cell currently on top of the heap, -1 if the heap is empty.
+	 */
+	public int findMin() {
+		if (heapSize == 0)
+			return -1;
+		return heapCells[offset];
+	}
+
+	/**
+	 * Checks whether the heap contains a certain cell
+	 *
+	 * @param cell the cell we're looking for
+	 * @return the slot the cell was found at, -1 if not found
+	 */
+	public int contains(int cell) {
+
+		// the stored slot may be stale, so make sure the cell really is there
+		int slot = positions[cell];
+
+		if (slot >= offset && slot < offset + heapSize && heapCells[slot] == cell)
+			return slot;
+		else
+			return -1;
+
+	}
+
+	/**
+	 * Get the size of the heap.
+	 * @return The heap size in int.
+	 */
+	public int getSize() {
+		return this.heapSize;
+	}
+
+	/**
+	 * Is the heap empty or not.
+	 *
+	 * @return true is the heap is empty, false otherwise
+	 */
+	public boolean isEmpty() {
+		return this.heapSize == 0;
+	}
+
+	public int getArity() {
+		return this.arity;
+	}
+
+	/**
+	 * The total amount of levels cells have been moved up or down the heap.
+	 *
+	 * @return The amount of sift steps since the heap was created.
+	 */
+	public long getSiftSteps() {
+		return this.siftSteps;
+	}
+
+}
@@ -1,27 +1,71 @@
 package fi.sakusaisa.tiralabra.datastructures;
 
-import fi.sakusaisa.tiralabra.core.GridCell;
-
 /**
- * 
- * A min binary heap implementation that holds GridCell instances only.
+ *
+ * A min binary heap implementation that holds cell indices only. The heap is
+ * ordered by the values the indices point to in a key array shared with the
+ * user of the heap (the movementCost of each cell), so a key must not be
+ * changed while its cell is in the heap other than through decreaseKey.
+ * The heap keeps track of the slot of every cell it holds, so membership
+ * checks are O(1) and decreasing a key is O(log n). Optionally a second key
+ * array decides the order of cells whose keys are equal.
  * @author Saku Säisä
  *
  */
-public class MinBinaryHeap {
-	
-	private GridCell[] heapArray;
+public class MinBinaryHeap implements OpenSet {
+
+	private int[] heapArray;
 	private int heapSize;
-	
+
+	// the keys the heap is ordered by, indexed by cell
+	private float[] keys;
+
+	// the second keys, for cells with equal keys, null if not used
+	private float[] tieBreakers;
+
+	// the slot each cell currently occupies in heapArray, may be stale for cells not in the heap
+	private int[] positions;
+
+	// the levels cells have moved up or down the heap, for the search statistics
+	private long siftSteps;
+
 	/**
 	 * Constructor.
-	 * 
+	 *
 	 * @param initialSize The size of the array holding the heap. Will be increased as needed. Minimum size is 2.
+	 * @param keys The key of every cell, indexed by cell. Cells from 0 to keys.length - 1 can be added.
 	 */
-	public MinBinaryHeap(int initialSize) {
-		if (initialSize < 2) heapArray = new GridCell[2];
-		else heapArray = new GridCell[initialSize];
+	public MinBinaryHeap(int initialSize, float[] keys) {
+		this(initialSize, keys, null);
+	}
+
+	/**
+	 * Constructor for a heap ordered by two keys, the second one is only
+	 * looked at when the first ones are equal.
+	 *
+	 * @param initialSize The size of the array holding the heap. Will be increased as needed. Minimum size is 2.
+	 * @param keys The key of every cell, indexed by cell. Cells from 0 to keys.length - 1 can be added.
+	 * @param tieBreakers The second key of every cell, indexed by cell. Null to only use the first keys.
+	 */
+	public MinBinaryHeap(int initialSize, float[] keys, float[] tieBreakers) {
+		if (initialSize < 2) heapArray = new int[2];
+		else heapArray = new int[initialSize];
 		heapSize = 0;
+		this.keys = keys;
+		this.tieBreakers = tieBreakers;
+		this.positions = new int[keys.length];
+	}
+
+	/**
+	 * Compares two cells by their keys.
+	 * @param cell The first cell.
+	 * @param other The second cell.
+	 * @return True if the first cell should be closer to the top of the heap.
+	 */
+	private boolean isSmaller(int cell, int other) {
+		if (keys[cell] != keys[other])
+			return keys[cell] < keys[other];
+		return tieBreakers != null && tieBreakers[cell] < tieBreakers[other];
 	}
 
 	/**
@@ -32,7 +76,7 @@ public class MinBinaryHeap {
 	protected int getParent(int index) {
 		return index / 2;
 	}
-	
+
 	/**
 	 * Returns the right child of the object.
 	 * @param index The index of the object whose child you want.
@@ -41,7 +85,7 @@ public class MinBinaryHeap {
 	protected int getRightChild(int index) {
 		return 2 * index;
 	}
-	
+
 	/**
 	 * Returns the left child of the object.
 	 * @param index The index of the object whose child you want.
@@ -50,135 +94,179 @@ public class MinBinaryHeap {
 	protected int getLeftChild(int index) {
 		return 2 * index + 1;
 	}
-	
+
 	/**
 	 * Makes sure the heap is in working order.
 	 * @param index The index in the array to start running heapify from.
 	 */
 	private void heapify(int index) {
-	
+
 		int smallest;
 		int left = getLeftChild(index);
 		int right = getRightChild(index);
-		GridCell tempCell;
-	
-		// check if the right child exists
-		if (right <= heapSize) {
-			
+		int tempCell;
+
+		// check if both children exist (the left child sits in the later slot)
+		if (left <= heapSize) {
+
 			// compare the values of the children for the smaller value
-			if (heapArray[left].getMovementCost() < heapArray[right].getMovementCost())
+			if (isSmaller(heapArray[left], heapArray[right]))
 				smallest = left;
 			else
 				smallest = right;
-			
-			/* 
+
+			/*
 			 * if the value in the current index is larger than the smallest child,
 			 * switch them and then call heapify again
 			 */
-			if (heapArray[index].getMovementCost() > heapArray[smallest].getMovementCost()) {
+			if (isSmaller(heapArray[smallest], heapArray[index])) {
 				tempCell = heapArray[index];
-				heapArray[index] = heapArray[smallest];
-				heapArray[smallest] = tempCell;
+				place(index, heapArray[smallest]);
+				place(smallest, tempCell);
+				siftSteps++;
 				heapify(smallest);
 			}
-				
+
 		}
-		
-		/* if there is no right child and the value of the left child is smaller, 
+
+		/* if there is only the right child and its value is smaller,
 		 * switch the values (no need to heapify in this case)
 		 */
-		else if (left == heapSize && heapArray[index].getMovementCost() > heapArray[left].getMovementCost()) {
+		else if (right == heapSize && isSmaller(heapArray[right], heapArray[index])) {
 			tempCell = heapArray[index];
-			heapArray[index] = heapArray[left];
-			heapArray[left] = tempCell;
+			place(index, heapArray[right]);
+			place(right, tempCell);
+			siftSteps++;
+		}
+
+	}
+
+	/**
+	 * Moves a cell "upwards" in the heap starting from the given slot until
+	 * its parent is no longer larger than it, then stores it there.
+	 *
+	 * @param index The slot to start from.
+	 * @param cell The cell to position.
+	 */
+	private void siftUp(int index, int cell) {
+
+		int i = index;
+		while (i > 1 && isSmaller(cell, heapArray[getParent(i)])) {
+				place(i, heapArray[getParent(i)]);
+				i = getParent(i);
+				siftSteps++;
 		}
-		
+
+		place(i, cell);
+
 	}
-	
+
+	/**
+	 * Stores a cell into a slot and remembers where it is.
+	 *
+	 * @param index The slot in the heap array.
+	 * @param cell The cell to store.
+	 */
+	private void place(int index, int cell) {
+		heapArray[index] = cell;
+		positions[cell] = index;
+	}
+
 	/**
 	 * Clears the heap of all data making it empty. Does this either by
-	 * simply setting the heap size to 0 or by also actually clearing the underlying
-	 * array of all objects ("deep clear") which will naturally take a bit more time.
-	 * 
+	 * simply setting the heap size to 0 or by also actually clearing the
+	 * slot of every cell ("deep clear") which will naturally take a bit more time.
+	 *
 	 * @param deep Whether to perform a "deep clear" or not.
 	 */
 	public void clear(boolean deep) {
 		heapSize = 0;
 		if (deep) {
-			for (int i = 0; i < heapArray.length; i++) {
-				heapArray[i] = null;
+			for (int i = 0; i < positions.length; i++) {
+				positions[i] = 0;
 			}
 		}
 	}
-	
+
 	/**
-	 * Inserts a new GridCell instance into the heap.
-	 * @param gridCell the GridCell to be added
+	 * Inserts a new cell into the heap.
+	 * @param cell the index of the cell to be added
 	 */
-	public void insert(GridCell gridCell) {
-	
+	public void insert(int cell) {
+
 		// double the size of the array if it's full
 		if (this.heapSize >= heapArray.length-2) {
-			
-			GridCell[] newHeapArray = new GridCell[heapArray.length * 2];
-			
+
+			int[] newHeapArray = new int[heapArray.length * 2];
+
 			for (int i = 0; i < heapArray.length; i++) {
 				newHeapArray[i] = heapArray[i];
 			}
 
 			heapArray = newHeapArray;
 			newHeapArray = null;
-			
+
 		}
-		
+
 		// make the heap one slot bigger
 		heapSize++;
-		
-		// traverse the heap "upwards" until the correct position is found
-		int i = heapSize;
-		while (i > 1 && heapArray[getParent(i)].getMovementCost() > gridCell.getMovementCost()) {
-				heapArray[i] = heapArray[getParent(i)];
-				i = getParent(i);
-		}
-		
-		// insert into the heap
-		heapArray[i] = gridCell;
-		
+
+		// traverse the heap "upwards" until the correct position is found and insert there
+		siftUp(heapSize, cell);
+
 	}
-	
+
 	/**
-	 * Removes the GridCell from the top of the heap and returns it.
-	 * @return the deleted GridCell
+	 * Restores the heap order after the key of a cell already in the
+	 * heap has been lowered.
+	 *
+	 * @param cell The cell whose key was decreased.
 	 */
-	public GridCell delMin() {
-		
+	public void decreaseKey(int cell) {
+
+		int index = contains(cell);
+		if (index != -1)
+			siftUp(index, cell);
+
+	}
+
+	/**
+	 * Removes the cell from the top of the heap and returns it.
+	 * @return the deleted cell, -1 if the heap is empty
+	 */
+	public int delMin() {
+
 		if (heapSize > 0) {
-			
+
 			// grab the cell from the top of the heap
-			GridCell min = heapArray[1];
-			
+			int min = heapArray[1];
+			positions[min] = 0;
+
 			// move the last cell into the top, mark the heap as 1 cell smaller and heapify
-			heapArray[1] = heapArray[heapSize];
+			if (heapSize > 1)
+				place(1, heapArray[heapSize]);
 			heapSize--;
 			heapify(1);
-			
+
 			// finally return the old top of the heap
 			return min;
-			
+
 		}
-		
-		else return null;
-		
+
+		else return -1;
+
 	}
-	
+
 	/**
 	 * Finds the current minimum without removing it from the heap.
-	 * @return The GridCell currently on top of the heap.
+	 * @return The cell currently on top of the heap, -1 if the heap is empty.
 	 */
-	public GridCell findMin() {
+	public int findMin() {
+		if (heapSize == 0)
+			return -1;
 		return heapArray[1];
 	}
-	
+
 	/**
 	 * Get the size of the heap.
 	 * @return The heap size in int.
@@ -186,45 +274,70 @@ public class MinBinaryHeap {
 	public int getHeapSize() {
 		return this.heapSize;
 	}
-	
+
+	/**
+	 * Get the amount of cells in the heap, same as getHeapSize.
+	 * @return The heap size in int.
+	 */
+	public int getSize() {
+		return this.heapSize;
+	}
+
 	/**
 	 * Is the heap empty or not.
-	 * 
+	 *
 	 * @return true is the heap is empty, false otherwise
 	 */
 	public boolean isEmpty() {
 		return this.heapSize == 0;
 	}
-	
+
 	/**
-	 * Checks whether the heap contains a certain instance of gridcell
-	 * 
-	 * @param gridCell the instance we're looking for
+	 * Checks whether the heap contains a certain cell
+	 *
+	 * @param cell the cell we're looking for
 	 * @return the index the cell was found at, -1 if not found
 	 */
-	public int contains(GridCell gridCell) {
-	
-		int found = -1;
-		
-		for (int i = 1; i <= heapSize; i++) {
-			if (heapArray[i] == gridCell) found = i;
-		}
-		
-		return found;
-		
+	public int contains(int cell) {
+
+		// the stored slot may be stale after a clear, so make sure the cell really is there
+		int index = positions[cell];
+
+		if (index > 0 && index <= heapSize && heapArray[index] == cell)
+			return index;
+		else
+			return -1;
+
 	}
-	
+
 	/**
 	 * Removes a given node from anywhere in the heap. This is done by replacing
 	 * the node to be deleted with the rightmost leaf, then by decresing the heap
-	 * size by 1 and finally calling heapify starting from the deleted index.
-	 * 
+	 * size by 1 and finally moving the leaf up or down from the deleted index,
+	 * whichever way it needs to go.
+	 *
 	 * @param index The index of the node to remove.
 	 */
 	public void removeAtIndex(int index) {
-		heapArray[index] = heapArray[heapSize];
+
+		positions[heapArray[index]] = 0;
+		int last = heapArray[heapSize];
 		heapSize--;
-		heapify(index);
+
+		if (index <= heapSize) {
+			siftUp(index, last);
+			heapify(positions[last]);
+		}
+
 	}
-	
+
+	/**
+	 * The total amount of levels cells have been moved up or down the heap.
+	 *
+	 * @return The amount of sift steps since the heap was created.
+	 */
+	public long getSiftSteps() {
+		return this.siftSteps;
+	}
+
 }
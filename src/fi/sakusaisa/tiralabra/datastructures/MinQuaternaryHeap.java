@@ -0,0 +1,228 @@
+package fi.sakusaisa.tiralabra.datastructures;
+
+/**
+ * A min heap where every node has four children instead of two. The heap is
+ * half as deep as a binary one, so inserting and decreasing a key move a cell
+ * through fewer levels, while removing the top looks at four children per level.
+ * Like MinBinaryHeap it holds cell indices ordered by a key array shared with the
+ * user of the heap, and keeps track of the slot of every cell it holds.
+ *
+ * @author Saku Säisä
+ *
+ */
+public class MinQuaternaryHeap implements OpenSet {
+
+	// the cells in heap order, the root is in slot 0 and the children of slot i in 4i+1 .. 4i+4
+	private int[] heapArray;
+	private int heapSize;
+
+	// the keys the heap is ordered by, indexed by cell
+	private float[] keys;
+
+	// the slot each cell currently occupies in heapArray, may be stale for cells not in the heap
+	private int[] positions;
+
+	// the levels cells have moved up or down the heap, for the search statistics
+	private long siftSteps;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param initialSize The size of the array holding the heap. Will be increased as needed.
+	 * @param keys The key of every cell, indexed by cell. Cells from 0 to keys.length - 1 can be added.
+	 */
+	public MinQuaternaryHeap(int initialSize, float[] keys) {
+		this.heapArray = new int[Math.max(initialSize, 4)];
+		this.heapSize = 0;
+		this.keys = keys;
+		this.positions = new int[keys.length];
+	}
+
+	/**
+	 * Stores a cell into a slot and remembers where it is.
+	 *
+	 * @param index The slot in the heap array.
+	 * @param cell The cell to store.
+	 */
+	private void place(int index, int cell) {
+		heapArray[index] = cell;
+		positions[cell] = index;
+	}
+
+	/**
+	 * Moves a cell "upwards" in the heap starting from the given slot until
+	 * its parent is no longer larger than it, then stores it there.
+	 *
+	 * @param index The slot to start from.
+	 * @param cell The cell to position.
+	 */
+	private void siftUp(int index, int cell) {
+
+		float key = keys[cell];
+		while (index > 0) {
+			int parent = (index - 1) / 4;
+			if (keys[heapArray[parent]] <= key)
+				break;
+			place(index, heapArray[parent]);
+			index = parent;
+			siftSteps++;
+		}
+
+		place(index, cell);
+
+	}
+
+	/**
+	 * Moves a cell "downwards" in the heap starting from the given slot until
+	 * none of its children is smaller than it, then stores it there.
+	 *
+	 * @param index The slot to start from.
+	 * @param cell The cell to position.
+	 */
+	private void siftDown(int index, int cell) {
+
+		float key = keys[cell];
+		while (true) {
+
+			int first = 4 * index + 1;
+			if (first >= heapSize)
+				break;
+
+			// the smallest of the (up to) four children
+			int smallest = first;
+			int last = Math.min(first + 4, heapSize);
+			for (int child = first + 1; child < last; child++) {
+				if (keys[heapArray[child]] < keys[heapArray[smallest]])
+					smallest = child;
+			}
+
+			if (keys[heapArray[smallest]] >= key)
+				break;
+
+			place(index, heapArray[smallest]);
+			index = smallest;
+			siftSteps++;
+
+		}
+
+		place(index, cell);
+
+	}
+
+	/**
+	 * Clears the heap of all data making it empty, a deep clear also wipes the slot of every cell.
+	 *
+	 * @param deep Whether to perform a "deep clear" or not.
+	 */
+	public void clear(boolean deep) {
+		heapSize = 0;
+		if (deep) {
+			for (int i = 0; i < positions.length; i++)
+				positions[i] = 0;
+		}
+	}
+
+	/**
+	 * Inserts a new cell into the heap.
+	 * @param cell the index of the cell to be added
+	 */
+	public void insert(int cell) {
+
+		// double the size of the array if it's full
+		if (heapSize == heapArray.length) {
+			int[] newHeapArray = new int[heapArray.length * 2];
+			for (int i = 0; i < heapSize; i++)
+				newHeapArray[i] = heapArray[i];
+			heapArray = newHeapArray;
+		}
+
+		heapSize++;
+		siftUp(heapSize - 1, cell);
+
+	}
+
+	/**
+	 * Restores the heap order after the key of a cell already in the
+	 * heap has been lowered.
+	 *
+	 * @param cell The cell whose key was decreased.
+	 */
+	public void decreaseKey(int cell) {
+		int index = contains(cell);
+		if (index != -1)
+			siftUp(index, cell);
+	}
+
+	/**
+	 * Removes the cell from the top of the heap and returns it.
+	 * @return the deleted cell, -1 if the heap is empty
+	 */
+	public int delMin() {
+
+		if (heapSize == 0)
+			return -1;
+
+		int min = heapArray[0];
+		heapSize--;
+		if (heapSize > 0)
+			siftDown(0, heapArray[heapSize]);
+
+		return min;
+
+	}
+
+	/**
+	 * Finds the current minimum without removing it from the heap.
+	 * @return The cell currently on top of the heap, -1 if the heap is empty.
+	 */
+	public int findMin() {
+		if (heapSize == 0)
+			return -1;
+		return heapArray[0];
+	}
+
+	/**
+	 * Checks whether the heap contains a certain cell
+	 *
+	 * @param cell the cell we're looking for
+	 * @return the index the cell was found at, -1 if not found
+	 */
+	public int contains(int cell) {
+
+		// the stored slot may be stale, so make sure the cell really is there
+		int index = positions[cell];
+
+		if (index < heapSize && heapArray[index] == cell)
+			return index;
+		else
+			return -1;
+
+	}
+
+	/**
+	 * Get the size of the heap.
+	 * @return The heap size in int.
+	 */
+	public int getSize() {
+		return this.heapSize;
+	}
+
+	/**
+	 * Is the heap empty or not.
+	 *
+	 * @return true is the heap is empty, false otherwise
+	 */
+	public boolean isEmpty() {
+		return this.heapSize == 0;
+	}
+
+	/**
+	 * The total amount of levels cells have been moved up or down the heap.
+	 *
+	 * @return The amount of sift steps since the heap was created.
+	 */
+	public long getSiftSteps() {
+		return this.siftSteps;
+	}
+
+}
@@ -0,0 +1,70 @@
+package fi.sakusaisa.tiralabra.datastructures;
+
+/**
+ * The operations a search needs from its open set. An open set holds cell
+ * indices ordered by the values they point to in a key array shared with the
+ * user of the set (the movementCost of each cell), so a key must not be changed
+ * while its cell is in the set other than through decreaseKey.
+ *
+ * @author Saku Säisä
+ *
+ */
+public interface OpenSet {
+
+	/**
+	 * Inserts a new cell into the set.
+	 * @param cell the index of the cell to be added
+	 */
+	void insert(int cell);
+
+	/**
+	 * Removes the cell with the smallest key from the set and returns it.
+	 * @return the removed cell, -1 if the set is empty
+	 */
+	int delMin();
+
+	/**
+	 * Finds the cell with the smallest key without removing it.
+	 * @return the cell with the smallest key, -1 if the set is empty
+	 */
+	int findMin();
+
+	/**
+	 * Restores the order of the set after the key of a cell already in it has been lowered.
+	 * @param cell the cell whose key was decreased
+	 */
+	void decreaseKey(int cell);
+
+	/**
+	 * Checks whether the set contains a certain cell.
+	 * @param cell the cell we're looking for
+	 * @return where the cell is held in the set (not negative), -1 if not found
+	 */
+	int contains(int cell);
+
+	/**
+	 * Empties the set, optionally also wiping what it remembers about every cell.
+	 * @param deep whether to perform a "deep clear" or not
+	 */
+	void clear(boolean deep);
+
+	/**
+	 * Get the amount of cells in the set.
+	 * @return the amount of cells
+	 */
+	int getSize();
+
+	/**
+	 * Is the set empty or not.
+	 * @return true if the set is empty, false otherwise
+	 */
+	boolean isEmpty();
+
+	/**
+	 * The total amount of levels cells have been moved up or down the set since
+	 * it was created, for the search statistics. Sets that aren't heaps return 0.
+	 * @return the amount of sift steps
+	 */
+	long getSiftSteps();
+
+}
@@ -0,0 +1,248 @@
+package fi.sakusaisa.tiralabra.datastructures;
+
+/**
+ * A pairing heap of cell indices, ordered by a key array shared with the user
+ * of the heap. Inserting and decreasing a key are O(1): the cell is simply melded
+ * with the root. All the work is left to delMin, which pairs up the children of
+ * the removed root (amortised O(log n)).
+ *
+ * The tree is stored in per cell arrays, every cell links to its first child,
+ * its next sibling and its previous sibling (or its parent, if it's the first child),
+ * so the heap never allocates anything after it has been created.
+ *
+ * @author Saku Säisä
+ *
+ */
+public class PairingHeap implements OpenSet {
+
+	// the keys the heap is ordered by, indexed by cell
+	private float[] keys;
+
+	// the links of each cell, -1 = none
+	private int[] child;
+	private int[] sibling;
+
+	// the previous sibling, or the parent for a first child
+	private int[] previous;
+
+	// the generation in which each cell was last inserted, a cell is only in the heap if stamped with the current one
+	private int[] stamps;
+	private int generation;
+
+	// cells already removed from the heap in this generation
+	private boolean[] removed;
+
+	private int root;
+	private int size;
+
+	// scratch space for pairing up the children of a removed root
+	private int[] pairs;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param keys The key of every cell, indexed by cell. Cells from 0 to keys.length - 1 can be added.
+	 */
+	public PairingHeap(float[] keys) {
+		this.keys = keys;
+		this.child = new int[keys.length];
+		this.sibling = new int[keys.length];
+		this.previous = new int[keys.length];
+		this.stamps = new int[keys.length];
+		this.removed = new boolean[keys.length];
+		this.generation = 1;
+		this.pairs = new int[16];
+		this.root = -1;
+		this.size = 0;
+	}
+
+	/**
+	 * Joins two trees, the root with the larger key becomes the first child of the other.
+	 *
+	 * @param first The root of the first tree.
+	 * @param second The root of the second tree.
+	 * @return The root of the joined tree.
+	 */
+	private int meld(int first, int second) {
+
+		if (first == -1)
+			return second;
+		if (second == -1)
+			return first;
+
+		if (keys[second] < keys[first]) {
+			int temp = first;
+			first = second;
+			second = temp;
+		}
+
+		sibling[second] = child[first];
+		if (child[first] != -1)
+			previous[child[first]] = second;
+		previous[second] = first;
+		child[first] = second;
+		sibling[first] = -1;
+		previous[first] = -1;
+
+		return first;
+
+	}
+
+	/**
+	 * Empties the heap by starting a new generation. The stamps are only
+	 * actually wiped if the generation counter runs out or on a deep clear.
+	 *
+	 * @param deep Whether to perform a "deep clear" or not.
+	 */
+	public void clear(boolean deep) {
+
+		root = -1;
+		size = 0;
+		generation++;
+
+		if (deep || generation == Integer.MAX_VALUE) {
+			for (int i = 0; i < stamps.length; i++)
+				stamps[i] = 0;
+			generation = 1;
+		}
+
+	}
+
+	/**
+	 * Inserts a new cell into the heap.
+	 * @param cell the index of the cell to be added
+	 */
+	public void insert(int cell) {
+
+		stamps[cell] = generation;
+		removed[cell] = false;
+		child[cell] = -1;
+		sibling[cell] = -1;
+		previous[cell] = -1;
+
+		root = meld(root, cell);
+		size++;
+
+	}
+
+	/**
+	 * Cuts the subtree of a cell already in the heap loose and melds it
+	 * back with the root, as its key may now be smaller than its parent's.
+	 *
+	 * @param cell The cell whose key was decreased.
+	 */
+	public void decreaseKey(int cell) {
+
+		if (contains(cell) == -1 || cell == root)
+			return;
+
+		// unlink from the siblings, or from the parent if this is the first child
+		if (child[previous[cell]] == cell)
+			child[previous[cell]] = sibling[cell];
+		else
+			sibling[previous[cell]] = sibling[cell];
+		if (sibling[cell] != -1)
+			previous[sibling[cell]] = previous[cell];
+
+		sibling[cell] = -1;
+		previous[cell] = -1;
+		root = meld(root, cell);
+
+	}
+
+	/**
+	 * Removes the cell with the smallest key and returns it.
+	 * @return the deleted cell, -1 if the heap is empty
+	 */
+	public int delMin() {
+
+		if (root == -1)
+			return -1;
+
+		int min = root;
+		removed[min] = true;
+		size--;
+
+		// first pass: meld the children in pairs from left to right
+		int count = 0;
+		int next = child[min];
+		while (next != -1) {
+
+			int first = next;
+			int second = sibling[first];
+			next = second == -1 ? -1 : sibling[second];
+
+			sibling[first] = -1;
+			previous[first] = -1;
+			if (second != -1) {
+				sibling[second] = -1;
+				previous[second] = -1;
+			}
+
+			if (count == pairs.length) {
+				int[] newPairs = new int[pairs.length * 2];
+				for (int i = 0; i < count; i++)
+					newPairs[i] = pairs[i];
+				pairs = newPairs;
+			}
+			pairs[count++] = meld(first, second);
+
+		}
+
+		// second pass: meld the pairs from right to left
+		int newRoot = -1;
+		for (int i = count - 1; i >= 0; i--)
+			newRoot = meld(pairs[i], newRoot);
+
+		root = newRoot;
+		return min;
+
+	}
+
+	/**
+	 * Finds the current minimum without removing it from the heap.
+	 * @return The cell with the smallest key, -1 if the heap is empty.
+	 */
+	public int findMin() {
+		return root;
+	}
+
+	/**
+	 * Checks whether the heap contains a certain cell
+	 *
+	 * @param cell the cell we're looking for
+	 * @return 0 if the cell was found, -1 if not found
+	 */
+	public int contains(int cell) {
+		if (stamps[cell] == generation && !removed[cell])
+			return 0;
+		return -1;
+	}
+
+	/**
+	 * Get the amount of cells in the heap.
+	 * @return The amount of cells.
+	 */
+	public int getSize() {
+		return this.size;
+	}
+
+	/**
+	 * Is the heap empty or not.
+	 *
+	 * @return true is the heap is empty, false otherwise
+	 */
+	public boolean isEmpty() {
+		return this.root == -1;
+	}
+
+	/**
+	 * A pairing heap links trees instead of sifting, so there are no sift steps.
+	 *
+	 * @return 0
+	 */
+	public long getSiftSteps() {
+		return 0;
+	}
+
+}
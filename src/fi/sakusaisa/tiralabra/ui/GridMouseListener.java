@@ -81,66 +81,68 @@ public class GridMouseListener extends MouseAdapter {
             lastMouseY = -1;
                         
             // pick up the start point
-            if (this.tiraLabra.getGridCells()[x][y].getCellData() == 4 && !userMovingGoal) {
+            if (this.tiraLabra.getGrid().getCellData(x, y) == 4 && !userMovingGoal) {
             	userMovingStart = true;
-            	this.tiraLabra.getGridCells()[x][y].setCellData(1);
+            	this.tiraLabra.getGrid().setCellData(x, y, 1);
             	this.tiraLabra.resetPath();
             }
             
             // pick up the goal point
-            else if (this.tiraLabra.getGridCells()[x][y].getCellData() == 5 && !userMovingStart) {
+            else if (this.tiraLabra.getGrid().getCellData(x, y) == 5 && !userMovingStart) {
             	userMovingGoal = true;
-            	this.tiraLabra.getGridCells()[x][y].setCellData(1);
+            	this.tiraLabra.getGrid().setCellData(x, y, 1);
             	this.tiraLabra.resetPath();
             }            
             
             // put down the start point
-            else if (userMovingStart && this.tiraLabra.getGridCells()[x][y].getCellData() == 1) {
+            else if (userMovingStart && this.tiraLabra.getGrid().getCellData(x, y) == 1) {
             	userMovingStart = false;
-            	this.tiraLabra.getGridCells()[x][y].setCellData(4);
+            	this.tiraLabra.getGrid().setCellData(x, y, 4);
             	this.tiraLabra.setStartCellX(x);
             	this.tiraLabra.setStartCellY(y);
             }
 
             // put down the start point
-            else if (userMovingGoal && this.tiraLabra.getGridCells()[x][y].getCellData() == 1) {
+            else if (userMovingGoal && this.tiraLabra.getGrid().getCellData(x, y) == 1) {
             	userMovingGoal = false;
-            	this.tiraLabra.getGridCells()[x][y].setCellData(5);
+            	this.tiraLabra.getGrid().setCellData(x, y, 5);
             	this.tiraLabra.setGoalCellX(x);
             	this.tiraLabra.setGoalCellY(y);
             }
 
             // just switch obstacle <-> clear
             else {
-
-                if (this.tiraLabra.getGridCells()[x][y].getCellData() == 1) {
-                    this.tiraLabra.getGridCells()[x][y].setCellData(0);
-                }
-                else if (this.tiraLabra.getGridCells()[x][y].getCellData() == 0) {
-                    this.tiraLabra.getGridCells()[x][y].setCellData(1);
-                }            	
-            	
+                toggleObstacle(x, y);
             }
             
         }
         
         // detect moving
         else if (x != lastMouseX || y != lastMouseY) {
-
-            if (this.tiraLabra.getGridCells()[x][y].getCellData() == 1) {
-                this.tiraLabra.getGridCells()[x][y].setCellData(0);
-            }
-            else if (this.tiraLabra.getGridCells()[x][y].getCellData() == 0) {
-                this.tiraLabra.getGridCells()[x][y].setCellData(1);
-            }
-
+            toggleObstacle(x, y);
         }
         
         lastMouseX = x;
         lastMouseY = y;
         
-        this.gridRenderer.repaint();
+        this.gridRenderer.repaintChanges();
         
     }
     
+    /**
+     * Switches a cell between obstacle and clear, other cells are left alone.
+     * @param x of the cell
+     * @param y of the cell
+     */
+    private void toggleObstacle(int x, int y) {
+
+        if (this.tiraLabra.getGrid().getCellData(x, y) == 1) {
+            this.tiraLabra.getGrid().setCellData(x, y, 0);
+        }
+        else if (this.tiraLabra.getGrid().getCellData(x, y) == 0) {
+            this.tiraLabra.getGrid().setCellData(x, y, 1);
+        }
+
+    }
+    
 }
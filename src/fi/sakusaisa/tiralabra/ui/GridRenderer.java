@@ -3,9 +3,11 @@ package fi.sakusaisa.tiralabra.ui;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 
 import javax.swing.JPanel;
 
+import fi.sakusaisa.tiralabra.core.Grid;
 import fi.sakusaisa.tiralabra.core.TiraLabra;
 
 /**
@@ -25,6 +27,10 @@ public class GridRenderer extends JPanel {
 
     // a reference to the gridmouselistener
     protected GridMouseListener gridMouseListener;
+
+    // the grid version that has been asked to be painted, and room for the tiles changed since
+    private int paintedVersion;
+    private int[] changedTiles;
     
     /**
      * Constructor.
@@ -33,9 +39,11 @@ public class GridRenderer extends JPanel {
     public GridRenderer(TiraLabra tiraLabra) {
         
         this.tiraLabra = tiraLabra;
-        this.cellsX = tiraLabra.getGridCells().length;
-        this.cellsY = tiraLabra.getGridCells()[0].length;
+        this.cellsX = tiraLabra.getGrid().getWidth();
+        this.cellsY = tiraLabra.getGrid().getHeight();
         this.cellSize = tiraLabra.getCellSize();
+        this.paintedVersion = tiraLabra.getGrid().getVersion();
+        this.changedTiles = new int[tiraLabra.getGrid().getTilesX() * tiraLabra.getGrid().getTilesY()];
         
         this.gridMouseListener = new GridMouseListener(this, this.tiraLabra);
         
@@ -50,9 +58,46 @@ public class GridRenderer extends JPanel {
         
     }
     
+    /**
+     * Repaints only the tiles of the grid changed since the last repaint, as one
+     * rectangle around them. Nothing is repainted if the grid hasn't changed.
+     */
+    public void repaintChanges() {
+
+        Grid grid = tiraLabra.getGrid();
+        int tileCount = grid.getChangedTiles(paintedVersion, changedTiles);
+        paintedVersion = grid.getVersion();
+        if (tileCount == 0)
+            return;
+
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = -1, maxY = -1;
+        for (int t = 0; t < tileCount; t++) {
+            int tileX = changedTiles[t] % grid.getTilesX();
+            int tileY = changedTiles[t] / grid.getTilesX();
+            minX = Math.min(minX, tileX);
+            minY = Math.min(minY, tileY);
+            maxX = Math.max(maxX, tileX);
+            maxY = Math.max(maxY, tileY);
+        }
+
+        int tilePixels = Grid.TILE_SIZE * cellSize;
+        repaint(10 + minX * tilePixels, 10 + minY * tilePixels, (maxX - minX + 1) * tilePixels + 1, (maxY - minY + 1) * tilePixels + 1);
+
+    }
+
     private void render(Graphics g) {
 
         Graphics2D g2d = (Graphics2D) g;
+
+        // only the cells within the area being repainted need to be drawn
+        Rectangle clip = g.getClipBounds();
+        int firstX = 0, firstY = 0, lastX = cellsX - 1, lastY = cellsY - 1;
+        if (clip != null) {
+            firstX = Math.max(0, (clip.x - 10) / cellSize);
+            firstY = Math.max(0, (clip.y - 10) / cellSize);
+            lastX = Math.min(cellsX - 1, (clip.x + clip.width - 10) / cellSize);
+            lastY = Math.min(cellsY - 1, (clip.y + clip.height - 10) / cellSize);
+        }
         
         // draw the grid itself
         g2d.setColor(Color.darkGray);
@@ -62,11 +107,11 @@ public class GridRenderer extends JPanel {
             g2d.drawLine(10, y, (cellsX+1) * cellSize, y);
         
         // visualize the cells in the grid
-        for (int i = 0; i < cellsX; i++) {
-            for (int j = 0; j < cellsY; j++) {
+        for (int i = firstX; i <= lastX; i++) {
+            for (int j = firstY; j <= lastY; j++) {
                 
                 // set the color based on cell data
-            	switch (tiraLabra.getGridCells()[i][j].getCellData()) {
+            	switch (tiraLabra.getGrid().getCellData(i, j)) {
 
             	// obstacle
             	case 0: 
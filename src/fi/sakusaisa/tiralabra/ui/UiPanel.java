@@ -6,8 +6,10 @@ import java.awt.event.ActionListener;
 
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
 import javax.swing.JPanel;
 
+import fi.sakusaisa.tiralabra.core.OpenSetType;
 import fi.sakusaisa.tiralabra.core.TiraLabra;
 
 /**
@@ -27,7 +29,7 @@ public class UiPanel extends JPanel implements ActionListener {
         setMaximumSize(new java.awt.Dimension(50, tiraLabra.getWantedWindowHeight()));
 
         // buttons have their own jpanel(s)
-        JPanel buttonMainPanel = new JPanel(new GridLayout(5,1));
+        JPanel buttonMainPanel = new JPanel(new GridLayout(11,1));
         JPanel buttonPanel = new JPanel(new GridLayout(1,1));
         
         // ui button for "find path"
@@ -36,7 +38,7 @@ public class UiPanel extends JPanel implements ActionListener {
             @Override
             public void actionPerformed(ActionEvent event) {
                 tiraLabra.findPath();
-                tiraLabra.getGridRenderer().repaint();
+                tiraLabra.getGridRenderer().repaintChanges();
             }
         }); 
         buttonPanel.add(findPathButton);
@@ -49,7 +51,7 @@ public class UiPanel extends JPanel implements ActionListener {
             @Override
             public void actionPerformed(ActionEvent event) {
             	tiraLabra.resetPath();
-            	tiraLabra.getGridRenderer().repaint();
+            	tiraLabra.getGridRenderer().repaintChanges();
             }
         }); 
         buttonPanel.add(resetPathButton);
@@ -60,7 +62,7 @@ public class UiPanel extends JPanel implements ActionListener {
             @Override
             public void actionPerformed(ActionEvent event) {
                 tiraLabra.resetGrid();
-                tiraLabra.getGridRenderer().repaint();
+                tiraLabra.getGridRenderer().repaintChanges();
             }
         }); 
         buttonPanel.add(resetGridButton);        
@@ -82,6 +84,46 @@ public class UiPanel extends JPanel implements ActionListener {
         buttonPanel.add(checkboxAStar);
         buttonMainPanel.add(buttonPanel);   
         
+        // selection box for the alt landmark heuristic on/off
+        buttonPanel = new JPanel(new GridLayout(1,1));
+        JCheckBox checkboxLandmarks = new JCheckBox("ALT Landmarks (A*)", false);
+        checkboxLandmarks.setName("ALT Landmarks");
+        checkboxLandmarks.addActionListener(this);
+        buttonPanel.add(checkboxLandmarks);
+        buttonMainPanel.add(buttonPanel);   
+        
+        // selection box for jump point search on/off
+        buttonPanel = new JPanel(new GridLayout(1,1));
+        JCheckBox checkboxJumpPoint = new JCheckBox("Jump Point Search (A*)", false);
+        checkboxJumpPoint.setName("Jump Point Search");
+        checkboxJumpPoint.addActionListener(this);
+        buttonPanel.add(checkboxJumpPoint);
+        buttonMainPanel.add(buttonPanel);   
+        
+        // selection box for bidirectional search on/off
+        buttonPanel = new JPanel(new GridLayout(1,1));
+        JCheckBox checkboxBidirectional = new JCheckBox("Bidirectional Search", false);
+        checkboxBidirectional.setName("Bidirectional Search");
+        checkboxBidirectional.addActionListener(this);
+        buttonPanel.add(checkboxBidirectional);
+        buttonMainPanel.add(buttonPanel);   
+        
+        // selection box for hierarchical search on/off
+        buttonPanel = new JPanel(new GridLayout(1,1));
+        JCheckBox checkboxHierarchical = new JCheckBox("Hierarchical (HPA*)", false);
+        checkboxHierarchical.setName("Hierarchical");
+        checkboxHierarchical.addActionListener(this);
+        buttonPanel.add(checkboxHierarchical);
+        buttonMainPanel.add(buttonPanel);   
+        
+        // selection box for incremental replanning on/off
+        buttonPanel = new JPanel(new GridLayout(1,1));
+        JCheckBox checkboxIncremental = new JCheckBox("Incremental (D* Lite)", false);
+        checkboxIncremental.setName("Incremental");
+        checkboxIncremental.addActionListener(this);
+        buttonPanel.add(checkboxIncremental);
+        buttonMainPanel.add(buttonPanel);   
+        
         // selection box for a* tiebreaker on/off
         buttonPanel = new JPanel(new GridLayout(1,1));
         JCheckBox checkboxTiebreaker = new JCheckBox("Heuristics Tie-breaker (A*)", false);
@@ -90,6 +132,24 @@ public class UiPanel extends JPanel implements ActionListener {
         buttonPanel.add(checkboxTiebreaker);
         buttonMainPanel.add(buttonPanel);   
 
+        // selection box for the open set implementation
+        buttonPanel = new JPanel(new GridLayout(1,1));
+        final JComboBox<OpenSetType> openSetSelection = new JComboBox<OpenSetType>(OpenSetType.values());
+        openSetSelection.setSelectedItem(tiraLabra.getOpenSetType());
+        openSetSelection.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent event) {
+                tiraLabra.setOpenSetType((OpenSetType) openSetSelection.getSelectedItem());
+                if (tiraLabra.isPathFindingRan()) {
+                    tiraLabra.resetPath();
+                    tiraLabra.findPath();
+                    tiraLabra.getGridRenderer().repaintChanges();
+                }
+            }
+        });
+        buttonPanel.add(openSetSelection);
+        buttonMainPanel.add(buttonPanel);
+
         this.add(buttonMainPanel, java.awt.BorderLayout.NORTH);     
         
     }
@@ -107,6 +167,16 @@ public class UiPanel extends JPanel implements ActionListener {
                 tiraLabra.setUseTieBreaker(true);
             if (source.getName().equals("Use A*"))
                 tiraLabra.setUseAStar(true);
+            if (source.getName().equals("ALT Landmarks"))
+                tiraLabra.setUseLandmarks(true);
+            if (source.getName().equals("Jump Point Search"))
+                tiraLabra.setUseJumpPoint(true);
+            if (source.getName().equals("Bidirectional Search"))
+                tiraLabra.setUseBidirectional(true);
+            if (source.getName().equals("Hierarchical"))
+                tiraLabra.setUseHierarchical(true);
+            if (source.getName().equals("Incremental"))
+                tiraLabra.setUseIncremental(true);
         }
         
         else {
@@ -116,12 +186,22 @@ public class UiPanel extends JPanel implements ActionListener {
                 tiraLabra.setUseTieBreaker(false);
             if (source.getName().equals("Use A*"))
                 tiraLabra.setUseAStar(false);            
+            if (source.getName().equals("ALT Landmarks"))
+                tiraLabra.setUseLandmarks(false);
+            if (source.getName().equals("Jump Point Search"))
+                tiraLabra.setUseJumpPoint(false);
+            if (source.getName().equals("Bidirectional Search"))
+                tiraLabra.setUseBidirectional(false);
+            if (source.getName().equals("Hierarchical"))
+                tiraLabra.setUseHierarchical(false);
+            if (source.getName().equals("Incremental"))
+                tiraLabra.setUseIncremental(false);
         }
 
         if (tiraLabra.isPathFindingRan()) {
             tiraLabra.resetPath();
             tiraLabra.findPath();
-            tiraLabra.getGridRenderer().repaint();
+            tiraLabra.getGridRenderer().repaintChanges();
         }
         
     }
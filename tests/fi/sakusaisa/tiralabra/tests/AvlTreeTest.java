@@ -2,75 +2,186 @@ package fi.sakusaisa.tiralabra.tests;
 
 import static org.junit.Assert.*;
 
+import java.util.Random;
+
 import org.junit.Test;
 
-import fi.sakusaisa.tiralabra.core.GridCell;
 import fi.sakusaisa.tiralabra.datastructures.AvlTree;
 
 public class AvlTreeTest {
 
+	// the movementCosts of the cells, indexed by cell
+	private float[] keys = new float[100];
+
 	@Test
 	public void test() {
-		
-		AvlTree testTree = new AvlTree();
-		
-		GridCell testCell1 = new GridCell(10, 10);
-		testCell1.setMovementCost(3);
-		
-		GridCell testCell2 = new GridCell(15, 15);
-		testCell2.setMovementCost(1);
-		
-		GridCell testCell3 = new GridCell(20, 20);
-		testCell3.setMovementCost(2);
 
-		GridCell testCell4 = new GridCell(25, 25);
-		testCell4.setMovementCost(0.5f);
+		AvlTree testTree = new AvlTree(keys);
 
-		GridCell testCell5 = new GridCell(25, 25);
-		testCell5.setMovementCost(2.5f);
+		keys[1] = 3;
+		keys[2] = 1;
+		keys[3] = 2;
+		keys[4] = 0.5f;
+		keys[5] = 2.5f;
+		keys[6] = 3.5f;
+		keys[7] = 1.5f;
+		keys[8] = 0.1f;
 
-		GridCell testCell6 = new GridCell(25, 25);
-		testCell6.setMovementCost(3.5f);
+		assertEquals(true, testTree.isEmpty());
 
-		GridCell testCell7 = new GridCell(25, 25);
-		testCell7.setMovementCost(1.5f);
+		testTree.insert(1);
+		assertEquals(false, testTree.isEmpty());
+		assertTrue(testTree.contains(1) != -1);
+		assertEquals(3, keys[testTree.findMin()], 0.0001);
 
-		GridCell testCell8 = new GridCell(25, 25);
-		testCell8.setMovementCost(0.1f);
+		testTree.insert(2);
+		assertEquals(1, keys[testTree.findMin()], 0.0001);
+
+		testTree.insert(3);
+		assertEquals(1, keys[testTree.findMin()], 0.0001);
+
+		assertTrue(testTree.contains(2) != -1);
+		assertEquals(-1, testTree.contains(4));
+
+		testTree.insert(4);
+		assertEquals(0.5f, keys[testTree.findMin()], 0.0001);
+
+		testTree.insert(5);
+		testTree.insert(6);
+		testTree.insert(7);
+
+		testTree.insert(8);
+		assertEquals(0.1f, keys[testTree.findMin()], 0.0001);
+
+		assertEquals(0.1f, keys[testTree.delMin()], 0.0001);
+		assertEquals(0.5f, keys[testTree.findMin()], 0.0001);
+
+		assertTrue(testTree.contains(6) != -1);
+		testTree.remove(6);
+		assertTrue(testTree.contains(6) == -1);
+
+	}
+
+	@Test
+	public void testDelMinKeepsTheRestOfTheTree() {
+
+		AvlTree testTree = new AvlTree(keys);
+
+		for (int i = 0; i < 50; i++) {
+			keys[i] = (i * 37) % 50;
+			testTree.insert(i);
+		}
+
+		// the old delMin lost the right subtree of the minimum
+		for (int i = 0; i < 50; i++)
+			assertEquals(i, keys[testTree.delMin()], 0.0001);
+		assertTrue(testTree.isEmpty());
+
+	}
+
+	@Test
+	public void testDecreaseKey() {
+
+		AvlTree testTree = new AvlTree(keys);
+
+		keys[0] = 5;
+		keys[1] = 7;
+		testTree.insert(0);
+		testTree.insert(1);
+
+		keys[1] = 2;
+		testTree.decreaseKey(1);
+		assertEquals(2, testTree.getSize());
+
+		assertEquals(1, testTree.delMin());
+		assertEquals(0, testTree.delMin());
+		assertEquals(-1, testTree.delMin());
+
+	}
+
+	@Test
+	public void testKeysFrozenAtInsert() {
+
+		AvlTree testTree = new AvlTree(keys);
+
+		keys[0] = 1;
+		keys[1] = 2;
+		testTree.insert(0);
+		testTree.insert(1);
+
+		// changing a key behind the tree's back doesn't reorder it
+		keys[1] = 0;
+		assertEquals(0, testTree.delMin());
+
+		// ties go to the smaller cell
+		keys[5] = 4;
+		keys[3] = 4;
+		testTree.insert(5);
+		testTree.insert(3);
+		assertEquals(1, testTree.delMin());
+		assertEquals(3, testTree.delMin());
+		assertEquals(5, testTree.delMin());
+
+	}
+
+	@Test
+	public void testHandles() {
+
+		AvlTree testTree = new AvlTree(keys);
+
+		for (int i = 0; i < 10; i++) {
+			keys[i] = i;
+			testTree.insert(i);
+		}
+
+		// a key can go up through the handle too, and the handle stays the same
+		int handle = testTree.contains(2);
+		keys[2] = 20;
+		testTree.updateKey(handle);
+		assertEquals(handle, testTree.contains(2));
+
+		testTree.removeNode(testTree.contains(4));
+		assertEquals(-1, testTree.contains(4));
+		assertEquals(9, testTree.getSize());
+
+		int[] expected = { 0, 1, 3, 5, 6, 7, 8, 9, 2 };
+		for (int i = 0; i < expected.length; i++)
+			assertEquals(expected[i], testTree.delMin());
+
+	}
+
+	@Test
+	public void testStaysBalanced() {
+
+		AvlTree testTree = new AvlTree(keys);
+		Random random = new Random(7);
+
+		for (int round = 0; round < 3; round++) {
+
+			testTree.clear(false);
+			for (int i = 0; i < keys.length; i++) {
+				keys[i] = round == 0 ? i : random.nextInt(20);
+				testTree.insert(i);
+			}
+
+			// an AVL tree of n nodes is at most about 1.44 * log2(n) high
+			assertTrue(testTree.getHeight() <= 1.45 * Math.log(keys.length) / Math.log(2));
+
+			for (int i = 0; i < keys.length; i += 2)
+				testTree.remove(i);
+			assertEquals(keys.length / 2, testTree.getSize());
+			assertTrue(testTree.getHeight() <= 1.45 * Math.log(keys.length / 2) / Math.log(2));
+
+			float previous = -1;
+			while (!testTree.isEmpty()) {
+				int cell = testTree.delMin();
+				assertTrue(cell % 2 == 1);
+				assertTrue(keys[cell] >= previous);
+				previous = keys[cell];
+			}
+
+		}
 
-		assertEquals(true, testTree.isEmpty());
-		
-		testTree.insert(testCell1);
-		assertEquals(false, testTree.isEmpty());
-		assertTrue(testTree.contains(testCell1) != null);
-		assertEquals(3, testTree.getMin().getMovementCost(), 0.0001);
-		
-		testTree.insert(testCell2);
-		assertEquals(1, testTree.getMin().getMovementCost(), 0.0001);
-		
-		testTree.insert(testCell3);
-		assertEquals(1, testTree.getMin().getMovementCost(), 0.0001);
-
-		assertTrue(testTree.contains(testCell2) != null);
-		assertEquals(null, testTree.contains(testCell4));
-		
-		testTree.insert(testCell4);
-		assertEquals(0.5f, testTree.getMin().getMovementCost(), 0.0001);
-		
-		testTree.insert(testCell5);
-		testTree.insert(testCell6);
-		testTree.insert(testCell7);
-		
-		testTree.insert(testCell8);
-		assertEquals(0.1f, testTree.getMin().getMovementCost(), 0.0001);
-	
-		assertEquals(0.1f, testTree.delMin().getMovementCost(), 0.0001);
-		assertEquals(0.5f, testTree.getMin().getMovementCost(), 0.0001);
-		
-		assertTrue(testTree.contains(testCell6) != null);
-		testTree.remove(testCell6);
-		assertTrue(testTree.contains(testCell6) == null);
-			
 	}
 
 }
@@ -0,0 +1,132 @@
+package fi.sakusaisa.tiralabra.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import fi.sakusaisa.tiralabra.core.BatchPathFinder;
+import fi.sakusaisa.tiralabra.core.Grid;
+import fi.sakusaisa.tiralabra.core.PathFinder;
+import fi.sakusaisa.tiralabra.core.PathQuery;
+import fi.sakusaisa.tiralabra.core.PathResult;
+import fi.sakusaisa.tiralabra.core.SearchAlgorithm;
+
+public class BatchPathFinderTest {
+
+	private Grid randomGrid(Random random) {
+
+		Grid grid = new Grid(60, 40);
+		for (int i = 0; i < 60; i++) {
+			for (int j = 0; j < 40; j++) {
+				if (random.nextFloat() < 0.25f)
+					grid.setCellData(i, j, 0);
+			}
+		}
+		return grid;
+
+	}
+
+	@Test
+	public void testMatchesSequentialSearches() {
+
+		Random random = new Random(17);
+		Grid grid = randomGrid(random);
+
+		PathQuery[] queries = new PathQuery[500];
+		for (int i = 0; i < queries.length; i++) {
+			queries[i] = new PathQuery(random.nextInt(60), random.nextInt(40), random.nextInt(60), random.nextInt(40));
+			queries[i].setDiagonalMoveAllowed(i % 2 == 0);
+			queries[i].setAlgorithm(SearchAlgorithm.values()[i % SearchAlgorithm.values().length]);
+		}
+
+		BatchPathFinder batch = new BatchPathFinder(grid, 4);
+		PathResult[] results = batch.findPaths(queries);
+		batch.shutdown();
+
+		PathFinder pathFinder = new PathFinder(grid);
+		assertEquals(queries.length, results.length);
+		for (int i = 0; i < queries.length; i++) {
+			PathResult expected = pathFinder.findPath(queries[i]);
+			assertEquals(expected.isPathFound(), results[i].isPathFound());
+			assertEquals(expected.getCost(), results[i].getCost(), 0.0001f);
+			assertEquals(expected.getNodesExpanded(), results[i].getNodesExpanded());
+		}
+
+	}
+
+	@Test
+	public void testRepeatedBatches() {
+
+		Random random = new Random(19);
+		BatchPathFinder batch = new BatchPathFinder(randomGrid(random), 3);
+
+		PathQuery[] queries = new PathQuery[100];
+		for (int i = 0; i < queries.length; i++)
+			queries[i] = new PathQuery(0, 0, 59, 39);
+
+		PathResult[] first = batch.findPaths(queries);
+		PathResult[] second = batch.findPaths(queries);
+		for (int i = 0; i < queries.length; i++)
+			assertEquals(first[0].getCost(), second[i].getCost(), 0.0001f);
+
+		assertEquals(0, batch.findPaths(new PathQuery[0]).length);
+		batch.shutdown();
+
+	}
+
+	@Test
+	public void testGridEditedBetweenBatches() {
+
+		// the workers share the tables derived from the grid, whichever of them catches up with the edits
+		Random random = new Random(23);
+		Grid grid = randomGrid(random);
+		BatchPathFinder batch = new BatchPathFinder(grid, 3);
+		PathFinder pathFinder = new PathFinder(grid);
+
+		PathQuery[] queries = new PathQuery[200];
+		for (int i = 0; i < queries.length; i++) {
+			queries[i] = new PathQuery(random.nextInt(60), random.nextInt(40), random.nextInt(60), random.nextInt(40));
+			queries[i].setDiagonalMoveAllowed(i % 2 == 0);
+		}
+
+		for (int round = 0; round < 3; round++) {
+
+			for (int edit = 0; edit < 300; edit++) {
+				int x = random.nextInt(60), y = random.nextInt(40);
+				grid.setCellData(x, y, grid.isPassable(grid.index(x, y)) ? 0 : 1);
+			}
+
+			PathResult[] results = batch.findPaths(queries);
+			for (int i = 0; i < queries.length; i++) {
+				PathResult expected = pathFinder.findPath(queries[i]);
+				assertEquals(expected.isPathFound(), results[i].isPathFound());
+				assertEquals(expected.getCost(), results[i].getCost(), 0.0001f);
+			}
+
+		}
+
+		batch.shutdown();
+
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBadQuery() {
+
+		BatchPathFinder batch = new BatchPathFinder(new Grid(10, 10), 2);
+		PathQuery[] queries = new PathQuery[50];
+		for (int i = 0; i < queries.length; i++)
+			queries[i] = new PathQuery(0, 0, 9, 9);
+		queries[37] = new PathQuery(0, 0, 10, 9);
+
+		try {
+			batch.findPaths(queries);
+		}
+		finally {
+			batch.shutdown();
+		}
+
+	}
+
+}
@@ -5,6 +5,7 @@ import java.util.Comparator;
 import java.util.PriorityQueue;
 import java.util.Random;
 
+import fi.sakusaisa.tiralabra.core.Grid;
 import fi.sakusaisa.tiralabra.core.GridCell;
 import fi.sakusaisa.tiralabra.datastructures.ClosedSet;
 import fi.sakusaisa.tiralabra.datastructures.MinBinaryHeap;
@@ -18,6 +19,10 @@ public class Benchmark {
 
 	private GridCell[][] gridCells;
 	
+	// the same cells and costs as indices for the custom structures
+	private Grid grid;
+	private float[] movementCosts;
+	
 	private ClosedSet customClosedSet;
     private ArrayList<GridCell> prebuiltClosedSet;
 
@@ -33,6 +38,8 @@ public class Benchmark {
 	public Benchmark(int x, int y) {
 
 		gridCells = new GridCell[x][y];
+		grid = new Grid(x, y);
+		movementCosts = new float[grid.getCellCount()];
 		Random random = new Random();
 		
 		/* Fill the grid with GridCells and randomize their movementCosts so
@@ -42,13 +49,14 @@ public class Benchmark {
 			for (int j = 0; j < y; j++) {
 				gridCells[i][j] = new GridCell(i, j);
 				gridCells[i][j].setMovementCost(random.nextFloat() * 3f + 0.0000001f);
+				movementCosts[grid.index(i, j)] = gridCells[i][j].getMovementCost();
 			}
 		}
 			
-		customClosedSet = new ClosedSet(x, y);
+		customClosedSet = new ClosedSet(grid.getCellCount());
 		prebuiltClosedSet = new ArrayList<GridCell>();
 		
-		customOpenSet = new MinBinaryHeap(100);
+		customOpenSet = new MinBinaryHeap(100, movementCosts);
 		prebuiltOpenSet = new PriorityQueue<GridCell>(100, new Comparator<GridCell>() {
  			@Override
  			public int compare(GridCell gc1, GridCell gc2) {
@@ -72,6 +80,7 @@ public class Benchmark {
 		float averageTime;
 		boolean verbose;
 		GridCell testCell1, testCell2;
+		int testIndex1, testIndex2;
 		
 		xSize = 1200;
 		ySize = 1200;
@@ -115,7 +124,7 @@ public class Benchmark {
 			benchmarker.customClosedSet.clear();
 			for (int i = 0; i < xSize; i++) {
 				for (int j = 0; j < ySize; j++) {
-					benchmarker.customClosedSet.insert(benchmarker.gridCells[i][j]);
+					benchmarker.customClosedSet.insert(benchmarker.grid.index(i, j));
 				}
 			}
 			endTime = System.currentTimeMillis();
@@ -158,16 +167,16 @@ public class Benchmark {
 		benchmarker.customClosedSet.clear();
 		for (int i = 0; i < xSize; i++) {
 			for (int j = 0; j < ySize; j++) {
-				benchmarker.customClosedSet.insert(benchmarker.gridCells[i][j]);
+				benchmarker.customClosedSet.insert(benchmarker.grid.index(i, j));
 			}
 		}
-		testCell1 = benchmarker.gridCells[xSize-xSize/10][ySize-ySize/10];
-		testCell2 = new GridCell(-1, -1);
+		testIndex1 = benchmarker.grid.index(xSize-xSize/10, ySize-ySize/10);
+		testIndex2 = -1;
 		for (int k = 0; k < runTests; k++) {
 			if (verbose) System.out.print(" [iteration " + (k+1) +"/" + runTests + "] checking prebuilt arraylist for a GridCell that exists and another that doesn't exist in it ..");
 			startTime = System.currentTimeMillis();
-			boolean found = benchmarker.customClosedSet.contains(testCell1);
-			boolean found2 = benchmarker.customClosedSet.contains(testCell2);
+			boolean found = benchmarker.customClosedSet.contains(testIndex1);
+			boolean found2 = benchmarker.customClosedSet.contains(testIndex2);
 			endTime = System.currentTimeMillis();
 			timeTaken = endTime - startTime;
 			totalTime += timeTaken;
@@ -207,7 +216,7 @@ public class Benchmark {
 			benchmarker.customOpenSet.clear(false);
 			for (int i = 0; i < xSize; i++) {
 				for (int j = 0; j < ySize; j++) {
-					benchmarker.customOpenSet.insert(benchmarker.gridCells[i][j]);		
+					benchmarker.customOpenSet.insert(benchmarker.grid.index(i, j));		
 				}
 			}
 			endTime = System.currentTimeMillis();
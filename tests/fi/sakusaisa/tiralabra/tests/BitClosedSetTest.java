@@ -0,0 +1,73 @@
+package fi.sakusaisa.tiralabra.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import fi.sakusaisa.tiralabra.core.Grid;
+import fi.sakusaisa.tiralabra.datastructures.BitClosedSet;
+
+public class BitClosedSetTest {
+
+	private Grid grid = new Grid(50, 50);
+
+	@Test
+	public void testInsertAndClear() {
+
+		BitClosedSet testSet = new BitClosedSet(grid.getCellCount());
+		assertEquals(grid.getCellCount(), testSet.getSize());
+		assertFalse(testSet.contains(grid.index(15, 29)));
+
+		testSet.insert(grid.index(15, 29));
+		testSet.insert(grid.index(0, 0));
+		testSet.insert(grid.index(49, 49));
+		assertTrue(testSet.contains(grid.index(15, 29)));
+		assertTrue(testSet.contains(grid.index(0, 0)));
+		assertTrue(testSet.contains(grid.index(49, 49)));
+		assertFalse(testSet.contains(grid.index(16, 29)));
+		assertFalse(testSet.contains(-1));
+		assertFalse(testSet.contains(grid.getCellCount()));
+
+		testSet.clear();
+		assertFalse(testSet.contains(grid.index(15, 29)));
+		assertFalse(testSet.contains(grid.index(0, 0)));
+		assertFalse(testSet.contains(grid.index(49, 49)));
+
+	}
+
+	@Test
+	public void testBulkReads() {
+
+		Random random = new Random(4);
+		BitClosedSet testSet = new BitClosedSet(1000);
+		boolean[] inSet = new boolean[1000];
+
+		for (int round = 0; round < 3; round++) {
+
+			testSet.clear();
+			for (int i = 0; i < inSet.length; i++) {
+				inSet[i] = random.nextInt(10) == 0;
+				if (inSet[i])
+					testSet.insert(i);
+			}
+
+			for (int first = 0; first < inSet.length; first += 7) {
+
+				long bits = testSet.getBits(first);
+				for (int i = 0; i < 64; i++)
+					assertEquals(first + i < inSet.length && inSet[first + i], (bits & (1L << i)) != 0);
+
+				int next = first;
+				while (next < inSet.length && !inSet[next])
+					next++;
+				assertEquals(next == inSet.length ? -1 : next, testSet.nextCell(first));
+
+			}
+
+		}
+
+	}
+
+}
@@ -0,0 +1,144 @@
+package fi.sakusaisa.tiralabra.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import fi.sakusaisa.tiralabra.core.Grid;
+import fi.sakusaisa.tiralabra.core.PathFinder;
+import fi.sakusaisa.tiralabra.core.PathQuery;
+import fi.sakusaisa.tiralabra.core.SearchAlgorithm;
+import fi.sakusaisa.tiralabra.datastructures.BucketQueue;
+
+public class BucketQueueTest {
+
+	// the movementCosts of the cells, indexed by cell
+	private float[] keys = new float[1000];
+
+	@Test
+	public void testInsertAndDelMin() {
+
+		BucketQueue queue = new BucketQueue(4, keys);
+		assertTrue(queue.isEmpty());
+		assertEquals(-1, queue.delMin());
+
+		keys[0] = 5;
+		keys[1] = 2;
+		keys[2] = 40;
+		keys[3] = 2;
+		for (int i = 0; i < 4; i++)
+			queue.insert(i);
+		assertEquals(4, queue.getSize());
+
+		// equal keys come out last in, first out
+		assertEquals(3, queue.delMin());
+		assertEquals(1, queue.delMin());
+		assertEquals(0, queue.findMin());
+		assertEquals(0, queue.delMin());
+		assertEquals(2, queue.delMin());
+		assertTrue(queue.isEmpty());
+
+	}
+
+	@Test
+	public void testDecreaseKey() {
+
+		BucketQueue queue = new BucketQueue(16, keys);
+
+		keys[0] = 7;
+		keys[1] = 9;
+		queue.insert(0);
+		queue.insert(1);
+
+		keys[1] = 3;
+		queue.decreaseKey(1);
+		assertEquals(1, queue.delMin());
+		assertEquals(-1, queue.contains(1));
+		assertEquals(7, queue.contains(0));
+
+	}
+
+	@Test
+	public void testClear() {
+
+		BucketQueue queue = new BucketQueue(16, keys);
+
+		keys[0] = 3;
+		keys[1] = 12;
+		queue.insert(0);
+		queue.insert(1);
+
+		queue.clear(false);
+		assertTrue(queue.isEmpty());
+		assertEquals(-1, queue.contains(0));
+		assertEquals(-1, queue.findMin());
+
+		keys[2] = 12;
+		queue.insert(2);
+		assertEquals("the cleared cells shouldn't come back", 2, queue.delMin());
+		assertTrue(queue.isEmpty());
+
+	}
+
+	@Test
+	public void testMatchesSortedOrder() {
+
+		Random random = new Random(5);
+		BucketQueue queue = new BucketQueue(1, keys);
+
+		for (int round = 0; round < 10; round++) {
+
+			queue.clear(round % 3 == 0);
+			for (int i = 0; i < keys.length; i++) {
+				keys[i] = random.nextInt(2000);
+				queue.insert(i);
+			}
+
+			float previous = -1;
+			while (!queue.isEmpty()) {
+				int cell = queue.delMin();
+				assertTrue(keys[cell] >= previous);
+				previous = keys[cell];
+			}
+
+		}
+
+	}
+
+	@Test
+	public void testSearchesWithoutDiagonalsStayOptimal() {
+
+		Random random = new Random(21);
+		Grid grid = new Grid(60, 60);
+		for (int i = 0; i < 60; i++) {
+			for (int j = 0; j < 60; j++) {
+				if (random.nextFloat() < 0.3f)
+					grid.setCellData(i, j, 0);
+			}
+		}
+		grid.setCellData(0, 0, 1);
+		grid.setCellData(59, 59, 1);
+
+		PathFinder pathFinder = new PathFinder(grid);
+
+		// diagonal moves off and no tie breaker, so every search here runs on bucket queues;
+		// with the tie breaker the keys aren't whole numbers and the binary heap is used
+		PathQuery query = new PathQuery(0, 0, 59, 59);
+		query.setUseTieBreaker(true);
+		query.setAlgorithm(SearchAlgorithm.A_STAR);
+		float optimal = pathFinder.findPath(query).getCost();
+		query.setUseTieBreaker(false);
+
+		for (SearchAlgorithm algorithm : SearchAlgorithm.values()) {
+			for (int bidirectional = 0; bidirectional < 2; bidirectional++) {
+				query.setAlgorithm(algorithm);
+				query.setBidirectional(bidirectional == 1);
+				assertEquals(algorithm + " " + bidirectional, optimal, pathFinder.findPath(query).getCost(), 0.0001f);
+			}
+		}
+
+	}
+
+}
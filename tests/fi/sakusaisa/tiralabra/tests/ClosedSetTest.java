@@ -4,77 +4,93 @@ import static org.junit.Assert.*;
 
 import org.junit.Test;
 
-import fi.sakusaisa.tiralabra.core.GridCell;
+import fi.sakusaisa.tiralabra.core.Grid;
 import fi.sakusaisa.tiralabra.datastructures.ClosedSet;
 
 public class ClosedSetTest {
 
+	private Grid grid = new Grid(50, 50);
 
 	@Test
 	public void testClosedSet() {
-		ClosedSet testSet = new ClosedSet(50, 50);
-		assertEquals("cell should be set as false (=initialized and empty)", false, testSet.getDataMatrix()[15][29]);
+		ClosedSet testSet = new ClosedSet(grid.getCellCount());
+		assertEquals("cell should not be in the set (=initialized and empty)", false, testSet.contains(grid.index(15, 29)));
+		assertEquals(grid.getCellCount(), testSet.getSize());
 	}
-	
+
 	@Test
 	public void testClear() {
-		
-		ClosedSet testSet = new ClosedSet(50, 50);
-		
-		testSet.getDataMatrix()[15][15] = true;
-		testSet.getDataMatrix()[10][43] = true;
-		testSet.getDataMatrix()[32][39] = true;
-		testSet.getDataMatrix()[27][21] = true;
-		testSet.getDataMatrix()[43][7] = true;
-		
-		assertEquals("cell should be set as true", true, testSet.getDataMatrix()[15][15]);
-		assertEquals("cell should be set as true", true, testSet.getDataMatrix()[10][43]);
-		assertEquals("cell should be set as true", true, testSet.getDataMatrix()[32][39]);
-		assertEquals("cell should be set as true", true, testSet.getDataMatrix()[27][21]);
-		assertEquals("cell should be set as true", true, testSet.getDataMatrix()[43][7]);
-		
+
+		ClosedSet testSet = new ClosedSet(grid.getCellCount());
+
+		testSet.insert(grid.index(15, 15));
+		testSet.insert(grid.index(10, 43));
+		testSet.insert(grid.index(32, 39));
+		testSet.insert(grid.index(27, 21));
+		testSet.insert(grid.index(43, 7));
+
+		assertEquals("cell should be in the set", true, testSet.contains(grid.index(15, 15)));
+		assertEquals("cell should be in the set", true, testSet.contains(grid.index(10, 43)));
+		assertEquals("cell should be in the set", true, testSet.contains(grid.index(32, 39)));
+		assertEquals("cell should be in the set", true, testSet.contains(grid.index(27, 21)));
+		assertEquals("cell should be in the set", true, testSet.contains(grid.index(43, 7)));
+
 		testSet.clear();
 
-		assertEquals("cell should be set as false", false, testSet.getDataMatrix()[15][15]);
-		assertEquals("cell should be set as false", false, testSet.getDataMatrix()[10][43]);
-		assertEquals("cell should be set as false", false, testSet.getDataMatrix()[32][39]);
-		assertEquals("cell should be set as false", false, testSet.getDataMatrix()[27][21]);
-		assertEquals("cell should be set as false", false, testSet.getDataMatrix()[43][7]);
-		
+		assertEquals("cell should not be in the set", false, testSet.contains(grid.index(15, 15)));
+		assertEquals("cell should not be in the set", false, testSet.contains(grid.index(10, 43)));
+		assertEquals("cell should not be in the set", false, testSet.contains(grid.index(32, 39)));
+		assertEquals("cell should not be in the set", false, testSet.contains(grid.index(27, 21)));
+		assertEquals("cell should not be in the set", false, testSet.contains(grid.index(43, 7)));
+
 	}
-	
+
+	@Test
+	public void testManyClears() {
+
+		ClosedSet testSet = new ClosedSet(grid.getCellCount());
+
+		// every generation sees only its own cell
+		for (int i = 0; i < grid.getCellCount(); i++) {
+			testSet.clear();
+			testSet.insert(i);
+			assertEquals(true, testSet.contains(i));
+			if (i > 0)
+				assertEquals("the previous generation should be gone", false, testSet.contains(i - 1));
+		}
+
+	}
+
 	@Test
 	public void testInsert() {
-		
-		ClosedSet testSet = new ClosedSet(50, 50);
-		GridCell testCell = new GridCell(25, 32);
-		
-		assertEquals("cell should be set as false", false, testSet.getDataMatrix()[25][32]);
-		
+
+		ClosedSet testSet = new ClosedSet(grid.getCellCount());
+		int testCell = grid.index(25, 32);
+
+		assertEquals("cell should not be in the set", false, testSet.contains(testCell));
+
 		testSet.insert(testCell);
-		
-		assertEquals("cell should be set as true", true, testSet.getDataMatrix()[25][32]);
-		
+
+		assertEquals("cell should be in the set", true, testSet.contains(testCell));
+
 	}
-	
+
 	@Test
 	public void testContains() {
-	
-		ClosedSet testSet = new ClosedSet(50, 50);
-		
-		GridCell testCell1 = new GridCell(25, 32);
-		GridCell testCell2 = new GridCell(45, 15);
-		
+
+		ClosedSet testSet = new ClosedSet(grid.getCellCount());
+
+		int testCell1 = grid.index(25, 32);
+		int testCell2 = grid.index(45, 15);
+
 		testSet.insert(testCell1);
-		
-		assertEquals("cell should be set as true", true, testSet.getDataMatrix()[25][32]);
+
 		assertEquals("should be true", true, testSet.contains(testCell1));
-		
-		assertEquals("cell should be set as false", false, testSet.getDataMatrix()[45][15]);
 		assertEquals("should be false", false, testSet.contains(testCell2));
-		
+		assertEquals("outside the grid should be false", false, testSet.contains(-1));
+
 	}
 
-	
-	
+
+
 }
@@ -0,0 +1,228 @@
+package fi.sakusaisa.tiralabra.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import fi.sakusaisa.tiralabra.core.BatchPathFinder;
+import fi.sakusaisa.tiralabra.core.ConnectedComponents;
+import fi.sakusaisa.tiralabra.core.Grid;
+import fi.sakusaisa.tiralabra.core.PathFinder;
+import fi.sakusaisa.tiralabra.core.PathQuery;
+import fi.sakusaisa.tiralabra.core.PathResult;
+
+public class ConnectedComponentsTest {
+
+	private Grid randomGrid(Random random, int size, float density) {
+		Grid grid = new Grid(size, size);
+		for (int x = 0; x < size; x++)
+			for (int y = 0; y < size; y++)
+				if (random.nextFloat() < density)
+					grid.setCellData(x, y, 0);
+		return grid;
+	}
+
+	/**
+	 * Checks that two labellings group the cells the same way, whatever the component numbers.
+	 */
+	private void assertSameComponents(ConnectedComponents expected, ConnectedComponents actual, int cellCount) {
+		assertEquals(expected.getComponentCount(), actual.getComponentCount());
+		// the component numbers are labels, of which there can be a few times more than cells
+		int[] expectedOf = new int[3 * cellCount + 64];
+		int[] actualOf = new int[3 * cellCount + 64];
+		for (int i = 0; i < expectedOf.length; i++) {
+			expectedOf[i] = -2;
+			actualOf[i] = -2;
+		}
+		for (int cell = 0; cell < cellCount; cell++) {
+			int expectedComponent = expected.getComponent(cell);
+			int actualComponent = actual.getComponent(cell);
+			assertEquals(expectedComponent == -1, actualComponent == -1);
+			if (expectedComponent == -1)
+				continue;
+			// the first cell of every component fixes which component of the other it maps to
+			if (expectedOf[actualComponent] == -2 && actualOf[expectedComponent] == -2) {
+				expectedOf[actualComponent] = expectedComponent;
+				actualOf[expectedComponent] = actualComponent;
+			}
+			assertEquals(expectedComponent, expectedOf[actualComponent]);
+			assertEquals(actualComponent, actualOf[expectedComponent]);
+		}
+	}
+
+	@Test
+	public void testFourAndEightConnectivity() {
+
+		// a diagonal wall splits the grid in two without diagonal moves, but not with them
+		Grid grid = new Grid(5, 5);
+		for (int i = 0; i < 5; i++)
+			grid.setCellData(i, 4 - i, 0);
+		grid.setCellData(0, 0, 0);
+
+		ConnectedComponents four = new ConnectedComponents(grid, false);
+		ConnectedComponents eight = new ConnectedComponents(grid, true);
+
+		assertFalse(four.isDiagonal());
+		assertTrue(eight.isDiagonal());
+		assertEquals(2, four.getComponentCount());
+		assertEquals(1, eight.getComponentCount());
+		assertFalse(four.areConnected(grid.index(1, 0), grid.index(4, 4)));
+		assertTrue(eight.areConnected(grid.index(1, 0), grid.index(4, 4)));
+		assertEquals(-1, four.getComponent(grid.index(0, 0)));
+		assertFalse(eight.areConnected(grid.index(0, 0), grid.index(1, 0)));
+
+	}
+
+	@Test
+	public void testMergeAndSplit() {
+
+		// a wall down the middle with a single gap
+		Grid grid = new Grid(9, 9);
+		for (int y = 0; y < 9; y++)
+			grid.setCellData(4, y, 0);
+		ConnectedComponents components = new ConnectedComponents(grid, false);
+		assertEquals(2, components.getComponentCount());
+
+		grid.setCellData(4, 4, 1);
+		components.update();
+		assertEquals(1, components.getComponentCount());
+		assertTrue(components.areConnected(grid.index(0, 0), grid.index(8, 8)));
+
+		grid.setCellData(4, 4, 0);
+		components.update();
+		assertEquals(2, components.getComponentCount());
+		assertFalse(components.areConnected(grid.index(0, 0), grid.index(8, 8)));
+		assertTrue(components.areConnected(grid.index(0, 0), grid.index(3, 8)));
+
+		// a lone cell comes and goes
+		grid.setCellData(0, 1, 0);
+		grid.setCellData(1, 0, 0);
+		components.update();
+		assertEquals(3, components.getComponentCount());
+		grid.setCellData(0, 0, 0);
+		components.update();
+		assertEquals(2, components.getComponentCount());
+
+	}
+
+	@Test
+	public void testSplitOnlyRelabelsTheSmallerPiece() {
+
+		// cutting off a corner of a large open grid floods about as much as the corner holds
+		Grid grid = new Grid(200, 200);
+		ConnectedComponents components = new ConnectedComponents(grid, false);
+		for (int i = 0; i < 6; i++)
+			grid.setCellData(i, 5 - i, 0);
+		components.update();
+
+		assertEquals(2, components.getComponentCount());
+		assertFalse(components.areConnected(grid.index(0, 0), grid.index(199, 199)));
+		assertTrue(components.getCellsVisited() < 200);
+
+		// nor does a cell in the open with its neighbours joined around it flood far
+		long before = components.getCellsVisited();
+		grid.setCellData(100, 100, 0);
+		components.update();
+		assertEquals(2, components.getComponentCount());
+		assertTrue(components.getCellsVisited() - before < 50);
+
+	}
+
+	@Test
+	public void testSingleCellEditsMatchARelabelling() {
+
+		Random random = new Random(19);
+		for (boolean diagonal : new boolean[] { false, true }) {
+
+			Grid grid = randomGrid(random, 30, 0.35f);
+			ConnectedComponents components = new ConnectedComponents(grid, diagonal);
+
+			for (int edit = 0; edit < 600; edit++) {
+				int x = random.nextInt(30), y = random.nextInt(30);
+				grid.setCellData(x, y, grid.isPassable(grid.index(x, y)) ? 0 : 1);
+				// now and then several edits at once
+				if (random.nextInt(3) != 0) {
+					components.update();
+					assertSameComponents(new ConnectedComponents(grid, diagonal), components, grid.getCellCount());
+				}
+			}
+
+		}
+
+	}
+
+	@Test
+	public void testChangeLogOverflow() {
+
+		Random random = new Random(23);
+		Grid grid = randomGrid(random, 100, 0.3f);
+		ConnectedComponents components = new ConnectedComponents(grid, false);
+
+		for (int edit = 0; edit < Grid.CHANGE_LOG_SIZE + 100; edit++) {
+			int x = random.nextInt(100), y = random.nextInt(100);
+			grid.setCellData(x, y, grid.isPassable(grid.index(x, y)) ? 0 : 1);
+		}
+		components.update();
+
+		assertSameComponents(new ConnectedComponents(grid, false), components, grid.getCellCount());
+
+	}
+
+	@Test
+	public void testPathFinderRejectsSeparatedGoals() {
+
+		// the goal is walled in, but only without diagonal moves
+		Grid grid = new Grid(50, 50);
+		grid.setCellData(48, 49, 0);
+		grid.setCellData(49, 48, 0);
+
+		PathFinder pathFinder = new PathFinder(grid);
+		PathQuery query = new PathQuery(0, 0, 49, 49);
+		PathResult result = pathFinder.findPath(query);
+		assertFalse(result.isPathFound());
+		assertEquals(0, result.getNodesExpanded());
+		assertFalse(pathFinder.wasCellReached(0, 0));
+
+		query.setDiagonalMoveAllowed(true);
+		assertTrue(pathFinder.findPath(query).isPathFound());
+
+		// closing the diagonal gap and opening a wall again, between searches
+		grid.setCellData(48, 48, 0);
+		assertEquals(0, pathFinder.findPath(query).getNodesExpanded());
+		grid.setCellData(48, 49, 1);
+		query.setDiagonalMoveAllowed(false);
+		assertTrue(pathFinder.findPath(query).isPathFound());
+
+	}
+
+	@Test
+	public void testSharedByTheGrid() {
+
+		Grid grid = new Grid(40, 40);
+		for (int y = 0; y < 40; y++)
+			grid.setCellData(20, y, 0);
+
+		ConnectedComponents components = grid.getComponents(false);
+		assertSame(components, grid.getComponents(false));
+		assertNotSame(components, grid.getComponents(true));
+
+		// every worker rejects the queries across the wall with the same labels
+		BatchPathFinder batch = new BatchPathFinder(grid, 3);
+		PathQuery[] queries = new PathQuery[60];
+		for (int i = 0; i < queries.length; i++)
+			queries[i] = new PathQuery(i % 20, i % 40, 39 - i % 19, i % 40);
+		PathResult[] results = batch.findPaths(queries);
+		batch.shutdown();
+
+		for (PathResult result : results) {
+			assertFalse(result.isPathFound());
+			assertEquals(0, result.getNodesExpanded());
+		}
+		assertSame(components, grid.getComponents(false));
+		assertEquals(2, components.getComponentCount());
+
+	}
+
+}
@@ -0,0 +1,144 @@
+package fi.sakusaisa.tiralabra.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import fi.sakusaisa.tiralabra.core.FlowField;
+import fi.sakusaisa.tiralabra.core.FlowFieldCache;
+import fi.sakusaisa.tiralabra.core.Grid;
+import fi.sakusaisa.tiralabra.core.PathFinder;
+import fi.sakusaisa.tiralabra.core.PathQuery;
+import fi.sakusaisa.tiralabra.core.PathResult;
+
+public class FlowFieldTest {
+
+	private Grid randomGrid(Random random, int size) {
+		Grid grid = new Grid(size, size);
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				if (random.nextInt(10) < 3)
+					grid.setCellData(i, j, 0);
+			}
+		}
+		return grid;
+	}
+
+	@Test
+	public void testFieldPathsAreShortest() {
+
+		Random random = new Random(17);
+
+		for (int round = 0; round < 10; round++) {
+
+			Grid grid = randomGrid(random, 25);
+			boolean diagonal = round % 2 == 1;
+			int goalX = random.nextInt(25), goalY = random.nextInt(25);
+			grid.setCellData(goalX, goalY, 1);
+
+			FlowField field = new FlowField(grid, goalX, goalY, diagonal);
+			PathFinder pathFinder = new PathFinder(grid);
+
+			for (int x = 0; x < 25; x++) {
+				for (int y = 0; y < 25; y++) {
+
+					if (!grid.isPassable(grid.index(x, y)))
+						continue;
+
+					PathQuery query = new PathQuery(x, y, goalX, goalY);
+					query.setDiagonalMoveAllowed(diagonal);
+					PathResult expected = pathFinder.findPath(query);
+					PathResult followed = field.followPath(x, y);
+
+					assertEquals(expected.isPathFound(), followed.isPathFound());
+					assertEquals(expected.getCost(), followed.getCost(), 0.001f);
+					assertEquals(expected.getCost(), field.getDistance(x, y), 0.001f);
+					if (!followed.isPathFound())
+						continue;
+
+					// every step of the path is a single legal move to a passable cell
+					assertEquals(goalX, followed.getPathX(followed.getPathLength() - 1));
+					assertEquals(goalY, followed.getPathY(followed.getPathLength() - 1));
+					for (int i = 1; i < followed.getPathLength(); i++) {
+						int dx = Math.abs(followed.getPathX(i) - followed.getPathX(i - 1));
+						int dy = Math.abs(followed.getPathY(i) - followed.getPathY(i - 1));
+						assertTrue(dx <= 1 && dy <= 1 && dx + dy > 0 && (diagonal || dx + dy == 1));
+						assertTrue(grid.isPassable(grid.index(followed.getPathX(i), followed.getPathY(i))));
+					}
+
+				}
+			}
+
+			assertEquals(FlowField.NO_DIRECTION, field.getDirection(goalX, goalY));
+
+		}
+
+	}
+
+	@Test
+	public void testCacheSharesFieldsUntilGridChanges() {
+
+		Grid grid = new Grid(30, 30);
+		FlowFieldCache cache = new FlowFieldCache(grid, 4);
+
+		PathResult first = cache.findPath(new PathQuery(0, 0, 20, 20));
+		assertTrue(first.getNodesExpanded() > 0);
+		PathResult second = cache.findPath(new PathQuery(29, 0, 20, 20));
+		assertEquals(0, second.getNodesExpanded());
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, cache.getHits());
+
+		// the diagonal setting needs a field of its own
+		FlowField field = cache.getFlowField(20, 20, true);
+		assertEquals(2, cache.getFieldCount());
+		assertTrue(field.isUpToDate());
+
+		// any passability change makes every field out of date, other changes don't
+		grid.setCellData(5, 5, 2);
+		assertSame(field, cache.getFlowField(20, 20, true));
+		grid.setCellData(5, 5, 0);
+		assertFalse(field.isUpToDate());
+		assertNotSame(field, cache.getFlowField(20, 20, true));
+		assertEquals(1, cache.getFieldCount());
+
+	}
+
+	@Test
+	public void testCacheDropsLeastRecentlyUsed() {
+
+		Grid grid = new Grid(10, 10);
+		FlowFieldCache cache = new FlowFieldCache(grid, 2);
+
+		FlowField a = cache.getFlowField(1, 1, false);
+		cache.getFlowField(2, 2, false);
+		cache.getFlowField(1, 1, false);
+		cache.getFlowField(3, 3, false);
+		assertEquals(2, cache.getFieldCount());
+
+		assertSame(a, cache.getFlowField(1, 1, false));
+		int misses = cache.getMisses();
+		cache.getFlowField(2, 2, false);
+		assertEquals(misses + 1, cache.getMisses());
+
+	}
+
+	@Test
+	public void testUnreachableAndBlockedGoal() {
+
+		Grid grid = new Grid(10, 10);
+		for (int y = 0; y < 10; y++)
+			grid.setCellData(5, y, 0);
+
+		FlowField field = new FlowField(grid, 8, 8, true);
+		assertFalse(field.followPath(0, 0).isPathFound());
+		assertEquals(-1, field.getDistance(0, 0), 0);
+		assertTrue(field.followPath(9, 0).isPathFound());
+
+		field = new FlowField(grid, 5, 5, false);
+		assertFalse(field.followPath(6, 5).isPathFound());
+
+	}
+
+}
@@ -0,0 +1,120 @@
+package fi.sakusaisa.tiralabra.tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import fi.sakusaisa.tiralabra.core.Grid;
+
+public class GridTest {
+
+	@Test
+	public void testGrid() {
+
+		Grid grid = new Grid(30, 20);
+		assertEquals(600, grid.getCellCount());
+		assertEquals(1, grid.getCellData(29, 19));
+		assertEquals(0, grid.getChangeCount());
+
+	}
+
+	@Test
+	public void testIndex() {
+
+		Grid grid = new Grid(30, 20);
+		int index = grid.index(7, 13);
+		assertEquals(7, grid.getX(index));
+		assertEquals(13, grid.getY(index));
+
+	}
+
+	@Test
+	public void testPassabilityChangesAreLogged() {
+
+		Grid grid = new Grid(30, 20);
+
+		grid.setCellData(3, 4, 0);
+		grid.setCellData(3, 4, 0);
+		grid.setCellData(5, 6, 2);
+		grid.setCellData(3, 4, 4);
+
+		assertEquals("only changes between obstacle and passable count", 2, grid.getChangeCount());
+		assertEquals(grid.index(3, 4), grid.getChangedCell(0));
+		assertEquals(grid.index(3, 4), grid.getChangedCell(1));
+		assertEquals(-1, grid.getChangedCell(2));
+
+	}
+
+	@Test
+	public void testClearLogsObstacles() {
+
+		Grid grid = new Grid(30, 20);
+		grid.setCellData(1, 1, 0);
+		grid.setCellData(2, 2, 0);
+
+		grid.clear();
+		assertEquals(4, grid.getChangeCount());
+		assertTrue(grid.isPassable(grid.index(1, 1)));
+
+	}
+
+	@Test
+	public void testOldChangesAreForgotten() {
+
+		Grid grid = new Grid(100, 100);
+		for (int i = 0; i <= Grid.CHANGE_LOG_SIZE; i++)
+			grid.setCellData(i % 100, i / 100, 0);
+
+		assertEquals(Grid.CHANGE_LOG_SIZE + 1, grid.getChangeCount());
+		assertEquals(-1, grid.getChangedCell(0));
+		assertEquals(grid.index(1, 0), grid.getChangedCell(1));
+		assertEquals(grid.index(Grid.CHANGE_LOG_SIZE % 100, Grid.CHANGE_LOG_SIZE / 100), grid.getChangedCell(Grid.CHANGE_LOG_SIZE));
+
+	}
+
+	@Test
+	public void testVersionCountsEveryChange() {
+
+		Grid grid = new Grid(30, 20);
+		assertEquals(0, grid.getVersion());
+
+		grid.setCellData(3, 4, 2);
+		grid.setCellData(3, 4, 2);
+		assertEquals("setting the same data again isn't a change", 1, grid.getVersion());
+		grid.setCellData(3, 4, 0);
+		assertEquals(2, grid.getVersion());
+
+		grid.clear();
+		assertEquals("clearing is a single change", 3, grid.getVersion());
+		grid.clear();
+		assertEquals(3, grid.getVersion());
+
+	}
+
+	@Test
+	public void testChangedTiles() {
+
+		Grid grid = new Grid(40, 20);
+		assertEquals(3, grid.getTilesX());
+		assertEquals(2, grid.getTilesY());
+		int[] tiles = new int[grid.getTilesX() * grid.getTilesY()];
+
+		grid.setCellData(0, 0, 0);
+		int seen = grid.getVersion();
+		assertEquals(0, grid.getChangedTiles(seen, tiles));
+
+		grid.setCellData(Grid.TILE_SIZE, Grid.TILE_SIZE - 1, 3);
+		grid.setCellData(39, 19, 0);
+		assertFalse(grid.isTileChanged(0, 0, seen));
+		assertTrue(grid.isTileChanged(1, 0, seen));
+		assertTrue(grid.isTileChanged(2, 1, seen));
+		assertEquals(grid.getVersion(), grid.getTileVersion(2, 1));
+
+		assertEquals(2, grid.getChangedTiles(seen, tiles));
+		assertEquals(1, tiles[0]);
+		assertEquals(5, tiles[1]);
+		assertEquals(3, grid.getChangedTiles(0, tiles));
+
+	}
+
+}
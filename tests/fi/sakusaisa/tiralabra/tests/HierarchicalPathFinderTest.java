@@ -0,0 +1,217 @@
+package fi.sakusaisa.tiralabra.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import fi.sakusaisa.tiralabra.core.Grid;
+import fi.sakusaisa.tiralabra.core.HierarchicalPathFinder;
+import fi.sakusaisa.tiralabra.core.PathFinder;
+import fi.sakusaisa.tiralabra.core.PathQuery;
+import fi.sakusaisa.tiralabra.core.PathResult;
+
+public class HierarchicalPathFinderTest {
+
+	@Test
+	public void testStraightPathAcrossClusters() {
+
+		// the entrances of a corridor this narrow get their transition in the middle
+		HierarchicalPathFinder pathFinder = new HierarchicalPathFinder(new Grid(40, 5), 8);
+		PathResult result = pathFinder.findPath(new PathQuery(0, 2, 39, 2));
+
+		assertTrue(result.isPathFound());
+		assertEquals(39f, result.getCost(), 0.0001f);
+		assertEquals(40, result.getPathLength());
+
+	}
+
+	@Test
+	public void testMatchesFullSearch() {
+
+		Random random = new Random(11);
+
+		for (int map = 0; map < 20; map++) {
+
+			Grid grid = new Grid(50, 40);
+			for (int i = 0; i < 50; i++) {
+				for (int j = 0; j < 40; j++) {
+					if (random.nextFloat() < 0.25f)
+						grid.setCellData(i, j, 0);
+				}
+			}
+			grid.setCellData(0, 0, 1);
+			grid.setCellData(49, 39, 1);
+
+			HierarchicalPathFinder hierarchical = new HierarchicalPathFinder(grid, 7);
+			PathFinder full = new PathFinder(grid);
+
+			for (int diagonal = 0; diagonal < 2; diagonal++) {
+
+				PathQuery query = new PathQuery(0, 0, 49, 39);
+				query.setDiagonalMoveAllowed(diagonal == 1);
+				PathResult optimal = full.findPath(query);
+				PathResult result = hierarchical.findPath(query);
+
+				assertEquals(optimal.isPathFound(), result.isPathFound());
+				if (!result.isPathFound())
+					continue;
+
+				assertTrue("can't beat the optimal path", result.getCost() >= optimal.getCost() - 0.001f);
+				assertTrue("should stay near optimal", result.getCost() <= optimal.getCost() * 1.5f);
+
+				float cost = 0;
+				for (int i = 1; i < result.getPathLength(); i++) {
+					int dx = Math.abs(result.getPathX(i) - result.getPathX(i - 1));
+					int dy = Math.abs(result.getPathY(i) - result.getPathY(i - 1));
+					assertTrue("steps should be to adjacent cells", dx <= 1 && dy <= 1 && dx + dy > 0);
+					assertTrue(diagonal == 1 || dx + dy == 1);
+					assertTrue(grid.getCellData(result.getPathX(i), result.getPathY(i)) != 0);
+					cost += dx + dy == 2 ? PathFinder.DIAGONAL_COST : 1;
+				}
+				assertEquals("the cost should match the path", result.getCost(), cost, 0.001f);
+
+			}
+
+		}
+
+	}
+
+	@Test
+	public void testInteriorChangeRebuildsOneCluster() {
+
+		Grid grid = new Grid(40, 40);
+		HierarchicalPathFinder pathFinder = new HierarchicalPathFinder(grid, 10);
+		pathFinder.findPath(new PathQuery(0, 0, 39, 39));
+		assertEquals("the first query builds every cluster", 16, pathFinder.getClustersBuilt());
+
+		grid.setCellData(15, 15, 0);
+		pathFinder.findPath(new PathQuery(0, 0, 39, 39));
+		assertEquals(17, pathFinder.getClustersBuilt());
+
+		// a border cell is shared with the cluster on the other side
+		grid.setCellData(19, 15, 0);
+		pathFinder.findPath(new PathQuery(0, 0, 39, 39));
+		assertEquals(19, pathFinder.getClustersBuilt());
+
+		// changing the looks of a cell doesn't change what can be walked through
+		grid.setCellData(25, 25, 3);
+		pathFinder.findPath(new PathQuery(0, 0, 39, 39));
+		assertEquals(19, pathFinder.getClustersBuilt());
+
+	}
+
+	@Test
+	public void testGridChangesUpdatePaths() {
+
+		Grid grid = new Grid(30, 30);
+		HierarchicalPathFinder pathFinder = new HierarchicalPathFinder(grid, 8);
+		PathQuery query = new PathQuery(0, 0, 29, 0);
+		assertTrue(pathFinder.findPath(query).isPathFound());
+
+		// wall off the goal one cell at a time
+		for (int j = 0; j < 30; j++)
+			grid.setCellData(20, j, 0);
+		assertFalse(pathFinder.findPath(query).isPathFound());
+
+		// open a gap that crosses a cluster border
+		grid.setCellData(20, 16, 1);
+		PathResult result = pathFinder.findPath(query);
+		assertTrue(result.isPathFound());
+		assertEquals(new PathFinder(grid).findPath(query).getCost(), result.getCost(), 0.0001f);
+
+	}
+
+	@Test
+	public void testSameCluster() {
+
+		HierarchicalPathFinder pathFinder = new HierarchicalPathFinder(new Grid(32, 32), 16);
+		PathResult result = pathFinder.findPath(new PathQuery(2, 2, 5, 2));
+		assertEquals(3f, result.getCost(), 0.0001f);
+
+		result = pathFinder.findPath(new PathQuery(4, 4, 4, 4));
+		assertTrue(result.isPathFound());
+		assertEquals(1, result.getPathLength());
+
+	}
+
+	@Test
+	public void testObstacleStartOnClusterBorder() {
+
+		// the start is walled in on its own cluster's side, the only way off it is across the border
+		Grid grid = new Grid(19, 15);
+		grid.setCellData(11, 12, 0);
+		grid.setCellData(12, 12, 0);
+		grid.setCellData(11, 11, 0);
+		grid.setCellData(11, 13, 0);
+
+		HierarchicalPathFinder hierarchical = new HierarchicalPathFinder(grid, 11);
+		PathFinder full = new PathFinder(grid);
+
+		for (int diagonal = 0; diagonal < 2; diagonal++) {
+			PathQuery query = new PathQuery(11, 12, 5, 5);
+			query.setDiagonalMoveAllowed(diagonal == 1);
+			PathResult result = hierarchical.findPath(query);
+			assertTrue(result.isPathFound());
+			assertEquals(full.findPath(query).getCost(), result.getCost(), 0.0001f);
+		}
+
+	}
+
+	@Test
+	public void testSharedFallback() {
+
+		// an obstacle start goes to the fallback, which is the given PathFinder
+		Grid grid = new Grid(30, 30);
+		grid.setCellData(3, 3, 0);
+		PathFinder full = new PathFinder(grid);
+		HierarchicalPathFinder hierarchical = new HierarchicalPathFinder(grid, 8, full);
+
+		PathResult result = hierarchical.findPath(new PathQuery(3, 3, 20, 3));
+		assertEquals(17f, result.getCost(), 0.0001f);
+		assertTrue(full.wasCellReached(20, 3));
+
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFallbackOfAnotherGrid() {
+		new HierarchicalPathFinder(new Grid(20, 20), 8, new PathFinder(new Grid(20, 20)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooSmallClusters() {
+		new HierarchicalPathFinder(new Grid(10, 10), 1);
+	}
+
+	@Test
+	public void testReachedCellsListed() {
+
+		Random random = new Random(31);
+		Grid grid = new Grid(50, 40);
+		for (int i = 0; i < 50; i++) {
+			for (int j = 0; j < 40; j++) {
+				if (random.nextFloat() < 0.25f)
+					grid.setCellData(i, j, 0);
+			}
+		}
+		HierarchicalPathFinder pathFinder = new HierarchicalPathFinder(grid, 8);
+
+		// the obstacle starts go to the fallback, whose cells are listed instead
+		for (int q = 0; q < 30; q++) {
+
+			PathQuery query = new PathQuery(random.nextInt(50), random.nextInt(40), random.nextInt(50), random.nextInt(40));
+			query.setDiagonalMoveAllowed(q % 2 == 0);
+			pathFinder.findPath(query);
+
+			boolean[] listed = new boolean[grid.getCellCount()];
+			for (int i = 0; i < pathFinder.getReachedCellCount(); i++)
+				listed[pathFinder.getReachedCell(i)] = true;
+			for (int cell = 0; cell < grid.getCellCount(); cell++)
+				assertEquals(pathFinder.wasCellReached(grid.getX(cell), grid.getY(cell)), listed[cell]);
+
+		}
+
+	}
+
+}
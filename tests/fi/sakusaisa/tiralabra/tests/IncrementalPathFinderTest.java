@@ -0,0 +1,172 @@
+package fi.sakusaisa.tiralabra.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import fi.sakusaisa.tiralabra.core.Grid;
+import fi.sakusaisa.tiralabra.core.IncrementalPathFinder;
+import fi.sakusaisa.tiralabra.core.PathFinder;
+import fi.sakusaisa.tiralabra.core.PathQuery;
+import fi.sakusaisa.tiralabra.core.PathResult;
+import fi.sakusaisa.tiralabra.core.SearchAlgorithm;
+
+public class IncrementalPathFinderTest {
+
+	@Test
+	public void testStraightPath() {
+
+		IncrementalPathFinder pathFinder = new IncrementalPathFinder(new Grid(10, 10));
+		PathResult result = pathFinder.findPath(new PathQuery(0, 0, 9, 0));
+
+		assertTrue(result.isPathFound());
+		assertEquals(10, result.getPathLength());
+		assertEquals(9f, result.getCost(), 0.0001f);
+
+	}
+
+	@Test
+	public void testRepairMatchesFullSearch() {
+
+		Random random = new Random(13);
+
+		for (int map = 0; map < 10; map++) {
+
+			Grid grid = new Grid(40, 30);
+			for (int i = 0; i < 40; i++) {
+				for (int j = 0; j < 30; j++) {
+					if (random.nextFloat() < 0.25f)
+						grid.setCellData(i, j, 0);
+				}
+			}
+			grid.setCellData(39, 29, 1);
+
+			IncrementalPathFinder incremental = new IncrementalPathFinder(grid);
+			PathFinder full = new PathFinder(grid);
+			boolean diagonal = map % 2 == 1;
+			int startX = 0;
+			int startY = 0;
+
+			for (int round = 0; round < 20; round++) {
+
+				// toggle a couple of cells and move the start a little every now and then
+				for (int k = 0; k < 3; k++) {
+					int x = random.nextInt(40);
+					int y = random.nextInt(30);
+					if (x != 39 || y != 29)
+						grid.setCellData(x, y, grid.getCellData(x, y) == 0 ? 1 : 0);
+				}
+				if (round % 4 == 3) {
+					startX = Math.min(39, startX + 1);
+					startY = Math.min(29, startY + 1);
+				}
+
+				PathQuery query = new PathQuery(startX, startY, 39, 29);
+				query.setDiagonalMoveAllowed(diagonal);
+				PathResult optimal = full.findPath(query);
+				PathResult repaired = incremental.findPath(query);
+
+				assertEquals(optimal.isPathFound(), repaired.isPathFound());
+				assertEquals(optimal.getCost(), repaired.getCost(), 0.001f);
+
+				for (int i = 1; i < repaired.getPathLength(); i++) {
+					int dx = Math.abs(repaired.getPathX(i) - repaired.getPathX(i - 1));
+					int dy = Math.abs(repaired.getPathY(i) - repaired.getPathY(i - 1));
+					assertTrue("steps should be to adjacent cells", dx <= 1 && dy <= 1 && dx + dy > 0);
+					assertTrue(diagonal || dx + dy == 1);
+					assertTrue(grid.getCellData(repaired.getPathX(i), repaired.getPathY(i)) != 0);
+				}
+
+			}
+
+		}
+
+	}
+
+	@Test
+	public void testSingleToggleIsCheap() {
+
+		Grid grid = new Grid(100, 100);
+		for (int j = 10; j < 100; j++)
+			grid.setCellData(50, j, 0);
+
+		IncrementalPathFinder incremental = new IncrementalPathFinder(grid);
+		PathQuery query = new PathQuery(0, 99, 99, 99);
+		PathResult first = incremental.findPath(query);
+
+		// a cell far from the path turns into an obstacle
+		grid.setCellData(90, 5, 0);
+		PathResult repaired = incremental.findPath(query);
+
+		assertEquals(first.getCost(), repaired.getCost(), 0.0001f);
+		assertTrue("the repair should only touch a few cells", repaired.getNodesExpanded() * 100 < first.getNodesExpanded());
+
+		// opening the wall right on the way makes the path shorter
+		grid.setCellData(50, 99, 1);
+		repaired = incremental.findPath(query);
+		assertEquals(99f, repaired.getCost(), 0.0001f);
+
+		query.setAlgorithm(SearchAlgorithm.A_STAR);
+		assertEquals(new PathFinder(grid).findPath(query).getCost(), repaired.getCost(), 0.0001f);
+
+	}
+
+	@Test
+	public void testNoPathAndBack() {
+
+		Grid grid = new Grid(20, 20);
+		IncrementalPathFinder pathFinder = new IncrementalPathFinder(grid);
+		PathQuery query = new PathQuery(0, 0, 19, 19);
+		assertTrue(pathFinder.findPath(query).isPathFound());
+
+		for (int j = 0; j < 20; j++)
+			grid.setCellData(10, j, 0);
+		assertFalse(pathFinder.findPath(query).isPathFound());
+
+		grid.setCellData(10, 19, 1);
+		PathResult result = pathFinder.findPath(query);
+		assertTrue(result.isPathFound());
+		assertEquals(38f, result.getCost(), 0.0001f);
+
+	}
+
+	@Test
+	public void testNewGoalStartsOver() {
+
+		IncrementalPathFinder pathFinder = new IncrementalPathFinder(new Grid(20, 20));
+		assertEquals(19f, pathFinder.findPath(new PathQuery(0, 0, 19, 0)).getCost(), 0.0001f);
+		assertEquals(19f, pathFinder.findPath(new PathQuery(0, 0, 0, 19)).getCost(), 0.0001f);
+		assertEquals(0f, pathFinder.findPath(new PathQuery(0, 19, 0, 19)).getCost(), 0.0001f);
+
+	}
+
+	@Test
+	public void testExpandedCellsListed() {
+
+		Random random = new Random(29);
+		Grid grid = new Grid(40, 30);
+		IncrementalPathFinder pathFinder = new IncrementalPathFinder(grid);
+
+		for (int q = 0; q < 20; q++) {
+
+			// the later queries repair the previous search
+			for (int i = 0; i < 30; i++)
+				grid.setCellData(random.nextInt(40), random.nextInt(30), random.nextInt(4) == 0 ? 0 : 1);
+			pathFinder.findPath(new PathQuery(random.nextInt(40), random.nextInt(30), 39, 29));
+
+			boolean[] listed = new boolean[grid.getCellCount()];
+			for (int i = 0; i < pathFinder.getReachedCellCount(); i++) {
+				int cell = pathFinder.getReachedCell(i);
+				assertFalse("listed twice", listed[cell]);
+				listed[cell] = true;
+			}
+			for (int cell = 0; cell < grid.getCellCount(); cell++)
+				assertEquals(pathFinder.wasCellReached(grid.getX(cell), grid.getY(cell)), listed[cell]);
+
+		}
+
+	}
+
+}
@@ -0,0 +1,166 @@
+package fi.sakusaisa.tiralabra.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import fi.sakusaisa.tiralabra.core.FlowField;
+import fi.sakusaisa.tiralabra.core.Grid;
+import fi.sakusaisa.tiralabra.core.Landmarks;
+import fi.sakusaisa.tiralabra.core.PathFinder;
+import fi.sakusaisa.tiralabra.core.PathQuery;
+import fi.sakusaisa.tiralabra.core.PathResult;
+import fi.sakusaisa.tiralabra.core.SearchAlgorithm;
+
+public class LandmarksTest {
+
+	/**
+	 * A maze with one cell wide corridors, carved by a randomized depth first search.
+	 */
+	private Grid maze(Random random, int cellsX, int cellsY) {
+
+		Grid grid = new Grid(cellsX * 2 + 1, cellsY * 2 + 1);
+		for (int x = 0; x < grid.getWidth(); x++)
+			for (int y = 0; y < grid.getHeight(); y++)
+				grid.setCellData(x, y, 0);
+
+		int[] stack = new int[cellsX * cellsY];
+		boolean[] visited = new boolean[cellsX * cellsY];
+		int size = 0;
+		stack[size++] = 0;
+		visited[0] = true;
+		grid.setCellData(1, 1, 1);
+
+		int[] dx = { 1, -1, 0, 0 };
+		int[] dy = { 0, 0, 1, -1 };
+		while (size > 0) {
+			int current = stack[size - 1];
+			int x = current % cellsX, y = current / cellsX;
+			int first = random.nextInt(4);
+			boolean moved = false;
+			for (int d = 0; d < 4 && !moved; d++) {
+				int nx = x + dx[(first + d) % 4], ny = y + dy[(first + d) % 4];
+				if (nx < 0 || ny < 0 || nx >= cellsX || ny >= cellsY || visited[ny * cellsX + nx])
+					continue;
+				visited[ny * cellsX + nx] = true;
+				grid.setCellData(x + nx + 1, y + ny + 1, 1);
+				grid.setCellData(nx * 2 + 1, ny * 2 + 1, 1);
+				stack[size++] = ny * cellsX + nx;
+				moved = true;
+			}
+			if (!moved)
+				size--;
+		}
+
+		return grid;
+
+	}
+
+	@Test
+	public void testBoundsAreAdmissible() {
+
+		Random random = new Random(18);
+		for (int round = 0; round < 4; round++) {
+
+			boolean diagonal = round % 2 == 1;
+			Grid grid = new Grid(30, 30);
+			for (int i = 0; i < 200; i++)
+				grid.setCellData(random.nextInt(30), random.nextInt(30), 0);
+
+			Landmarks landmarks = new Landmarks(grid, 6, diagonal, 3);
+			assertEquals(6, landmarks.getCount());
+
+			for (int t = 0; t < 5; t++) {
+				int targetX = random.nextInt(30), targetY = random.nextInt(30);
+				grid.setCellData(targetX, targetY, 1);
+				landmarks = new Landmarks(grid, 6, diagonal, 3);
+				FlowField exact = new FlowField(grid, targetX, targetY, diagonal);
+				for (int x = 0; x < 30; x++) {
+					for (int y = 0; y < 30; y++) {
+						if (exact.getDistance(x, y) < 0)
+							continue;
+						float bound = landmarks.lowerBound(grid.index(x, y), grid.index(targetX, targetY));
+						assertTrue(bound <= exact.getDistance(x, y) + 0.001f);
+					}
+				}
+			}
+
+		}
+
+	}
+
+	@Test
+	public void testAltFindsOptimalPathsWithFewerExpansions() {
+
+		Random random = new Random(5);
+		Grid grid = maze(random, 30, 30);
+		PathFinder pathFinder = new PathFinder(grid);
+		pathFinder.setLandmarks(new Landmarks(grid, 8, false));
+
+		long plainExpanded = 0, altExpanded = 0;
+		for (int i = 0; i < 30; i++) {
+
+			PathQuery query = new PathQuery(random.nextInt(30) * 2 + 1, random.nextInt(30) * 2 + 1, random.nextInt(30) * 2 + 1, random.nextInt(30) * 2 + 1);
+			query.setAlgorithm(SearchAlgorithm.A_STAR);
+			PathResult plain = pathFinder.findPath(query);
+			query.setAlgorithm(SearchAlgorithm.ALT);
+			PathResult alt = pathFinder.findPath(query);
+
+			assertTrue(alt.isPathFound());
+			assertEquals(plain.getCost(), alt.getCost(), 0.001f);
+			plainExpanded += plain.getNodesExpanded();
+			altExpanded += alt.getNodesExpanded();
+
+		}
+
+		assertTrue(altExpanded * 2 < plainExpanded);
+
+	}
+
+	@Test
+	public void testTablesOnlyUsedWhileTheyFit() {
+
+		Grid grid = new Grid(20, 20);
+		Landmarks landmarks = new Landmarks(grid, 4, true, 1);
+		assertTrue(landmarks.isUsableFor(true));
+		assertFalse(landmarks.isUsableFor(false));
+
+		grid.setCellData(3, 3, 2);
+		assertTrue(landmarks.isUsableFor(true));
+		grid.setCellData(3, 3, 0);
+		assertFalse(landmarks.isUsableFor(true));
+
+		// stale tables are ignored, ALT still finds the way around the new wall
+		for (int y = 0; y < 19; y++)
+			grid.setCellData(10, y, 0);
+		PathFinder pathFinder = new PathFinder(grid);
+		pathFinder.setLandmarks(landmarks);
+		PathQuery query = new PathQuery(0, 0, 19, 0);
+		query.setAlgorithm(SearchAlgorithm.ALT);
+		PathQuery plain = new PathQuery(0, 0, 19, 0);
+		plain.setAlgorithm(SearchAlgorithm.A_STAR);
+		assertEquals(pathFinder.findPath(plain).getCost(), pathFinder.findPath(query).getCost(), 0.001f);
+
+	}
+
+	@Test
+	public void testLandmarksOnPassableCells() {
+
+		Grid grid = new Grid(9, 9);
+		for (int x = 0; x < 9; x++) {
+			grid.setCellData(x, 0, 0);
+			grid.setCellData(x, 8, 0);
+			grid.setCellData(0, x, 0);
+			grid.setCellData(8, x, 0);
+		}
+
+		Landmarks landmarks = new Landmarks(grid, 4, false);
+		assertEquals(4, landmarks.getCount());
+		for (int l = 0; l < landmarks.getCount(); l++)
+			assertTrue(grid.isPassable(grid.index(landmarks.getLandmarkX(l), landmarks.getLandmarkY(l))));
+
+	}
+
+}
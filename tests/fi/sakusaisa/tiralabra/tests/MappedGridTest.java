@@ -0,0 +1,175 @@
+package fi.sakusaisa.tiralabra.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Random;
+
+import org.junit.Test;
+
+import fi.sakusaisa.tiralabra.core.FlowField;
+import fi.sakusaisa.tiralabra.core.Grid;
+import fi.sakusaisa.tiralabra.core.HierarchicalPathFinder;
+import fi.sakusaisa.tiralabra.core.IncrementalPathFinder;
+import fi.sakusaisa.tiralabra.core.MappedGrid;
+import fi.sakusaisa.tiralabra.core.PathFinder;
+import fi.sakusaisa.tiralabra.core.PathQuery;
+
+public class MappedGridTest {
+
+	private Grid randomGrid(Random random, int width, int height) {
+		Grid grid = new Grid(width, height);
+		for (int i = 0; i < width; i++) {
+			for (int j = 0; j < height; j++) {
+				if (random.nextInt(4) == 0)
+					grid.setCellData(i, j, 0);
+			}
+		}
+		return grid;
+	}
+
+	private File tempFile() throws IOException {
+		File file = File.createTempFile("mappedgrid", ".grid");
+		file.deleteOnExit();
+		return file;
+	}
+
+	@Test
+	public void testSaveAndOpen() throws IOException {
+
+		Random random = new Random(19);
+		int[] tileSizes = { 1, 4, 16, 64 };
+
+		for (int tileSize : tileSizes) {
+
+			Grid grid = randomGrid(random, 37, 23);
+			File file = tempFile();
+			MappedGrid.save(grid, file, tileSize);
+
+			MappedGrid mapped = MappedGrid.open(file);
+			assertEquals(37, mapped.getWidth());
+			assertEquals(23, mapped.getHeight());
+			assertEquals(tileSize, mapped.getTileSize());
+			assertEquals(grid.getCellCount(), mapped.getCellCount());
+			for (int i = 0; i < grid.getCellCount(); i++)
+				assertEquals(grid.isPassable(i), mapped.isPassable(i));
+			mapped.close();
+
+		}
+
+	}
+
+	@Test
+	public void testSearchesMatchTheHeapGrid() throws IOException {
+
+		Grid grid = randomGrid(new Random(7), 60, 60);
+		grid.setCellData(0, 0, 1);
+		grid.setCellData(59, 59, 1);
+		File file = tempFile();
+		MappedGrid.save(grid, file, MappedGrid.DEFAULT_TILE_SIZE);
+		MappedGrid mapped = MappedGrid.open(file);
+
+		PathQuery query = new PathQuery(0, 0, 59, 59);
+		query.setDiagonalMoveAllowed(true);
+		assertEquals(new PathFinder(grid).findPath(query).getCost(), new PathFinder(mapped).findPath(query).getCost(), 0.0001f);
+		mapped.close();
+
+	}
+
+	@Test
+	public void testChangesStayOutOfTheFile() throws IOException {
+
+		File file = tempFile();
+		MappedGrid.save(new Grid(100, 100), file, 16);
+		MappedGrid mapped = MappedGrid.open(file);
+
+		mapped.setCellData(50, 50, 0);
+		mapped.setCellData(51, 50, 3);
+		assertFalse(mapped.isPassable(mapped.index(50, 50)));
+		assertEquals(3, mapped.getCellData(51, 50));
+		assertEquals(1, mapped.getCellData(52, 50));
+		assertEquals(1, mapped.getChangeCount());
+		assertEquals(1, mapped.getCopiedTileRowCount());
+		mapped.close();
+
+		// still readable after closing, and the file itself is unchanged
+		assertEquals(3, mapped.getCellData(51, 50));
+		MappedGrid reopened = MappedGrid.open(file);
+		assertTrue(reopened.isPassable(reopened.index(50, 50)));
+		reopened.close();
+
+	}
+
+	@Test
+	public void testEnginesRefuseGridsTooLargeForTheHeap() {
+
+		// a grid that keeps no data at all, far larger than any heap the tests run with
+		Grid huge = new Grid(46000, 46000, false) {
+			@Override
+			protected int readCell(int index) {
+				return 1;
+			}
+			@Override
+			protected void writeCell(int index, byte data) {
+			}
+		};
+
+		try {
+			new PathFinder(huge);
+			fail("PathFinder accepted the grid");
+		}
+		catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage().contains("46000x46000"));
+		}
+		try {
+			new HierarchicalPathFinder(huge);
+			fail("HierarchicalPathFinder accepted the grid");
+		}
+		catch (IllegalArgumentException e) {
+		}
+		try {
+			new IncrementalPathFinder(huge);
+			fail("IncrementalPathFinder accepted the grid");
+		}
+		catch (IllegalArgumentException e) {
+		}
+		try {
+			new FlowField(huge, 0, 0, false);
+			fail("FlowField accepted the grid");
+		}
+		catch (IllegalArgumentException e) {
+		}
+
+	}
+
+	@Test
+	public void testInvalidFilesAreRejected() throws IOException {
+
+		File file = tempFile();
+		MappedGrid.save(new Grid(10, 10), file, 4);
+
+		RandomAccessFile raw = new RandomAccessFile(file, "rw");
+		raw.setLength(raw.length() - 1);
+		raw.close();
+		try {
+			MappedGrid.open(file);
+			fail("a truncated file was opened");
+		}
+		catch (IOException e) {
+		}
+
+		raw = new RandomAccessFile(file, "rw");
+		raw.writeInt(0);
+		raw.close();
+		try {
+			MappedGrid.open(file);
+			fail("a file without the magic was opened");
+		}
+		catch (IOException e) {
+		}
+
+	}
+
+}
@@ -2,33 +2,35 @@ package fi.sakusaisa.tiralabra.tests;
 
 import static org.junit.Assert.*;
 
+import java.util.Random;
+
 import org.junit.Test;
 
-import fi.sakusaisa.tiralabra.core.GridCell;
 import fi.sakusaisa.tiralabra.datastructures.MinBinaryHeap;
 
 public class MinBinaryHeapTest {
 
+	// the movementCosts of the cells, indexed by cell
+	private float[] keys = new float[100];
+
 	@Test
 	public void testMinBinaryHeap() {
-		
-		MinBinaryHeap testHeap = new MinBinaryHeap(100);
+
+		MinBinaryHeap testHeap = new MinBinaryHeap(100, keys);
 		assertEquals("testHeap size should be 0", 0, testHeap.getHeapSize());
 	}
 
 	@Test
 	public void testGetHeapSize() {
-		
-		MinBinaryHeap testHeap = new MinBinaryHeap(100);
-		
-		GridCell gridCell = new GridCell(0, 0);
-		gridCell.setMovementCost(2);
-		testHeap.insert(gridCell);
+
+		MinBinaryHeap testHeap = new MinBinaryHeap(100, keys);
+
+		keys[0] = 2;
+		testHeap.insert(0);
 		assertEquals("size should be 1", 1, testHeap.getHeapSize());
 
-		gridCell = new GridCell(0, 1);
-		gridCell.setMovementCost(2);
-		testHeap.insert(gridCell);
+		keys[1] = 2;
+		testHeap.insert(1);
 		assertEquals("size should be 2", 2, testHeap.getHeapSize());
 
 	}
@@ -36,15 +38,13 @@ public class MinBinaryHeapTest {
 	@Test
 	public void testClear() {
 
-		MinBinaryHeap testHeap = new MinBinaryHeap(100);
-		
-		GridCell gridCell = new GridCell(0, 0);
-		gridCell.setMovementCost(2);
-		testHeap.insert(gridCell);
+		MinBinaryHeap testHeap = new MinBinaryHeap(100, keys);
+
+		keys[0] = 2;
+		testHeap.insert(0);
 
-		gridCell = new GridCell(0, 1);
-		gridCell.setMovementCost(2);
-		testHeap.insert(gridCell);
+		keys[1] = 2;
+		testHeap.insert(1);
 
 		assertEquals("size should be 2", 2, testHeap.getHeapSize());
 		testHeap.clear(false);
@@ -53,33 +53,28 @@ public class MinBinaryHeapTest {
 
 	@Test
 	public void testInsert() {
-		
-		MinBinaryHeap testHeap = new MinBinaryHeap(2);
-		
-		GridCell gridCell = new GridCell(0, 0);
-		gridCell.setMovementCost(2);
-		testHeap.insert(gridCell);
-		assertEquals("should return 2", 2f, testHeap.findMin().getMovementCost(), 0.0001f);
-		
-		gridCell = new GridCell(0, 1);
-		gridCell.setMovementCost(3);
-		testHeap.insert(gridCell);
-		assertEquals("should still be 2", 2f, testHeap.findMin().getMovementCost(), 0.0001f);
-		
-		gridCell = new GridCell(0, 2);
-		gridCell.setMovementCost(1);
-		testHeap.insert(gridCell);
-		assertEquals("now the min should be 1", 1f, testHeap.findMin().getMovementCost(), 0.0001f);
-
-		gridCell = new GridCell(0, 3);
-		gridCell.setMovementCost(9);
-		testHeap.insert(gridCell);
-		assertEquals("still 1", 1f, testHeap.findMin().getMovementCost(), 0.0001f);
-
-		gridCell = new GridCell(0, 4);
-		gridCell.setMovementCost(0.5f);
-		testHeap.insert(gridCell);
-		assertEquals("now it should be 0.5", 0.5f, testHeap.findMin().getMovementCost(), 0.0001f);
+
+		MinBinaryHeap testHeap = new MinBinaryHeap(2, keys);
+
+		keys[0] = 2;
+		testHeap.insert(0);
+		assertEquals("should return 2", 2f, keys[testHeap.findMin()], 0.0001f);
+
+		keys[1] = 3;
+		testHeap.insert(1);
+		assertEquals("should still be 2", 2f, keys[testHeap.findMin()], 0.0001f);
+
+		keys[2] = 1;
+		testHeap.insert(2);
+		assertEquals("now the min should be 1", 1f, keys[testHeap.findMin()], 0.0001f);
+
+		keys[3] = 9;
+		testHeap.insert(3);
+		assertEquals("still 1", 1f, keys[testHeap.findMin()], 0.0001f);
+
+		keys[4] = 0.5f;
+		testHeap.insert(4);
+		assertEquals("now it should be 0.5", 0.5f, keys[testHeap.findMin()], 0.0001f);
 		assertEquals("and the size should be 5", 5, testHeap.getHeapSize());
 
 	}
@@ -87,82 +82,245 @@ public class MinBinaryHeapTest {
 	@Test
 	public void testDelMin() {
 
-		MinBinaryHeap testHeap = new MinBinaryHeap(100);
-		
-		GridCell gridCell = new GridCell(0, 0);
-		gridCell.setMovementCost(6);
-		testHeap.insert(gridCell);
+		MinBinaryHeap testHeap = new MinBinaryHeap(100, keys);
+
+		keys[0] = 6;
+		testHeap.insert(0);
 
-		gridCell = new GridCell(1, 0);
-		gridCell.setMovementCost(2);
-		testHeap.insert(gridCell);
+		keys[1] = 2;
+		testHeap.insert(1);
 
-		gridCell = new GridCell(2, 0);
-		gridCell.setMovementCost(1.25f);
-		testHeap.insert(gridCell);
+		keys[2] = 1.25f;
+		testHeap.insert(2);
 
-		gridCell = new GridCell(3, 0);
-		gridCell.setMovementCost(100);
-		testHeap.insert(gridCell);
+		keys[3] = 100;
+		testHeap.insert(3);
 
 		assertEquals("first, heap size is 4", 4, testHeap.getHeapSize());
-		
-		GridCell returnedCell = testHeap.delMin();
+
+		int returnedCell = testHeap.delMin();
 		assertEquals("now it should be 3", 3, testHeap.getHeapSize());
-		assertEquals("and the returned cell should have a vlaue of 1.25", 1.25f, returnedCell.getMovementCost(), 0.0001f);
-		assertEquals("the top of the heap is now 2", 2f, testHeap.findMin().getMovementCost(), 0.0001f);
+		assertEquals("and the returned cell should have a vlaue of 1.25", 1.25f, keys[returnedCell], 0.0001f);
+		assertEquals("the top of the heap is now 2", 2f, keys[testHeap.findMin()], 0.0001f);
 		returnedCell = testHeap.delMin();
-		assertEquals("value 2 is now returned", 2f, returnedCell.getMovementCost(), 0.0001f);
-		assertEquals("the top of the heap is now 6", 6f, testHeap.findMin().getMovementCost(), 0.0001f);
-		
+		assertEquals("value 2 is now returned", 2f, keys[returnedCell], 0.0001f);
+		assertEquals("the top of the heap is now 6", 6f, keys[testHeap.findMin()], 0.0001f);
+
+		testHeap.delMin();
+		testHeap.delMin();
+		assertEquals("an empty heap returns -1", -1, testHeap.delMin());
+
 	}
 
 	@Test
 	public void testContains() {
-	
-		MinBinaryHeap testHeap = new MinBinaryHeap(100);
 
-		GridCell gridCell1 = new GridCell(0, 0);
-		gridCell1.setMovementCost(6);
-		testHeap.insert(gridCell1);
+		MinBinaryHeap testHeap = new MinBinaryHeap(100, keys);
+
+		keys[0] = 6;
+		testHeap.insert(0);
 
-		GridCell gridCell2 = new GridCell(1, 0);
-		gridCell2.setMovementCost(2);
-		testHeap.insert(gridCell2);
+		keys[1] = 2;
+		testHeap.insert(1);
 
-		GridCell gridCell3 = new GridCell(2, 0);
-		gridCell3.setMovementCost(9.64f);
+		keys[2] = 9.64f;
 
-		assertTrue("should be something else than -1", testHeap.contains(gridCell1) != -1);
-		assertTrue("should be something else than -1", testHeap.contains(gridCell2) != -1);
-		assertTrue("should be -1", testHeap.contains(gridCell3) == -1);
+		assertTrue("should be something else than -1", testHeap.contains(0) != -1);
+		assertTrue("should be something else than -1", testHeap.contains(1) != -1);
+		assertTrue("should be -1", testHeap.contains(2) == -1);
 
 	}
-	
-	
+
+
 	@Test
 	public void testRemoveAtIndex() {
-		
-		MinBinaryHeap testHeap = new MinBinaryHeap(100);
-
-		GridCell gridCell1 = new GridCell(0, 0);
-		gridCell1.setMovementCost(6);
-		testHeap.insert(gridCell1);
-
-		GridCell gridCell2 = new GridCell(1, 0);
-		gridCell2.setMovementCost(2);
-		testHeap.insert(gridCell2);
-
-		GridCell gridCell3 = new GridCell(2, 0);
-		gridCell3.setMovementCost(9.64f);
-		testHeap.insert(gridCell3);
-		
-		testHeap.removeAtIndex(testHeap.contains(gridCell1));
-		
-		assertTrue("should be -1", testHeap.contains(gridCell1) == -1);
-		assertEquals("should be 2", 2f, testHeap.findMin().getMovementCost(), 0.0001f);
+
+		MinBinaryHeap testHeap = new MinBinaryHeap(100, keys);
+
+		keys[0] = 6;
+		testHeap.insert(0);
+
+		keys[1] = 2;
+		testHeap.insert(1);
+
+		keys[2] = 9.64f;
+		testHeap.insert(2);
+
+		testHeap.removeAtIndex(testHeap.contains(0));
+
+		assertTrue("should be -1", testHeap.contains(0) == -1);
+		assertEquals("should be 2", 2f, keys[testHeap.findMin()], 0.0001f);
 		assertEquals("size should be 2 too", 2, testHeap.getHeapSize());
-		
+
 	}
-	
+
+	@Test
+	public void testRemoveAtIndexMovesLeafUp() {
+
+		MinBinaryHeap testHeap = new MinBinaryHeap(100, keys);
+		float[] costs = {1, 10, 2, 11, 12, 3, 4};
+
+		for (int i = 0; i < costs.length; i++) {
+			keys[i] = costs[i];
+			testHeap.insert(i);
+		}
+
+		// the last leaf (4) replaces a node under the 10, so it has to move up instead of down
+		testHeap.removeAtIndex(testHeap.contains(3));
+
+		float previous = -1;
+		while (!testHeap.isEmpty()) {
+			float cost = keys[testHeap.delMin()];
+			assertTrue("costs should come out in order", cost >= previous);
+			previous = cost;
+		}
+
+	}
+
+	@Test
+	public void testDecreaseKey() {
+
+		MinBinaryHeap testHeap = new MinBinaryHeap(100, keys);
+
+		keys[0] = 6;
+		testHeap.insert(0);
+
+		keys[1] = 2;
+		testHeap.insert(1);
+
+		keys[2] = 9.64f;
+		testHeap.insert(2);
+
+		keys[2] = 1;
+		testHeap.decreaseKey(2);
+
+		assertEquals("the decreased cell should be on top", 2, testHeap.findMin());
+		assertEquals("size should not change", 3, testHeap.getHeapSize());
+		assertEquals(2, testHeap.delMin());
+		assertEquals(1, testHeap.delMin());
+		assertEquals(0, testHeap.delMin());
+
+	}
+
+	@Test
+	public void testTieBreakers() {
+
+		float[] tieBreakers = new float[100];
+		MinBinaryHeap testHeap = new MinBinaryHeap(100, keys, tieBreakers);
+
+		keys[0] = 5;
+		tieBreakers[0] = 3;
+		testHeap.insert(0);
+
+		keys[1] = 5;
+		tieBreakers[1] = 1;
+		testHeap.insert(1);
+
+		keys[2] = 4;
+		tieBreakers[2] = 9;
+		testHeap.insert(2);
+
+		keys[3] = 5;
+		tieBreakers[3] = 2;
+		testHeap.insert(3);
+
+		assertEquals("the smaller key always wins", 2, testHeap.delMin());
+		assertEquals("equal keys are ordered by the tie-breakers", 1, testHeap.delMin());
+		assertEquals(3, testHeap.delMin());
+		assertEquals(0, testHeap.delMin());
+
+	}
+
+	@Test
+	public void testContainsAfterDelMinAndClear() {
+
+		MinBinaryHeap testHeap = new MinBinaryHeap(100, keys);
+
+		keys[0] = 6;
+		testHeap.insert(0);
+
+		keys[1] = 2;
+		testHeap.insert(1);
+
+		testHeap.delMin();
+		assertTrue("should be -1", testHeap.contains(1) == -1);
+		assertTrue("should be 1", testHeap.contains(0) == 1);
+
+		testHeap.clear(false);
+		assertTrue("should be -1", testHeap.contains(0) == -1);
+
+	}
+
+	@Test
+	public void testLargeHeap() {
+
+		int cellCount = 50000;
+		Random random = new Random(42);
+		float[] largeKeys = new float[cellCount];
+		MinBinaryHeap testHeap = new MinBinaryHeap(2, largeKeys);
+
+		for (int i = 0; i < cellCount; i++) {
+			largeKeys[i] = random.nextFloat() * 1000f;
+			testHeap.insert(i);
+		}
+
+		assertEquals(cellCount, testHeap.getHeapSize());
+		for (int i = 0; i < cellCount; i++)
+			assertTrue("every cell should be found", testHeap.contains(i) != -1);
+
+		// decrease every third key, some of them below everything else
+		for (int i = 0; i < cellCount; i += 3) {
+			largeKeys[i] -= random.nextFloat() * 1100f;
+			testHeap.decreaseKey(i);
+		}
+
+		// remove every seventh cell from wherever it happens to be
+		int removed = 0;
+		for (int i = 0; i < cellCount; i += 7) {
+			testHeap.removeAtIndex(testHeap.contains(i));
+			removed++;
+		}
+
+		assertEquals(cellCount - removed, testHeap.getHeapSize());
+
+		float previous = -Float.MAX_VALUE;
+		int popped = 0;
+		while (!testHeap.isEmpty()) {
+			int min = testHeap.delMin();
+			assertTrue("costs should come out in order", largeKeys[min] >= previous);
+			assertTrue("a popped cell is no longer in the heap", testHeap.contains(min) == -1);
+			previous = largeKeys[min];
+			popped++;
+		}
+
+		assertEquals(cellCount - removed, popped);
+
+	}
+
+	@Test
+	public void testSiftSteps() {
+
+		MinBinaryHeap testHeap = new MinBinaryHeap(100, keys);
+		assertEquals(0, testHeap.getSiftSteps());
+
+		// every insert has a smaller key than the top, so each moves up one level
+		keys[0] = 3;
+		testHeap.insert(0);
+		keys[1] = 2;
+		testHeap.insert(1);
+		keys[2] = 1;
+		testHeap.insert(2);
+		assertEquals(2, testHeap.getSiftSteps());
+
+		// the last cell moved to the top is already in place
+		assertEquals(2, testHeap.delMin());
+		assertEquals(2, testHeap.getSiftSteps());
+
+		keys[0] = 0;
+		testHeap.decreaseKey(0);
+		assertEquals(3, testHeap.getSiftSteps());
+		assertEquals(0, testHeap.findMin());
+
+	}
+
 }
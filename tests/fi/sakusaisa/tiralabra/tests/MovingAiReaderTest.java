@@ -0,0 +1,111 @@
+package fi.sakusaisa.tiralabra.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.Test;
+
+import fi.sakusaisa.tiralabra.core.Grid;
+import fi.sakusaisa.tiralabra.core.MovingAiMapReader;
+import fi.sakusaisa.tiralabra.core.MovingAiScenarioReader;
+import fi.sakusaisa.tiralabra.core.PathFinder;
+import fi.sakusaisa.tiralabra.core.ScenarioBatch;
+
+public class MovingAiReaderTest {
+
+	private static final String MAP = "type octile\nheight 4\nwidth 5\nmap\n"
+			+ "..@..\n"
+			+ ".G@T.\r\n"
+			+ ".S.W.\n"
+			+ "....O";
+
+	private InputStream stream(String text) {
+		return new ByteArrayInputStream(text.getBytes());
+	}
+
+	@Test
+	public void testReadMap() throws IOException {
+
+		Grid grid = MovingAiMapReader.read(stream(MAP));
+		assertEquals(5, grid.getWidth());
+		assertEquals(4, grid.getHeight());
+
+		String passable = "11011" + "11001" + "11101" + "11110";
+		for (int i = 0; i < passable.length(); i++)
+			assertEquals("cell " + i, passable.charAt(i) == '1', grid.isPassable(i));
+
+	}
+
+	@Test
+	public void testBrokenMapsAreRejected() {
+
+		String[] broken = {
+				"type octile\nheight 4\nwidth 5\n",
+				"type octile\nheight 2\nwidth 3\nmap\n...\n..\n",
+				"type octile\nheight 2\nwidth 3\nmap\n...\n....\n",
+				"type octile\nheight 2\nwidth x\nmap\n...\n...\n",
+				"type octile\nheight 2\ndepth 3\nmap\n...\n...\n" };
+
+		for (String map : broken) {
+			try {
+				MovingAiMapReader.read(stream(map));
+				fail("a broken map was read: " + map);
+			}
+			catch (IOException e) {
+			}
+		}
+
+	}
+
+	@Test
+	public void testReadScenarioInBatches() throws IOException {
+
+		String scenario = "version 1\n"
+				+ "0\tsmall.map\t5\t4\t0\t0\t4\t0\t7.65685425\n"
+				+ "1\tsmall.map\t5\t4\t0\t3\t3\t3\t3\n"
+				+ "1\tsmall.map\t5\t4\t3\t3\t0\t0\t4.24264069\n";
+
+		MovingAiScenarioReader reader = new MovingAiScenarioReader(stream(scenario));
+		ScenarioBatch first = reader.nextBatch(2);
+		ScenarioBatch second = reader.nextBatch(2);
+		assertNull(reader.nextBatch(2));
+
+		assertEquals(2, first.getSize());
+		assertEquals(1, second.getSize());
+		assertEquals(0, first.getBucket(0));
+		assertEquals("small.map", first.getMapName(1));
+		assertEquals(3, first.getQuery(1).getGoalX());
+		assertEquals(3, first.getOptimalLength(1), 0);
+		assertEquals(3, second.getQuery(0).getStartX());
+		assertTrue(second.getQuery(0).isDiagonalMoveAllowed());
+
+		// cutting corners is allowed here, so a path is never longer than the reference
+		PathFinder pathFinder = new PathFinder(MovingAiMapReader.read(stream(MAP)));
+		for (ScenarioBatch batch : new ScenarioBatch[] { first, second }) {
+			for (int i = 0; i < batch.getSize(); i++)
+				assertTrue(pathFinder.findPath(batch.getQuery(i)).getCost() <= batch.getOptimalLength(i) + 0.001);
+		}
+
+	}
+
+	@Test
+	public void testScenarioWithoutVersion() throws IOException {
+
+		MovingAiScenarioReader reader = new MovingAiScenarioReader(stream("3 m.map 5 4 1 1 2 2 1.41421356\n"));
+		ScenarioBatch batch = reader.nextBatch(10);
+		assertEquals(1, batch.getSize());
+		assertEquals(3, batch.getBucket(0));
+
+		try {
+			new MovingAiScenarioReader(stream("0 m.map 5 4 1 1 9 2 1\n")).nextBatch(10);
+			fail("a goal outside the map was read");
+		}
+		catch (IOException e) {
+		}
+
+	}
+
+}
@@ -0,0 +1,128 @@
+package fi.sakusaisa.tiralabra.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import fi.sakusaisa.tiralabra.core.Grid;
+import fi.sakusaisa.tiralabra.core.OpenSetType;
+import fi.sakusaisa.tiralabra.core.PathFinder;
+import fi.sakusaisa.tiralabra.core.PathQuery;
+import fi.sakusaisa.tiralabra.core.SearchAlgorithm;
+import fi.sakusaisa.tiralabra.datastructures.AvlTree;
+import fi.sakusaisa.tiralabra.datastructures.DaryHeap;
+import fi.sakusaisa.tiralabra.datastructures.MinBinaryHeap;
+import fi.sakusaisa.tiralabra.datastructures.MinQuaternaryHeap;
+import fi.sakusaisa.tiralabra.datastructures.OpenSet;
+import fi.sakusaisa.tiralabra.datastructures.PairingHeap;
+
+public class OpenSetTest {
+
+	// the movementCosts of the cells, indexed by cell
+	private float[] keys = new float[500];
+
+	private OpenSet[] createOpenSets() {
+		return new OpenSet[] {
+			new MinBinaryHeap(2, keys),
+			new MinQuaternaryHeap(2, keys),
+			new DaryHeap(2, keys, 2),
+			new DaryHeap(2, keys, 4),
+			new DaryHeap(2, keys, 8),
+			new PairingHeap(keys),
+			new AvlTree(keys)
+		};
+	}
+
+	@Test
+	public void testRandomOperations() {
+
+		Random random = new Random(3);
+
+		for (OpenSet openSet : createOpenSets()) {
+
+			for (int round = 0; round < 5; round++) {
+
+				openSet.clear(round == 3);
+				boolean[] inSet = new boolean[keys.length];
+				int size = 0;
+
+				for (int step = 0; step < 3000; step++) {
+
+					int cell = random.nextInt(keys.length);
+					int operation = random.nextInt(3);
+
+					if (operation == 0 && !inSet[cell]) {
+						keys[cell] = random.nextFloat() * 100;
+						openSet.insert(cell);
+						inSet[cell] = true;
+						size++;
+					}
+					else if (operation == 1 && inSet[cell]) {
+						keys[cell] -= random.nextFloat() * 10;
+						openSet.decreaseKey(cell);
+					}
+					else if (operation == 2 && size > 0) {
+
+						// the removed cell must have the smallest key of the cells in the set
+						int min = openSet.delMin();
+						assertTrue(openSet.getClass().getSimpleName(), inSet[min]);
+						for (int i = 0; i < keys.length; i++)
+							assertTrue(openSet.getClass().getSimpleName(), !inSet[i] || keys[i] >= keys[min]);
+						inSet[min] = false;
+						size--;
+
+					}
+
+					assertEquals(size, openSet.getSize());
+					assertEquals(inSet[cell], openSet.contains(cell) != -1);
+
+				}
+
+			}
+
+		}
+
+	}
+
+	@Test
+	public void testAllTypesFindOptimalPaths() {
+
+		Random random = new Random(8);
+		Grid grid = new Grid(50, 50);
+		for (int i = 0; i < 50; i++) {
+			for (int j = 0; j < 50; j++) {
+				if (random.nextFloat() < 0.3f)
+					grid.setCellData(i, j, 0);
+			}
+		}
+		grid.setCellData(0, 0, 1);
+		grid.setCellData(49, 49, 1);
+
+		PathFinder pathFinder = new PathFinder(grid);
+
+		for (int diagonal = 0; diagonal < 2; diagonal++) {
+
+			PathQuery query = new PathQuery(0, 0, 49, 49);
+			query.setDiagonalMoveAllowed(diagonal == 1);
+			float optimal = pathFinder.findPath(query).getCost();
+
+			for (OpenSetType type : OpenSetType.values()) {
+				for (SearchAlgorithm algorithm : SearchAlgorithm.values()) {
+					query.setOpenSetType(type);
+					query.setAlgorithm(algorithm);
+					assertEquals(type + " " + algorithm, optimal, pathFinder.findPath(query).getCost(), 0.001f);
+				}
+			}
+
+		}
+
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedArity() {
+		new DaryHeap(10, keys, 3);
+	}
+
+}
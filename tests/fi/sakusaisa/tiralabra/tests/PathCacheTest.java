@@ -0,0 +1,100 @@
+package fi.sakusaisa.tiralabra.tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import fi.sakusaisa.tiralabra.core.Grid;
+import fi.sakusaisa.tiralabra.core.PathCache;
+import fi.sakusaisa.tiralabra.core.PathFinder;
+import fi.sakusaisa.tiralabra.core.PathQuery;
+import fi.sakusaisa.tiralabra.core.PathResult;
+import fi.sakusaisa.tiralabra.core.SearchAlgorithm;
+
+public class PathCacheTest {
+
+	@Test
+	public void testRepeatedQueriesHit() {
+
+		PathCache cache = new PathCache(new PathFinder(new Grid(30, 30)), 1 << 20);
+		PathQuery query = new PathQuery(0, 0, 29, 29);
+
+		PathResult first = cache.findPath(query);
+		PathResult second = cache.findPath(new PathQuery(0, 0, 29, 29));
+		assertTrue(cache.wasLastQueryHit());
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		assertEquals(first.getCost(), second.getCost(), 0.0001f);
+		assertEquals(first.getPathLength(), second.getPathLength());
+		assertEquals(0, second.getNodesExpanded());
+
+		// any setting that can change the result is part of the key
+		query.setAlgorithm(SearchAlgorithm.A_STAR);
+		cache.findPath(query);
+		assertFalse(cache.wasLastQueryHit());
+		assertEquals(2, cache.getEntryCount());
+
+	}
+
+	@Test
+	public void testEditsInvalidateOnlyWhenNeeded() {
+
+		Grid grid = new Grid(20, 20);
+		PathCache cache = new PathCache(new PathFinder(grid), 1 << 20);
+		PathQuery query = new PathQuery(0, 0, 19, 0);
+		PathResult result = cache.findPath(query);
+
+		// an obstacle away from the path can't make it any worse
+		grid.setCellData(5, 10, 0);
+		cache.findPath(query);
+		assertTrue(cache.wasLastQueryHit());
+
+		// an obstacle on the path can
+		grid.setCellData(result.getPathX(5), result.getPathY(5), 0);
+		PathResult rerouted = cache.findPath(query);
+		assertFalse(cache.wasLastQueryHit());
+		assertTrue(rerouted.getCost() > result.getCost());
+
+		// and removing any obstacle might open a shortcut
+		grid.setCellData(5, 10, 1);
+		cache.findPath(query);
+		assertFalse(cache.wasLastQueryHit());
+
+		// as might clearing the grid
+		cache.findPath(query);
+		assertTrue(cache.wasLastQueryHit());
+		grid.clear();
+		assertEquals(result.getCost(), cache.findPath(query).getCost(), 0.0001f);
+		assertFalse(cache.wasLastQueryHit());
+
+	}
+
+	@Test
+	public void testMemoryCapEvictsLeastRecentlyUsed() {
+
+		Grid grid = new Grid(100, 1);
+		PathCache cache = new PathCache(new PathFinder(grid), 2000);
+
+		PathQuery a = new PathQuery(0, 0, 99, 0);
+		PathQuery b = new PathQuery(99, 0, 0, 0);
+		PathQuery c = new PathQuery(0, 0, 98, 0);
+
+		cache.findPath(a);
+		cache.findPath(b);
+		assertEquals(2, cache.getEntryCount());
+		assertTrue(cache.getMemoryUsed() <= cache.getMemoryCap());
+
+		// a was used more recently than b, so b goes to make room for c
+		cache.findPath(a);
+		cache.findPath(c);
+		assertEquals(2, cache.getEntryCount());
+		assertTrue(cache.getMemoryUsed() <= cache.getMemoryCap());
+
+		cache.findPath(a);
+		assertTrue(cache.wasLastQueryHit());
+		cache.findPath(b);
+		assertFalse(cache.wasLastQueryHit());
+
+	}
+
+}
@@ -0,0 +1,371 @@
+package fi.sakusaisa.tiralabra.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import fi.sakusaisa.tiralabra.core.Grid;
+import fi.sakusaisa.tiralabra.core.MappedGrid;
+import fi.sakusaisa.tiralabra.core.PathFinder;
+import fi.sakusaisa.tiralabra.core.PathQuery;
+import fi.sakusaisa.tiralabra.core.PathResult;
+import fi.sakusaisa.tiralabra.core.SearchAlgorithm;
+
+public class PathFinderTest {
+
+	@Test
+	public void testStraightPath() {
+
+		PathFinder pathFinder = new PathFinder(new Grid(10, 10));
+		PathResult result = pathFinder.findPath(new PathQuery(0, 0, 9, 0));
+
+		assertTrue(result.isPathFound());
+		assertEquals("start and goal are both on the path", 10, result.getPathLength());
+		assertEquals(9f, result.getCost(), 0.0001f);
+		assertEquals(0, result.getPathX(0));
+		assertEquals(9, result.getPathX(9));
+
+	}
+
+	@Test
+	public void testAStarAndDijkstraAgree() {
+
+		Grid grid = new Grid(20, 20);
+		for (int j = 0; j < 19; j++)
+			grid.setCellData(10, j, 0);
+
+		PathFinder pathFinder = new PathFinder(grid);
+
+		PathQuery query = new PathQuery(2, 2, 17, 2);
+		PathResult dijkstra = pathFinder.findPath(query);
+
+		query.setAlgorithm(SearchAlgorithm.A_STAR);
+		PathResult aStar = pathFinder.findPath(query);
+
+		assertEquals(dijkstra.getCost(), aStar.getCost(), 0.0001f);
+		assertTrue("A* should expand fewer nodes", aStar.getNodesExpanded() < dijkstra.getNodesExpanded());
+
+	}
+
+	@Test
+	public void testDiagonalCost() {
+
+		PathFinder pathFinder = new PathFinder(new Grid(10, 10));
+		PathQuery query = new PathQuery(0, 0, 5, 5);
+		query.setDiagonalMoveAllowed(true);
+		query.setAlgorithm(SearchAlgorithm.A_STAR);
+
+		PathResult result = pathFinder.findPath(query);
+		assertEquals(6, result.getPathLength());
+		assertEquals(5 * PathFinder.DIAGONAL_COST, result.getCost(), 0.0001f);
+
+	}
+
+	@Test
+	public void testNoPath() {
+
+		Grid grid = new Grid(10, 10);
+		for (int j = 0; j < 10; j++)
+			grid.setCellData(5, j, 0);
+
+		PathResult result = new PathFinder(grid).findPath(new PathQuery(0, 0, 9, 9));
+		assertFalse(result.isPathFound());
+		assertEquals(0, result.getPathLength());
+
+	}
+
+	@Test
+	public void testGridDataUntouched() {
+
+		Grid grid = new Grid(10, 10);
+		new PathFinder(grid).findPath(new PathQuery(0, 0, 9, 9));
+
+		for (int i = 0; i < 10; i++) {
+			for (int j = 0; j < 10; j++)
+				assertEquals(1, grid.getCellData(i, j));
+		}
+
+	}
+
+	@Test
+	public void testRepeatedSearches() {
+
+		Grid grid = new Grid(30, 30);
+		for (int j = 0; j < 29; j++)
+			grid.setCellData(15, j, 0);
+
+		PathFinder pathFinder = new PathFinder(grid);
+		assertFalse("nothing is reached before the first search", pathFinder.wasCellReached(0, 0));
+
+		PathResult longQuery = pathFinder.findPath(new PathQuery(0, 0, 29, 0));
+
+		// a short query after a long one must not see anything left over from it
+		PathResult shortQuery = pathFinder.findPath(new PathQuery(0, 0, 2, 0));
+		assertEquals(3, shortQuery.getPathLength());
+		assertFalse(pathFinder.wasCellReached(29, 29));
+
+		PathResult longAgain = pathFinder.findPath(new PathQuery(0, 0, 29, 0));
+		assertEquals(longQuery.getCost(), longAgain.getCost(), 0.0001f);
+		assertEquals(longQuery.getNodesExpanded(), longAgain.getNodesExpanded());
+
+	}
+
+	@Test
+	public void testJumpPointMatchesAStar() {
+
+		Random random = new Random(5);
+
+		for (int round = 0; round < 50; round++) {
+
+			Grid grid = new Grid(40, 30);
+			for (int i = 0; i < 40; i++) {
+				for (int j = 0; j < 30; j++) {
+					if (random.nextFloat() < 0.3f)
+						grid.setCellData(i, j, 0);
+				}
+			}
+			grid.setCellData(0, 0, 1);
+			grid.setCellData(39, 29, 1);
+
+			PathFinder pathFinder = new PathFinder(grid);
+
+			for (int diagonal = 0; diagonal < 2; diagonal++) {
+
+				PathQuery query = new PathQuery(0, 0, 39, 29);
+				query.setDiagonalMoveAllowed(diagonal == 1);
+				query.setAlgorithm(SearchAlgorithm.A_STAR);
+				PathResult aStar = pathFinder.findPath(query);
+
+				query.setAlgorithm(SearchAlgorithm.JUMP_POINT);
+				PathResult jumpPoint = pathFinder.findPath(query);
+
+				assertEquals(aStar.isPathFound(), jumpPoint.isPathFound());
+				assertEquals(aStar.getCost(), jumpPoint.getCost(), 0.001f);
+
+				// the path between the jump points is filled in cell by cell
+				for (int i = 1; i < jumpPoint.getPathLength(); i++) {
+					int dx = Math.abs(jumpPoint.getPathX(i) - jumpPoint.getPathX(i - 1));
+					int dy = Math.abs(jumpPoint.getPathY(i) - jumpPoint.getPathY(i - 1));
+					assertTrue("steps should be to adjacent cells", dx <= 1 && dy <= 1 && dx + dy > 0);
+					assertTrue(diagonal == 1 || dx + dy == 1);
+					assertTrue(grid.getCellData(jumpPoint.getPathX(i), jumpPoint.getPathY(i)) != 0);
+				}
+
+			}
+
+		}
+
+	}
+
+	@Test
+	public void testJumpPointOnOpenGrid() {
+
+		PathFinder pathFinder = new PathFinder(new Grid(100, 100));
+		PathQuery query = new PathQuery(0, 0, 99, 60);
+		query.setDiagonalMoveAllowed(true);
+
+		query.setAlgorithm(SearchAlgorithm.A_STAR);
+		PathResult aStar = pathFinder.findPath(query);
+
+		query.setAlgorithm(SearchAlgorithm.JUMP_POINT);
+		PathResult jumpPoint = pathFinder.findPath(query);
+
+		assertEquals(aStar.getCost(), jumpPoint.getCost(), 0.001f);
+		assertEquals(aStar.getPathLength(), jumpPoint.getPathLength());
+		assertTrue("jump point search should expand far fewer nodes", jumpPoint.getNodesExpanded() * 10 < aStar.getNodesExpanded());
+
+	}
+
+	@Test
+	public void testBidirectionalMatchesUnidirectional() {
+
+		Random random = new Random(7);
+
+		for (int map = 0; map < 20; map++) {
+
+			Grid grid = new Grid(40, 30);
+			for (int i = 0; i < 40; i++) {
+				for (int j = 0; j < 30; j++) {
+					if (random.nextFloat() < 0.3f)
+						grid.setCellData(i, j, 0);
+				}
+			}
+			grid.setCellData(0, 0, 1);
+			grid.setCellData(39, 29, 1);
+
+			PathFinder pathFinder = new PathFinder(grid);
+
+			for (int variant = 0; variant < 4; variant++) {
+
+				PathQuery query = new PathQuery(0, 0, 39, 29);
+				query.setDiagonalMoveAllowed(variant % 2 == 1);
+				query.setAlgorithm(variant < 2 ? SearchAlgorithm.DIJKSTRA : SearchAlgorithm.A_STAR);
+				PathResult single = pathFinder.findPath(query);
+
+				query.setBidirectional(true);
+				PathResult both = pathFinder.findPath(query);
+
+				assertEquals(single.isPathFound(), both.isPathFound());
+				assertEquals(single.getCost(), both.getCost(), 0.001f);
+
+				// the two halves are joined into one continuous path from start to goal
+				if (both.isPathFound()) {
+					assertEquals(0, both.getPathX(0));
+					assertEquals(0, both.getPathY(0));
+					assertEquals(39, both.getPathX(both.getPathLength() - 1));
+					assertEquals(29, both.getPathY(both.getPathLength() - 1));
+				}
+				float cost = 0;
+				for (int i = 1; i < both.getPathLength(); i++) {
+					int dx = Math.abs(both.getPathX(i) - both.getPathX(i - 1));
+					int dy = Math.abs(both.getPathY(i) - both.getPathY(i - 1));
+					assertTrue("steps should be to adjacent cells", dx <= 1 && dy <= 1 && dx + dy > 0);
+					assertTrue(grid.getCellData(both.getPathX(i), both.getPathY(i)) != 0);
+					cost += dx + dy == 2 ? PathFinder.DIAGONAL_COST : 1;
+				}
+				if (both.isPathFound())
+					assertEquals("the cost should match the path", both.getCost(), cost, 0.001f);
+
+			}
+
+		}
+
+	}
+
+	@Test
+	public void testBidirectionalStartIsGoal() {
+
+		PathFinder pathFinder = new PathFinder(new Grid(10, 10));
+		PathQuery query = new PathQuery(4, 4, 4, 4);
+		query.setBidirectional(true);
+		PathResult result = pathFinder.findPath(query);
+
+		assertTrue(result.isPathFound());
+		assertEquals(1, result.getPathLength());
+		assertEquals(0f, result.getCost(), 0.0001f);
+
+	}
+
+	@Test
+	public void testPeakOpenSetSize() {
+
+		// a corridor only ever has the next cell open
+		PathFinder pathFinder = new PathFinder(new Grid(10, 1));
+		assertEquals(1, pathFinder.findPath(new PathQuery(0, 0, 9, 0)).getPeakOpenSetSize());
+
+		pathFinder = new PathFinder(new Grid(10, 10));
+		PathResult result = pathFinder.findPath(new PathQuery(0, 0, 9, 9));
+		assertTrue(result.getPeakOpenSetSize() > 1);
+		assertTrue(result.getPeakOpenSetSize() <= 100);
+
+	}
+
+	@Test
+	public void testObstaclesDrawnBetweenSearches() {
+
+		Grid grid = new Grid(30, 30);
+		PathFinder pathFinder = new PathFinder(grid);
+		assertEquals(29f, pathFinder.findPath(new PathQuery(0, 0, 29, 0)).getCost(), 0.0001f);
+
+		// a wall with a gap at the bottom, the edges of the grid must stay blocked
+		for (int j = 0; j < 29; j++)
+			grid.setCellData(15, j, 0);
+		PathResult result = pathFinder.findPath(new PathQuery(0, 0, 29, 0));
+		assertEquals(new PathFinder(grid).findPath(new PathQuery(0, 0, 29, 0)).getCost(), result.getCost(), 0.0001f);
+		assertEquals(29 + 2 * 29, result.getCost(), 0.0001f);
+
+		grid.setCellData(15, 29, 0);
+		assertFalse(pathFinder.findPath(new PathQuery(0, 0, 29, 0)).isPathFound());
+
+		// more changes than the change log remembers
+		for (int round = 0; round < Grid.CHANGE_LOG_SIZE / 100 + 1; round++) {
+			for (int i = 0; i < 30; i++)
+				for (int j = 0; j < 2; j++)
+					grid.setCellData(i, 10 + j, round % 2 == 0 ? 0 : 1);
+		}
+		grid.clear();
+		assertEquals(29f, pathFinder.findPath(new PathQuery(0, 0, 29, 0)).getCost(), 0.0001f);
+
+	}
+
+	@Test
+	public void testSameSearchesOnMappedGrid() throws IOException {
+
+		Random random = new Random(23);
+		Grid grid = new Grid(41, 37);
+		for (int i = 0; i < 41; i++)
+			for (int j = 0; j < 37; j++)
+				if (random.nextInt(4) == 0)
+					grid.setCellData(i, j, 0);
+
+		// the mapped grid isn't read whole into a neighbour table, its neighbours go by coordinates
+		File file = File.createTempFile("pathfinder", ".grid");
+		file.deleteOnExit();
+		MappedGrid.save(grid, file, 16);
+		MappedGrid mappedGrid = MappedGrid.open(file);
+
+		PathFinder pathFinder = new PathFinder(grid);
+		PathFinder mappedPathFinder = new PathFinder(mappedGrid);
+		SearchAlgorithm[] algorithms = { SearchAlgorithm.DIJKSTRA, SearchAlgorithm.A_STAR, SearchAlgorithm.JUMP_POINT };
+
+		for (int q = 0; q < 60; q++) {
+
+			PathQuery query = new PathQuery(random.nextInt(41), random.nextInt(37), random.nextInt(41), random.nextInt(37));
+			query.setDiagonalMoveAllowed(q % 2 == 0);
+			query.setBidirectional(q % 3 == 0);
+			query.setAlgorithm(algorithms[q % algorithms.length]);
+
+			PathResult result = pathFinder.findPath(query);
+			PathResult mappedResult = mappedPathFinder.findPath(query);
+			assertEquals(mappedResult.isPathFound(), result.isPathFound());
+			assertEquals(mappedResult.getCost(), result.getCost(), 0.0001f);
+			assertEquals(mappedResult.getNodesExpanded(), result.getNodesExpanded());
+
+		}
+
+		mappedGrid.close();
+
+	}
+
+	@Test
+	public void testReachedCellsListed() {
+
+		Random random = new Random(23);
+		Grid grid = new Grid(40, 30);
+		for (int i = 0; i < 40; i++) {
+			for (int j = 0; j < 30; j++) {
+				if (random.nextFloat() < 0.25f)
+					grid.setCellData(i, j, 0);
+			}
+		}
+
+		PathFinder pathFinder = new PathFinder(grid);
+		SearchAlgorithm[] algorithms = { SearchAlgorithm.DIJKSTRA, SearchAlgorithm.A_STAR, SearchAlgorithm.JUMP_POINT };
+
+		for (int q = 0; q < 30; q++) {
+
+			PathQuery query = new PathQuery(random.nextInt(40), random.nextInt(30), random.nextInt(40), random.nextInt(30));
+			query.setDiagonalMoveAllowed(q % 2 == 0);
+			query.setBidirectional(q % 3 == 0);
+			query.setAlgorithm(algorithms[q % algorithms.length]);
+			pathFinder.findPath(query);
+
+			// every listed cell was reached, and every reached cell is listed
+			boolean[] listed = new boolean[grid.getCellCount()];
+			for (int i = 0; i < pathFinder.getReachedCellCount(); i++) {
+				int cell = pathFinder.getReachedCell(i);
+				assertTrue(pathFinder.wasCellReached(grid.getX(cell), grid.getY(cell)));
+				listed[cell] = true;
+			}
+			for (int cell = 0; cell < grid.getCellCount(); cell++)
+				assertEquals(pathFinder.wasCellReached(grid.getX(cell), grid.getY(cell)), listed[cell]);
+
+		}
+
+	}
+
+}
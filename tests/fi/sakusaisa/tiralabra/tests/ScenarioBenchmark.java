@@ -0,0 +1,321 @@
+package fi.sakusaisa.tiralabra.tests;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import fi.sakusaisa.tiralabra.core.Grid;
+import fi.sakusaisa.tiralabra.core.Landmarks;
+import fi.sakusaisa.tiralabra.core.MovingAiMapReader;
+import fi.sakusaisa.tiralabra.core.MovingAiScenarioReader;
+import fi.sakusaisa.tiralabra.core.OpenSetType;
+import fi.sakusaisa.tiralabra.core.PathFinder;
+import fi.sakusaisa.tiralabra.core.PathQuery;
+import fi.sakusaisa.tiralabra.core.PathResult;
+import fi.sakusaisa.tiralabra.core.ScenarioBatch;
+import fi.sakusaisa.tiralabra.core.SearchAlgorithm;
+
+/**
+ * Runs a whole scenario set, a map and its queries, through every search
+ * algorithm with every open set and reports for each combination:
+ *
+ * - the queries per second
+ * - the 50th and 99th percentile and the largest latency of a query
+ * - the nodes expanded
+ * - the peak size of the open set
+ * - the ratio of the found path lengths to the optimal ones of the scenario
+ *
+ * as JSON or CSV on the standard output, so the results of different versions
+ * can be compared. The scenario is either a Moving AI .map and .scen pair, or
+ * without them a random map whose optimal lengths are found with Dijkstra.
+ * Every combination first runs all the queries untimed so the JIT has compiled
+ * everything, then once more timing every query on its own.
+ *
+ * @author Saku Säisä
+ */
+public class ScenarioBenchmark {
+
+	private static final String CSV_HEADER = "scenario,algorithm,openSet,queries,failed,queriesPerSecond,"
+			+ "p50Nanos,p99Nanos,maxNanos,nodesExpanded,meanNodesExpanded,peakOpenSetSize,meanLengthRatio,maxLengthRatio";
+
+	private String scenarioName;
+	private Grid grid;
+	private PathQuery[] queries;
+	private double[] optimalLengths;
+
+	/**
+	 * Constructor for a Moving AI scenario.
+	 *
+	 * @param mapFile The .map file.
+	 * @param scenarioFile The .scen file made for the map.
+	 * @throws IOException if either file can't be read
+	 */
+	public ScenarioBenchmark(File mapFile, File scenarioFile) throws IOException {
+
+		this.scenarioName = scenarioFile.getName();
+		this.grid = MovingAiMapReader.read(mapFile);
+
+		List<ScenarioBatch> batches = new ArrayList<ScenarioBatch>();
+		int count = 0;
+		InputStream in = new BufferedInputStream(new FileInputStream(scenarioFile));
+		try {
+			MovingAiScenarioReader reader = new MovingAiScenarioReader(in);
+			ScenarioBatch batch;
+			while ((batch = reader.nextBatch(1024)) != null) {
+				batches.add(batch);
+				count += batch.getSize();
+			}
+		}
+		finally {
+			in.close();
+		}
+
+		this.queries = new PathQuery[count];
+		this.optimalLengths = new double[count];
+		int q = 0;
+		for (ScenarioBatch batch : batches) {
+			for (int i = 0; i < batch.getSize(); i++, q++) {
+				queries[q] = batch.getQuery(i);
+				optimalLengths[q] = batch.getOptimalLength(i);
+			}
+		}
+
+	}
+
+	/**
+	 * Constructor for a random scenario, of queries between random connected cells.
+	 *
+	 * @param size The width and height of the map.
+	 * @param density The share of the cells that are obstacles.
+	 * @param count The amount of queries.
+	 * @param seed The seed of the map and the queries.
+	 */
+	public ScenarioBenchmark(int size, float density, int count, long seed) {
+
+		this.scenarioName = "random-" + size + "-" + density + "-" + seed;
+		Random random = new Random(seed);
+		this.grid = new Grid(size, size);
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				if (random.nextFloat() < density)
+					grid.setCellData(i, j, 0);
+			}
+		}
+
+		this.queries = new PathQuery[count];
+		this.optimalLengths = new double[count];
+		PathFinder reference = new PathFinder(grid);
+
+		int q = 0;
+		while (q < count) {
+			PathQuery query = new PathQuery(random.nextInt(size), random.nextInt(size), random.nextInt(size), random.nextInt(size));
+			query.setDiagonalMoveAllowed(true);
+			if (!grid.isPassable(grid.index(query.getStartX(), query.getStartY())))
+				continue;
+			PathResult result = reference.findPath(query);
+			if (!result.isPathFound())
+				continue;
+			queries[q] = query;
+			optimalLengths[q] = result.getCost();
+			q++;
+		}
+
+	}
+
+	/**
+	 * The measurements of one combination.
+	 */
+	private static class Run {
+
+		String algorithm;
+		String openSet;
+		int queries;
+		int failed;
+		double queriesPerSecond;
+		long p50Nanos;
+		long p99Nanos;
+		long maxNanos;
+		long nodesExpanded;
+		int peakOpenSetSize;
+		double meanLengthRatio;
+		double maxLengthRatio;
+
+	}
+
+	/**
+	 * Runs every query with an algorithm and an open set.
+	 */
+	private Run run(PathFinder pathFinder, SearchAlgorithm algorithm, OpenSetType openSetType, int warmup) {
+
+		PathQuery[] runQueries = new PathQuery[queries.length];
+		for (int q = 0; q < queries.length; q++) {
+			runQueries[q] = new PathQuery(queries[q].getStartX(), queries[q].getStartY(), queries[q].getGoalX(), queries[q].getGoalY());
+			runQueries[q].setDiagonalMoveAllowed(queries[q].isDiagonalMoveAllowed());
+			runQueries[q].setAlgorithm(algorithm);
+			runQueries[q].setOpenSetType(openSetType);
+		}
+
+		for (int round = 0; round < warmup; round++) {
+			for (PathQuery query : runQueries)
+				pathFinder.findPath(query);
+		}
+
+		Run run = new Run();
+		run.algorithm = algorithm.name();
+		run.openSet = openSetType.name();
+		run.queries = queries.length;
+
+		long[] latencies = new long[queries.length];
+		long totalNanos = 0;
+		double ratioSum = 0;
+		int ratioCount = 0;
+
+		for (int q = 0; q < runQueries.length; q++) {
+
+			long startTime = System.nanoTime();
+			PathResult result = pathFinder.findPath(runQueries[q]);
+			latencies[q] = System.nanoTime() - startTime;
+			totalNanos += latencies[q];
+
+			run.nodesExpanded += result.getNodesExpanded();
+			run.peakOpenSetSize = Math.max(run.peakOpenSetSize, result.getPeakOpenSetSize());
+
+			if (!result.isPathFound()) {
+				run.failed++;
+				continue;
+			}
+
+			double ratio = optimalLengths[q] > 0 ? result.getCost() / optimalLengths[q] : 1;
+			ratioSum += ratio;
+			ratioCount++;
+			run.maxLengthRatio = Math.max(run.maxLengthRatio, ratio);
+
+		}
+
+		Arrays.sort(latencies);
+		run.queriesPerSecond = totalNanos > 0 ? queries.length * 1e9 / totalNanos : 0;
+		run.p50Nanos = percentile(latencies, 50);
+		run.p99Nanos = percentile(latencies, 99);
+		run.maxNanos = latencies.length > 0 ? latencies[latencies.length - 1] : 0;
+		run.meanLengthRatio = ratioCount > 0 ? ratioSum / ratioCount : 0;
+
+		return run;
+
+	}
+
+	/**
+	 * The nearest rank percentile of sorted values.
+	 */
+	private static long percentile(long[] sorted, int percent) {
+		if (sorted.length == 0)
+			return 0;
+		int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+		return sorted[Math.max(rank, 1) - 1];
+	}
+
+	/**
+	 * Runs every algorithm with every open set that works with the scenario's moves.
+	 *
+	 * @param warmup The untimed rounds before each timed one.
+	 * @return The measurements.
+	 */
+	private List<Run> runAll(int warmup) {
+
+		PathFinder pathFinder = new PathFinder(grid);
+		boolean diagonal = queries.length > 0 && queries[0].isDiagonalMoveAllowed();
+		pathFinder.setLandmarks(new Landmarks(grid, 8, diagonal));
+
+		List<Run> runs = new ArrayList<Run>();
+		for (SearchAlgorithm algorithm : SearchAlgorithm.values()) {
+			for (OpenSetType openSetType : OpenSetType.values()) {
+
+				// automatic is one of the others, and the bucket queue would fall back to the binary heap
+				if (openSetType == OpenSetType.AUTOMATIC || (diagonal && openSetType == OpenSetType.BUCKET_QUEUE))
+					continue;
+
+				runs.add(run(pathFinder, algorithm, openSetType, warmup));
+
+			}
+		}
+
+		return runs;
+
+	}
+
+	private static String quote(String text) {
+		return "\"" + text.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+	}
+
+	private String toJson(List<Run> runs) {
+
+		StringBuilder json = new StringBuilder();
+		json.append("{\n  \"scenario\": ").append(quote(scenarioName));
+		json.append(",\n  \"width\": ").append(grid.getWidth());
+		json.append(",\n  \"height\": ").append(grid.getHeight());
+		json.append(",\n  \"queries\": ").append(queries.length);
+		json.append(",\n  \"runs\": [");
+
+		for (int i = 0; i < runs.size(); i++) {
+			Run run = runs.get(i);
+			json.append(i == 0 ? "\n" : ",\n");
+			json.append(String.format(Locale.ROOT,
+					"    {\"algorithm\": %s, \"openSet\": %s, \"queries\": %d, \"failed\": %d, \"queriesPerSecond\": %.2f, "
+					+ "\"p50Nanos\": %d, \"p99Nanos\": %d, \"maxNanos\": %d, \"nodesExpanded\": %d, \"meanNodesExpanded\": %.2f, "
+					+ "\"peakOpenSetSize\": %d, \"meanLengthRatio\": %.6f, \"maxLengthRatio\": %.6f}",
+					quote(run.algorithm), quote(run.openSet), run.queries, run.failed, run.queriesPerSecond,
+					run.p50Nanos, run.p99Nanos, run.maxNanos, run.nodesExpanded, (double) run.nodesExpanded / Math.max(run.queries, 1),
+					run.peakOpenSetSize, run.meanLengthRatio, run.maxLengthRatio));
+		}
+
+		json.append("\n  ]\n}");
+		return json.toString();
+
+	}
+
+	private String toCsv(List<Run> runs) {
+
+		StringBuilder csv = new StringBuilder(CSV_HEADER);
+		for (Run run : runs) {
+			csv.append('\n');
+			csv.append(String.format(Locale.ROOT, "%s,%s,%s,%d,%d,%.2f,%d,%d,%d,%d,%.2f,%d,%.6f,%.6f",
+					quote(scenarioName), run.algorithm, run.openSet, run.queries, run.failed, run.queriesPerSecond,
+					run.p50Nanos, run.p99Nanos, run.maxNanos, run.nodesExpanded, (double) run.nodesExpanded / Math.max(run.queries, 1),
+					run.peakOpenSetSize, run.meanLengthRatio, run.maxLengthRatio));
+		}
+		return csv.toString();
+
+	}
+
+	/**
+	 * @param args the output format (json or csv), optionally followed by a .map and a .scen
+	 *             file, and optionally after them the untimed rounds per combination
+	 * @throws IOException if the files can't be read
+	 */
+	public static void main(String[] args) throws IOException {
+
+		String format = args.length > 0 ? args[0] : "json";
+		if (!format.equals("json") && !format.equals("csv")) {
+			System.err.println("usage: ScenarioBenchmark [json|csv] [map scen [warmup rounds]]");
+			return;
+		}
+
+		ScenarioBenchmark benchmark;
+		if (args.length >= 3)
+			benchmark = new ScenarioBenchmark(new File(args[1]), new File(args[2]));
+		else
+			benchmark = new ScenarioBenchmark(256, 0.25f, 500, 1);
+		int warmup = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+
+		List<Run> runs = benchmark.runAll(warmup);
+		System.out.println(format.equals("json") ? benchmark.toJson(runs) : benchmark.toCsv(runs));
+
+	}
+
+}
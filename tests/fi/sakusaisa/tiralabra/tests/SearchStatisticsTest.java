@@ -0,0 +1,282 @@
+package fi.sakusaisa.tiralabra.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import fi.sakusaisa.tiralabra.core.BatchPathFinder;
+import fi.sakusaisa.tiralabra.core.Grid;
+import fi.sakusaisa.tiralabra.core.LatencyHistogram;
+import fi.sakusaisa.tiralabra.core.PathFinder;
+import fi.sakusaisa.tiralabra.core.PathQuery;
+import fi.sakusaisa.tiralabra.core.PathResult;
+import fi.sakusaisa.tiralabra.core.SearchAlgorithm;
+import fi.sakusaisa.tiralabra.core.SearchListener;
+import fi.sakusaisa.tiralabra.core.SearchMetrics;
+import fi.sakusaisa.tiralabra.core.SearchStatistics;
+
+public class SearchStatisticsTest {
+
+	/**
+	 * Keeps a copy of what it was told about the last search.
+	 */
+	private static class LastSearch implements SearchListener {
+
+		int calls;
+		PathResult result;
+		int expanded, generated, reopened, decreased, peakOpen, peakClosed;
+		long siftSteps, resetNanos, searchNanos, reconstructionNanos;
+
+		public void searchFinished(PathQuery query, PathResult result, SearchMetrics metrics) {
+			calls++;
+			this.result = result;
+			expanded = metrics.getExpandedNodes();
+			generated = metrics.getGeneratedNodes();
+			reopened = metrics.getReopenedNodes();
+			decreased = metrics.getDecreaseKeys();
+			peakOpen = metrics.getPeakOpenSetSize();
+			peakClosed = metrics.getPeakClosedSetSize();
+			siftSteps = metrics.getSiftSteps();
+			resetNanos = metrics.getResetNanos();
+			searchNanos = metrics.getSearchNanos();
+			reconstructionNanos = metrics.getReconstructionNanos();
+		}
+
+	}
+
+	private Grid randomGrid(long seed, int size, float density) {
+		Random random = new Random(seed);
+		Grid grid = new Grid(size, size);
+		for (int x = 0; x < size; x++)
+			for (int y = 0; y < size; y++)
+				if (random.nextFloat() < density)
+					grid.setCellData(x, y, 0);
+		grid.setCellData(0, 0, 1);
+		grid.setCellData(size - 1, size - 1, 1);
+		return grid;
+	}
+
+	@Test
+	public void testListenerGetsTheMetricsOfEverySearch() {
+
+		Grid grid = randomGrid(3, 40, 0.2f);
+		PathFinder pathFinder = new PathFinder(grid);
+		LastSearch listener = new LastSearch();
+		pathFinder.setSearchListener(listener);
+
+		PathQuery query = new PathQuery(0, 0, 39, 39);
+		query.setDiagonalMoveAllowed(true);
+		PathResult result = pathFinder.findPath(query);
+
+		assertEquals(1, listener.calls);
+		assertSame(result, listener.result);
+		assertEquals(result.getNodesExpanded(), listener.expanded);
+		assertEquals(result.getPeakOpenSetSize(), listener.peakOpen);
+		assertEquals(listener.expanded, listener.peakClosed);
+
+		// every expanded cell was generated first, and the goal too
+		assertTrue(listener.generated >= listener.expanded + 1);
+		assertTrue(listener.decreased > 0);
+		assertTrue(listener.siftSteps > 0);
+
+		assertTrue(listener.resetNanos >= 0);
+		assertTrue(listener.searchNanos > 0);
+		assertTrue(listener.reconstructionNanos >= 0);
+
+		pathFinder.findPath(query);
+		assertEquals(2, listener.calls);
+
+	}
+
+	@Test
+	public void testNoListener() {
+
+		Grid grid = randomGrid(3, 40, 0.2f);
+		PathFinder pathFinder = new PathFinder(grid);
+		LastSearch listener = new LastSearch();
+		pathFinder.setSearchListener(listener);
+		pathFinder.findPath(new PathQuery(0, 0, 39, 39));
+
+		pathFinder.setSearchListener(null);
+		assertNull(pathFinder.getSearchListener());
+		assertTrue(pathFinder.findPath(new PathQuery(0, 0, 39, 39)).isPathFound());
+		assertEquals(1, listener.calls);
+
+	}
+
+	@Test
+	public void testNoPath() {
+
+		// the goal is walled in
+		Grid grid = new Grid(10, 10);
+		grid.setCellData(8, 9, 0);
+		grid.setCellData(8, 8, 0);
+		grid.setCellData(9, 8, 0);
+
+		PathFinder pathFinder = new PathFinder(grid);
+		LastSearch listener = new LastSearch();
+		pathFinder.setSearchListener(listener);
+
+		PathQuery query = new PathQuery(0, 0, 9, 9);
+		query.setDiagonalMoveAllowed(true);
+		assertFalse(pathFinder.findPath(query).isPathFound());
+
+		// the goal is in a component of its own, so nothing gets searched
+		assertEquals(1, listener.calls);
+		assertEquals(0, listener.expanded);
+		assertEquals(0, listener.generated);
+		assertEquals(0, listener.reconstructionNanos);
+
+	}
+
+	@Test
+	public void testConsistentHeuristicReopensNothing() {
+
+		Grid grid = randomGrid(5, 60, 0.3f);
+		PathFinder pathFinder = new PathFinder(grid);
+		LastSearch listener = new LastSearch();
+		pathFinder.setSearchListener(listener);
+
+		for (SearchAlgorithm algorithm : new SearchAlgorithm[] { SearchAlgorithm.DIJKSTRA, SearchAlgorithm.A_STAR }) {
+			PathQuery query = new PathQuery(0, 0, 59, 59);
+			query.setDiagonalMoveAllowed(true);
+			query.setAlgorithm(algorithm);
+			pathFinder.findPath(query);
+			assertEquals(0, listener.reopened);
+		}
+
+	}
+
+	@Test
+	public void testStatisticsAddUp() {
+
+		Grid grid = randomGrid(7, 50, 0.25f);
+		PathFinder pathFinder = new PathFinder(grid);
+		SearchStatistics statistics = new SearchStatistics();
+		pathFinder.setSearchListener(statistics);
+
+		Random random = new Random(11);
+		long expanded = 0;
+		int found = 0;
+		int peak = 0;
+		for (int i = 0; i < 40; i++) {
+			PathQuery query = new PathQuery(random.nextInt(50), random.nextInt(50), random.nextInt(50), random.nextInt(50));
+			query.setDiagonalMoveAllowed(true);
+			PathResult result = pathFinder.findPath(query);
+			expanded += result.getNodesExpanded();
+			peak = Math.max(peak, result.getPeakOpenSetSize());
+			if (result.isPathFound())
+				found++;
+		}
+
+		assertEquals(40, statistics.getSearches());
+		assertEquals(found, statistics.getPathsFound());
+		assertEquals(expanded, statistics.getExpandedNodes());
+		assertEquals(peak, statistics.getPeakOpenSetSize());
+		assertEquals(40, statistics.getLatencies().getCount());
+		assertEquals(found, statistics.getReconstructionLatencies().getCount());
+		assertTrue(statistics.getLatencies().getPercentile(99) >= statistics.getLatencies().getPercentile(50));
+		assertTrue(statistics.getMeanSiftDepth() > 0);
+
+		statistics.clear();
+		assertEquals(0, statistics.getSearches());
+		assertEquals(0, statistics.getLatencies().getCount());
+
+	}
+
+	@Test
+	public void testBatchPathFinder() {
+
+		Grid grid = randomGrid(9, 50, 0.2f);
+		BatchPathFinder batch = new BatchPathFinder(grid, 3);
+		SearchStatistics statistics = new SearchStatistics();
+		batch.setSearchListener(statistics);
+
+		PathQuery[] queries = new PathQuery[200];
+		Random random = new Random(13);
+		for (int i = 0; i < queries.length; i++)
+			queries[i] = new PathQuery(random.nextInt(50), random.nextInt(50), random.nextInt(50), random.nextInt(50));
+
+		PathResult[] results = batch.findPaths(queries);
+		batch.shutdown();
+
+		long expanded = 0;
+		for (PathResult result : results)
+			expanded += result.getNodesExpanded();
+
+		assertEquals(200, statistics.getSearches());
+		assertEquals(expanded, statistics.getExpandedNodes());
+
+	}
+
+	@Test
+	public void testHistogramSmallValuesAreExact() {
+
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getPercentile(50));
+		assertEquals(0, histogram.getMin());
+
+		for (int i = 1; i <= 10; i++)
+			histogram.record(i);
+
+		assertEquals(10, histogram.getCount());
+		assertEquals(1, histogram.getMin());
+		assertEquals(10, histogram.getMax());
+		assertEquals(5.5, histogram.getMean(), 1e-9);
+		assertEquals(5, histogram.getPercentile(50));
+		assertEquals(9, histogram.getPercentile(90));
+		assertEquals(10, histogram.getPercentile(100));
+		assertEquals(1, histogram.getPercentile(0));
+
+	}
+
+	@Test
+	public void testHistogramPrecision() {
+
+		LatencyHistogram histogram = new LatencyHistogram();
+		Random random = new Random(17);
+		long[] values = new long[10000];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = (long) Math.exp(random.nextDouble() * 30);
+			histogram.record(values[i]);
+		}
+		Arrays.sort(values);
+
+		for (int percent = 1; percent <= 100; percent++) {
+			long exact = values[(int) Math.ceil(percent / 100.0 * values.length) - 1];
+			long estimate = histogram.getPercentile(percent);
+			assertTrue(estimate >= exact);
+			assertTrue(estimate <= exact + exact / 16 + 1);
+		}
+
+		histogram.record(Long.MAX_VALUE);
+		assertEquals(Long.MAX_VALUE, histogram.getPercentile(100));
+
+	}
+
+	@Test
+	public void testHistogramCopyAndAdd() {
+
+		LatencyHistogram first = new LatencyHistogram();
+		first.record(100);
+		first.record(-5);
+
+		LatencyHistogram copy = new LatencyHistogram(first);
+		first.clear();
+		assertEquals(0, first.getCount());
+		assertEquals(2, copy.getCount());
+		assertEquals(0, copy.getMin());
+
+		LatencyHistogram second = new LatencyHistogram();
+		second.record(1000000);
+		copy.add(second);
+		assertEquals(3, copy.getCount());
+		assertEquals(1000000, copy.getMax());
+		assertTrue(copy.getPercentile(50) >= 100 && copy.getPercentile(50) <= 100 + 100 / 16);
+
+	}
+
+}